@@ -23,8 +23,11 @@
 
 package com.oracle.graal.alloc;
 
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
 import java.util.*;
 
+import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.compiler.common.cfg.*;
 
 /**
@@ -40,6 +43,11 @@ import com.oracle.graal.compiler.common.cfg.*;
  * backward jumps are always marked as aligned. Aligning the target of conditional jumps does not
  * bring a measurable benefit and is therefore avoided to keep the code size small.
  *
+ * If {@link GraalOptions#SplitColdBlocks} is enabled, cold blocks (exception handler entries and
+ * blocks whose probability is below {@link GraalOptions#ColdBlockProbability}, such as
+ * deoptimization and slow paths) are moved to the end of the code emission order. This keeps the
+ * hot code of a method dense.
+ *
  * The linear scan register allocator order has an additional mechanism that prevents merge nodes
  * from being scheduled if there is at least one highly likely predecessor still unscheduled. This
  * increases the probability that the merge node and the corresponding predecessor are more closely
@@ -86,9 +94,31 @@ public final class ComputeBlockOrder {
         PriorityQueue<T> worklist = initializeWorklist(startBlock, visitedBlocks);
         computeCodeEmittingOrder(order, worklist, visitedBlocks);
         assert checkOrder(order, blockCount);
+        if (SplitColdBlocks.getValue()) {
+            return moveColdBlocksToEnd(order, startBlock, ColdBlockProbability.getValue());
+        }
         return order;
     }
 
+    /**
+     * Moves the cold blocks of a code emission order behind all hot blocks, preserving the relative
+     * order within both groups. Cold blocks are not aligned.
+     */
+    private static <T extends AbstractBlock<T>> List<T> moveColdBlocksToEnd(List<T> order, T startBlock, double coldProbability) {
+        List<T> hot = new ArrayList<>(order.size());
+        List<T> cold = new ArrayList<>();
+        for (T block : order) {
+            if (block != startBlock && (block.isExceptionEntry() || block.probability() < coldProbability)) {
+                block.setAlign(false);
+                cold.add(block);
+            } else {
+                hot.add(block);
+            }
+        }
+        hot.addAll(cold);
+        return hot;
+    }
+
     /**
      * Iteratively adds paths to the code emission block order.
      */
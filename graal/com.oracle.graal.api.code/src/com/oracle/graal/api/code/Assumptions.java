@@ -47,7 +47,7 @@ public final class Assumptions implements Serializable, Iterable<Assumptions.Ass
 
         private static final long serialVersionUID = 6451169735564055081L;
 
-        private ResolvedJavaType receiverType;
+        public final ResolvedJavaType receiverType;
 
         public NoFinalizableSubclass(ResolvedJavaType receiverType) {
             this.receiverType = receiverType;
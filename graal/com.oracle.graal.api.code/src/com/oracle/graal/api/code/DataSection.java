@@ -178,6 +178,13 @@ public class DataSection implements Serializable, Iterable<Data> {
         sectionSize = position;
     }
 
+    /**
+     * Determines if {@link #finalizeLayout} has been called.
+     */
+    public boolean isFinalized() {
+        return finalLayout;
+    }
+
     /**
      * Get the size of the data section. Can only be called after {@link #finalizeLayout}.
      */
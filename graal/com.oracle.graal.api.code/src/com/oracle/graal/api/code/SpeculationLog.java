@@ -47,6 +47,14 @@ public abstract class SpeculationLog {
         }
     }
 
+    /**
+     * Gets the number of speculations that have failed so far. Speculations are only ever added to
+     * the set of failed speculations, so the count identifies its state.
+     */
+    public synchronized int getFailedSpeculationCount() {
+        return failedSpeculations == null ? 0 : failedSpeculations.size();
+    }
+
     public boolean maySpeculate(Object reason) {
         if (failedSpeculations != null && failedSpeculations.contains(reason)) {
             return false;
@@ -433,6 +433,23 @@ public class AMD64Assembler extends Assembler {
         emitInt(0); // 32-bits offset (4 bytes)
     }
 
+    public final void addpd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x58);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void addps(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x58);
+        emitByte(0xC0 | encode);
+    }
+
     public final void addsd(Register dst, Register src) {
         assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
         emitByte(0xF2);
@@ -741,6 +758,23 @@ public class AMD64Assembler extends Assembler {
         emitOperandHelper(1, dst);
     }
 
+    public final void divpd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x5E);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void divps(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x5E);
+        emitByte(0xC0 | encode);
+    }
+
     public final void divsd(Register dst, AMD64Address src) {
         assert dst.getRegisterCategory() == AMD64.XMM;
         emitByte(0xF2);
@@ -1270,6 +1304,23 @@ public class AMD64Assembler extends Assembler {
         emitOperandHelper(dst, src);
     }
 
+    public final void mulpd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x59);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void mulps(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x59);
+        emitByte(0xC0 | encode);
+    }
+
     public final void mulsd(Register dst, AMD64Address src) {
         assert dst.getRegisterCategory() == AMD64.XMM;
         emitByte(0xF2);
@@ -1585,6 +1636,138 @@ public class AMD64Assembler extends Assembler {
         emitByte(0xC0 | encode);
     }
 
+    public final void packuswb(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x67);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void paddd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xFE);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void paddq(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xD4);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void pand(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xDB);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void pcmpeqb(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x74);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void pcmpestri(Register dst, AMD64Address src, int imm8) {
+        assert supports(CPUFeature.SSE4_2);
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        prefix(src, dst);
+        emitByte(0x0F);
+        emitByte(0x3A);
+        emitByte(0x61);
+        emitOperandHelper(dst, src);
+        emitByte(imm8);
+    }
+
+    public final void pcmpestri(Register dst, Register src, int imm8) {
+        assert supports(CPUFeature.SSE4_2);
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x3A);
+        emitByte(0x61);
+        emitByte(0xC0 | encode);
+        emitByte(imm8);
+    }
+
+    public final void pinsrw(Register dst, Register src, int imm8) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.CPU;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xC4);
+        emitByte(0xC0 | encode);
+        emitByte(imm8);
+    }
+
+    public final void pmovmskb(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.CPU && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xD7);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void pmovsxbd(Register dst, AMD64Address src) {
+        assert supports(CPUFeature.SSE4_1);
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        prefix(src, dst);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0x21);
+        emitOperandHelper(dst, src);
+    }
+
+    public final void pmovsxwd(Register dst, AMD64Address src) {
+        assert supports(CPUFeature.SSE4_1);
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        prefix(src, dst);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0x23);
+        emitOperandHelper(dst, src);
+    }
+
+    public final void pmovzxwd(Register dst, AMD64Address src) {
+        assert supports(CPUFeature.SSE4_1);
+        assert dst.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        prefix(src, dst);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0x33);
+        emitOperandHelper(dst, src);
+    }
+
+    public final void pmulld(Register dst, Register src) {
+        assert supports(CPUFeature.SSE4_1);
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x38);
+        emitByte(0x40);
+        emitByte(0xC0 | encode);
+    }
+
     public final void pop(Register dst) {
         int encode = prefixAndEncode(dst.encoding);
         emitByte(0x58 | encode);
@@ -1594,6 +1777,43 @@ public class AMD64Assembler extends Assembler {
         emitByte(0x9D);
     }
 
+    public final void por(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xEB);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void pshufd(Register dst, Register src, int imm8) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x70);
+        emitByte(0xC0 | encode);
+        emitByte(imm8);
+    }
+
+    public final void psubd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xFA);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void psubq(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0xFB);
+        emitByte(0xC0 | encode);
+    }
+
     public final void ptest(Register dst, Register src) {
         assert supports(CPUFeature.SSE4_1);
         emitByte(0x66);
@@ -1804,6 +2024,23 @@ public class AMD64Assembler extends Assembler {
         emitByte(0xC0 | encode);
     }
 
+    public final void subpd(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0x66);
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x5C);
+        emitByte(0xC0 | encode);
+    }
+
+    public final void subps(Register dst, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        int encode = prefixAndEncode(dst.encoding, src.encoding);
+        emitByte(0x0F);
+        emitByte(0x5C);
+        emitByte(0xC0 | encode);
+    }
+
     public final void subsd(Register dst, Register src) {
         assert dst.getRegisterCategory() == AMD64.XMM;
         assert src.getRegisterCategory() == AMD64.XMM;
@@ -2199,6 +2436,162 @@ public class AMD64Assembler extends Assembler {
         }
     }
 
+    /**
+     * The SIMD prefix encoded in the {@code pp} field of a VEX prefix.
+     */
+    private static final int VEX_SIMD_NONE = 0x0;
+    private static final int VEX_SIMD_66 = 0x1;
+    private static final int VEX_SIMD_F3 = 0x2;
+
+    /**
+     * The opcode map encoded in the {@code mmmmm} field of a VEX prefix.
+     */
+    private static final int VEX_OPCODE_0F = 0x1;
+    private static final int VEX_OPCODE_0F_38 = 0x2;
+
+    /**
+     * Emits a VEX prefix for a 256-bit vector instruction. The two byte form is used if possible.
+     *
+     * @param rxb the REX.R, REX.X and REX.B bits in bits 2, 1 and 0 respectively (not inverted)
+     * @param ndsEncoding the encoding of the additional source register or 0 if there is none
+     * @param pp the implied SIMD prefix
+     * @param opcodeMap the implied leading opcode bytes
+     */
+    private void emitVexPrefix(int rxb, int ndsEncoding, int pp, int opcodeMap) {
+        int vvvv = (~ndsEncoding & 0xF) << 3;
+        int vectorLength256 = 0x4;
+        if ((rxb & 0x3) == 0 && opcodeMap == VEX_OPCODE_0F) {
+            emitByte(0xC5);
+            emitByte(((~rxb & 0x4) << 5) | vvvv | vectorLength256 | pp);
+        } else {
+            emitByte(0xC4);
+            emitByte(((~rxb & 0x7) << 5) | opcodeMap);
+            emitByte(vvvv | vectorLength256 | pp);
+        }
+    }
+
+    private void emitVexOp(int pp, int opcodeMap, int opcode, Register dst, Register nds, Register src) {
+        assert dst.getRegisterCategory() == AMD64.XMM && nds.getRegisterCategory() == AMD64.XMM && src.getRegisterCategory() == AMD64.XMM;
+        int rxb = (dst.encoding >= 8 ? 0x4 : 0) | (src.encoding >= 8 ? 0x1 : 0);
+        emitVexPrefix(rxb, nds.encoding, pp, opcodeMap);
+        emitByte(opcode);
+        emitByte(0xC0 | (dst.encoding & 0x7) << 3 | (src.encoding & 0x7));
+    }
+
+    private void emitVexOp(int pp, int opcodeMap, int opcode, Register reg, AMD64Address adr) {
+        assert reg.getRegisterCategory() == AMD64.XMM;
+        int rxb = (reg.encoding >= 8 ? 0x4 : 0) | (needsRex(adr.getIndex()) ? 0x2 : 0) | (needsRex(adr.getBase()) ? 0x1 : 0);
+        emitVexPrefix(rxb, 0, pp, opcodeMap);
+        emitByte(opcode);
+        emitOperandHelper(reg, adr);
+    }
+
+    /*
+     * The AVX instructions below operate on 256-bit (YMM) registers. The XMM register operands
+     * denote the YMM registers they are the lower half of.
+     */
+
+    public final void vaddpd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0x58, dst, nds, src);
+    }
+
+    public final void vaddps(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_NONE, VEX_OPCODE_0F, 0x58, dst, nds, src);
+    }
+
+    public final void vdivpd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0x5E, dst, nds, src);
+    }
+
+    public final void vdivps(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_NONE, VEX_OPCODE_0F, 0x5E, dst, nds, src);
+    }
+
+    public final void vmovdqu(Register dst, AMD64Address src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_F3, VEX_OPCODE_0F, 0x6F, dst, src);
+    }
+
+    public final void vmovdqu(AMD64Address dst, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_F3, VEX_OPCODE_0F, 0x7F, src, dst);
+    }
+
+    public final void vmulpd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0x59, dst, nds, src);
+    }
+
+    public final void vmulps(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_NONE, VEX_OPCODE_0F, 0x59, dst, nds, src);
+    }
+
+    public final void vpaddd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xFE, dst, nds, src);
+    }
+
+    public final void vpaddq(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xD4, dst, nds, src);
+    }
+
+    public final void vpand(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xDB, dst, nds, src);
+    }
+
+    public final void vpmulld(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F_38, 0x40, dst, nds, src);
+    }
+
+    public final void vpor(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xEB, dst, nds, src);
+    }
+
+    public final void vpsubd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xFA, dst, nds, src);
+    }
+
+    public final void vpsubq(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xFB, dst, nds, src);
+    }
+
+    public final void vpxor(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX2);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0xEF, dst, nds, src);
+    }
+
+    public final void vsubpd(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_66, VEX_OPCODE_0F, 0x5C, dst, nds, src);
+    }
+
+    public final void vsubps(Register dst, Register nds, Register src) {
+        assert supports(CPUFeature.AVX);
+        emitVexOp(VEX_SIMD_NONE, VEX_OPCODE_0F, 0x5C, dst, nds, src);
+    }
+
+    /**
+     * Zeroes the upper halves of all YMM registers. This avoids the penalty of a transition from
+     * AVX to legacy SSE code.
+     */
+    public final void vzeroupper() {
+        assert supports(CPUFeature.AVX);
+        emitByte(0xC5);
+        emitByte(0xF8);
+        emitByte(0x77);
+    }
+
     public final void addq(Register dst, int imm32) {
         emitArithImm32q(0, dst, imm32);
     }
@@ -2483,6 +2876,15 @@ public class AMD64Assembler extends Assembler {
         emitOperandHelper(dst, src);
     }
 
+    public final void movdqu(AMD64Address dst, Register src) {
+        assert src.getRegisterCategory() == AMD64.XMM;
+        emitByte(0xF3);
+        prefix(dst, src);
+        emitByte(0x0F);
+        emitByte(0x7F);
+        emitOperandHelper(src, dst);
+    }
+
     public final void movslq(AMD64Address dst, int imm32) {
         prefixq(dst);
         emitByte(0xC7);
@@ -2530,6 +2932,15 @@ public class AMD64Assembler extends Assembler {
         emitByte(0xC0 | encode);
     }
 
+    /**
+     * Stores {@code rax} to the {@code rcx} quadwords starting at the address in {@code rdi}.
+     */
+    public final void repStosq() {
+        emitByte(0xF3);
+        emitByte(Prefix.REXW);
+        emitByte(0xAB);
+    }
+
     public final void sarq(Register dst, int imm8) {
         assert isShiftCount(imm8 >> 1) : "illegal shift count";
         int encode = prefixqAndEncode(dst.encoding);
@@ -1059,6 +1059,76 @@ public abstract class AMD64LIRGenerator extends LIRGenerator {
         return result;
     }
 
+    @Override
+    public void emitArrayFill(Kind kind, Value array, Value fromIndex, Value toIndex, Value value) {
+        append(new AMD64ArrayFillOp(this, kind, load(array), load(fromIndex), load(toIndex), load(value)));
+    }
+
+    @Override
+    public Value emitArrayHashCode(Kind kind, Value array, Value length) {
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64ArrayHashCodeOp(this, kind, result, load(array), load(length)));
+        return result;
+    }
+
+    @Override
+    public Value emitArrayMismatch(Kind kind, Value array1, Value array2, Value length) {
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64ArrayMismatchOp(this, kind, result, load(array1), load(array2), load(length)));
+        return result;
+    }
+
+    @Override
+    public Value emitVectorArrayOp(VectorOperation op, Kind kind, Value dst, Value src1, Value src2, Value from, Value to) {
+        if (!AMD64VectorArrayOp.isSupported(target(), op, kind)) {
+            return super.emitVectorArrayOp(op, kind, dst, src1, src2, from, to);
+        }
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        Value src2Value = op.isBinary() ? load(src2) : Value.ILLEGAL;
+        append(new AMD64VectorArrayOp(this, op, kind, result, load(dst), load(src1), src2Value, load(from), load(to)));
+        return result;
+    }
+
+    @Override
+    public Value emitCharArrayIndexOf(Value array, Value fromIndex, Value toIndex, Value value) {
+        if (!AMD64CharArrayIndexOfOp.isSupported(target())) {
+            return super.emitCharArrayIndexOf(array, fromIndex, toIndex, value);
+        }
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64CharArrayIndexOfOp(this, result, load(array), load(fromIndex), load(toIndex), load(value)));
+        return result;
+    }
+
+    @Override
+    public Value emitCharArraySearch(Value source, Value fromIndex, Value maxIndex, Value target, Value targetOffset, Value targetCount) {
+        if (!AMD64CharArraySearchOp.isSupported(target())) {
+            return super.emitCharArraySearch(source, fromIndex, maxIndex, target, targetOffset, targetCount);
+        }
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64CharArraySearchOp(this, result, load(source), load(fromIndex), load(maxIndex), load(target), load(targetOffset), load(targetCount)));
+        return result;
+    }
+
+    @Override
+    public Value emitCharArrayCompare(Value array1, Value array2, Value length) {
+        if (!AMD64CharArrayCompareOp.isSupported(target())) {
+            return super.emitCharArrayCompare(array1, array2, length);
+        }
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64CharArrayCompareOp(this, result, load(array1), load(array2), load(length)));
+        return result;
+    }
+
+    @Override
+    public Value emitEncodeISOArray(Value src, Value srcOffset, Value dst, Value dstOffset, Value length) {
+        if (!AMD64EncodeISOArrayOp.isSupported(target())) {
+            return super.emitEncodeISOArray(src, srcOffset, dst, dstOffset, length);
+        }
+        Variable result = newVariable(LIRKind.value(Kind.Int));
+        append(new AMD64EncodeISOArrayOp(this, result, load(src), load(srcOffset), load(dst), load(dstOffset), load(length)));
+        return result;
+    }
+
     @Override
     public void emitReturn(Value input) {
         AllocatableValue operand = Value.ILLEGAL;
@@ -102,6 +102,14 @@ public final class GraalOptions {
     public static final OptionValue<Boolean> FullUnroll = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> LoopUnswitch = new OptionValue<>(true);
+    @Option(help = "Split counted loops into a pre loop, an unrolled main loop and a post loop")
+    public static final OptionValue<Boolean> PartialUnroll = new OptionValue<>(false);
+    @Option(help = "Number of copies of the loop body in the main loop of a partially unrolled loop")
+    public static final OptionValue<Integer> PartialUnrollFactor = new OptionValue<>(4);
+    @Option(help = "Maximum number of nodes added by partially unrolling a loop")
+    public static final OptionValue<Integer> PartialUnrollMaxNodes = new OptionValue<>(400);
+    @Option(help = "Run iterations in a pre loop until the counter of a partially unrolled loop is a multiple of the unroll factor")
+    public static final OptionValue<Boolean> PartialUnrollAlignment = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Integer> FullUnrollMaxNodes = new OptionValue<>(300);
     @Option(help = "")
@@ -116,6 +124,10 @@ public final class GraalOptions {
     public static final OptionValue<Integer> LoopUnswitchUncertaintyBoost = new OptionValue<>(5);
     @Option(help = "")
     public static final OptionValue<Boolean> UseLoopLimitChecks = new OptionValue<>(true);
+    @Option(help = "Replace simple element-wise array loops by vector operations")
+    public static final OptionValue<Boolean> VectorizeLoops = new OptionValue<>(false);
+    @Option(help = "Replace bounds and null checks in counted loops by predicates evaluated before the loop")
+    public static final OptionValue<Boolean> LoopPredication = new OptionValue<>(true);
 
     // debugging settings
     @Option(help = "")
@@ -152,6 +164,14 @@ public final class GraalOptions {
     public static final OptionValue<Integer> PrintBinaryGraphPort = new OptionValue<>(4445);
     @Option(help = "")
     public static final OptionValue<Boolean> PrintIdealGraphSchedule = new OptionValue<>(false);
+    @Option(help = "Write binary graphs on a background thread instead of the compiler thread")
+    public static final OptionValue<Boolean> PrintBinaryGraphsAsync = new OptionValue<>(false);
+    @Option(help = "Maximum number of bytes of binary graphs per dump target waiting to be written by the background thread")
+    public static final OptionValue<Integer> PrintBinaryGraphsAsyncBufferSize = new OptionValue<>(16 * 1024 * 1024);
+    @Option(help = "Drop graphs instead of waiting when the binary graphs waiting to be written exceed PrintBinaryGraphsAsyncBufferSize")
+    public static final OptionValue<Boolean> PrintBinaryGraphsAsyncDrop = new OptionValue<>(false);
+    @Option(help = "Write binary graph files through a memory-mapped file")
+    public static final OptionValue<Boolean> PrintBinaryGraphsMappedFile = new OptionValue<>(false);
 
     // Other printing settings
     @Option(help = "")
@@ -216,6 +236,12 @@ public final class GraalOptions {
     public static final OptionValue<Boolean> ResolveClassBeforeStaticInvoke = new OptionValue<>(false);
     @Option(help = "")
     public static final OptionValue<Boolean> CanOmitFrame = new OptionValue<>(true);
+    @Option(help = "Emit blocks with a probability below ColdBlockProbability and exception handler entries after all other blocks.")
+    public static final OptionValue<Boolean> SplitColdBlocks = new OptionValue<>(true);
+    @Option(help = "Probability, relative to the method entry, below which a block is considered cold.")
+    public static final OptionValue<Double> ColdBlockProbability = new OptionValue<>(0.02);
+    @Option(help = "Alignment in bytes of loop headers and other jump targets marked as aligned (0 for twice the word size).")
+    public static final OptionValue<Integer> LoopHeaderAlignment = new OptionValue<>(0);
 
     // Translating tableswitch instructions
     @Option(help = "")
@@ -232,6 +258,23 @@ public final class GraalOptions {
     @Option(help = "")
     public static final OptionValue<Boolean> CallArrayCopy = new OptionValue<>(true);
 
+    // Parallel execution within a compilation
+    @Option(help = "Run independent parts of some compiler phases on a pool of threads")
+    public static final OptionValue<Boolean> ParallelCompilation = new OptionValue<>(false);
+
+    @Option(help = "Number of threads used by ParallelCompilation (0 = number of available processors)")
+    public static final OptionValue<Integer> ParallelCompilationThreads = new OptionValue<>(0);
+
+    @Option(help = "Minimum number of independent work items for which ParallelCompilation uses the thread pool")
+    public static final OptionValue<Integer> ParallelCompilationThreshold = new OptionValue<>(256);
+
+    // Compilation budget
+    @Option(help = "Milliseconds a compilation may take before optional phases are skipped and inlining stops (0 = no limit)")
+    public static final OptionValue<Integer> CompilationTimeBudget = new OptionValue<>(10000);
+
+    @Option(help = "Megabytes a compilation may allocate before optional phases are skipped and inlining stops (0 = no limit)")
+    public static final OptionValue<Integer> CompilationMemoryBudget = new OptionValue<>(2048);
+
     // Runtime settings
     @Option(help = "")
     public static final OptionValue<Boolean> SupportJsrBytecodes = new OptionValue<>(true);
@@ -248,6 +291,8 @@ public final class GraalOptions {
     public static final OptionValue<Boolean> OptDeoptimizationGrouping = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptScheduleOutOfLoops = new OptionValue<>(true);
+    @Option(help = "Reuse the last schedule of a graph that was not modified since it was computed")
+    public static final OptionValue<Boolean> ReuseSchedules = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptEliminateGuards = new OptionValue<>(true);
     @Option(help = "")
@@ -258,10 +303,18 @@ public final class GraalOptions {
     public static final OptionValue<Boolean> OptLoopTransform = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptFloatingReads = new OptionValue<>(true);
+    @Option(help = "Remove reads and guarded computations that are dominated by an equal node and hoist loop invariant guards out of loops.")
+    public static final OptionValue<Boolean> OptGlobalValueNumbering = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptTailDuplication = new OptionValue<>(true);
     @Option(help = "")
     public static final OptionValue<Boolean> OptEliminatePartiallyRedundantGuards = new OptionValue<>(true);
+    @Option(help = "Remove monitor enters and exits on objects whose monitor is already held by an enclosing locking scope.")
+    public static final OptionValue<Boolean> OptEliminateNestedLocks = new OptionValue<>(true);
+    @Option(help = "Maximum number of fixed nodes between two locking scopes on the same object that are merged into one.")
+    public static final OptionValue<Integer> LockCoarseningMaxGap = new OptionValue<>(8);
+    @Option(help = "Maximum number of locking scopes merged into one by lock coarsening.")
+    public static final OptionValue<Integer> LockCoarseningMaxRegions = new OptionValue<>(16);
     @Option(help = "")
     public static final OptionValue<Boolean> OptFilterProfiledTypes = new OptionValue<>(true);
     @Option(help = "")
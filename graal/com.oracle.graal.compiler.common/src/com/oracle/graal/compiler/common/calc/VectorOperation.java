@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common.calc;
+
+/**
+ * An element-wise operation on arrays that can be performed with vector instructions.
+ */
+public enum VectorOperation {
+    /**
+     * Copies the elements of the first source array.
+     */
+    COPY(false),
+    ADD(true),
+    SUB(true),
+    MUL(true),
+    /**
+     * Floating point division.
+     */
+    DIV(true),
+    AND(true),
+    OR(true),
+    XOR(true);
+
+    private final boolean binary;
+
+    private VectorOperation(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Determines if this operation combines the elements of two source arrays.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+}
@@ -797,6 +797,21 @@ public abstract class HSAILLIRGenerator extends LIRGenerator {
         throw GraalInternalError.unimplemented();
     }
 
+    @Override
+    public void emitArrayFill(Kind kind, Value array, Value fromIndex, Value toIndex, Value value) {
+        throw GraalInternalError.unimplemented("HSAILLIRGenerator.emitArrayFill()");
+    }
+
+    @Override
+    public Value emitArrayHashCode(Kind kind, Value array, Value length) {
+        throw GraalInternalError.unimplemented("HSAILLIRGenerator.emitArrayHashCode()");
+    }
+
+    @Override
+    public Value emitArrayMismatch(Kind kind, Value array1, Value array2, Value length) {
+        throw GraalInternalError.unimplemented("HSAILLIRGenerator.emitArrayMismatch()");
+    }
+
     @Override
     public void emitReturn(Value input) {
         AllocatableValue operand = Value.ILLEGAL;
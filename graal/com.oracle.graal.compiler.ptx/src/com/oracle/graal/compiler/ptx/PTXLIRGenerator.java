@@ -797,6 +797,21 @@ public class PTXLIRGenerator extends LIRGenerator {
         throw GraalInternalError.unimplemented();
     }
 
+    @Override
+    public void emitArrayFill(Kind kind, Value array, Value fromIndex, Value toIndex, Value value) {
+        throw GraalInternalError.unimplemented("PTXLIRGenerator.emitArrayFill()");
+    }
+
+    @Override
+    public Value emitArrayHashCode(Kind kind, Value array, Value length) {
+        throw GraalInternalError.unimplemented("PTXLIRGenerator.emitArrayHashCode()");
+    }
+
+    @Override
+    public Value emitArrayMismatch(Kind kind, Value array1, Value array2, Value length) {
+        throw GraalInternalError.unimplemented("PTXLIRGenerator.emitArrayMismatch()");
+    }
+
     @Override
     public void emitReturn(Value input) {
         if (input != null) {
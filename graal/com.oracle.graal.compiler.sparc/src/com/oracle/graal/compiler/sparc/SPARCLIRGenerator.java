@@ -504,6 +504,21 @@ public abstract class SPARCLIRGenerator extends LIRGenerator {
         return result;
     }
 
+    @Override
+    public void emitArrayFill(Kind kind, Value array, Value fromIndex, Value toIndex, Value value) {
+        throw GraalInternalError.unimplemented("SPARCLIRGenerator.emitArrayFill()");
+    }
+
+    @Override
+    public Value emitArrayHashCode(Kind kind, Value array, Value length) {
+        throw GraalInternalError.unimplemented("SPARCLIRGenerator.emitArrayHashCode()");
+    }
+
+    @Override
+    public Value emitArrayMismatch(Kind kind, Value array1, Value array2, Value length) {
+        throw GraalInternalError.unimplemented("SPARCLIRGenerator.emitArrayMismatch()");
+    }
+
     @Override
     public Value emitNegate(Value input) {
         switch (input.getKind().getStackKind()) {
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.printer.*;
+
+public class AsynchronousWriteChannelTest {
+
+    /**
+     * A target channel that blocks writes until {@link #release} is counted down.
+     */
+    static class BlockingChannel implements WritableByteChannel {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch release;
+        volatile boolean closed;
+
+        BlockingChannel(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            int length = src.remaining();
+            byte[] bytes = new byte[length];
+            src.get(bytes);
+            synchronized (written) {
+                written.write(bytes);
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void testOrderAndCloseFlushes() throws IOException {
+        BlockingChannel target = new BlockingChannel(new CountDownLatch(0));
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(target, 1024, false);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            byte[] b = new byte[i];
+            for (int j = 0; j < i; j++) {
+                b[j] = (byte) (i + j);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b);
+            assertEquals(i, channel.write(buffer));
+            assertFalse(buffer.hasRemaining());
+            expected.write(b);
+        }
+        channel.close();
+        assertTrue(target.closed);
+        assertFalse(channel.isOpen());
+        assertArrayEquals(expected.toByteArray(), target.written.toByteArray());
+    }
+
+    @Test
+    public void testWriteCopiesBuffer() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingChannel target = new BlockingChannel(release);
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(target, 1024, false);
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.putInt(42).flip();
+        channel.write(buffer);
+        buffer.clear();
+        buffer.putInt(-1);
+        release.countDown();
+        channel.close();
+        assertEquals(42, ByteBuffer.wrap(target.written.toByteArray()).getInt());
+    }
+
+    @Test
+    public void testDropWhenFull() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingChannel target = new BlockingChannel(release);
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(target, 8, true);
+        assertFalse(channel.shouldDrop());
+        channel.write(ByteBuffer.wrap(new byte[8]));
+        assertTrue(channel.shouldDrop());
+        release.countDown();
+        channel.close();
+        assertFalse(channel.shouldDrop());
+        assertEquals(8, target.written.size());
+    }
+
+    @Test
+    public void testNoDropWhenConfigured() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingChannel target = new BlockingChannel(release);
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(target, 8, false);
+        channel.write(ByteBuffer.wrap(new byte[8]));
+        assertFalse(channel.shouldDrop());
+        release.countDown();
+        channel.close();
+    }
+
+    @Test(expected = ClosedChannelException.class)
+    public void testWriteAfterClose() throws IOException {
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(new BlockingChannel(new CountDownLatch(0)), 8, false);
+        channel.close();
+        channel.write(ByteBuffer.wrap(new byte[1]));
+    }
+
+    @Test
+    public void testFailureIsReported() {
+        WritableByteChannel failing = new BlockingChannel(new CountDownLatch(0)) {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+        AsynchronousWriteChannel channel = new AsynchronousWriteChannel(failing, 8, false);
+        try {
+            channel.write(ByteBuffer.wrap(new byte[4]));
+            channel.close();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.common.inlining.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Tests that a compilation which exceeds its {@link CompilationBudget} skips optional work but
+ * still produces correct code.
+ */
+public class CompilationBudgetTest extends GraalCompilerTest {
+
+    private static class CountingPhase extends Phase {
+
+        private final boolean optional;
+        int runs;
+
+        CountingPhase(boolean optional) {
+            this.optional = optional;
+        }
+
+        @Override
+        public boolean isOptional() {
+            return optional;
+        }
+
+        @Override
+        protected void run(StructuredGraph graph) {
+            runs++;
+        }
+    }
+
+    public static int add(int a, int b) {
+        return a + b;
+    }
+
+    public static int snippet(int[] values) {
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum = add(sum, values[i]);
+            if (sum > 1000) {
+                sum = add(sum, -values.length);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Opens a budget that is already exceeded when it is first checked.
+     */
+    private static CompilationBudget.Scope openExhaustedBudget() throws InterruptedException {
+        try (OverrideScope s = OptionValue.override(CompilationTimeBudget, 1, CompilationMemoryBudget, 0)) {
+            CompilationBudget.Scope budget = CompilationBudget.open();
+            Thread.sleep(10);
+            return budget;
+        }
+    }
+
+    @Test
+    public void testSkipOptionalPhases() throws InterruptedException {
+        StructuredGraph graph = parseEager("snippet");
+        CountingPhase optional = new CountingPhase(true);
+        CountingPhase required = new CountingPhase(false);
+        PhaseSuite<PhaseContext> suite = new PhaseSuite<>();
+        suite.appendPhase(optional);
+        suite.appendPhase(required);
+
+        try (CompilationBudget.Scope budget = openExhaustedBudget()) {
+            suite.apply(graph, new PhaseContext(getProviders(), new Assumptions(false)));
+            Assert.assertTrue(budget.getBudget().isExceeded());
+            Assert.assertEquals(1, budget.getBudget().getSkippedPhases());
+        }
+        Assert.assertEquals(0, optional.runs);
+        Assert.assertEquals(1, required.runs);
+        Assert.assertNull(CompilationBudget.current());
+    }
+
+    @Test
+    public void testStopInlining() throws InterruptedException {
+        StructuredGraph graph = parseEager("snippet");
+        int invokes = graph.getNodes().filter(MethodCallTargetNode.class).count();
+        Assert.assertTrue(invokes > 0);
+
+        HighTierContext context = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+        try (CompilationBudget.Scope budget = openExhaustedBudget()) {
+            new InliningPhase(new CanonicalizerPhase(true)).apply(graph, context);
+            Assert.assertTrue(budget.getBudget().getStoppedInlining() > 0);
+        }
+        Assert.assertEquals(invokes, graph.getNodes().filter(MethodCallTargetNode.class).count());
+    }
+
+    @Test
+    public void testDegradedCompilation() throws InterruptedException {
+        try (CompilationBudget.Scope budget = openExhaustedBudget()) {
+            test("snippet", new int[]{1, 2, 3, 500, 600, -7});
+            Assert.assertTrue(budget.getBudget().getSkippedPhases() > 0);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.alloc.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+public class ComputeBlockOrderTest extends GraalCompilerTest {
+
+    static int field;
+
+    public static int coldSnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 42) {
+                field = i;
+            }
+            sum += a[i];
+        }
+        return sum * 3;
+    }
+
+    private void checkColdBlockLast(boolean split) {
+        StructuredGraph graph = parseEager("coldSnippet");
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, true, true);
+        for (Block block : cfg.getBlocks()) {
+            block.setProbability(1.0);
+        }
+        Block cold = cfg.blockFor(graph.getNodes().filter(StoreFieldNode.class).first());
+        cold.setProbability(0.001);
+        try (OverrideScope s = OptionValue.override(SplitColdBlocks, split)) {
+            List<Block> order = ComputeBlockOrder.computeCodeEmittingOrder(cfg.getBlocks().size(), cfg.getStartBlock());
+            Assert.assertEquals(cfg.getStartBlock(), order.get(0));
+            Assert.assertEquals(split, order.get(order.size() - 1) == cold);
+            Assert.assertFalse(split && cold.isAligned());
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        checkColdBlockLast(true);
+    }
+
+    @Test
+    public void testNoSplit() {
+        checkColdBlockLast(false);
+    }
+}
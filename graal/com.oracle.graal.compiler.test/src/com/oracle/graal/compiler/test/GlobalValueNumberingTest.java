@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.tiers.*;
+
+public class GlobalValueNumberingTest extends GraalCompilerTest {
+
+    public static class Holder {
+        public int value;
+        public int other;
+    }
+
+    public static int redundantSnippet(Holder h, boolean b) {
+        int x = h.value;
+        if (b) {
+            return x + h.value;
+        }
+        return x;
+    }
+
+    public static int invariantSnippet(Holder h, int n) {
+        int sum = 0;
+        int i = 0;
+        do {
+            sum += h.value;
+            i++;
+        } while (i < n);
+        return sum;
+    }
+
+    public static int killedSnippet(Holder h, int n) {
+        int sum = 0;
+        int i = 0;
+        do {
+            sum += h.value;
+            h.value = i;
+            i++;
+        } while (i < n);
+        return sum;
+    }
+
+    private StructuredGraph numberValues(String snippet) {
+        StructuredGraph graph = parseEager(snippet);
+        HighTierContext context = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+        new LoweringPhase(canonicalizer, LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, context);
+        new FloatingReadPhase().apply(graph);
+        canonicalizer.apply(graph, context);
+        new GlobalValueNumberingPhase().apply(graph);
+        canonicalizer.apply(graph, context);
+        return graph;
+    }
+
+    private static int countGuardsAtLoopBegin(StructuredGraph graph) {
+        int count = 0;
+        for (GuardNode guard : graph.getNodes(GuardNode.class)) {
+            if (guard.getAnchor() instanceof LoopBeginNode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Holder holder(int value) {
+        Holder h = new Holder();
+        h.value = value;
+        return h;
+    }
+
+    @Test
+    public void testRedundant() {
+        StructuredGraph graph = numberValues("redundantSnippet");
+        Assert.assertEquals(1, graph.getNodes().filter(FloatingReadNode.class).count());
+        test("redundantSnippet", holder(7), true);
+        test("redundantSnippet", holder(7), false);
+        test("redundantSnippet", null, true);
+    }
+
+    @Test
+    public void testInvariant() {
+        StructuredGraph graph = numberValues("invariantSnippet");
+        Assert.assertEquals(0, countGuardsAtLoopBegin(graph));
+        test("invariantSnippet", holder(3), 10);
+        test("invariantSnippet", holder(3), 0);
+        test("invariantSnippet", null, 5);
+    }
+
+    @Test
+    public void testKilled() {
+        StructuredGraph graph = numberValues("killedSnippet");
+        for (FloatingReadNode read : graph.getNodes().filter(FloatingReadNode.class)) {
+            Assert.assertTrue(read.getLastLocationAccess() instanceof MemoryPhiNode);
+        }
+        test("killedSnippet", holder(3), 10);
+        test("killedSnippet", null, 5);
+    }
+}
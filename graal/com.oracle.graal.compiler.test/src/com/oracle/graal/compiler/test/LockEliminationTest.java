@@ -22,6 +22,8 @@
  */
 package com.oracle.graal.compiler.test;
 
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
 import org.junit.*;
 
 import com.oracle.graal.api.code.*;
@@ -29,6 +31,8 @@ import com.oracle.graal.api.meta.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
 import com.oracle.graal.phases.*;
 import com.oracle.graal.phases.common.*;
 import com.oracle.graal.phases.common.inlining.*;
@@ -86,6 +90,65 @@ public class LockEliminationTest extends GraalCompilerTest {
         assertDeepEquals(1, graph.getNodes().filter(MonitorExitNode.class).count());
     }
 
+    public static void testGapSnippet(A x) {
+        synchronized (x) {
+            field1 = x.value;
+        }
+        int value = x.value;
+        synchronized (x) {
+            field2 = value;
+        }
+    }
+
+    @Test
+    public void testGap() {
+        test("testGapSnippet", new A());
+
+        StructuredGraph graph = getGraph("testGapSnippet");
+        assertDeepEquals(1, graph.getNodes().filter(MonitorEnterNode.class).count());
+        assertDeepEquals(1, graph.getNodes().filter(MonitorExitNode.class).count());
+    }
+
+    public static void testRegionsSnippet(A x) {
+        synchronized (x) {
+            field1 = 1;
+        }
+        synchronized (x) {
+            field2 = 2;
+        }
+        synchronized (x) {
+            field1 = 3;
+        }
+    }
+
+    @Test
+    public void testRegions() {
+        test("testRegionsSnippet", new A());
+
+        StructuredGraph graph = getGraph("testRegionsSnippet");
+        assertDeepEquals(1, graph.getNodes().filter(MonitorEnterNode.class).count());
+        try (OverrideScope s = OptionValue.override(LockCoarseningMaxRegions, 2)) {
+            graph = getGraph("testRegionsSnippet");
+            assertDeepEquals(2, graph.getNodes().filter(MonitorEnterNode.class).count());
+        }
+    }
+
+    public static int testNestedSnippet(A x) {
+        synchronized (x) {
+            return x.getValue();
+        }
+    }
+
+    @Test
+    public void testNested() {
+        test("testNestedSnippet", new A());
+
+        StructuredGraph graph = getGraph("testNestedSnippet");
+        assertDeepEquals(1, graph.getNodes().filter(MonitorEnterNode.class).count());
+        assertDeepEquals(1, graph.getNodes().filter(MonitorExitNode.class).count());
+        assertDeepEquals(1, graph.getNodes().filter(MonitorIdNode.class).filter(id -> ((MonitorIdNode) id).isEliminated()).count());
+    }
+
     private StructuredGraph getGraph(String snippet) {
         ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
         StructuredGraph graph = parseEager(method);
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.loop.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.tiers.*;
+
+public class LoopPredicationTest extends GraalCompilerTest {
+
+    /**
+     * Specifies if the methods under test are compiled with {@link #getSuites()} including
+     * {@link LoopPredicationPhase} or with suites without it.
+     */
+    private boolean predicate = true;
+    private Suites unpredicatedSuites;
+
+    @Override
+    protected Suites createSuites() {
+        try (OverrideScope s = OptionValue.override(LoopPredication, true)) {
+            return super.createSuites();
+        }
+    }
+
+    @Override
+    protected Suites getSuites() {
+        if (predicate) {
+            return super.getSuites();
+        }
+        if (unpredicatedSuites == null) {
+            try (OverrideScope s = OptionValue.override(LoopPredication, false)) {
+                unpredicatedSuites = super.createSuites();
+            }
+        }
+        return unpredicatedSuites;
+    }
+
+    /**
+     * Always compiles the method so that the code matches the current value of
+     * {@link #predicate}.
+     */
+    @Override
+    protected InstalledCode getCode(ResolvedJavaMethod installedCodeOwner, StructuredGraph graph) {
+        return getCode(installedCodeOwner, graph, true);
+    }
+
+    public static int sumSnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int neighboursSnippet(int[] a, int[] b, int n) {
+        int sum = 0;
+        for (int i = 1; i < n; i++) {
+            sum += a[i - 1] * b[i];
+        }
+        return sum;
+    }
+
+    public static void reverseSnippet(int[] a, int[] b, int n) {
+        for (int i = 0; i <= n; i++) {
+            a[n - i] = b[2 * i + 1];
+        }
+    }
+
+    public static int conditionalSnippet(int[] a, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % 3 == 0) {
+                sum += a[i];
+            }
+        }
+        return sum;
+    }
+
+    public static int breakSnippet(int[] a, int n, int stop) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == stop) {
+                break;
+            }
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static int searchSnippet(int[] a, int n, int key) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] ints(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 - 7;
+        }
+        return array;
+    }
+
+    private StructuredGraph predicate(String snippet) {
+        StructuredGraph graph = parseEager(snippet);
+        Assumptions assumptions = new Assumptions(false);
+        HighTierContext highContext = new HighTierContext(getProviders(), assumptions, null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+        new LoweringPhase(canonicalizer, LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, highContext);
+        new FloatingReadPhase().apply(graph);
+        new IterativeConditionalEliminationPhase(canonicalizer).apply(graph, highContext);
+
+        MidTierContext midContext = new MidTierContext(getProviders(), assumptions, getCodeCache().getTarget(), OptimisticOptimizations.ALL, graph.method().getProfilingInfo(), null);
+        new LoopPredicationPhase().apply(graph, midContext);
+        canonicalizer.apply(graph, midContext);
+        return graph;
+    }
+
+    private int countBoundsChecks(String snippet) {
+        int count = 0;
+        for (GuardNode guard : predicate(snippet).getNodes(GuardNode.class)) {
+            if (guard.reason() == DeoptimizationReason.BoundsCheckException) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests a snippet compiled with and without loop predication.
+     */
+    private void testPredicated(String snippet, Object... args) {
+        test(snippet, args);
+        predicate = false;
+        try {
+            test(snippet, args);
+        } finally {
+            predicate = true;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static boolean containsLoopPredication(PhaseSuite suite) {
+        ListIterator it = suite.findPhase(PhaseSuite.class);
+        if (it != null) {
+            do {
+                PhaseSuite nested = (PhaseSuite) it.previous();
+                it.next();
+                if (nested.findPhase(LoopPredicationPhase.class) != null) {
+                    return true;
+                }
+            } while (PhaseSuite.findNextPhase(it, (Class) PhaseSuite.class));
+        }
+        return false;
+    }
+
+    @Test
+    public void testSuites() {
+        Assert.assertTrue(containsLoopPredication(getSuites().getMidTier()));
+        predicate = false;
+        try {
+            Assert.assertFalse(containsLoopPredication(getSuites().getMidTier()));
+        } finally {
+            predicate = true;
+        }
+    }
+
+    /**
+     * A null check moved out of a loop only applies if the loop is entered, so that loops that
+     * execute zero times do not deoptimize.
+     */
+    @Test
+    public void testNullCheckOfLoopNotEntered() {
+        int nullChecks = 0;
+        for (GuardNode guard : predicate("neighboursSnippet").getNodes(GuardNode.class)) {
+            if (guard.reason() == DeoptimizationReason.LoopPredicate && guard.condition() instanceof ShortCircuitOrNode) {
+                ShortCircuitOrNode predicate = (ShortCircuitOrNode) guard.condition();
+                Assert.assertFalse(guard.negated());
+                if (predicate.getY() instanceof IsNullNode) {
+                    Assert.assertTrue(predicate.isYNegated());
+                    nullChecks++;
+                }
+            } else {
+                Assert.assertFalse(guard.condition() instanceof IsNullNode && guard.reason() == DeoptimizationReason.LoopPredicate);
+            }
+        }
+        Assert.assertEquals(2, nullChecks);
+        testPredicated("neighboursSnippet", null, null, 1);
+        testPredicated("neighboursSnippet", ints(1), null, -5);
+    }
+
+    @Test
+    public void testSum() {
+        Assert.assertEquals(0, countBoundsChecks("sumSnippet"));
+        for (int length : new int[]{0, 1, 10}) {
+            testPredicated("sumSnippet", ints(length));
+        }
+        testPredicated("sumSnippet", (Object) null);
+    }
+
+    @Test
+    public void testNeighbours() {
+        Assert.assertEquals(0, countBoundsChecks("neighboursSnippet"));
+        testPredicated("neighboursSnippet", ints(10), ints(10), 10);
+        testPredicated("neighboursSnippet", ints(10), ints(10), 0);
+        testPredicated("neighboursSnippet", ints(10), ints(5), 10);
+        testPredicated("neighboursSnippet", ints(5), ints(10), 10);
+        testPredicated("neighboursSnippet", null, ints(10), 1);
+    }
+
+    @Test
+    public void testReverse() {
+        Assert.assertEquals(0, countBoundsChecks("reverseSnippet"));
+        testPredicated("reverseSnippet", ints(10), ints(20), 9);
+        testPredicated("reverseSnippet", ints(10), ints(20), 10);
+        testPredicated("reverseSnippet", ints(10), ints(10), 9);
+        testPredicated("reverseSnippet", ints(10), ints(20), -1);
+        testPredicated("reverseSnippet", ints(10), ints(20), Integer.MAX_VALUE);
+    }
+
+    /**
+     * The loop exit before the bounds check means that the check is not executed for all values
+     * of the counter, so a predicate would deoptimize although the loop never accesses the array
+     * out of bounds.
+     */
+    @Test
+    public void testBreak() {
+        Assert.assertEquals(1, countBoundsChecks("breakSnippet"));
+        testPredicated("breakSnippet", ints(10), 10, -1);
+        testPredicated("breakSnippet", ints(10), 11, 10);
+
+        ResolvedJavaMethod method = getResolvedJavaMethod("breakSnippet");
+        Object[] args = {ints(10), 20, 5};
+        Result expect = executeExpected(method, null, args);
+        testAgainstExpected(method, expect, EnumSet.of(DeoptimizationReason.LoopPredicate, DeoptimizationReason.LoopLimitCheck), null, args);
+    }
+
+    /**
+     * A loop exit after the bounds check does not prevent predication.
+     */
+    @Test
+    public void testSearch() {
+        Assert.assertEquals(0, countBoundsChecks("searchSnippet"));
+        testPredicated("searchSnippet", ints(10), 10, ints(10)[4]);
+        testPredicated("searchSnippet", ints(10), 10, 0);
+        testPredicated("searchSnippet", ints(10), 11, 0);
+    }
+
+    @Test
+    public void testConditional() {
+        Assert.assertEquals(1, countBoundsChecks("conditionalSnippet"));
+        testPredicated("conditionalSnippet", ints(10), 10);
+        testPredicated("conditionalSnippet", ints(10), 11);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import org.junit.*;
+
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.loop.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.tiers.*;
+
+public class LoopVectorizationTest extends GraalCompilerTest {
+
+    /**
+     * The high tier only contains the vectorization phase if {@link GraalOptions#VectorizeLoops}
+     * is enabled when the suites are created.
+     */
+    @Override
+    protected Suites createSuites() {
+        try (OverrideScope s = OptionValue.override(VectorizeLoops, true)) {
+            return super.createSuites();
+        }
+    }
+
+    public static int[] addIntSnippet(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+    public static long[] xorLongSnippet(long[] a, long[] b, int limit) {
+        long[] result = new long[a.length];
+        for (int i = 1; i < limit; i++) {
+            result[i] = a[i] ^ b[i];
+        }
+        return result;
+    }
+
+    public static float[] mulFloatSnippet(float[] a, float[] b) {
+        float[] result = new float[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    public static double[] subDoubleSnippet(double[] a) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] - a[i];
+        }
+        return result;
+    }
+
+    public static double[] copyDoubleSnippet(double[] a) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i];
+        }
+        return result;
+    }
+
+    public static long[] mulLongSnippet(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] * b[i];
+        }
+        return result;
+    }
+
+    public static int[] addExactSnippet(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = Math.addExact(a[i], b[i]);
+        }
+        return result;
+    }
+
+    public static int sumSnippet(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static void strideSnippet(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i += 2) {
+            a[i] = b[i] + b[i];
+        }
+    }
+
+    public static void shiftedSnippet(int[] a, int[] b) {
+        for (int i = 0; i < a.length - 1; i++) {
+            a[i] = b[i + 1] + b[i];
+        }
+    }
+
+    private static int[] ints(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 - 7;
+        }
+        return array;
+    }
+
+    private static long[] longs(int length) {
+        long[] array = new long[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 0x1234567890L;
+        }
+        return array;
+    }
+
+    private static float[] floats(int length) {
+        float[] array = new float[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 1.5f;
+        }
+        return array;
+    }
+
+    private static double[] doubles(int length) {
+        double[] array = new double[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i / 3.0;
+        }
+        return array;
+    }
+
+    private void assertVectorized(String snippet, boolean expected) {
+        StructuredGraph graph = parseEager(snippet);
+        new LoopVectorizationPhase().apply(graph);
+        Assert.assertEquals(expected ? 1 : 0, graph.getNodes().filter(VectorArrayOpNode.class).count());
+    }
+
+    private void testVectorized(String snippet, Object... args) {
+        Assert.assertNotNull(getSuites().getHighTier().findPhase(LoopVectorizationPhase.class));
+        test(snippet, args);
+    }
+
+    private static int countLoopHeaderLengths(StructuredGraph graph) {
+        int count = 0;
+        for (ArrayLengthNode length : graph.getNodes().filter(ArrayLengthNode.class)) {
+            if (length.predecessor() instanceof LoopBeginNode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testAddInt() {
+        assertVectorized("addIntSnippet", true);
+        for (int length : new int[]{0, 1, 7, 8, 9, 33, 100}) {
+            testVectorized("addIntSnippet", ints(length), ints(length + 3));
+        }
+        testVectorized("addIntSnippet", ints(10), ints(5));
+        testVectorized("addIntSnippet", null, ints(5));
+    }
+
+    @Test
+    public void testXorLong() {
+        assertVectorized("xorLongSnippet", true);
+        testVectorized("xorLongSnippet", longs(50), longs(50), 50);
+        testVectorized("xorLongSnippet", longs(50), longs(50), 17);
+        testVectorized("xorLongSnippet", longs(50), longs(20), 40);
+        testVectorized("xorLongSnippet", longs(10), longs(10), 0);
+    }
+
+    @Test
+    public void testMulFloat() {
+        assertVectorized("mulFloatSnippet", true);
+        testVectorized("mulFloatSnippet", floats(37), floats(37));
+    }
+
+    @Test
+    public void testSubDouble() {
+        assertVectorized("subDoubleSnippet", true);
+        testVectorized("subDoubleSnippet", doubles(37));
+    }
+
+    @Test
+    public void testCopyDouble() {
+        assertVectorized("copyDoubleSnippet", true);
+        testVectorized("copyDoubleSnippet", doubles(0));
+        testVectorized("copyDoubleSnippet", doubles(45));
+    }
+
+    @Test
+    public void testNotVectorized() {
+        assertVectorized("sumSnippet", false);
+        assertVectorized("strideSnippet", false);
+        assertVectorized("shiftedSnippet", false);
+        assertVectorized("mulLongSnippet", false);
+        testVectorized("mulLongSnippet", longs(37), longs(37));
+    }
+
+    @Test
+    public void testAddExact() {
+        assertVectorized("addExactSnippet", false);
+        testVectorized("addExactSnippet", ints(37), ints(37));
+        int[] overflow = ints(37);
+        overflow[30] = Integer.MAX_VALUE;
+        testVectorized("addExactSnippet", ints(37), overflow);
+    }
+
+    @Test
+    public void testNotVectorizedLoopUnchanged() {
+        StructuredGraph graph = parseEager("sumSnippet");
+        int lengths = countLoopHeaderLengths(graph);
+        Assert.assertTrue(lengths > 0);
+        new LoopVectorizationPhase().apply(graph);
+        Assert.assertEquals(lengths, countLoopHeaderLengths(graph));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+
+import org.junit.*;
+
+import com.oracle.graal.printer.*;
+
+public class MappedFileChannelTest {
+
+    private static final int REGION_SIZE = 4096;
+
+    private Path path;
+
+    @Before
+    public void createPath() throws IOException {
+        path = Files.createTempFile("mapped", ".bgv");
+        Files.delete(path);
+    }
+
+    @After
+    public void deletePath() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (seed + i * 31);
+        }
+        return result;
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        new MappedFileChannel(path, REGION_SIZE).close();
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    public void testWritesCrossingRegions() throws IOException {
+        byte[] first = bytes(REGION_SIZE - 10, 1);
+        byte[] second = bytes(25, 2);
+        byte[] third = bytes(2 * REGION_SIZE + 7, 3);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (MappedFileChannel channel = new MappedFileChannel(path, REGION_SIZE)) {
+            for (byte[] b : new byte[][]{first, second, third}) {
+                ByteBuffer buffer = ByteBuffer.wrap(b);
+                assertEquals(b.length, channel.write(buffer));
+                assertFalse(buffer.hasRemaining());
+                expected.write(b);
+            }
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(path));
+    }
+
+    @Test
+    public void testWriteEndingAtRegionBoundary() throws IOException {
+        byte[] b = bytes(REGION_SIZE, 4);
+        try (MappedFileChannel channel = new MappedFileChannel(path, REGION_SIZE)) {
+            channel.write(ByteBuffer.wrap(b));
+        }
+        assertArrayEquals(b, Files.readAllBytes(path));
+    }
+
+    @Test
+    public void testWriteFromBufferPosition() throws IOException {
+        byte[] b = bytes(3 * REGION_SIZE / 2, 5);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(b.length + 8);
+        buffer.put(new byte[8]).put(b).flip();
+        buffer.position(8);
+        try (MappedFileChannel channel = new MappedFileChannel(path, REGION_SIZE)) {
+            channel.write(buffer);
+        }
+        assertArrayEquals(b, Files.readAllBytes(path));
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        MappedFileChannel channel = new MappedFileChannel(path, REGION_SIZE);
+        assertTrue(channel.isOpen());
+        channel.write(ByteBuffer.wrap(bytes(10, 6)));
+        channel.close();
+        assertFalse(channel.isOpen());
+        channel.close();
+        assertEquals(10, Files.size(path));
+    }
+}
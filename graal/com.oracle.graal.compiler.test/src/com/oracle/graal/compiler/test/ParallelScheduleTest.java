@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.schedule.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Tests that sorting the nodes within blocks in parallel produces the same schedule as sorting them
+ * sequentially.
+ */
+public class ParallelScheduleTest extends GraalCompilerTest {
+
+    public static class Holder {
+        public int value;
+        public int[] array;
+    }
+
+    public static int snippet(Holder h, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (h.array[i] > 0) {
+                sum += h.value * h.array[i];
+                h.value = sum;
+            } else if (h.array[i] < -10) {
+                sum -= h.array[i - 1];
+            } else {
+                sum ^= i;
+            }
+            switch (sum & 3) {
+                case 0:
+                    h.array[i] = sum;
+                    break;
+                case 1:
+                    sum += h.value;
+                    break;
+                default:
+                    sum--;
+            }
+        }
+        return sum;
+    }
+
+    private static List<List<ScheduledNode>> schedule(StructuredGraph graph, boolean parallel) {
+        try (OverrideScope s = OptionValue.override(ParallelCompilation, parallel, ParallelCompilationThreshold, 1, ReuseSchedules, false)) {
+            SchedulePhase schedule = new SchedulePhase();
+            schedule.apply(graph);
+            List<List<ScheduledNode>> result = new ArrayList<>();
+            for (Block block : schedule.getCFG().getBlocks()) {
+                result.add(schedule.nodesFor(block));
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void test() {
+        StructuredGraph graph = parseEager("snippet");
+        HighTierContext context = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+        new LoweringPhase(canonicalizer, LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, context);
+        new FloatingReadPhase().apply(graph);
+        canonicalizer.apply(graph, context);
+
+        List<List<ScheduledNode>> sequential = schedule(graph, false);
+        Assert.assertTrue(sequential.size() > 1);
+        Assert.assertEquals(sequential, schedule(graph, true));
+    }
+}
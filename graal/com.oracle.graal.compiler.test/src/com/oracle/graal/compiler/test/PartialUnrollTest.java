@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import org.junit.*;
+
+import com.oracle.graal.loop.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+public class PartialUnrollTest extends GraalCompilerTest {
+
+    public static int sumSnippet(int[] a, int start, int limit) {
+        int sum = 0;
+        for (int i = start; i < limit; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static long includedLimitSnippet(int start, int limit) {
+        long sum = 0;
+        for (int i = start; i <= limit; i++) {
+            sum = sum * 31 + i;
+        }
+        return sum;
+    }
+
+    public static long includedLimitStrideSnippet(int start, int limit) {
+        long sum = 0;
+        for (int i = start; i <= limit; i += 2) {
+            sum = sum * 31 + i;
+        }
+        return sum;
+    }
+
+    public static int strideSnippet(int[] a, int limit) {
+        int sum = 0;
+        for (int i = 0; i < limit; i += 3) {
+            sum ^= a[i] + i;
+        }
+        return sum;
+    }
+
+    private static int[] ints(int length) {
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = i * 31 - 7;
+        }
+        return array;
+    }
+
+    private void assertPartiallyUnrolled(String snippet, boolean align) {
+        StructuredGraph graph = parseEager(snippet);
+        LoopsData data = new LoopsData(graph);
+        data.detectedCountedLoops();
+        Assert.assertEquals(1, data.countedLoops().size());
+        LoopTransformations.partialUnroll(data.countedLoops().iterator().next(), 4, align);
+        Assert.assertEquals(align ? 3 : 2, graph.getNodes(LoopBeginNode.class).count());
+        for (LoopBeginNode loopBegin : graph.getNodes(LoopBeginNode.class)) {
+            Assert.assertTrue(loopBegin.isPartiallyUnrolled());
+        }
+    }
+
+    private void testPartiallyUnrolled(String snippet, Object... args) {
+        try (OverrideScope s = OptionValue.override(PartialUnroll, true)) {
+            test(snippet, args);
+        }
+    }
+
+    private void testPartiallyUnrolledWithoutAlignment(String snippet, Object... args) {
+        try (OverrideScope s = OptionValue.override(PartialUnroll, true, PartialUnrollAlignment, false)) {
+            test(snippet, args);
+        }
+    }
+
+    @Test
+    public void testSum() {
+        assertPartiallyUnrolled("sumSnippet", true);
+        assertPartiallyUnrolled("sumSnippet", false);
+        for (int start = 0; start < 5; start++) {
+            for (int limit = 0; limit < 20; limit++) {
+                testPartiallyUnrolled("sumSnippet", ints(20), start, limit);
+            }
+        }
+        testPartiallyUnrolled("sumSnippet", ints(10), 3, 11);
+        testPartiallyUnrolled("sumSnippet", ints(10), -1, 5);
+    }
+
+    @Test
+    public void testIncludedLimit() {
+        assertPartiallyUnrolled("includedLimitSnippet", true);
+        testPartiallyUnrolled("includedLimitSnippet", 0, 100);
+        testPartiallyUnrolled("includedLimitSnippet", 5, 5);
+        testPartiallyUnrolled("includedLimitSnippet", 5, 4);
+        testPartiallyUnrolled("includedLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 10);
+        testPartiallyUnrolled("includedLimitSnippet", Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * If {@code limit - (factor - 1) * stride} underflows, the main loop must not be entered even
+     * if the counter starts at {@link Integer#MIN_VALUE}.
+     */
+    @Test
+    public void testIncludedLimitWithoutAlignment() {
+        assertPartiallyUnrolled("includedLimitSnippet", false);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 2);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 3);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MIN_VALUE, Integer.MIN_VALUE + 10);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MIN_VALUE + 1, Integer.MIN_VALUE + 1);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", 0, 100);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", 5, 4);
+        testPartiallyUnrolledWithoutAlignment("includedLimitSnippet", Integer.MAX_VALUE - 10, Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void testIncludedLimitStride() {
+        assertPartiallyUnrolled("includedLimitStrideSnippet", false);
+        for (int limit = Integer.MIN_VALUE; limit < Integer.MIN_VALUE + 12; limit++) {
+            testPartiallyUnrolled("includedLimitStrideSnippet", Integer.MIN_VALUE, limit);
+        }
+        for (int limit = -1; limit < 20; limit++) {
+            testPartiallyUnrolled("includedLimitStrideSnippet", 0, limit);
+            testPartiallyUnrolled("includedLimitStrideSnippet", 3, limit);
+        }
+        testPartiallyUnrolled("includedLimitStrideSnippet", Integer.MAX_VALUE - 20, Integer.MAX_VALUE - 1);
+    }
+
+    @Test
+    public void testStride() {
+        assertPartiallyUnrolled("strideSnippet", false);
+        for (int limit = 0; limit < 20; limit++) {
+            testPartiallyUnrolled("strideSnippet", ints(20), limit);
+        }
+    }
+}
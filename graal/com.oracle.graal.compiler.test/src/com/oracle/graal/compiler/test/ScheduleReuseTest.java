@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import org.junit.*;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.schedule.*;
+import com.oracle.graal.phases.schedule.SchedulePhase.SchedulingStrategy;
+
+/**
+ * Tests that the schedule of a graph is only reused as long as the graph is not modified.
+ */
+public class ScheduleReuseTest extends GraalCompilerTest {
+
+    public static int snippet(int a, int b) {
+        if (a > b) {
+            return a * b;
+        }
+        return a + b;
+    }
+
+    public static int loopSnippet(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    private static SchedulePhase schedule(StructuredGraph graph, SchedulingStrategy strategy) {
+        SchedulePhase schedule = new SchedulePhase(strategy);
+        schedule.apply(graph);
+        return schedule;
+    }
+
+    @Test
+    public void testUnmodified() {
+        StructuredGraph graph = parseEager("snippet");
+        SchedulePhase first = schedule(graph, SchedulingStrategy.LATEST);
+        Assert.assertSame(first.getCFG(), schedule(graph, SchedulingStrategy.LATEST).getCFG());
+        Assert.assertNotSame(first.getCFG(), schedule(graph, SchedulingStrategy.EARLIEST).getCFG());
+    }
+
+    @Test
+    public void testModified() {
+        StructuredGraph graph = parseEager("snippet");
+        SchedulePhase first = schedule(graph, SchedulingStrategy.LATEST);
+        ConstantNode.forInt(42, graph);
+        SchedulePhase second = schedule(graph, SchedulingStrategy.LATEST);
+        Assert.assertNotSame(first.getCFG(), second.getCFG());
+
+        ParameterNode parameter = graph.getParameter(1);
+        ValueNode constant = ConstantNode.forInt(1, graph);
+        parameter.replaceAtUsages(constant);
+        Assert.assertNotSame(second.getCFG(), schedule(graph, SchedulingStrategy.LATEST).getCFG());
+    }
+
+    @Test
+    public void testProbabilityChanged() {
+        StructuredGraph graph = parseEager("snippet");
+        SchedulePhase first = schedule(graph, SchedulingStrategy.LATEST);
+        IfNode ifNode = graph.getNodes(IfNode.class).first();
+        ifNode.setTrueSuccessorProbability(0.25);
+        SchedulePhase second = schedule(graph, SchedulingStrategy.LATEST);
+        Assert.assertNotSame(first.getCFG(), second.getCFG());
+        Assert.assertEquals(0.25, second.getCFG().blockFor(ifNode.trueSuccessor()).probability(), 0.0001);
+    }
+
+    @Test
+    public void testLoopFrequencyChanged() {
+        StructuredGraph graph = parseEager("loopSnippet");
+        SchedulePhase first = schedule(graph, SchedulingStrategy.LATEST);
+        LoopBeginNode loopBegin = graph.getNodes(LoopBeginNode.class).first();
+        loopBegin.setLoopFrequency(loopBegin.loopFrequency() * 2);
+        SchedulePhase second = schedule(graph, SchedulingStrategy.LATEST);
+        Assert.assertNotSame(first.getCFG(), second.getCFG());
+        Assert.assertEquals(2 * first.getCFG().blockFor(loopBegin).probability(), second.getCFG().blockFor(loopBegin).probability(), 0.0001);
+    }
+
+    @Test
+    public void testFrozen() {
+        StructuredGraph graph = parseEager("snippet");
+        SchedulePhase first = schedule(graph, SchedulingStrategy.LATEST);
+        graph.freeze();
+        Assert.assertNotSame(first.getCFG(), schedule(graph, SchedulingStrategy.LATEST).getCFG());
+    }
+}
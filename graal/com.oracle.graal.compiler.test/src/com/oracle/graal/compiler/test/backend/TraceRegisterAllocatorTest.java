@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test.backend;
+
+import static com.oracle.graal.compiler.alloc.TraceRegisterAllocator.Options.*;
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.alloc.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests the {@link TraceRegisterAllocator} on methods with values that live across traces, phis at
+ * merges, loops and calls. Every snippet is compiled with only hot traces, only cold traces, the
+ * default split into hot and cold traces, and with too few scratch registers for cold traces so
+ * that the allocation falls back to linear scan.
+ */
+public class TraceRegisterAllocatorTest extends GraalCompilerTest {
+
+    private static final Object[][] CONFIGURATIONS = {{TraceRA, true}, {TraceRA, true, ColdBlockProbability, 0.0}, {TraceRA, true, ColdBlockProbability, 2.0},
+                    {TraceRA, true, ColdBlockProbability, 2.0, TraceRAMaxScratchRegisters, 1}};
+
+    /**
+     * Always compiles the method so that each configuration gets its own code.
+     */
+    @Override
+    protected InstalledCode getCode(ResolvedJavaMethod installedCodeOwner, StructuredGraph graph) {
+        return getCode(installedCodeOwner, graph, true);
+    }
+
+    private void testAllocators(String snippet, Object... args) {
+        for (Object[] configuration : CONFIGURATIONS) {
+            try (OverrideScope s = OptionValue.override(configuration)) {
+                test(snippet, args);
+            }
+        }
+    }
+
+    static int rarelyCalled(int x) {
+        return x * 7;
+    }
+
+    /**
+     * The values defined before the branch are used in the rarely taken branch, which is a separate
+     * trace, and after the merge.
+     */
+    public static int acrossTracesSnippet(int a, int b, int c) {
+        int x = a * b;
+        int y = b - c;
+        int z = a ^ c;
+        if (a == 42) {
+            x = rarelyCalled(x + y + z);
+        }
+        return x + y * z;
+    }
+
+    @Test
+    public void testAcrossTraces() {
+        testAllocators("acrossTracesSnippet", 1, 2, 3);
+        testAllocators("acrossTracesSnippet", 42, 2, 3);
+    }
+
+    public static long phiSnippet(int selector, long a, long b) {
+        long x;
+        long y;
+        double d;
+        if (selector < 0) {
+            x = a + b;
+            y = a;
+            d = 1.5;
+        } else if (selector == 0) {
+            x = b;
+            y = a - b;
+            d = -2.5;
+        } else {
+            x = a * selector;
+            y = b * selector;
+            d = selector;
+        }
+        return x * 31 + y + (long) (d * 3);
+    }
+
+    @Test
+    public void testPhi() {
+        for (int selector = -1; selector <= 1; selector++) {
+            testAllocators("phiSnippet", selector, 17L, -5L);
+        }
+    }
+
+    /**
+     * Swaps values in a loop so that the phis at the loop header depend on each other.
+     */
+    public static int swapLoopSnippet(int n) {
+        int a = 1;
+        int b = 2;
+        int c = 3;
+        for (int i = 0; i < n; i++) {
+            int t = a;
+            a = b;
+            b = c;
+            c = t + i;
+        }
+        return a * 100 + b * 10 + c;
+    }
+
+    @Test
+    public void testSwapLoop() {
+        for (int n = 0; n < 5; n++) {
+            testAllocators("swapLoopSnippet", n);
+        }
+    }
+
+    /**
+     * The rarely taken branch in the loop body is a separate trace, so the loop back edge leaves a
+     * different region of the loop trace than the one containing the loop header.
+     */
+    public static int coldPathInLoopSnippet(int[] a) {
+        int sum = 0;
+        int count = 1;
+        for (int i = 0; i < a.length; i++) {
+            int v = a[i];
+            if (v == 42) {
+                count = rarelyCalled(count + i);
+            }
+            sum += v * count;
+        }
+        return sum + count;
+    }
+
+    @Test
+    public void testColdPathInLoop() {
+        testAllocators("coldPathInLoopSnippet", new int[]{1, 2, 3, 4});
+        testAllocators("coldPathInLoopSnippet", new int[]{1, 42, 3, 42, 5});
+        testAllocators("coldPathInLoopSnippet", new int[0]);
+    }
+
+    /**
+     * Carries values around an inner and an outer loop and uses them after both loops.
+     */
+    public static long nestedLoopsSnippet(int n, int m) {
+        long outer = 1;
+        long inner = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                inner += outer * j + i;
+            }
+            outer = outer * 3 + inner;
+        }
+        return outer ^ inner;
+    }
+
+    @Test
+    public void testNestedLoops() {
+        testAllocators("nestedLoopsSnippet", 0, 0);
+        testAllocators("nestedLoopsSnippet", 3, 0);
+        testAllocators("nestedLoopsSnippet", 4, 5);
+    }
+
+    /**
+     * Keeps more values live in a loop than there are registers.
+     */
+    public static long registerPressureSnippet(int[] a) {
+        long s0 = 0;
+        long s1 = 1;
+        long s2 = 2;
+        long s3 = 3;
+        long s4 = 4;
+        long s5 = 5;
+        long s6 = 6;
+        long s7 = 7;
+        long s8 = 8;
+        long s9 = 9;
+        long s10 = 10;
+        long s11 = 11;
+        long s12 = 12;
+        long s13 = 13;
+        long s14 = 14;
+        long s15 = 15;
+        long s16 = 16;
+        for (int i = 0; i < a.length; i++) {
+            int v = a[i];
+            s0 += v;
+            s1 ^= v;
+            s2 += s1;
+            s3 -= v;
+            s4 += s0 * 3;
+            s5 ^= s4;
+            s6 += s2 + v;
+            s7 -= s6;
+            s8 += s7 ^ v;
+            s9 += s3;
+            s10 ^= s9 + v;
+            s11 += s10;
+            s12 -= s11 + v;
+            s13 += s12;
+            s14 ^= s13 * v;
+            s15 += s14;
+            s16 -= s15 ^ s0;
+        }
+        return s0 + s1 + s2 + s3 + s4 + s5 + s6 + s7 + s8 + s9 + s10 + s11 + s12 + s13 + s14 + s15 + s16;
+    }
+
+    @Test
+    public void testRegisterPressure() {
+        int[] array = new int[100];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i * 17 - 300;
+        }
+        testAllocators("registerPressureSnippet", array);
+        testAllocators("registerPressureSnippet", new int[0]);
+    }
+
+    static double call(double x, long y) {
+        return x * 2 + y;
+    }
+
+    /**
+     * Keeps values live across calls, which destroy all caller saved registers.
+     */
+    public static double acrossCallsSnippet(int n, double d, long l) {
+        double result = 0;
+        int i = 0;
+        while (i < n) {
+            result += call(d, l) + call(result, i) + l;
+            i++;
+        }
+        return result + d + l;
+    }
+
+    @Test
+    public void testAcrossCalls() {
+        testAllocators("acrossCallsSnippet", 0, 1.5, 3L);
+        testAllocators("acrossCallsSnippet", 5, 1.5, 3L);
+    }
+
+    /**
+     * Uses values defined before a try block in its exception handler.
+     */
+    public static int exceptionHandlerSnippet(int[] a, int index, int value) {
+        int x = value * 3;
+        int y = value + index;
+        try {
+            a[index] = x;
+            return y;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return x - y;
+        }
+    }
+
+    @Test
+    public void testExceptionHandler() {
+        testAllocators("exceptionHandlerSnippet", new int[4], 2, 5);
+        testAllocators("exceptionHandlerSnippet", new int[4], 4, 5);
+    }
+}
@@ -174,6 +174,55 @@ public class PartialEscapeAnalysisTest extends EATestBase {
         assertDeepEquals(1, graph.getNodes().filter(NewInstanceNode.class).count());
     }
 
+    public static Object escapedObject;
+
+    @Test
+    public void testDeadAfterMerge() {
+        testPartialEscapeAnalysis("testDeadAfterMergeSnippet", 0.5, 1);
+        test("testDeadAfterMergeSnippet", -1, 2);
+        test("testDeadAfterMergeSnippet", 1, 2);
+    }
+
+    public static int testDeadAfterMergeSnippet(int a, int b) {
+        TestObject obj = new TestObject(a, b);
+        if (a < 0) {
+            escapedObject = obj;
+        }
+        return a + b;
+    }
+
+    @Test
+    public void testLoopCarried() {
+        testPartialEscapeAnalysis("testLoopCarriedSnippet", 0, 0);
+        test("testLoopCarriedSnippet", 0);
+        test("testLoopCarriedSnippet", 10);
+    }
+
+    public static int testLoopCarriedSnippet(int n) {
+        TestObject obj = new TestObject(0, 1);
+        for (int i = 0; i < n; i++) {
+            obj = new TestObject(obj.y, obj.x + obj.y);
+        }
+        return obj.x;
+    }
+
+    @Test
+    public void testLoopCarriedIdentity() {
+        prepareGraph("testLoopCarriedIdentitySnippet", false);
+        Assert.assertFalse(graph.getNodes().filter(CommitAllocationNode.class).isEmpty());
+        test("testLoopCarriedIdentitySnippet", 0);
+        test("testLoopCarriedIdentitySnippet", 10);
+    }
+
+    public static boolean testLoopCarriedIdentitySnippet(int n) {
+        TestObject first = new TestObject(0, 1);
+        TestObject obj = first;
+        for (int i = 0; i < n; i++) {
+            obj = new TestObject(obj.y, obj.x + obj.y);
+        }
+        return obj == first;
+    }
+
     @SafeVarargs
     protected final void testPartialEscapeAnalysis(final String snippet, double expectedProbability, int expectedCount, Class<? extends Node>... invalidNodeClasses) {
         prepareGraph(snippet, false);
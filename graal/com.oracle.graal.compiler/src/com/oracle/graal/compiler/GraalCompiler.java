@@ -138,7 +138,7 @@ public class GraalCompiler {
                     TargetDescription target, Map<ResolvedJavaMethod, StructuredGraph> cache, PhaseSuite<HighTierContext> graphBuilderSuite, OptimisticOptimizations optimisticOpts,
                     ProfilingInfo profilingInfo, SpeculationLog speculationLog, Suites suites, T compilationResult, CompilationResultBuilderFactory factory) {
         assert !graph.isFrozen();
-        try (Scope s0 = Debug.scope("GraalCompiler", graph, providers.getCodeCache())) {
+        try (Scope s0 = Debug.scope("GraalCompiler", graph, providers.getCodeCache()); CompilationBudget.Scope budget = CompilationBudget.open()) {
             Assumptions assumptions = new Assumptions(OptAssumptions.getValue());
             SchedulePhase schedule = emitFrontEnd(providers, target, graph, assumptions, cache, graphBuilderSuite, optimisticOpts, profilingInfo, speculationLog, suites);
             emitBackEnd(graph, stub, cc, installedCodeOwner, backend, target, compilationResult, factory, assumptions, schedule, null);
@@ -270,7 +270,11 @@ public class GraalCompiler {
 
             try (Scope s = Debug.scope("Allocator", nodeLirGen)) {
                 if (backend.shouldAllocateRegisters()) {
-                    LinearScan.allocate(target, lirGenRes);
+                    if (TraceRegisterAllocator.Options.TraceRA.getValue()) {
+                        TraceRegisterAllocator.allocate(target, lirGenRes);
+                    } else {
+                        LinearScan.allocate(target, lirGenRes);
+                    }
                 } else {
                     // build frame map for targets that do not allocate registers
                     lirGenRes.buildFrameMap();
@@ -0,0 +1,895 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.alloc;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+import static com.oracle.graal.lir.LIRValueUtil.*;
+
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.LIRInstruction.OperandFlag;
+import com.oracle.graal.lir.LIRInstruction.OperandMode;
+import com.oracle.graal.lir.StandardOp.BlockEndOp;
+import com.oracle.graal.lir.gen.*;
+import com.oracle.graal.options.*;
+
+/**
+ * A register allocator that splits the LIR into traces and allocates each trace independently.
+ * This is an alternative to {@link LinearScan} that trades code quality in cold code for
+ * allocation speed.
+ * <p>
+ * A trace is a sequence of blocks, each of which is the most likely successor of its predecessor
+ * in the trace. Traces are built greedily starting at the most likely block not yet in a trace.
+ * Variables that are referenced in more than one trace or that are live across an edge between
+ * two traces are <em>global</em>. Each global variable has a stack slot that holds its value at
+ * every trace boundary; every definition of a global variable is written through to this slot. All
+ * other variables, including the values carried around a loop whose back edge stays within a trace,
+ * are local to a trace.
+ * <p>
+ * A trace is divided into regions, each of which starts at a block that can be entered from another
+ * trace. In a hot trace, the local variables and copies of the global variables in each region are
+ * assigned registers by a linear scan over the trace that respects fixed register operands and
+ * calls. The life time of a variable is extended over the blocks in which it is live, so a value
+ * stays in its register across the edges within a region, including loop back edges. A copy of a
+ * global variable is loaded from its slot on each edge that enters its region from another region
+ * or trace. In a
+ * cold trace, the probability of which is below {@link GraalOptions#ColdBlockProbability}, all
+ * variables are kept on the stack and loaded into scratch registers where an instruction requires a
+ * register. If no scratch register is available for some instruction, the whole method is
+ * allocated with {@link LinearScan} instead.
+ */
+public final class TraceRegisterAllocator {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Use the trace register allocator instead of the linear scan register allocator")
+        public static final OptionValue<Boolean> TraceRA = new OptionValue<>(false);
+        @Option(help = "Maximum number of scratch registers used by an instruction in a cold trace (0 for no limit)")
+        public static final OptionValue<Integer> TraceRAMaxScratchRegisters = new OptionValue<>(0);
+        // @formatter:on
+    }
+
+    private static final DebugMetric metricTraces = Debug.metric("TraceRATraces");
+    private static final DebugMetric metricHotTraces = Debug.metric("TraceRAHotTraces");
+    private static final DebugMetric metricGlobalVariables = Debug.metric("TraceRAGlobalVariables");
+    private static final DebugMetric metricRegisterIntervals = Debug.metric("TraceRARegisterIntervals");
+    private static final DebugMetric metricStackIntervals = Debug.metric("TraceRAStackIntervals");
+    private static final DebugMetric metricInsertedMoves = Debug.metric("TraceRAInsertedMoves");
+    private static final DebugMetric metricFallbacks = Debug.metric("TraceRAFallbacks");
+
+    private final LIRGenerationResult res;
+    private final LIR ir;
+    private final FrameMapBuilder frameMapBuilder;
+    private final RegisterConfig registerConfig;
+    private final RegisterAttributes[] registerAttributes;
+    private final List<? extends AbstractBlock<?>> blocks;
+    private final int numVariables;
+    private final Map<PlatformKind, Register[]> allocatableRegisters = new HashMap<>();
+
+    /**
+     * The index of the trace containing a block, indexed by block id.
+     */
+    private final int[] traceIndex;
+
+    /**
+     * The successor of a block in its trace, indexed by block id.
+     */
+    private final AbstractBlock<?>[] traceSuccessor;
+
+    /**
+     * The index of the region containing a block within its trace, indexed by block id.
+     */
+    private final int[] regionIndex;
+
+    private final List<Trace> traces = new ArrayList<>();
+
+    private final BitSet[] liveIn;
+    private final BitSet[] liveOut;
+
+    /**
+     * The stack slots of the global variables, indexed by variable index.
+     */
+    private final StackSlot[] globalSlots;
+
+    private final List<StackSlot> allocatedSlots = new ArrayList<>();
+
+    /**
+     * The loads of global variables inserted after the label of a block.
+     */
+    private final Map<AbstractBlock<?>, List<LIRInstruction>> entryLoads = new HashMap<>();
+
+    /**
+     * The loads of global variables inserted before the jump at the end of a block.
+     */
+    private final Map<AbstractBlock<?>, List<LIRInstruction>> exitLoads = new HashMap<>();
+
+    private TraceRegisterAllocator(LIRGenerationResult res) {
+        this.res = res;
+        this.ir = res.getLIR();
+        this.frameMapBuilder = res.getFrameMapBuilder();
+        this.registerConfig = frameMapBuilder.getRegisterConfig();
+        this.registerAttributes = registerConfig.getAttributesMap();
+        this.blocks = ir.linearScanOrder();
+        this.numVariables = ir.numVariables();
+        int numBlocks = ir.getControlFlowGraph().getBlocks().size();
+        this.traceIndex = new int[numBlocks];
+        this.traceSuccessor = new AbstractBlock<?>[numBlocks];
+        this.regionIndex = new int[numBlocks];
+        this.liveIn = new BitSet[numBlocks];
+        this.liveOut = new BitSet[numBlocks];
+        this.globalSlots = new StackSlot[numVariables];
+    }
+
+    public static void allocate(TargetDescription target, LIRGenerationResult res) {
+        TraceRegisterAllocator allocator = new TraceRegisterAllocator(res);
+        boolean success;
+        try (Scope s = Debug.scope("TraceRA")) {
+            success = allocator.allocate();
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+        if (!success) {
+            metricFallbacks.increment();
+            allocator.freeSlots();
+            LinearScan.allocate(target, res);
+        }
+    }
+
+    /**
+     * Allocates all traces.
+     *
+     * @return false if the allocation failed before the LIR was modified
+     */
+    private boolean allocate() {
+        buildTraces();
+        computeLiveness();
+        computeGlobalVariables();
+        for (Trace trace : traces) {
+            if (!trace.allocate()) {
+                return false;
+            }
+        }
+        if (!collectRegionEntryLoads()) {
+            return false;
+        }
+        res.buildFrameMap();
+        for (Trace trace : traces) {
+            trace.assignLocations();
+        }
+        insertRegionEntryLoads();
+        Debug.dump(ir, "After trace register allocation");
+        return true;
+    }
+
+    private void freeSlots() {
+        for (StackSlot slot : allocatedSlots) {
+            frameMapBuilder.freeSpillSlot(slot);
+        }
+    }
+
+    private StackSlot allocateSlot(LIRKind kind) {
+        StackSlot slot = frameMapBuilder.allocateSpillSlot(kind);
+        allocatedSlots.add(slot);
+        return slot;
+    }
+
+    private Register[] allocatableRegisters(PlatformKind kind) {
+        Register[] result = allocatableRegisters.get(kind);
+        if (result == null) {
+            result = registerConfig.getAllocatableRegisters(kind);
+            allocatableRegisters.put(kind, result);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the traces by greedily following the most likely successor, starting at the most
+     * likely block that is not yet part of a trace. Exception handlers are not appended to a trace
+     * because they are entered from the middle of their predecessor.
+     */
+    private void buildTraces() {
+        Arrays.fill(traceIndex, -1);
+        List<AbstractBlock<?>> sorted = new ArrayList<>(blocks);
+        Collections.sort(sorted, (a, b) -> Double.compare(b.probability(), a.probability()));
+        double coldProbability = ColdBlockProbability.getValue();
+        for (AbstractBlock<?> head : sorted) {
+            if (traceIndex[head.getId()] != -1) {
+                continue;
+            }
+            Trace trace = new Trace(traces.size(), head.probability() >= coldProbability);
+            traces.add(trace);
+            AbstractBlock<?> block = head;
+            while (block != null) {
+                traceIndex[block.getId()] = trace.index;
+                trace.blocks.add(block);
+                AbstractBlock<?> next = null;
+                for (AbstractBlock<?> successor : block.getSuccessors()) {
+                    if (traceIndex[successor.getId()] == -1 && !successor.isExceptionEntry() && (next == null || successor.probability() > next.probability())) {
+                        next = successor;
+                    }
+                }
+                traceSuccessor[block.getId()] = next;
+                block = next;
+            }
+            metricTraces.increment();
+            if (trace.hot) {
+                metricHotTraces.increment();
+            }
+        }
+    }
+
+    private static void forEachUse(LIRInstruction op, ValueConsumer consumer) {
+        op.visitEachInput(consumer);
+        op.visitEachAlive(consumer);
+        op.visitEachState(consumer);
+    }
+
+    private static void forEachDef(LIRInstruction op, ValueConsumer consumer) {
+        op.visitEachTemp(consumer);
+        op.visitEachOutput(consumer);
+    }
+
+    /**
+     * Computes the variables live at the beginning and the end of each block.
+     */
+    private void computeLiveness() {
+        BitSet[] gen = new BitSet[liveIn.length];
+        BitSet[] kill = new BitSet[liveIn.length];
+        for (AbstractBlock<?> block : blocks) {
+            BitSet blockGen = new BitSet(numVariables);
+            BitSet blockKill = new BitSet(numVariables);
+            for (LIRInstruction op : ir.getLIRforBlock(block)) {
+                forEachUse(op, (value, mode, flags) -> {
+                    if (isVariable(value) && !blockKill.get(asVariable(value).index)) {
+                        blockGen.set(asVariable(value).index);
+                    }
+                });
+                forEachDef(op, (value, mode, flags) -> {
+                    if (isVariable(value)) {
+                        blockKill.set(asVariable(value).index);
+                    }
+                });
+            }
+            gen[block.getId()] = blockGen;
+            kill[block.getId()] = blockKill;
+            liveIn[block.getId()] = new BitSet(numVariables);
+            liveOut[block.getId()] = new BitSet(numVariables);
+        }
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                AbstractBlock<?> block = blocks.get(i);
+                BitSet out = liveOut[block.getId()];
+                for (AbstractBlock<?> successor : block.getSuccessors()) {
+                    out.or(liveIn[successor.getId()]);
+                }
+                BitSet in = (BitSet) out.clone();
+                in.andNot(kill[block.getId()]);
+                in.or(gen[block.getId()]);
+                if (!in.equals(liveIn[block.getId()])) {
+                    liveIn[block.getId()] = in;
+                    changed = true;
+                }
+            }
+        } while (changed);
+    }
+
+    /**
+     * Determines the global variables and allocates their stack slots.
+     */
+    private void computeGlobalVariables() {
+        BitSet global = new BitSet(numVariables);
+        for (AbstractBlock<?> block : blocks) {
+            for (AbstractBlock<?> successor : block.getSuccessors()) {
+                if (traceIndex[block.getId()] != traceIndex[successor.getId()]) {
+                    global.or(liveIn[successor.getId()]);
+                }
+            }
+        }
+        int[] referencingTrace = new int[numVariables];
+        Arrays.fill(referencingTrace, -1);
+        Variable[] variables = new Variable[numVariables];
+        for (AbstractBlock<?> block : blocks) {
+            int trace = traceIndex[block.getId()];
+            ValueConsumer consumer = (value, mode, flags) -> {
+                if (isVariable(value)) {
+                    Variable variable = asVariable(value);
+                    variables[variable.index] = variable;
+                    if (referencingTrace[variable.index] == -1) {
+                        referencingTrace[variable.index] = trace;
+                    } else if (referencingTrace[variable.index] != trace) {
+                        global.set(variable.index);
+                    }
+                }
+            };
+            for (LIRInstruction op : ir.getLIRforBlock(block)) {
+                forEachUse(op, consumer);
+                forEachDef(op, consumer);
+            }
+        }
+        for (int i = global.nextSetBit(0); i >= 0; i = global.nextSetBit(i + 1)) {
+            if (variables[i] != null) {
+                globalSlots[i] = allocateSlot(variables[i].getLIRKind());
+                metricGlobalVariables.increment();
+            }
+        }
+    }
+
+    /**
+     * Collects the loads of the global variables that a region keeps in registers for each edge
+     * that enters the region from another region. Because critical edges are split, the loads are
+     * placed at the beginning of the successor if it has a single predecessor and at the end of the
+     * predecessor otherwise. The edges within a region need no moves.
+     *
+     * @return false if the loads for some edge cannot be placed
+     */
+    private boolean collectRegionEntryLoads() {
+        for (Trace trace : traces) {
+            for (AbstractBlock<?> block : trace.blocks) {
+                int region = regionIndex[block.getId()];
+                for (AbstractBlock<?> predecessor : block.getPredecessors()) {
+                    if (traceIndex[predecessor.getId()] == trace.index && regionIndex[predecessor.getId()] == region) {
+                        continue;
+                    }
+                    List<LIRInstruction> loads = new ArrayList<>();
+                    BitSet live = liveIn[block.getId()];
+                    for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                        TraceInterval interval = globalSlots[v] != null ? trace.regionIntervals.get(region).get(v) : null;
+                        if (interval != null && interval.inRegister()) {
+                            loads.add(ir.getSpillMoveFactory().createMove(interval.location, globalSlots[v]));
+                        }
+                    }
+                    if (loads.isEmpty()) {
+                        continue;
+                    }
+                    if (block.getPredecessorCount() == 1) {
+                        entryLoads.put(block, loads);
+                    } else if (predecessor.getSuccessorCount() == 1) {
+                        exitLoads.put(predecessor, loads);
+                    } else {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the loads collected by {@link #collectRegionEntryLoads()}. This happens after all
+     * traces have been assigned locations so that the loads at the end of a block follow the stores
+     * of the values defined in that block.
+     */
+    private void insertRegionEntryLoads() {
+        LIRInsertionBuffer buffer = new LIRInsertionBuffer();
+        for (AbstractBlock<?> block : blocks) {
+            List<LIRInstruction> entry = entryLoads.get(block);
+            List<LIRInstruction> exit = exitLoads.get(block);
+            if (entry == null && exit == null) {
+                continue;
+            }
+            List<LIRInstruction> instructions = ir.getLIRforBlock(block);
+            buffer.init(instructions);
+            if (entry != null) {
+                for (LIRInstruction load : entry) {
+                    buffer.append(1, load);
+                    metricInsertedMoves.increment();
+                }
+            }
+            if (exit != null) {
+                assert instructions.get(instructions.size() - 1) instanceof BlockEndOp;
+                for (LIRInstruction load : exit) {
+                    buffer.append(instructions.size() - 1, load);
+                    metricInsertedMoves.increment();
+                }
+            }
+            buffer.finish();
+        }
+    }
+
+    /**
+     * The part of the life time of a variable in a trace. For a global variable, this is the part
+     * within one region of the trace. The interval covers every block of the trace or region in
+     * which the variable is live.
+     */
+    private static final class TraceInterval {
+
+        final Variable variable;
+        final boolean global;
+        int from = Integer.MAX_VALUE;
+        int to = Integer.MIN_VALUE;
+        int references;
+        boolean requiresStack;
+        AllocatableValue location;
+
+        TraceInterval(Variable variable, boolean global) {
+            this.variable = variable;
+            this.global = global;
+        }
+
+        void addReference(int position, EnumSet<OperandFlag> flags) {
+            extend(position);
+            references++;
+            if (!flags.contains(OperandFlag.REG)) {
+                requiresStack = true;
+            }
+        }
+
+        void extend(int position) {
+            from = Math.min(from, position);
+            to = Math.max(to, position);
+        }
+
+        boolean covers(int position) {
+            return from <= position && position <= to;
+        }
+
+        boolean inRegister() {
+            return location != null && isRegister(location);
+        }
+
+        @Override
+        public String toString() {
+            return variable + (global ? "(global)" : "") + " [" + from + ", " + to + "] " + location;
+        }
+    }
+
+    private final class Trace {
+
+        final int index;
+        final boolean hot;
+        final List<AbstractBlock<?>> blocks = new ArrayList<>();
+
+        /**
+         * The intervals of local variables, indexed by variable index.
+         */
+        final Map<Integer, TraceInterval> localIntervals = new HashMap<>();
+
+        /**
+         * The intervals of global variables for each region of this trace. A region starts at the
+         * first block and at each block that can be entered from another trace.
+         */
+        final List<Map<Integer, TraceInterval>> regionIntervals = new ArrayList<>();
+
+        /**
+         * All intervals sorted by their start position.
+         */
+        final List<TraceInterval> intervals = new ArrayList<>();
+
+        final Map<Register, List<int[]>> fixedRanges = new HashMap<>();
+        final List<Integer> callPositions = new ArrayList<>();
+
+        /**
+         * The scratch registers chosen for operands that need a register but whose location is a
+         * stack slot. The key is the variable index, negative for definitions.
+         */
+        final Map<LIRInstruction, Map<Integer, Register>> scratchRegisters = new HashMap<>();
+
+        Trace(int index, boolean hot) {
+            this.index = index;
+            this.hot = hot;
+        }
+
+        boolean isRegionStart(int blockIndex) {
+            if (blockIndex == 0) {
+                return true;
+            }
+            for (AbstractBlock<?> predecessor : blocks.get(blockIndex).getPredecessors()) {
+                if (traceIndex[predecessor.getId()] != index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        TraceInterval intervalFor(Variable variable, Map<Integer, TraceInterval> region) {
+            if (globalSlots[variable.index] != null) {
+                return region.get(variable.index);
+            }
+            return localIntervals.get(variable.index);
+        }
+
+        /**
+         * Numbers the instructions of this trace, builds the intervals and assigns locations to
+         * them.
+         *
+         * @return false if no scratch register could be found for some instruction
+         */
+        boolean allocate() {
+            buildIntervals();
+            Collections.sort(intervals, (a, b) -> a.from - b.from);
+            for (TraceInterval interval : intervals) {
+                if (interval.global && (interval.requiresStack || interval.references == 1)) {
+                    interval.location = globalSlots[interval.variable.index];
+                }
+            }
+            if (hot) {
+                assignRegisters();
+            }
+            for (TraceInterval interval : intervals) {
+                if (interval.location == null) {
+                    interval.location = interval.global ? globalSlots[interval.variable.index] : allocateSlot(interval.variable.getLIRKind());
+                }
+                if (interval.inRegister()) {
+                    metricRegisterIntervals.increment();
+                } else {
+                    metricStackIntervals.increment();
+                }
+            }
+            return assignScratchRegisters();
+        }
+
+        private void buildIntervals() {
+            Map<Integer, TraceInterval> region = null;
+            int position = 0;
+            int[] blockStarts = new int[blocks.size()];
+            for (int i = 0; i < blocks.size(); i++) {
+                if (isRegionStart(i)) {
+                    region = new HashMap<>();
+                    regionIntervals.add(region);
+                }
+                regionIndex[blocks.get(i).getId()] = regionIntervals.size() - 1;
+                Map<Integer, TraceInterval> currentRegion = region;
+                Map<Register, Integer> lastDefinition = new HashMap<>();
+                int blockStart = position;
+                blockStarts[i] = blockStart;
+                for (LIRInstruction op : ir.getLIRforBlock(blocks.get(i))) {
+                    int opPosition = position;
+                    op.setId(opPosition);
+                    if (op.destroysCallerSavedRegisters()) {
+                        callPositions.add(opPosition);
+                    }
+                    op.visitEachInput((value, mode, flags) -> reference(value, opPosition, mode, flags, currentRegion, lastDefinition, blockStart));
+                    op.visitEachAlive((value, mode, flags) -> reference(value, opPosition, mode, flags, currentRegion, lastDefinition, blockStart));
+                    op.visitEachState((value, mode, flags) -> {
+                        // global variables are described by their stack slot in frame states
+                        if (isVariable(value) && globalSlots[asVariable(value).index] == null) {
+                            reference(value, opPosition, mode, flags, currentRegion, lastDefinition, blockStart);
+                        }
+                    });
+                    op.visitEachTemp((value, mode, flags) -> reference(value, opPosition, mode, flags, currentRegion, lastDefinition, blockStart));
+                    op.visitEachOutput((value, mode, flags) -> reference(value, opPosition, mode, flags, currentRegion, lastDefinition, blockStart));
+                    position += 2;
+                }
+            }
+            for (int i = 0; i < blocks.size(); i++) {
+                AbstractBlock<?> block = blocks.get(i);
+                Map<Integer, TraceInterval> blockRegion = regionIntervals.get(regionIndex[block.getId()]);
+                int blockEnd = i + 1 < blocks.size() ? blockStarts[i + 1] - 2 : position - 2;
+                extendIntervals(liveIn[block.getId()], blockRegion, blockStarts[i]);
+                extendIntervals(liveOut[block.getId()], blockRegion, blockEnd);
+            }
+        }
+
+        private void extendIntervals(BitSet live, Map<Integer, TraceInterval> region, int position) {
+            for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                TraceInterval interval = globalSlots[v] != null ? region.get(v) : localIntervals.get(v);
+                if (interval != null) {
+                    interval.extend(position);
+                }
+            }
+        }
+
+        private void reference(Value value, int position, OperandMode mode, EnumSet<OperandFlag> flags, Map<Integer, TraceInterval> region, Map<Register, Integer> lastDefinition, int blockStart) {
+            if (isVariable(value)) {
+                Variable variable = asVariable(value);
+                boolean global = globalSlots[variable.index] != null;
+                Map<Integer, TraceInterval> map = global ? region : localIntervals;
+                TraceInterval interval = map.get(variable.index);
+                if (interval == null) {
+                    interval = new TraceInterval(variable, global);
+                    map.put(variable.index, interval);
+                    intervals.add(interval);
+                }
+                interval.addReference(position, flags);
+            } else if (isRegister(value)) {
+                Register register = asRegister(value);
+                List<int[]> ranges = fixedRanges.get(register);
+                if (ranges == null) {
+                    ranges = new ArrayList<>();
+                    fixedRanges.put(register, ranges);
+                }
+                if (mode == OperandMode.USE || mode == OperandMode.ALIVE) {
+                    Integer definition = lastDefinition.get(register);
+                    ranges.add(new int[]{definition == null ? blockStart : definition, position});
+                } else {
+                    ranges.add(new int[]{position, position});
+                    lastDefinition.put(register, position);
+                }
+            }
+        }
+
+        private boolean isFixedAt(Register register, int from, int to) {
+            List<int[]> ranges = fixedRanges.get(register);
+            if (ranges != null) {
+                for (int[] range : ranges) {
+                    if (range[0] <= to && range[1] >= from) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean crossesCall(TraceInterval interval) {
+            for (int call : callPositions) {
+                if (interval.from < call && call <= interval.to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Assigns registers to the intervals in the order of their start positions. An interval
+         * for which no register is free over its whole life time is kept on the stack.
+         */
+        private void assignRegisters() {
+            List<TraceInterval> active = new ArrayList<>();
+            for (TraceInterval interval : intervals) {
+                if (interval.location != null || interval.requiresStack) {
+                    continue;
+                }
+                for (Iterator<TraceInterval> iter = active.iterator(); iter.hasNext();) {
+                    if (iter.next().to < interval.from) {
+                        iter.remove();
+                    }
+                }
+                boolean crossesCall = crossesCall(interval);
+                for (Register register : allocatableRegisters(interval.variable.getPlatformKind())) {
+                    if (crossesCall && registerAttributes[register.number].isCallerSave()) {
+                        continue;
+                    }
+                    if (isFixedAt(register, interval.from, interval.to) || isUsedBy(active, register)) {
+                        continue;
+                    }
+                    interval.location = register.asValue(interval.variable.getLIRKind());
+                    active.add(interval);
+                    break;
+                }
+            }
+        }
+
+        private boolean isUsedBy(Collection<TraceInterval> active, Register register) {
+            for (TraceInterval other : active) {
+                if (other.inRegister() && asRegister(other.location).equals(register)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Chooses a scratch register for every operand that needs a register but whose location is
+         * a stack slot.
+         */
+        private boolean assignScratchRegisters() {
+            int next = 0;
+            List<TraceInterval> live = new ArrayList<>();
+            for (AbstractBlock<?> block : blocks) {
+                Map<Integer, TraceInterval> region = regionIntervals.get(regionIndex[block.getId()]);
+                List<LIRInstruction> instructions = ir.getLIRforBlock(block);
+                for (int j = 0; j < instructions.size(); j++) {
+                    LIRInstruction op = instructions.get(j);
+                    int position = op.id();
+                    while (next < intervals.size() && intervals.get(next).from <= position) {
+                        live.add(intervals.get(next++));
+                    }
+                    for (Iterator<TraceInterval> iter = live.iterator(); iter.hasNext();) {
+                        if (iter.next().to < position) {
+                            iter.remove();
+                        }
+                    }
+                    Map<Integer, Register> scratch = new HashMap<>();
+                    boolean[] failed = new boolean[1];
+                    ValueConsumer consumer = (value, mode, flags) -> {
+                        if (isVariable(value) && !flags.contains(OperandFlag.STACK)) {
+                            Variable variable = asVariable(value);
+                            boolean def = mode == OperandMode.TEMP || mode == OperandMode.DEF;
+                            int key = def ? -variable.index - 1 : variable.index;
+                            TraceInterval interval = intervalFor(variable, region);
+                            if (!interval.inRegister() && !scratch.containsKey(key)) {
+                                Register register = findScratchRegister(variable.getPlatformKind(), position, live, scratch.values());
+                                if (register == null) {
+                                    failed[0] = true;
+                                } else {
+                                    scratch.put(key, register);
+                                }
+                            }
+                        }
+                    };
+                    op.visitEachInput(consumer);
+                    op.visitEachAlive(consumer);
+                    op.visitEachTemp(consumer);
+                    op.visitEachOutput(consumer);
+                    if (failed[0] || (op instanceof BlockEndOp && needsMoveAfter(op, region, scratch))) {
+                        return false;
+                    }
+                    if (!scratch.isEmpty()) {
+                        scratchRegisters.put(op, scratch);
+                    }
+                }
+            }
+            return true;
+        }
+
+        private Register findScratchRegister(PlatformKind kind, int position, List<TraceInterval> live, Collection<Register> taken) {
+            int maxScratchRegisters = Options.TraceRAMaxScratchRegisters.getValue();
+            if (maxScratchRegisters > 0 && taken.size() >= maxScratchRegisters) {
+                return null;
+            }
+            for (Register register : allocatableRegisters(kind)) {
+                if (!taken.contains(register) && !isFixedAt(register, position, position) && !isUsedBy(live, register)) {
+                    return register;
+                }
+            }
+            return null;
+        }
+
+        private boolean needsMoveAfter(LIRInstruction op, Map<Integer, TraceInterval> region, Map<Integer, Register> scratch) {
+            boolean[] result = new boolean[1];
+            op.visitEachOutput((value, mode, flags) -> {
+                if (isVariable(value)) {
+                    Variable variable = asVariable(value);
+                    TraceInterval interval = intervalFor(variable, region);
+                    result[0] |= scratch.containsKey(-variable.index - 1) || (interval.global && interval.inRegister());
+                }
+            });
+            return result[0];
+        }
+
+        /**
+         * Replaces the variables of this trace by their locations and inserts the moves from and to
+         * stack slots.
+         */
+        void assignLocations() {
+            LIRInsertionBuffer buffer = new LIRInsertionBuffer();
+            FrameMap frameMap = res.getFrameMap();
+            for (AbstractBlock<?> block : blocks) {
+                Map<Integer, TraceInterval> region = regionIntervals.get(regionIndex[block.getId()]);
+                List<LIRInstruction> instructions = ir.getLIRforBlock(block);
+                Map<LIRInstruction, BitSet> liveAfter = computeLiveAfter(block, instructions);
+                buffer.init(instructions);
+                for (int j = 0; j < instructions.size(); j++) {
+                    int index = j;
+                    LIRInstruction op = instructions.get(index);
+                    Map<Integer, Register> scratch = scratchRegisters.getOrDefault(op, Collections.emptyMap());
+
+                    ValueConsumer loads = (value, mode, flags) -> {
+                        if (isVariable(value)) {
+                            Variable variable = asVariable(value);
+                            Register register = scratch.get(variable.index);
+                            if (register != null) {
+                                insertMove(buffer, index, register.asValue(variable.getLIRKind()), intervalFor(variable, region).location);
+                            }
+                        }
+                    };
+                    op.visitEachInput(loads);
+                    op.visitEachAlive(loads);
+
+                    if (op.hasState()) {
+                        BitSet live = liveAfter.get(op);
+                        op.forEachState((inst, state) -> computeDebugInfo(inst, state, live, region, frameMap));
+                    }
+
+                    InstructionValueProcedure assign = (inst, value, mode, flags) -> {
+                        if (isVariable(value)) {
+                            Variable variable = asVariable(value);
+                            boolean def = mode == OperandMode.TEMP || mode == OperandMode.DEF;
+                            Register register = scratch.get(def ? -variable.index - 1 : variable.index);
+                            if (register != null) {
+                                return register.asValue(variable.getLIRKind());
+                            }
+                            return intervalFor(variable, region).location;
+                        }
+                        return value;
+                    };
+                    // the stores of definitions are inserted before the next instruction
+                    ValueConsumer stores = (value, mode, flags) -> {
+                        if (isVariable(value)) {
+                            Variable variable = asVariable(value);
+                            TraceInterval interval = intervalFor(variable, region);
+                            Register register = scratch.get(-variable.index - 1);
+                            if (register != null) {
+                                insertMove(buffer, index + 1, interval.location, register.asValue(variable.getLIRKind()));
+                            } else if (interval.global && interval.inRegister()) {
+                                insertMove(buffer, index + 1, globalSlots[variable.index], interval.location);
+                            }
+                        }
+                    };
+                    op.visitEachOutput(stores);
+
+                    op.forEachInput(assign);
+                    op.forEachAlive(assign);
+                    op.forEachTemp(assign);
+                    op.forEachOutput(assign);
+                }
+                buffer.finish();
+            }
+        }
+
+        private void insertMove(LIRInsertionBuffer buffer, int index, AllocatableValue result, Value input) {
+            buffer.append(index, ir.getSpillMoveFactory().createMove(result, input));
+            metricInsertedMoves.increment();
+        }
+
+        /**
+         * Computes the variables that are live after each instruction with a frame state, excluding
+         * the variables defined by the instruction. The stack slot of a global variable is only
+         * written after its definition.
+         */
+        private Map<LIRInstruction, BitSet> computeLiveAfter(AbstractBlock<?> block, List<LIRInstruction> instructions) {
+            Map<LIRInstruction, BitSet> result = new HashMap<>();
+            BitSet live = (BitSet) liveOut[block.getId()].clone();
+            for (int j = instructions.size() - 1; j >= 0; j--) {
+                LIRInstruction op = instructions.get(j);
+                forEachDef(op, (value, mode, flags) -> {
+                    if (isVariable(value)) {
+                        live.clear(asVariable(value).index);
+                    }
+                });
+                if (op.hasState()) {
+                    result.put(op, (BitSet) live.clone());
+                }
+                forEachUse(op, (value, mode, flags) -> {
+                    if (isVariable(value)) {
+                        live.set(asVariable(value).index);
+                    }
+                });
+            }
+            return result;
+        }
+
+        private void computeDebugInfo(LIRInstruction op, LIRFrameState state, BitSet live, Map<Integer, TraceInterval> region, FrameMap frameMap) {
+            int position = op.id();
+            state.initDebugInfo(frameMap, !op.destroysCallerSavedRegisters());
+            for (int v = live.nextSetBit(0); v >= 0; v = live.nextSetBit(v + 1)) {
+                StackSlot slot = globalSlots[v];
+                TraceInterval interval = slot != null ? region.get(v) : localIntervals.get(v);
+                if (slot != null) {
+                    state.markLocation(slot, frameMap);
+                }
+                if (interval != null && interval.from < position && position < interval.to && interval.location != slot) {
+                    state.markLocation(interval.location, frameMap);
+                }
+            }
+            state.forEachState(op, (inst, value, mode, flags) -> {
+                if (isVariable(value)) {
+                    Variable variable = asVariable(value);
+                    StackSlot slot = globalSlots[variable.index];
+                    return slot != null ? slot : localIntervals.get(variable.index).location;
+                }
+                return value;
+            });
+            state.finish(op, frameMap);
+        }
+    }
+}
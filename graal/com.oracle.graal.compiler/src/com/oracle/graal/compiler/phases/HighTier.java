@@ -93,6 +93,9 @@ public class HighTier extends PhaseSuite<HighTierContext> {
         if (OptLoopTransform.getValue()) {
             appendPhase(new LoopTransformHighPhase());
             appendPhase(new LoopTransformLowPhase());
+            if (VectorizeLoops.getValue()) {
+                appendPhase(new LoopVectorizationPhase());
+            }
         }
         appendPhase(new RemoveValueProxyPhase());
 
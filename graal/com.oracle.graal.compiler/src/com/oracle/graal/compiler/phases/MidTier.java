@@ -75,6 +75,14 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(canonicalizer);
         }
 
+        if (OptLoopTransform.getValue() && LoopPredication.getValue()) {
+            appendPhase(new IncrementalCanonicalizerPhase<>(canonicalizer, new LoopPredicationPhase()));
+        }
+
+        if (OptFloatingReads.getValue() && OptGlobalValueNumbering.getValue()) {
+            appendPhase(new IncrementalCanonicalizerPhase<>(canonicalizer, new GlobalValueNumberingPhase()));
+        }
+
         appendPhase(new IncrementalCanonicalizerPhase<>(canonicalizer, new LoopSafepointEliminationPhase()));
 
         appendPhase(new LoopSafepointInsertionPhase());
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.runtime.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodeinfo.*;
+
+public class NodeIdHashMapTest {
+
+    @NodeInfo
+    static class TestNode extends Node {
+        protected TestNode() {
+        }
+
+        public static TestNode create() {
+            return new TestNode();
+        }
+    }
+
+    private Graph graph;
+    private TestNode[] nodes = new TestNode[100];
+
+    @Before
+    public void before() {
+        // Need to initialize HotSpotGraalRuntime before any Node class is initialized.
+        Graal.getRuntime();
+
+        graph = new Graph();
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = graph.add(TestNode.create());
+        }
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        Map<TestNode, Integer> map = new NodeIdHashMap<>();
+        for (int i = 0; i < nodes.length; i += 2) {
+            assertNull(map.put(nodes[i], i));
+        }
+        assertEquals(nodes.length / 2, map.size());
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals((i & 1) == 0 ? (Integer) i : null, map.get(nodes[i]));
+        }
+        for (int i = 0; i < nodes.length; i += 4) {
+            assertEquals((Integer) i, map.remove(nodes[i]));
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals(i % 4 == 2, map.containsKey(nodes[i]));
+        }
+        assertEquals((Integer) 2, map.put(nodes[2], -2));
+        assertEquals((Integer) (-2), map.get(nodes[2]));
+        assertNull(map.get(new Object()));
+    }
+
+    @Test
+    public void testNullKey() {
+        Map<TestNode, Integer> map = new NodeIdHashMap<>();
+        map.put(null, 1);
+        map.put(nodes[0], 2);
+        assertEquals((Integer) 1, map.get(null));
+        assertEquals(2, map.size());
+        assertEquals((Integer) 1, map.remove(null));
+        assertFalse(map.containsKey(null));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Map<TestNode, Integer> map = new NodeIdHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            map.put(nodes[i], i);
+        }
+        for (Iterator<Map.Entry<TestNode, Integer>> iter = map.entrySet().iterator(); iter.hasNext();) {
+            if (iter.next().getValue() % 3 != 0) {
+                iter.remove();
+            }
+        }
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < nodes.length; i += 3) {
+            expected.add(i);
+        }
+        assertEquals(expected, new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void testCopy() {
+        Map<TestNode, Integer> map = new NodeIdHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            map.put(nodes[i], i);
+        }
+        Map<TestNode, Integer> copy = new NodeIdHashMap<>(map);
+        copy.remove(nodes[0]);
+        assertEquals(nodes.length, map.size());
+        assertEquals(nodes.length - 1, copy.size());
+        assertEquals(new IdentityHashMap<>(map), new IdentityHashMap<>(new NodeIdHashMap<>(new IdentityHashMap<>(map))));
+    }
+
+    @Test
+    public void testKeyAddedToGraph() {
+        Map<TestNode, Integer> map = new NodeIdHashMap<>();
+        map.put(nodes[0], 0);
+        TestNode node = TestNode.create();
+        map.put(node, 1);
+        graph.add(node);
+        assertEquals((Integer) 1, map.get(node));
+        map.put(nodes[1], 2);
+        assertEquals((Integer) 1, map.get(node));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testBitMapIteration() {
+        NodeBitMap bitMap = graph.createNodeBitMap();
+        List<Node> expected = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i += 7) {
+            bitMap.mark(nodes[i]);
+            expected.add(nodes[i]);
+        }
+        nodes[7].safeDelete();
+        expected.remove(nodes[7]);
+        assertEquals(expected, bitMap.snapshot());
+    }
+}
@@ -435,4 +435,59 @@ public class NodeUsagesTests {
 
         assertThat(def1.usages(), isNotEmpty());
     }
+
+    @Test
+    public void testRemoveUsages() {
+        Graph graph = new Graph();
+        Def def0 = graph.add(Def.create());
+        Use[] uses = new Use[20];
+        for (int i = 0; i < uses.length; i++) {
+            uses[i] = graph.add(Use.create(def0, null, null));
+        }
+        assertEquals(uses.length, def0.usages().count());
+
+        // remove the last, the first and every third usage
+        uses[uses.length - 1].safeDelete();
+        uses[0].safeDelete();
+        for (int i = 3; i < uses.length - 1; i += 3) {
+            uses[i].safeDelete();
+        }
+
+        int expectedCount = 0;
+        for (Use use : uses) {
+            if (use.isAlive()) {
+                assertThat(def0.usages(), contains(use));
+                expectedCount++;
+            }
+        }
+        assertEquals(expectedCount, def0.usages().count());
+    }
+
+    @Test
+    public void testReplaceAtUsagesMany() {
+        Graph graph = new Graph();
+        Def def0 = graph.add(Def.create());
+        Def def1 = graph.add(Def.create());
+        Use[] uses0 = new Use[10];
+        Use[] uses1 = new Use[7];
+        for (int i = 0; i < uses0.length; i++) {
+            uses0[i] = graph.add(Use.create(def0, null, def0));
+        }
+        for (int i = 0; i < uses1.length; i++) {
+            uses1[i] = graph.add(Use.create(null, def1, null));
+        }
+
+        def0.replaceAtUsages(def1);
+
+        assertThat(def0.usages(), isEmpty());
+        assertEquals(2 * uses0.length + uses1.length, def1.usages().count());
+        for (Use use : uses0) {
+            assertThat(def1.usages(), contains(use));
+            assertEquals(def1, use.in0);
+            assertEquals(def1, use.in2);
+        }
+        for (Use use : uses1) {
+            assertThat(def1.usages(), contains(use));
+        }
+    }
 }
@@ -28,7 +28,7 @@ import com.oracle.graal.api.collections.*;
 
 /**
  * A default implementation of {@link NodeCollectionsProvider} that creates standard JDK collection
- * class objects.
+ * class objects, except for the collections keyed by nodes which are {@link NodeIdHashMap}s.
  */
 public class DefaultNodeCollectionsProvider extends DefaultCollectionsProvider implements NodeCollectionsProvider {
 
@@ -37,14 +37,14 @@ public class DefaultNodeCollectionsProvider extends DefaultCollectionsProvider i
     }
 
     public <K extends Node, V> Map<K, V> newNodeIdentityMap() {
-        return new IdentityHashMap<>();
+        return new NodeIdHashMap<>();
     }
 
     public <K extends Node, V> Map<K, V> newNodeIdentityMap(int expectedMaxSize) {
-        return new IdentityHashMap<>(expectedMaxSize);
+        return new NodeIdHashMap<>(expectedMaxSize);
     }
 
     public <K extends Node, V> Map<K, V> newNodeIdentityMap(Map<K, V> initFrom) {
-        return new IdentityHashMap<>(initFrom);
+        return new NodeIdHashMap<>(initFrom);
     }
 }
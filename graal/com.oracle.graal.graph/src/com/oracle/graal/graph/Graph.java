@@ -80,6 +80,11 @@ public class Graph {
 
     NodeEventListener nodeEventListener;
 
+    /**
+     * The number of structural changes made to this graph, see {@link #getModificationCount()}.
+     */
+    int modificationCount;
+
     /**
      * Used to global value number {@link ValueNumberable} {@linkplain NodeClass#isLeafNode() leaf}
      * nodes.
@@ -252,6 +257,24 @@ public class Graph {
         return compressions;
     }
 
+    /**
+     * Gets a counter that changes whenever a node is added to or deleted from this graph, an input
+     * or successor edge of a node changes, the graph is {@linkplain #maybeCompress() compressed} or
+     * {@link #notifyDataChanged()} is called. Data that is derived from the structure of this graph,
+     * such as a schedule, is still valid if this counter did not change since it was computed.
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Notifies this graph of a change to a property of a node that is not an edge but that data
+     * derived from the structure of the graph depends on, such as a branch probability.
+     */
+    public void notifyDataChanged() {
+        modificationCount++;
+    }
+
     /**
      * Gets the number of nodes which have been deleted from this graph since it was last
      * {@linkplain #maybeCompress() compressed}.
@@ -674,6 +697,7 @@ public class Graph {
         }
         nodesSize = nextId;
         compressions++;
+        modificationCount++;
         nodesDeletedBeforeLastCompression += nodesDeletedSinceLastCompression;
         nodesDeletedSinceLastCompression = 0;
         return true;
@@ -758,6 +782,7 @@ public class Graph {
         }
 
         node.id = id;
+        modificationCount++;
         if (nodeEventListener != null) {
             nodeEventListener.nodeAdded(node);
         }
@@ -768,6 +793,7 @@ public class Graph {
         assert !node.isDeleted() : "cannot delete a node twice! node=" + node;
         nodes[node.id] = null;
         nodesDeletedSinceLastCompression++;
+        modificationCount++;
 
         // nodes aren't removed from the type cache here - they will be removed during iteration
     }
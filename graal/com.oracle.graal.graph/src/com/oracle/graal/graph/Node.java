@@ -174,6 +174,11 @@ public abstract class Node implements Cloneable, Formattable {
     Node usage1;
     Node[] extraUsages;
 
+    /**
+     * The number of non-null entries in {@link #extraUsages}.
+     */
+    int extraUsagesCount;
+
     private Node predecessor;
 
     public static final int NODE_LIST = -2;
@@ -239,40 +244,6 @@ public abstract class Node implements Cloneable, Formattable {
         return new NodeUsageIterable(this);
     }
 
-    /**
-     * Finds the index of the last non-null entry in a node array. The search assumes that all
-     * non-null entries precede the first null entry in the array.
-     *
-     * @param nodes the array to search
-     * @return the index of the last non-null entry in {@code nodes} if it exists, else -1
-     */
-    private static int indexOfLastNonNull(Node[] nodes) {
-        if (nodes.length == 0 || nodes[0] == null) {
-            return -1;
-        }
-        if (nodes[nodes.length - 1] != null) {
-            return nodes.length - 1;
-        }
-
-        // binary search
-        int low = 0;
-        int high = nodes.length - 1;
-        while (true) {
-            int mid = (low + high) >>> 1;
-            if (nodes[mid] == null) {
-                if (nodes[mid - 1] != null) {
-                    return mid - 1;
-                }
-                high = mid - 1;
-            } else {
-                if (mid == nodes.length - 1 || nodes[mid + 1] == null) {
-                    return mid;
-                }
-                low = mid + 1;
-            }
-        }
-    }
-
     /**
      * Adds a given node to this node's {@linkplain #usages() usages}.
      *
@@ -280,26 +251,27 @@ public abstract class Node implements Cloneable, Formattable {
      */
     private void addUsage(Node node) {
         incUsageModCount();
+        incGraphModificationCount();
         if (usage0 == null) {
             usage0 = node;
         } else if (usage1 == null) {
             usage1 = node;
         } else {
-            int length = extraUsages.length;
-            if (length == 0) {
-                extraUsages = new Node[4];
-                extraUsages[0] = node;
-            } else {
-                int lastNonNull = indexOfLastNonNull(extraUsages);
-                if (lastNonNull == length - 1) {
-                    extraUsages = Arrays.copyOf(extraUsages, length * 2 + 1);
-                    extraUsages[length] = node;
-                } else if (lastNonNull == -1) {
-                    extraUsages[0] = node;
-                } else {
-                    extraUsages[lastNonNull + 1] = node;
-                }
+            if (extraUsagesCount == extraUsages.length) {
+                extraUsages = Arrays.copyOf(extraUsages, extraUsagesCount == 0 ? 4 : extraUsagesCount * 2 + 1);
             }
+            extraUsages[extraUsagesCount++] = node;
+        }
+    }
+
+    /**
+     * Ensures that this node can have {@code count} usages without growing its usage list, so that
+     * adding many usages at once copies the list at most once.
+     */
+    private void ensureUsageCapacity(int count) {
+        int extraCount = count - INLINE_USAGE_COUNT;
+        if (extraCount > extraUsages.length) {
+            extraUsages = Arrays.copyOf(extraUsages, Math.max(extraCount, extraUsages.length * 2 + 1));
         }
     }
 
@@ -310,7 +282,7 @@ public abstract class Node implements Cloneable, Formattable {
         if (usage1 == null) {
             return 1;
         }
-        return 2 + indexOfLastNonNull(extraUsages) + 1;
+        return INLINE_USAGE_COUNT + extraUsagesCount;
     }
 
     /**
@@ -331,8 +303,10 @@ public abstract class Node implements Cloneable, Formattable {
      */
     private void removeUsagesAndShiftFirst(int fromIndex, int toIndex) {
         assert fromIndex < toIndex;
+        incGraphModificationCount();
         int firstNullIndex = usageCount();
         assert toIndex <= firstNullIndex;
+        int newUsageCount = firstNullIndex - (toIndex - fromIndex);
         int i = fromIndex;
         int limit = toIndex;
         if (toIndex < firstNullIndex) {
@@ -356,7 +330,7 @@ public abstract class Node implements Cloneable, Formattable {
             }
             i++;
         }
-
+        extraUsagesCount = Math.max(0, newUsageCount - INLINE_USAGE_COUNT);
     }
 
     private void movUsageTo(int usageIndex, int toIndex) {
@@ -389,12 +363,11 @@ public abstract class Node implements Cloneable, Formattable {
         // It is critical that this method maintains the invariant that
         // the usage list has no null element preceding a non-null element
         incUsageModCount();
+        incGraphModificationCount();
         if (usage0 == node) {
             if (usage1 != null) {
-                int lastNonNull = indexOfLastNonNull(extraUsages);
-                if (lastNonNull >= 0) {
-                    usage0 = extraUsages[lastNonNull];
-                    extraUsages[lastNonNull] = null;
+                if (extraUsagesCount > 0) {
+                    usage0 = removeLastExtraUsage();
                 } else {
                     // usage1 is the last element
                     usage0 = usage1;
@@ -407,38 +380,40 @@ public abstract class Node implements Cloneable, Formattable {
             return true;
         }
         if (usage1 == node) {
-            int lastNonNull = indexOfLastNonNull(extraUsages);
-            if (lastNonNull >= 0) {
-                usage1 = extraUsages[lastNonNull];
-                extraUsages[lastNonNull] = null;
+            if (extraUsagesCount > 0) {
+                usage1 = removeLastExtraUsage();
             } else {
                 // usage1 is the last element
                 usage1 = null;
             }
             return true;
         }
-        int matchIndex = -1;
-        int i = 0;
-        Node n;
-        while (i < extraUsages.length && (n = extraUsages[i]) != null) {
-            if (n == node) {
-                matchIndex = i;
+        // search backwards as recently added usages are more likely to be removed
+        for (int i = extraUsagesCount - 1; i >= 0; i--) {
+            if (extraUsages[i] == node) {
+                Node last = removeLastExtraUsage();
+                if (i < extraUsagesCount) {
+                    extraUsages[i] = last;
+                }
+                return true;
             }
-            i++;
-        }
-        if (matchIndex >= 0) {
-            extraUsages[matchIndex] = extraUsages[i - 1];
-            extraUsages[i - 1] = null;
-            return true;
         }
         return false;
     }
 
+    private Node removeLastExtraUsage() {
+        Node last = extraUsages[--extraUsagesCount];
+        extraUsages[extraUsagesCount] = null;
+        return last;
+    }
+
     private void clearUsages() {
         incUsageModCount();
+        incGraphModificationCount();
         usage0 = null;
         usage1 = null;
         extraUsages = NO_NODES;
+        extraUsagesCount = 0;
     }
 
     public final Node predecessor() {
@@ -471,6 +446,12 @@ public abstract class Node implements Cloneable, Formattable {
         }
     }
 
+    private void incGraphModificationCount() {
+        if (graph != null) {
+            graph.modificationCount++;
+        }
+    }
+
     public boolean isDeleted() {
         return id <= DELETED_ID_START;
     }
@@ -514,6 +495,7 @@ public abstract class Node implements Cloneable, Formattable {
         assert isAlive() && (newSuccessor == null || newSuccessor.isAlive()) : "adding " + newSuccessor + " to " + this + " instead of " + oldSuccessor;
         assert graph == null || !graph.isFrozen();
         if (oldSuccessor != newSuccessor) {
+            incGraphModificationCount();
             if (oldSuccessor != null) {
                 assert assertTrue(oldSuccessor.predecessor == this, "wrong predecessor in old successor (%s): %s, should be %s", oldSuccessor, oldSuccessor.predecessor, this);
                 oldSuccessor.predecessor = null;
@@ -555,6 +537,9 @@ public abstract class Node implements Cloneable, Formattable {
 
     public void replaceAtUsages(Node other) {
         assert checkReplaceWith(other);
+        if (other != null) {
+            other.ensureUsageCapacity(other.usageCount() + usageCount());
+        }
         for (Node usage : usages()) {
             boolean result = usage.getNodeClass().getEdges(Inputs).replaceFirst(usage, this, other);
             assert assertTrue(result, "not found in inputs, usage: %s", usage);
@@ -683,6 +668,7 @@ public abstract class Node implements Cloneable, Formattable {
     }
 
     private void unregisterSuccessors() {
+        incGraphModificationCount();
         for (Node successor : successors()) {
             assert assertTrue(successor.predecessor == this, "wrong predecessor in old successor (%s): %s", successor, successor.predecessor);
             successor.predecessor = null;
@@ -813,6 +799,7 @@ public abstract class Node implements Cloneable, Formattable {
             into.register(newNode);
         }
         newNode.extraUsages = NO_NODES;
+        newNode.extraUsagesCount = 0;
 
         if (into != null && useIntoLeafNodeCache) {
             into.putNodeIntoCache(newNode);
@@ -143,30 +143,50 @@ public final class NodeBitMap implements NodeIterable<Node> {
         }
     }
 
+    /**
+     * Iterates over the marked nodes in the order of their ids. Words of the bit map without marked
+     * nodes are skipped as a whole.
+     */
     private static class MarkedNodeIterator implements Iterator<Node> {
 
         private final NodeBitMap visited;
-        private Iterator<Node> nodes;
+        private final Graph graph;
+        private int nextId;
         private Node nextNode;
 
-        public MarkedNodeIterator(NodeBitMap visited, Iterator<Node> nodes) {
+        public MarkedNodeIterator(NodeBitMap visited) {
             this.visited = visited;
-            this.nodes = nodes;
+            this.graph = visited.graph();
             forward();
         }
 
         private void forward() {
-            do {
-                if (!nodes.hasNext()) {
+            int id = nextId;
+            while (true) {
+                int word = id >> SHIFT;
+                // the bits are read anew in every step because nodes may be marked concurrently
+                if (word >= visited.bits.length) {
                     nextNode = null;
                     return;
                 }
-                nextNode = nodes.next();
-                if (visited.isNew(nextNode)) {
+                long marked = visited.bits[word] & (-1L << id);
+                if (marked == 0) {
+                    id = (word + 1) << SHIFT;
+                    continue;
+                }
+                id = (word << SHIFT) + Long.numberOfTrailingZeros(marked);
+                if (id >= graph.nodeIdCount()) {
                     nextNode = null;
                     return;
                 }
-            } while (!visited.isMarked(nextNode));
+                Node node = graph.getNode(id);
+                id++;
+                if (node != null) {
+                    nextNode = node;
+                    nextId = id;
+                    return;
+                }
+            }
         }
 
         @Override
@@ -192,7 +212,7 @@ public final class NodeBitMap implements NodeIterable<Node> {
 
     @Override
     public Iterator<Node> iterator() {
-        return new MarkedNodeIterator(NodeBitMap.this, graph().getNodes().iterator());
+        return new MarkedNodeIterator(NodeBitMap.this);
     }
 
     public NodeBitMap copy() {
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph;
+
+import java.util.*;
+
+/**
+ * A map whose keys are {@link Node}s that uses reference-equality when comparing keys and the id of
+ * a node as its hash code. Compared to an {@link IdentityHashMap}, this avoids computing and
+ * storing identity hash codes for nodes, and the entries for the nodes of a graph are iterated
+ * roughly in the order of their ids.
+ * <p>
+ * The map uses open addressing with linear probing. The ids of the nodes of the graph of the first
+ * key that is part of a graph are used as hash codes; all other keys are hashed by identity. The
+ * hash code of a key changes if the graph is {@linkplain Graph#maybeCompress() compressed} or if a
+ * key that was not part of a graph when it was inserted is added to the graph. Lookups then fall
+ * back to a linear search until the next insertion rehashes the map.
+ */
+public final class NodeIdHashMap<K extends Node, V> extends AbstractMap<K, V> {
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 8;
+
+    private Object[] keys;
+    private Object[] values;
+    private int size;
+    private int removed;
+    private int modCount;
+
+    /**
+     * The graph whose node ids are used as hash codes.
+     */
+    private Graph graph;
+
+    /**
+     * The number of compressions of {@link #graph} when the keys were hashed.
+     */
+    private int compressions;
+
+    /**
+     * The number of keys that were not part of a graph when they were hashed.
+     */
+    private int unstableKeys;
+
+    private Set<Entry<K, V>> entrySet;
+
+    public NodeIdHashMap() {
+        this(0);
+    }
+
+    public NodeIdHashMap(int expectedMaxSize) {
+        int capacity = capacityFor(expectedMaxSize);
+        keys = new Object[capacity];
+        values = new Object[capacity];
+    }
+
+    public NodeIdHashMap(Map<? extends K, ? extends V> initFrom) {
+        if (initFrom instanceof NodeIdHashMap) {
+            NodeIdHashMap<?, ?> other = (NodeIdHashMap<?, ?>) initFrom;
+            keys = other.keys.clone();
+            values = other.values.clone();
+            size = other.size;
+            removed = other.removed;
+            graph = other.graph;
+            compressions = other.compressions;
+            unstableKeys = other.unstableKeys;
+        } else {
+            int capacity = capacityFor(initFrom.size());
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            putAll(initFrom);
+        }
+    }
+
+    /**
+     * Gets the capacity for which a map with {@code expectedMaxSize} entries is at most two thirds
+     * full.
+     */
+    private static int capacityFor(int expectedMaxSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 2 < expectedMaxSize * 3) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private int hash(Object key) {
+        if (key == NULL_KEY) {
+            return 0;
+        }
+        Node node = (Node) key;
+        Graph nodeGraph = node.graph();
+        if (nodeGraph != null) {
+            if (graph == null) {
+                graph = nodeGraph;
+                compressions = graph.compressions;
+            }
+            if (nodeGraph == graph && node.id != Node.INITIAL_ID) {
+                return graph.extractOriginalNodeId(node);
+            }
+        }
+        return System.identityHashCode(node);
+    }
+
+    private static boolean isUnstable(Object key) {
+        return key != NULL_KEY && ((Node) key).graph() == null;
+    }
+
+    private boolean isStale() {
+        return unstableKeys > 0 || (graph != null && graph.compressions != compressions);
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    /**
+     * Gets the index of the slot holding {@code key} or -1 if {@code key} is not in this map.
+     */
+    private int find(Object key) {
+        if (key != NULL_KEY && !(key instanceof Node)) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            Object current = keys[i];
+            if (current == key) {
+                return i;
+            } else if (current == null) {
+                break;
+            }
+        }
+        if (isStale()) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(maskNull(key)) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        int index = find(maskNull(key));
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V put(K key, V value) {
+        Object k = maskNull(key);
+        int index = find(k);
+        if (index >= 0) {
+            V oldValue = (V) values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        if ((size + removed + 1) * 3 > keys.length * 2) {
+            rehash(size * 3 >= keys.length ? keys.length * 2 : keys.length);
+        } else if (isStale()) {
+            rehash(keys.length);
+        }
+        insert(k, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private void insert(Object key, Object value) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != null && keys[i] != REMOVED) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == REMOVED) {
+            removed--;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (isUnstable(key)) {
+            unstableKeys++;
+        }
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        removed = 0;
+        unstableKeys = 0;
+        if (graph != null) {
+            compressions = graph.compressions;
+        }
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null && key != REMOVED) {
+                insert(key, oldValues[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        int index = find(maskNull(key));
+        if (index < 0) {
+            return null;
+        }
+        V oldValue = (V) values[index];
+        removeAt(index);
+        return oldValue;
+    }
+
+    private void removeAt(int index) {
+        keys[index] = REMOVED;
+        values[index] = null;
+        size--;
+        removed++;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        removed = 0;
+        unstableKeys = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    NodeIdHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+        private int next;
+        private int current = -1;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (next < keys.length && (keys[next] == null || keys[next] == REMOVED)) {
+                next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            advance();
+            return new MapEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0 || keys[current] == REMOVED) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(current);
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class MapEntry implements Entry<K, V> {
+
+        private final int index;
+        private final Object key;
+
+        MapEntry(int index) {
+            this.index = index;
+            this.key = keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public K getKey() {
+            return key == NULL_KEY ? null : (K) key;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V getValue() {
+            return keys[index] == key ? (V) values[index] : get(getKey());
+        }
+
+        @Override
+        public V setValue(V value) {
+            if (keys[index] == key) {
+                @SuppressWarnings("unchecked")
+                V oldValue = (V) values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            return put(getKey(), value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Entry) {
+                Entry<?, ?> other = (Entry<?, ?>) obj;
+                return other.getKey() == getKey() && Objects.equals(other.getValue(), getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
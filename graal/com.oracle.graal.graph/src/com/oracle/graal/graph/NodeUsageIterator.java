@@ -38,7 +38,7 @@ class NodeUsageIterator implements Iterator<Node> {
         } else if (index == 1) {
             current = node.usage1;
         } else {
-            if (index - Node.INLINE_USAGE_COUNT < node.extraUsages.length) {
+            if (index - Node.INLINE_USAGE_COUNT < node.extraUsagesCount) {
                 current = node.extraUsages[index - Node.INLINE_USAGE_COUNT];
             }
         }
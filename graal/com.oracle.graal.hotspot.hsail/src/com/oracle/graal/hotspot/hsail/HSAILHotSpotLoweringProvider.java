@@ -31,6 +31,7 @@ import com.oracle.graal.graph.*;
 import com.oracle.graal.hotspot.*;
 import com.oracle.graal.hotspot.hsail.replacements.*;
 import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.nodes.*;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.calc.*;
 import com.oracle.graal.nodes.extended.*;
@@ -73,6 +74,16 @@ public class HSAILHotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
         }
     };
 
+    // allocations are lowered one by one, so the memory of a batch is never reserved
+    final LoweringStrategy allocationBatchStrategy = new LoweringStrategy() {
+        @Override
+        void lower(Node n, LoweringTool tool) {
+            StructuredGraph graph = (StructuredGraph) n.graph();
+            AllocationBatchNode batch = (AllocationBatchNode) n;
+            graph.replaceFixedWithFloating(batch, ConstantNode.forIntegerKind(batch.getKind(), 0, graph));
+        }
+    };
+
     // strategy to replace an UnwindNode with a DeoptNode
     final LoweringStrategy unwindNodeStrategy = new LoweringStrategy() {
         @Override
@@ -110,6 +121,9 @@ public class HSAILHotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
         strategyMap.put(NodeClass.get(FloatConvertNode.class), passThruStrategy);
         strategyMap.put(NodeClass.get(NewInstanceNode.class), newObjectStrategy);
         strategyMap.put(NodeClass.get(NewArrayNode.class), newObjectStrategy);
+        strategyMap.put(NodeClass.get(BatchedNewInstanceNode.class), newObjectStrategy);
+        strategyMap.put(NodeClass.get(BatchedNewArrayNode.class), newObjectStrategy);
+        strategyMap.put(NodeClass.get(AllocationBatchNode.class), allocationBatchStrategy);
         strategyMap.put(NodeClass.get(NewMultiArrayNode.class), rejectStrategy);
         strategyMap.put(NodeClass.get(DynamicNewArrayNode.class), rejectStrategy);
         strategyMap.put(NodeClass.get(MonitorEnterNode.class), rejectStrategy);
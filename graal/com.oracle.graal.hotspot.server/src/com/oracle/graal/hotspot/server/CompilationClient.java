@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.hotspot.server.CompilationProtocol.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Request;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
+import com.oracle.graal.nodes.*;
+
+/**
+ * Client side of the client/server compilation model. A client sends compile requests over a
+ * single connection to a {@link CompilationServer} and waits for each response. Clients are
+ * thread-safe, but requests from multiple threads are serialized.
+ *
+ * A method is compiled remotely by {@linkplain #compile(HotSpotResolvedJavaMethod, int)
+ * requesting} its compilation with the profiles of this VM and {@linkplain #install installing}
+ * the result. If either step fails, the method should be compiled locally.
+ */
+public class CompilationClient implements Closeable {
+
+    /**
+     * Compiles methods on a server, installs the results and reports the round trip times.
+     * Running this in several VMs at the same time simulates multiple client VMs.
+     *
+     * @param args {@code host:port} of the server, the number of times the methods are requested
+     *            and the methods, each given as a fully qualified class name followed by a dot,
+     *            the method name and the method descriptor, e.g., {@code java.lang.String.hashCode()I}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            TTY.println("usage: CompilationClient <host>:<port> <repetitions> <class>.<method><descriptor>...");
+            return;
+        }
+        int colon = args[0].lastIndexOf(':');
+        InetSocketAddress address = new InetSocketAddress(args[0].substring(0, colon), Integer.parseInt(args[0].substring(colon + 1)));
+        int repetitions = Integer.parseInt(args[1]);
+        MetaAccessProvider metaAccess = runtime().getHostProviders().getMetaAccess();
+        try (CompilationClient client = new CompilationClient(address)) {
+            long totalNanos = 0;
+            int count = 0;
+            for (int i = 0; i < repetitions; i++) {
+                for (int j = 2; j < args.length; j++) {
+                    String name = args[j];
+                    int paren = name.indexOf('(');
+                    int dot = name.lastIndexOf('.', paren);
+                    ResolvedJavaType type = metaAccess.lookupJavaType(Class.forName(name.substring(0, dot)));
+                    HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) SymbolicReferences.findMethod(type, name.substring(dot + 1, paren), name.substring(paren));
+                    if (method == null) {
+                        TTY.println("method not found: " + name);
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    Response response = client.compile(method, StructuredGraph.INVOCATION_ENTRY_BCI);
+                    String outcome = response.toString();
+                    if (response.isSuccess()) {
+                        try {
+                            outcome += ", installed " + client.install(method, response);
+                        } catch (IOException | BailoutException e) {
+                            outcome += ", not installed: " + e.getMessage();
+                        }
+                    }
+                    long nanos = System.nanoTime() - start;
+                    totalNanos += nanos;
+                    count++;
+                    TTY.println(String.format("%s: %s in %.2f ms", name, outcome, nanos / 1e6));
+                }
+            }
+            TTY.println(String.format("%d requests, %.2f ms mean round trip time", count, count == 0 ? 0 : totalNanos / 1e6 / count));
+        }
+    }
+
+    private final SocketChannel channel;
+    private int nextId;
+
+    /**
+     * Connects to the server at {@code address} to compile code for the current VM.
+     *
+     * @throws IOException if the connection fails or the server speaks a different protocol
+     *             version or compiles for a different VM
+     */
+    public CompilationClient(InetSocketAddress address) throws IOException {
+        this(address, HotSpotCompilationRequestHandler.getVMIdentity(runtime()));
+    }
+
+    /**
+     * Connects to the server at {@code address}.
+     *
+     * @param vmIdentity the identity of the VM for which code is requested
+     * @throws IOException if the connection fails or the server speaks a different protocol
+     *             version or compiles for a different VM
+     */
+    public CompilationClient(InetSocketAddress address, String vmIdentity) throws IOException {
+        channel = SocketChannel.open(address);
+        try {
+            channel.socket().setTcpNoDelay(true);
+            writeFully(encodeHello(vmIdentity));
+            String serverIdentity = decodeHello(readFrame(HELLO));
+            if (!serverIdentity.equals(vmIdentity)) {
+                throw new IOException("server compiles for a different VM: " + serverIdentity);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Requests the compilation of a method with the profiles of the current VM and waits for the
+     * result.
+     *
+     * @param entryBCI the entry BCI of the compilation
+     */
+    public Response compile(HotSpotResolvedJavaMethod method, int entryBCI) throws IOException {
+        byte[] profile = ProfileSnapshot.capture(method, entryBCI);
+        return compile(method.getDeclaringClass().toJavaName(), method.getName(), method.getSignature().toMethodDescriptor(), entryBCI, profile);
+    }
+
+    /**
+     * Requests the compilation of a method without profiles and waits for the result.
+     *
+     * @param descriptor the method descriptor, e.g., {@code (I)V}
+     * @param entryBCI the entry BCI of the compilation
+     */
+    public Response compile(String className, String methodName, String descriptor, int entryBCI) throws IOException {
+        return compile(className, methodName, descriptor, entryBCI, new byte[0]);
+    }
+
+    private synchronized Response compile(String className, String methodName, String descriptor, int entryBCI, byte[] profile) throws IOException {
+        Request request = new Request(nextId++, className, methodName, descriptor, entryBCI, profile);
+        writeFully(encodeRequest(request));
+        Response response = decodeResponse(readFrame(RESULT));
+        if (response.id != request.id) {
+            throw new IOException("response " + response.id + " does not match request " + request.id);
+        }
+        return response;
+    }
+
+    /**
+     * Installs the code of a successful response to a request for compiling {@code method} as
+     * the default code of {@code method}.
+     *
+     * @throws IOException if the response refers to methods or types that cannot be resolved in
+     *             the current VM
+     * @throws BailoutException if the VM rejects the code, e.g., because an assumption made by
+     *             the server does not hold in the current VM
+     */
+    public InstalledCode install(HotSpotResolvedJavaMethod method, Response response) throws IOException {
+        assert response.isSuccess() : response;
+        HotSpotBackend backend = runtime().getHostBackend();
+        ClassLoader loader = ((HotSpotResolvedObjectType) method.getDeclaringClass()).mirror().getClassLoader();
+        CompilationResult result = CompilationResultDecoder.decode(response.result, backend, loader == null ? ClassLoader.getSystemClassLoader() : loader);
+        result.setEntryBCI(StructuredGraph.INVOCATION_ENTRY_BCI);
+        InstalledCode installedCode = backend.getProviders().getCodeCache().installMethod(method, result, 0L, true);
+        if (!installedCode.isValid()) {
+            throw new BailoutException("installation of remotely compiled code failed");
+        }
+        return installedCode;
+    }
+
+    private void writeFully(ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private ByteBuffer readFrame(byte expectedType) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(5);
+        readFully(header);
+        int length = header.getInt();
+        byte type = header.get();
+        if (length <= 0 || length > MAX_FRAME_LENGTH || type != expectedType) {
+            throw new IOException("unexpected frame: type " + type + ", length " + length);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length - 1);
+        readFully(payload);
+        return payload;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("connection closed by server");
+            }
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
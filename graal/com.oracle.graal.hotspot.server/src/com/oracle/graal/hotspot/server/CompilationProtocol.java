@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * The binary protocol spoken between a {@link CompilationClient} and a {@link CompilationServer}.
+ *
+ * Every message is a frame consisting of the length of the rest of the frame as an {@code int},
+ * a one byte message type and the payload of the message. All values are big-endian and strings
+ * are encoded as a {@code short} length followed by that many bytes of UTF-8.
+ *
+ * <pre>
+ * HELLO   magic:int version:short vmIdentity:string
+ * COMPILE id:int entryBCI:int className:string methodName:string descriptor:string profile:int-length-prefixed-bytes
+ * RESULT  id:int status:byte (result:int-length-prefixed-bytes | message:string)
+ * </pre>
+ *
+ * A client starts by sending {@code HELLO}, which the server answers with {@code HELLO}. The VM
+ * identities exchanged in the {@code HELLO} messages must be equal because the produced code
+ * embeds addresses and settings of the server VM. Afterwards, the client sends {@code COMPILE}
+ * requests carrying a {@link ProfileSnapshot} of the client, which the server answers with
+ * {@code RESULT} messages carrying the same id and a compilation result serialized by
+ * {@link CompilationResultEncoder}.
+ */
+public final class CompilationProtocol {
+
+    public static final int MAGIC = 0x47524353; // "GRCS"
+    public static final short VERSION = 2;
+
+    public static final byte HELLO = 0x00;
+    public static final byte COMPILE = 0x01;
+    public static final byte RESULT = 0x02;
+
+    public static final byte STATUS_SUCCESS = 0x00;
+    public static final byte STATUS_BAILOUT = 0x01;
+    public static final byte STATUS_ERROR = 0x02;
+
+    /**
+     * The maximum length of a frame. Longer frames are a protocol error.
+     */
+    public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private CompilationProtocol() {
+    }
+
+    /**
+     * A request to compile a method.
+     */
+    public static final class Request {
+
+        public final int id;
+        public final String className;
+        public final String methodName;
+        public final String descriptor;
+        public final int entryBCI;
+
+        /**
+         * The {@linkplain ProfileSnapshot profiles} of the client or an empty array if the method
+         * is to be compiled without profiles.
+         */
+        public final byte[] profile;
+
+        public Request(int id, String className, String methodName, String descriptor, int entryBCI, byte[] profile) {
+            this.id = id;
+            this.className = className;
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.entryBCI = entryBCI;
+            this.profile = profile;
+        }
+
+        @Override
+        public String toString() {
+            return className + "." + methodName + descriptor + (entryBCI < 0 ? "" : "@" + entryBCI);
+        }
+    }
+
+    /**
+     * The result of a {@link Request}: either the serialized compilation result produced for the
+     * method or a message describing why no code was produced.
+     */
+    public static final class Response {
+
+        public final int id;
+        public final byte status;
+        public final byte[] result;
+        public final String message;
+
+        private Response(int id, byte status, byte[] result, String message) {
+            this.id = id;
+            this.status = status;
+            this.result = result;
+            this.message = message;
+        }
+
+        public static Response success(int id, byte[] result) {
+            return new Response(id, STATUS_SUCCESS, result, null);
+        }
+
+        public static Response bailout(int id, String message) {
+            return new Response(id, STATUS_BAILOUT, null, message);
+        }
+
+        public static Response error(int id, String message) {
+            return new Response(id, STATUS_ERROR, null, message);
+        }
+
+        public boolean isSuccess() {
+            return status == STATUS_SUCCESS;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? "success(" + result.length + " bytes)" : (status == STATUS_BAILOUT ? "bailout: " : "error: ") + message;
+        }
+    }
+
+    public static ByteBuffer encodeHello(String vmIdentity) {
+        byte[] identity = utf8(vmIdentity);
+        ByteBuffer buffer = allocateFrame(HELLO, 8 + identity.length);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        putString(buffer, identity);
+        return finishFrame(buffer);
+    }
+
+    public static ByteBuffer encodeRequest(Request request) {
+        byte[] className = utf8(request.className);
+        byte[] methodName = utf8(request.methodName);
+        byte[] descriptor = utf8(request.descriptor);
+        ByteBuffer buffer = allocateFrame(COMPILE, 8 + 6 + className.length + methodName.length + descriptor.length + 4 + request.profile.length);
+        buffer.putInt(request.id);
+        buffer.putInt(request.entryBCI);
+        putString(buffer, className);
+        putString(buffer, methodName);
+        putString(buffer, descriptor);
+        buffer.putInt(request.profile.length);
+        buffer.put(request.profile);
+        return finishFrame(buffer);
+    }
+
+    public static ByteBuffer encodeResponse(Response response) {
+        ByteBuffer buffer;
+        if (response.isSuccess()) {
+            buffer = allocateFrame(RESULT, 9 + response.result.length);
+            buffer.putInt(response.id);
+            buffer.put(response.status);
+            buffer.putInt(response.result.length);
+            buffer.put(response.result);
+        } else {
+            byte[] message = utf8(response.message == null ? "" : response.message);
+            buffer = allocateFrame(RESULT, 7 + message.length);
+            buffer.putInt(response.id);
+            buffer.put(response.status);
+            putString(buffer, message);
+        }
+        return finishFrame(buffer);
+    }
+
+    /**
+     * Checks the payload of a {@code HELLO} frame.
+     *
+     * @return the VM identity of the peer
+     * @throws IOException if the peer speaks a different protocol or the payload is malformed
+     */
+    public static String decodeHello(ByteBuffer payload) throws IOException {
+        int magic = payload.getInt();
+        short version = payload.getShort();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException(String.format("incompatible peer: magic 0x%x, version %d", magic, version));
+        }
+        return getString(payload);
+    }
+
+    /**
+     * Decodes the payload of a {@code COMPILE} frame.
+     *
+     * @throws IOException if the payload is malformed
+     */
+    public static Request decodeRequest(ByteBuffer payload) throws IOException {
+        int id = payload.getInt();
+        int entryBCI = payload.getInt();
+        String className = getString(payload);
+        String methodName = getString(payload);
+        String descriptor = getString(payload);
+        byte[] profile = new byte[checkLength(payload, payload.getInt())];
+        payload.get(profile);
+        return new Request(id, className, methodName, descriptor, entryBCI, profile);
+    }
+
+    /**
+     * Decodes the payload of a {@code RESULT} frame.
+     *
+     * @throws IOException if the payload is malformed
+     */
+    public static Response decodeResponse(ByteBuffer payload) throws IOException {
+        int id = payload.getInt();
+        byte status = payload.get();
+        if (status == STATUS_SUCCESS) {
+            byte[] result = new byte[checkLength(payload, payload.getInt())];
+            payload.get(result);
+            return new Response(id, status, result, null);
+        }
+        return new Response(id, status, null, getString(payload));
+    }
+
+    private static ByteBuffer allocateFrame(byte type, int payloadLength) {
+        ByteBuffer buffer = ByteBuffer.allocate(5 + payloadLength);
+        buffer.putInt(1 + payloadLength);
+        buffer.put(type);
+        return buffer;
+    }
+
+    private static ByteBuffer finishFrame(ByteBuffer buffer) {
+        assert !buffer.hasRemaining();
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("string too long: " + s.substring(0, 100) + "...");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[checkLength(buffer, buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks that a length read from {@code buffer} is not negative and does not exceed the
+     * remaining bytes of the buffer.
+     */
+    private static int checkLength(ByteBuffer buffer, int length) throws IOException {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("invalid length " + length + " with " + buffer.remaining() + " bytes remaining");
+        }
+        return length;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -22,6 +22,18 @@
  */
 package com.oracle.graal.hotspot.server;
 
-public interface Remote {
+import com.oracle.graal.hotspot.server.CompilationProtocol.Request;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
 
+/**
+ * Performs the compilations requested from a {@link CompilationServer}.
+ */
+public interface CompilationRequestHandler {
+
+    /**
+     * Performs the compilation requested by {@code request}. This method is called concurrently
+     * for requests from different connections, but requests from the same connection are handled
+     * one at a time in the order in which they arrived.
+     */
+    Response compile(Request request);
 }
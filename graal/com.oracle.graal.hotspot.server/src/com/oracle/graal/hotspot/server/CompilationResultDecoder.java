@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.hotspot.server.CompilationResultEncoder.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.Assumptions.ConcreteMethod;
+import com.oracle.graal.api.code.Assumptions.ConcreteSubtype;
+import com.oracle.graal.api.code.Assumptions.MethodContents;
+import com.oracle.graal.api.code.Assumptions.NoFinalizableSubclass;
+import com.oracle.graal.api.code.CompilationResult.Call;
+import com.oracle.graal.api.code.CompilationResult.ConstantReference;
+import com.oracle.graal.api.code.CompilationResult.DataPatch;
+import com.oracle.graal.api.code.CompilationResult.DataSectionReference;
+import com.oracle.graal.api.code.CompilationResult.Infopoint;
+import com.oracle.graal.api.code.DataSection.Data;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+
+/**
+ * Reconstructs a {@link CompilationResult} serialized by a {@link CompilationResultEncoder} in a
+ * client VM. Methods, types and foreign calls are resolved in the client VM and the metaspace
+ * pointers of the server are replaced with those of the client.
+ */
+final class CompilationResultDecoder {
+
+    private final DataInputStream in;
+    private final HotSpotBackend backend;
+    private final TargetDescription target;
+    private final MetaAccessProvider metaAccess;
+    private final ClassLoader loader;
+
+    /**
+     * The virtual objects of the debug info being read, indexed by their ids.
+     */
+    private final Map<Integer, VirtualObject> virtualObjects = new HashMap<>();
+
+    private CompilationResultDecoder(DataInputStream in, HotSpotBackend backend, ClassLoader loader) {
+        this.in = in;
+        this.backend = backend;
+        this.target = backend.getTarget();
+        this.metaAccess = backend.getProviders().getMetaAccess();
+        this.loader = loader;
+    }
+
+    /**
+     * Reconstructs a compilation result.
+     *
+     * @param loader the class loader resolving the methods and types referenced by the result
+     * @throws IOException if {@code encoded} is malformed or refers to methods or types that
+     *             cannot be resolved
+     */
+    static CompilationResult decode(byte[] encoded, HotSpotBackend backend, ClassLoader loader) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        CompilationResult result = new CompilationResultDecoder(in, backend, loader).read();
+        if (in.available() != 0) {
+            throw new IOException(in.available() + " bytes after end of compilation result");
+        }
+        return result;
+    }
+
+    private CompilationResult read() throws IOException {
+        CompilationResult result = new CompilationResult(in.readBoolean() ? in.readUTF() : null);
+        result.setTotalFrameSize(in.readInt());
+        result.setCustomStackAreaOffset(in.readInt());
+        byte[] code = new byte[checkCount(in.readInt())];
+        in.readFully(code);
+        readDataSection(result.getDataSection());
+
+        int infopointCount = checkCount(in.readInt());
+        for (int i = 0; i < infopointCount; i++) {
+            result.addInfopoint(readInfopoint());
+        }
+
+        ByteBuffer codeBuffer = ByteBuffer.wrap(code).order(target.arch.getByteOrder());
+        int dataPatchCount = checkCount(in.readInt());
+        for (int i = 0; i < dataPatchCount; i++) {
+            int pcOffset = checkOffset(in.readInt(), code.length);
+            byte tag = in.readByte();
+            if (tag == DATA_SECTION_REFERENCE) {
+                DataSectionReference reference = new DataSectionReference();
+                reference.setOffset(in.readInt());
+                result.recordDataPatch(pcOffset, reference);
+            } else if (tag == CONSTANT_REFERENCE) {
+                VMConstant constant = readVMConstant();
+                if (constant instanceof HotSpotMetaspaceConstant) {
+                    putMetaspacePointer(codeBuffer, checkOffset(in.readInt(), code.length), (HotSpotMetaspaceConstant) constant);
+                }
+                result.recordDataPatch(pcOffset, new ConstantReference(constant));
+            } else {
+                throw new IOException("invalid reference tag " + tag);
+            }
+        }
+
+        int markCount = checkCount(in.readInt());
+        for (int i = 0; i < markCount; i++) {
+            int pcOffset = checkOffset(in.readInt(), code.length);
+            result.recordMark(pcOffset, in.readBoolean() ? Integer.valueOf(in.readInt()) : null);
+        }
+
+        int exceptionHandlerCount = checkCount(in.readInt());
+        for (int i = 0; i < exceptionHandlerCount; i++) {
+            result.recordExceptionHandler(in.readInt(), in.readInt());
+        }
+
+        if (in.readBoolean()) {
+            result.setAssumptions(readAssumptions());
+        }
+        result.setTargetCode(code, code.length);
+        return result;
+    }
+
+    private void readDataSection(DataSection dataSection) throws IOException {
+        int alignment = in.readInt();
+        byte[] data = new byte[checkCount(in.readInt())];
+        in.readFully(data);
+        int patchCount = checkCount(in.readInt());
+        int[] patchOffsets = new int[patchCount];
+        VMConstant[] patchConstants = new VMConstant[patchCount];
+        ByteBuffer dataBuffer = ByteBuffer.wrap(data).order(target.arch.getByteOrder());
+        for (int i = 0; i < patchCount; i++) {
+            patchOffsets[i] = checkOffset(in.readInt(), data.length);
+            patchConstants[i] = readVMConstant();
+            if (patchConstants[i] instanceof HotSpotMetaspaceConstant) {
+                putMetaspacePointer(dataBuffer, patchOffsets[i], (HotSpotMetaspaceConstant) patchConstants[i]);
+            }
+        }
+        if (data.length != 0) {
+            // a single item reproduces the layout of the server, so code references keep their
+            // offsets
+            dataSection.insertData(new Data(alignment, data.length, (buffer, patch) -> {
+                int base = buffer.position();
+                buffer.put(data);
+                for (int i = 0; i < patchOffsets.length; i++) {
+                    patch.accept(new DataPatch(base + patchOffsets[i], new ConstantReference(patchConstants[i])));
+                }
+            }));
+        }
+    }
+
+    /**
+     * Replaces the metaspace pointer of the server at {@code position} with the pointer of this
+     * VM.
+     */
+    private void putMetaspacePointer(ByteBuffer buffer, int position, HotSpotMetaspaceConstant constant) throws IOException {
+        int size = HotSpotMetaspaceConstant.isCompressed(constant) ? 4 : target.wordSize;
+        if (position + size > buffer.limit()) {
+            throw new IOException("metaspace pointer at " + position + " exceeds buffer");
+        }
+        if (size == 4) {
+            buffer.putInt(position, (int) constant.asLong());
+        } else {
+            buffer.putLong(position, constant.asLong());
+        }
+    }
+
+    private Infopoint readInfopoint() throws IOException {
+        int pcOffset = in.readInt();
+        byte tag = in.readByte();
+        if (tag == CALL) {
+            InvokeTarget callTarget;
+            byte targetTag = in.readByte();
+            if (targetTag == TARGET_METHOD) {
+                callTarget = readMethod();
+            } else if (targetTag == TARGET_FOREIGN_CALL) {
+                String name = in.readUTF();
+                Class<?> resultType = readClassName();
+                Class<?>[] argumentTypes = new Class<?>[checkCount(in.readInt())];
+                for (int i = 0; i < argumentTypes.length; i++) {
+                    argumentTypes[i] = readClassName();
+                }
+                callTarget = backend.getProviders().getForeignCalls().lookupForeignCall(new ForeignCallDescriptor(name, resultType, argumentTypes));
+            } else {
+                throw new IOException("invalid call target tag " + targetTag);
+            }
+            int size = in.readInt();
+            boolean direct = in.readBoolean();
+            return new Call(callTarget, pcOffset, size, direct, readDebugInfo());
+        } else if (tag == INFOPOINT) {
+            InfopointReason reason = readEnum(InfopointReason.values());
+            return new Infopoint(pcOffset, readDebugInfo(), reason);
+        }
+        throw new IOException("invalid infopoint tag " + tag);
+    }
+
+    private Assumptions readAssumptions() throws IOException {
+        Assumptions assumptions = new Assumptions(in.readBoolean());
+        int count = checkCount(in.readInt());
+        for (int i = 0; i < count; i++) {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NO_FINALIZABLE_SUBCLASS:
+                    assumptions.record(new NoFinalizableSubclass(readType()));
+                    break;
+                case CONCRETE_SUBTYPE:
+                    assumptions.record(new ConcreteSubtype(readType(), readType()));
+                    break;
+                case CONCRETE_METHOD:
+                    assumptions.record(new ConcreteMethod(readMethod(), readType(), readMethod()));
+                    break;
+                case METHOD_CONTENTS:
+                    assumptions.record(new MethodContents(readMethod()));
+                    break;
+                default:
+                    throw new IOException("invalid assumption tag " + tag);
+            }
+        }
+        return assumptions;
+    }
+
+    private DebugInfo readDebugInfo() throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        virtualObjects.clear();
+        BytecodePosition position = readPosition();
+        ReferenceMap referenceMap = null;
+        if (in.readBoolean()) {
+            BitSet registerRefMap = readBitSet();
+            BitSet frameRefMap = readBitSet();
+            referenceMap = new HotSpotReferenceMap(registerRefMap, frameRefMap, target);
+        }
+        DebugInfo debugInfo = new DebugInfo(position, referenceMap);
+
+        int calleeSaveCount = in.readInt();
+        if (calleeSaveCount != -1) {
+            Register[] registers = new Register[checkCount(calleeSaveCount)];
+            int[] slots = new int[calleeSaveCount];
+            for (int i = 0; i < calleeSaveCount; i++) {
+                registers[i] = readRegister();
+                slots[i] = in.readInt();
+            }
+            debugInfo.setCalleeSaveInfo(new RegisterSaveLayout(registers, slots));
+        }
+        return debugInfo;
+    }
+
+    private BitSet readBitSet() throws IOException {
+        int size = in.readInt();
+        if (size == -1) {
+            return null;
+        }
+        long[] words = new long[checkCount(in.readInt())];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        if (size < 0 || size < words.length * Long.SIZE) {
+            throw new IOException("invalid bit set size " + size);
+        }
+        BitSet bits = new BitSet(size);
+        bits.or(BitSet.valueOf(words));
+        return bits;
+    }
+
+    private BytecodePosition readPosition() throws IOException {
+        byte tag = in.readByte();
+        if (tag == NO_POSITION) {
+            return null;
+        }
+        BytecodePosition caller = readPosition();
+        ResolvedJavaMethod method = readMethod();
+        int bci = in.readInt();
+        if (tag == POSITION) {
+            return new BytecodePosition(caller, method, bci);
+        } else if (tag == FRAME) {
+            if (caller != null && !(caller instanceof BytecodeFrame)) {
+                throw new IOException("caller of a frame must be a frame");
+            }
+            boolean rethrowException = in.readBoolean();
+            boolean duringCall = in.readBoolean();
+            int numLocals = in.readInt();
+            int numStack = in.readInt();
+            int numLocks = in.readInt();
+            Value[] values = readValues();
+            if (numLocals < 0 || numStack < 0 || numLocks < 0 || numLocals + numStack + numLocks != values.length) {
+                throw new IOException("invalid frame sizes");
+            }
+            return new BytecodeFrame((BytecodeFrame) caller, method, bci, rethrowException, duringCall, values, numLocals, numStack, numLocks);
+        }
+        throw new IOException("invalid position tag " + tag);
+    }
+
+    private Value[] readValues() throws IOException {
+        Value[] values = new Value[checkCount(in.readInt())];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue();
+        }
+        return values;
+    }
+
+    private Value readValue() throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case ILLEGAL:
+                return Value.ILLEGAL;
+            case REGISTER: {
+                LIRKind kind = readLIRKind();
+                return readRegister().asValue(kind);
+            }
+            case STACK_SLOT:
+                return readStackSlot();
+            case VIRTUAL_OBJECT: {
+                int id = in.readInt();
+                ResolvedJavaType type = readType();
+                if (virtualObjects.containsKey(id)) {
+                    throw new IOException("duplicate virtual object " + id);
+                }
+                // the values may refer back to the object
+                VirtualObject virtualObject = VirtualObject.get(type, null, id);
+                virtualObjects.put(id, virtualObject);
+                virtualObject.setValues(readValues());
+                return virtualObject;
+            }
+            case VIRTUAL_OBJECT_REFERENCE: {
+                int id = in.readInt();
+                VirtualObject virtualObject = virtualObjects.get(id);
+                if (virtualObject == null) {
+                    throw new IOException("unknown virtual object " + id);
+                }
+                return virtualObject;
+            }
+            case MONITOR: {
+                Value owner = readValue();
+                StackSlot slot = readStackSlot();
+                return new HotSpotMonitorValue(owner, slot, in.readBoolean());
+            }
+            case CONSTANT:
+                return readConstant();
+            default:
+                throw new IOException("invalid value tag " + tag);
+        }
+    }
+
+    private StackSlot readStackSlot() throws IOException {
+        LIRKind kind = readLIRKind();
+        int offset = in.readInt();
+        boolean addFrameSize = in.readBoolean();
+        if (!addFrameSize && offset < 0) {
+            throw new IOException("invalid stack slot offset " + offset);
+        }
+        return StackSlot.get(kind, offset, addFrameSize);
+    }
+
+    private LIRKind readLIRKind() throws IOException {
+        Kind kind = readEnum(Kind.values());
+        byte tag = in.readByte();
+        switch (tag) {
+            case VALUE_KIND:
+                return LIRKind.value(kind);
+            case REFERENCE_KIND:
+                return LIRKind.reference(kind);
+            case DERIVED_REFERENCE_KIND:
+                return LIRKind.derivedReference(kind);
+            default:
+                throw new IOException("invalid kind tag " + tag);
+        }
+    }
+
+    private Register readRegister() throws IOException {
+        int number = in.readInt();
+        Register[] registers = target.arch.getRegisters();
+        if (number < 0 || number >= registers.length) {
+            throw new IOException("invalid register " + number);
+        }
+        return registers[number];
+    }
+
+    private Constant readConstant() throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return Constant.NULL_OBJECT;
+            case COMPRESSED_NULL:
+                return HotSpotCompressedNullConstant.COMPRESSED_NULL;
+            case RAW:
+                return new RawConstant(in.readLong());
+            case PRIMITIVE: {
+                Kind kind = readEnum(Kind.values());
+                switch (kind) {
+                    case Illegal:
+                        return Constant.forIllegal();
+                    case Boolean:
+                        return Constant.forBoolean(in.readLong() != 0);
+                    case Float:
+                        return Constant.forFloat(Float.intBitsToFloat((int) in.readLong()));
+                    case Double:
+                        return Constant.forDouble(Double.longBitsToDouble(in.readLong()));
+                    case Byte:
+                    case Char:
+                    case Short:
+                    case Int:
+                    case Long:
+                        return Constant.forIntegerKind(kind, in.readLong());
+                    default:
+                        throw new IOException("invalid primitive kind " + kind);
+                }
+            }
+            case METASPACE_TYPE: {
+                boolean compressed = in.readBoolean();
+                ResolvedJavaType type = readType();
+                if (!(type instanceof HotSpotResolvedObjectType)) {
+                    throw new IOException("type without metaspace pointer: " + type);
+                }
+                long klass = ((HotSpotResolvedObjectType) type).getMetaspaceKlass();
+                if (compressed) {
+                    return HotSpotMetaspaceConstant.forMetaspaceObject(Kind.Int, runtime().getConfig().getKlassEncoding().compress(klass), type, true);
+                }
+                return HotSpotMetaspaceConstant.forMetaspaceObject(target.wordKind, klass, type, false);
+            }
+            case METASPACE_METHOD:
+                return ((HotSpotResolvedJavaMethod) readMethod()).getMetaspaceMethodConstant();
+            case OBJECT_STRING: {
+                boolean compressed = in.readBoolean();
+                char[] chars = new char[checkCount(in.readInt())];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = in.readChar();
+                }
+                return objectConstant(new String(chars).intern(), compressed);
+            }
+            case OBJECT_CLASS: {
+                boolean compressed = in.readBoolean();
+                return objectConstant(readClass(), compressed);
+            }
+            case OBJECT_ENUM: {
+                boolean compressed = in.readBoolean();
+                Class<?> enumClass = readClass();
+                String name = in.readUTF();
+                if (!enumClass.isEnum() || !metaAccess.lookupJavaType(enumClass).isInitialized()) {
+                    // initializing the class would be a side effect of the compilation
+                    throw new IOException("enum class is not initialized: " + enumClass.getName());
+                }
+                for (Object constant : enumClass.getEnumConstants()) {
+                    if (((Enum<?>) constant).name().equals(name)) {
+                        return objectConstant(constant, compressed);
+                    }
+                }
+                throw new IOException("enum constant not found: " + enumClass.getName() + "." + name);
+            }
+            default:
+                throw new IOException("invalid constant tag " + tag);
+        }
+    }
+
+    private VMConstant readVMConstant() throws IOException {
+        Constant constant = readConstant();
+        if (!(constant instanceof VMConstant)) {
+            throw new IOException("patched constant must be a VM constant: " + constant);
+        }
+        return (VMConstant) constant;
+    }
+
+    private static Constant objectConstant(Object object, boolean compressed) {
+        HotSpotObjectConstant constant = (HotSpotObjectConstant) HotSpotObjectConstant.forObject(object);
+        return compressed ? constant.compress() : constant;
+    }
+
+    private ResolvedJavaType readType() throws IOException {
+        return metaAccess.lookupJavaType(readClass());
+    }
+
+    private Class<?> readClass() throws IOException {
+        String name = in.readUTF();
+        Class<?> javaClass = SymbolicReferences.resolveClass(name, loader);
+        if (javaClass == null) {
+            throw new IOException("cannot resolve type " + name);
+        }
+        return javaClass;
+    }
+
+    /**
+     * Reads a class written as {@link Class#getName()}.
+     */
+    private Class<?> readClassName() throws IOException {
+        String name = in.readUTF();
+        for (Kind kind : Kind.values()) {
+            if (kind.isPrimitive() || kind == Kind.Void) {
+                if (kind.toJavaClass().getName().equals(name)) {
+                    return kind.toJavaClass();
+                }
+            }
+        }
+        try {
+            return Class.forName(name, false, CompilationResultDecoder.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IOException("cannot resolve class " + name);
+        }
+    }
+
+    private ResolvedJavaMethod readMethod() throws IOException {
+        ResolvedJavaType holder = readType();
+        String name = in.readUTF();
+        String descriptor = in.readUTF();
+        ResolvedJavaMethod method = SymbolicReferences.findMethod(holder, name, descriptor);
+        if (method == null) {
+            throw new IOException("cannot resolve method " + holder.toJavaName() + "." + name + descriptor);
+        }
+        return method;
+    }
+
+    private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= values.length) {
+            throw new IOException("invalid ordinal " + ordinal + " of " + values[0].getDeclaringClass().getSimpleName());
+        }
+        return values[ordinal];
+    }
+
+    private int checkCount(int count) throws IOException {
+        if (count < 0 || count > in.available()) {
+            throw new IOException("invalid count " + count + " with " + in.available() + " bytes remaining");
+        }
+        return count;
+    }
+
+    private static int checkOffset(int offset, int length) throws IOException {
+        if (offset < 0 || offset >= length) {
+            throw new IOException("invalid offset " + offset + " in " + length + " bytes");
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,509 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.Assumptions.Assumption;
+import com.oracle.graal.api.code.Assumptions.ConcreteMethod;
+import com.oracle.graal.api.code.Assumptions.ConcreteSubtype;
+import com.oracle.graal.api.code.Assumptions.MethodContents;
+import com.oracle.graal.api.code.Assumptions.NoFinalizableSubclass;
+import com.oracle.graal.api.code.CompilationResult.Call;
+import com.oracle.graal.api.code.CompilationResult.ConstantReference;
+import com.oracle.graal.api.code.CompilationResult.DataPatch;
+import com.oracle.graal.api.code.CompilationResult.DataSectionReference;
+import com.oracle.graal.api.code.CompilationResult.ExceptionHandler;
+import com.oracle.graal.api.code.CompilationResult.Infopoint;
+import com.oracle.graal.api.code.CompilationResult.Mark;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+
+/**
+ * Serializes a {@link CompilationResult} produced by a {@link CompilationServer} so that a
+ * {@link CompilationClient} can {@linkplain CompilationResultDecoder decode} and install it.
+ * Methods, types and foreign calls are written by name. Metaspace pointers embedded in the code
+ * and the data section are located so that the client can replace them with its own pointers.
+ * Object constants are only supported if the client can reproduce them, i.e., for interned
+ * strings, classes and enum constants.
+ */
+final class CompilationResultEncoder {
+
+    static final byte TARGET_METHOD = 0;
+    static final byte TARGET_FOREIGN_CALL = 1;
+
+    static final byte INFOPOINT = 0;
+    static final byte CALL = 1;
+
+    static final byte DATA_SECTION_REFERENCE = 0;
+    static final byte CONSTANT_REFERENCE = 1;
+
+    static final byte NO_FINALIZABLE_SUBCLASS = 0;
+    static final byte CONCRETE_SUBTYPE = 1;
+    static final byte CONCRETE_METHOD = 2;
+    static final byte METHOD_CONTENTS = 3;
+
+    static final byte NO_POSITION = 0;
+    static final byte POSITION = 1;
+    static final byte FRAME = 2;
+
+    static final byte ILLEGAL = 0;
+    static final byte REGISTER = 1;
+    static final byte STACK_SLOT = 2;
+    static final byte VIRTUAL_OBJECT = 3;
+    static final byte VIRTUAL_OBJECT_REFERENCE = 4;
+    static final byte MONITOR = 5;
+    static final byte CONSTANT = 6;
+
+    static final byte NULL = 0;
+    static final byte COMPRESSED_NULL = 1;
+    static final byte RAW = 2;
+    static final byte PRIMITIVE = 3;
+    static final byte METASPACE_TYPE = 4;
+    static final byte METASPACE_METHOD = 5;
+    static final byte OBJECT_STRING = 6;
+    static final byte OBJECT_CLASS = 7;
+    static final byte OBJECT_ENUM = 8;
+
+    static final byte VALUE_KIND = 0;
+    static final byte REFERENCE_KIND = 1;
+    static final byte DERIVED_REFERENCE_KIND = 2;
+
+    /**
+     * The maximum length of an instruction embedding a metaspace pointer, which bounds the search
+     * for the pointer after the position of its {@link DataPatch}.
+     */
+    static final int MAX_INSTRUCTION_LENGTH = 15;
+
+    private final DataOutputStream out;
+    private final HotSpotBackend backend;
+    private final TargetDescription target;
+    private final byte[] code;
+
+    /**
+     * The virtual objects of the debug info being written, mapped to their ids.
+     */
+    private final Map<VirtualObject, Integer> virtualObjects = new HashMap<>();
+
+    private CompilationResultEncoder(DataOutputStream out, HotSpotBackend backend, byte[] code) {
+        this.out = out;
+        this.backend = backend;
+        this.target = backend.getTarget();
+        this.code = code;
+    }
+
+    /**
+     * Serializes {@code result}. The {@linkplain CompilationResult#getDataSection() data section}
+     * of {@code result} is finalized by this method.
+     *
+     * @throws IllegalArgumentException if {@code result} has content that cannot be reproduced by
+     *             a client
+     */
+    static byte[] encode(CompilationResult result, HotSpotBackend backend) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(result.getTargetCodeSize() * 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            new CompilationResultEncoder(out, backend, Arrays.copyOf(result.getTargetCode(), result.getTargetCodeSize())).write(result);
+        } catch (IOException e) {
+            throw new GraalInternalError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(CompilationResult result) throws IOException {
+        out.writeBoolean(result.getName() != null);
+        if (result.getName() != null) {
+            out.writeUTF(result.getName());
+        }
+        out.writeInt(result.getTotalFrameSize());
+        out.writeInt(result.getCustomStackAreaOffset());
+        out.writeInt(code.length);
+        out.write(code);
+        writeDataSection(result.getDataSection());
+
+        List<Infopoint> infopoints = result.getInfopoints();
+        out.writeInt(infopoints.size());
+        for (Infopoint infopoint : infopoints) {
+            writeInfopoint(infopoint);
+        }
+
+        List<DataPatch> dataPatches = result.getDataPatches();
+        out.writeInt(dataPatches.size());
+        for (DataPatch patch : dataPatches) {
+            out.writeInt(patch.pcOffset);
+            if (patch.reference instanceof DataSectionReference) {
+                out.writeByte(DATA_SECTION_REFERENCE);
+                out.writeInt(((DataSectionReference) patch.reference).getOffset());
+            } else if (patch.reference instanceof ConstantReference) {
+                Constant constant = ((ConstantReference) patch.reference).getConstant();
+                out.writeByte(CONSTANT_REFERENCE);
+                writeConstant(constant);
+                if (constant instanceof HotSpotMetaspaceConstant) {
+                    out.writeInt(findMetaspacePointer(patch.pcOffset, (HotSpotMetaspaceConstant) constant));
+                }
+            } else {
+                throw unsupported(patch.reference);
+            }
+        }
+
+        List<Mark> marks = result.getMarks();
+        out.writeInt(marks.size());
+        for (Mark mark : marks) {
+            if (mark.id != null && !(mark.id instanceof Integer)) {
+                throw unsupported(mark);
+            }
+            out.writeInt(mark.pcOffset);
+            out.writeBoolean(mark.id != null);
+            if (mark.id != null) {
+                out.writeInt((Integer) mark.id);
+            }
+        }
+
+        List<ExceptionHandler> exceptionHandlers = result.getExceptionHandlers();
+        out.writeInt(exceptionHandlers.size());
+        for (ExceptionHandler handler : exceptionHandlers) {
+            out.writeInt(handler.pcOffset);
+            out.writeInt(handler.handlerPos);
+        }
+
+        writeAssumptions(result.getAssumptions());
+    }
+
+    private void writeDataSection(DataSection dataSection) throws IOException {
+        if (!dataSection.isFinalized()) {
+            dataSection.finalizeLayout();
+        }
+        byte[] data = new byte[dataSection.getSectionSize()];
+        List<DataPatch> patches = new ArrayList<>();
+        dataSection.buildDataSection(ByteBuffer.wrap(data).order(target.arch.getByteOrder()), patches::add);
+        out.writeInt(dataSection.getSectionAlignment());
+        out.writeInt(data.length);
+        out.write(data);
+        out.writeInt(patches.size());
+        for (DataPatch patch : patches) {
+            out.writeInt(patch.pcOffset);
+            writeConstant(((ConstantReference) patch.reference).getConstant());
+        }
+    }
+
+    /**
+     * Finds the position of the pointer embedded in the instruction at {@code pcOffset}.
+     */
+    private int findMetaspacePointer(int pcOffset, HotSpotMetaspaceConstant constant) {
+        int size = HotSpotMetaspaceConstant.isCompressed(constant) ? 4 : target.wordSize;
+        ByteBuffer buffer = ByteBuffer.wrap(code).order(target.arch.getByteOrder());
+        int position = -1;
+        for (int i = pcOffset; i < pcOffset + MAX_INSTRUCTION_LENGTH && i + size <= code.length; i++) {
+            long value = size == 4 ? buffer.getInt(i) : buffer.getLong(i);
+            if (value == (size == 4 ? (int) constant.asLong() : constant.asLong())) {
+                if (position != -1) {
+                    throw unsupported("ambiguous metaspace pointer at " + pcOffset);
+                }
+                position = i;
+            }
+        }
+        if (position == -1) {
+            throw unsupported("metaspace pointer not found at " + pcOffset);
+        }
+        return position;
+    }
+
+    private void writeInfopoint(Infopoint infopoint) throws IOException {
+        out.writeInt(infopoint.pcOffset);
+        if (infopoint instanceof Call) {
+            Call call = (Call) infopoint;
+            out.writeByte(CALL);
+            if (call.target instanceof HotSpotResolvedJavaMethod) {
+                out.writeByte(TARGET_METHOD);
+                SymbolicReferences.writeMethod(out, (HotSpotResolvedJavaMethod) call.target);
+            } else if (call.target instanceof HotSpotForeignCallLinkage) {
+                ForeignCallDescriptor descriptor = ((HotSpotForeignCallLinkage) call.target).getDescriptor();
+                out.writeByte(TARGET_FOREIGN_CALL);
+                out.writeUTF(descriptor.getName());
+                out.writeUTF(descriptor.getResultType().getName());
+                out.writeInt(descriptor.getArgumentTypes().length);
+                for (Class<?> argumentType : descriptor.getArgumentTypes()) {
+                    out.writeUTF(argumentType.getName());
+                }
+            } else {
+                throw unsupported(call.target);
+            }
+            out.writeInt(call.size);
+            out.writeBoolean(call.direct);
+        } else if (infopoint.getClass() == Infopoint.class) {
+            out.writeByte(INFOPOINT);
+            out.writeByte(infopoint.reason.ordinal());
+        } else {
+            throw unsupported(infopoint);
+        }
+        writeDebugInfo(infopoint.debugInfo);
+    }
+
+    private void writeAssumptions(Assumptions assumptions) throws IOException {
+        out.writeBoolean(assumptions != null);
+        if (assumptions == null) {
+            return;
+        }
+        out.writeBoolean(assumptions.useOptimisticAssumptions());
+        List<Assumption> list = new ArrayList<>();
+        for (Assumption assumption : assumptions) {
+            list.add(assumption);
+        }
+        out.writeInt(list.size());
+        for (Assumption assumption : list) {
+            if (assumption instanceof NoFinalizableSubclass) {
+                out.writeByte(NO_FINALIZABLE_SUBCLASS);
+                SymbolicReferences.writeType(out, ((NoFinalizableSubclass) assumption).receiverType);
+            } else if (assumption instanceof ConcreteSubtype) {
+                ConcreteSubtype concreteSubtype = (ConcreteSubtype) assumption;
+                out.writeByte(CONCRETE_SUBTYPE);
+                SymbolicReferences.writeType(out, concreteSubtype.context);
+                SymbolicReferences.writeType(out, concreteSubtype.subtype);
+            } else if (assumption instanceof ConcreteMethod) {
+                ConcreteMethod concreteMethod = (ConcreteMethod) assumption;
+                out.writeByte(CONCRETE_METHOD);
+                SymbolicReferences.writeMethod(out, concreteMethod.method);
+                SymbolicReferences.writeType(out, concreteMethod.context);
+                SymbolicReferences.writeMethod(out, concreteMethod.impl);
+            } else if (assumption instanceof MethodContents) {
+                out.writeByte(METHOD_CONTENTS);
+                SymbolicReferences.writeMethod(out, ((MethodContents) assumption).method);
+            } else {
+                // call site targets cannot be identified in another VM
+                throw unsupported(assumption);
+            }
+        }
+    }
+
+    private void writeDebugInfo(DebugInfo debugInfo) throws IOException {
+        out.writeBoolean(debugInfo != null);
+        if (debugInfo == null) {
+            return;
+        }
+        virtualObjects.clear();
+        writePosition(debugInfo.getBytecodePosition());
+
+        ReferenceMap referenceMap = debugInfo.getReferenceMap();
+        out.writeBoolean(referenceMap != null);
+        if (referenceMap != null) {
+            if (!(referenceMap instanceof HotSpotReferenceMap)) {
+                throw unsupported(referenceMap);
+            }
+            writeBitSet(((HotSpotReferenceMap) referenceMap).getRegisterRefMap());
+            writeBitSet(((HotSpotReferenceMap) referenceMap).getFrameRefMap());
+        }
+
+        RegisterSaveLayout calleeSaveInfo = debugInfo.getCalleeSaveInfo();
+        if (calleeSaveInfo == null) {
+            out.writeInt(-1);
+        } else {
+            Map<Register, Integer> slots = calleeSaveInfo.registersToSlots(false);
+            out.writeInt(slots.size());
+            for (Map.Entry<Register, Integer> entry : slots.entrySet()) {
+                out.writeInt(entry.getKey().number);
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Writes a bit set such that the decoded set has the same {@linkplain BitSet#size() size},
+     * which determines how many bits the VM reads.
+     */
+    private void writeBitSet(BitSet bits) throws IOException {
+        if (bits == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bits.size());
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private void writePosition(BytecodePosition position) throws IOException {
+        if (position == null) {
+            out.writeByte(NO_POSITION);
+            return;
+        }
+        boolean isFrame = position instanceof BytecodeFrame;
+        out.writeByte(isFrame ? FRAME : POSITION);
+        writePosition(position.getCaller());
+        SymbolicReferences.writeMethod(out, position.getMethod());
+        out.writeInt(position.getBCI());
+        if (isFrame) {
+            BytecodeFrame frame = (BytecodeFrame) position;
+            out.writeBoolean(frame.rethrowException);
+            out.writeBoolean(frame.duringCall);
+            out.writeInt(frame.numLocals);
+            out.writeInt(frame.numStack);
+            out.writeInt(frame.numLocks);
+            out.writeInt(frame.values.length);
+            for (Value value : frame.values) {
+                writeValue(value);
+            }
+        }
+    }
+
+    private void writeValue(Value value) throws IOException {
+        if (value == Value.ILLEGAL) {
+            out.writeByte(ILLEGAL);
+        } else if (value instanceof RegisterValue) {
+            out.writeByte(REGISTER);
+            writeLIRKind(value.getLIRKind());
+            out.writeInt(((RegisterValue) value).getRegister().number);
+        } else if (value instanceof StackSlot) {
+            out.writeByte(STACK_SLOT);
+            writeStackSlot((StackSlot) value);
+        } else if (value instanceof VirtualObject) {
+            VirtualObject virtualObject = (VirtualObject) value;
+            if (virtualObjects.containsKey(virtualObject)) {
+                out.writeByte(VIRTUAL_OBJECT_REFERENCE);
+                out.writeInt(virtualObjects.get(virtualObject));
+            } else {
+                virtualObjects.put(virtualObject, virtualObject.getId());
+                out.writeByte(VIRTUAL_OBJECT);
+                out.writeInt(virtualObject.getId());
+                SymbolicReferences.writeType(out, virtualObject.getType());
+                Value[] values = virtualObject.getValues();
+                out.writeInt(values.length);
+                for (Value fieldValue : values) {
+                    writeValue(fieldValue);
+                }
+            }
+        } else if (value instanceof HotSpotMonitorValue) {
+            HotSpotMonitorValue monitor = (HotSpotMonitorValue) value;
+            out.writeByte(MONITOR);
+            writeValue(monitor.getOwner());
+            writeStackSlot((StackSlot) monitor.getSlot());
+            out.writeBoolean(monitor.isEliminated());
+        } else if (value instanceof Constant) {
+            out.writeByte(CONSTANT);
+            writeConstant((Constant) value);
+        } else {
+            throw unsupported(value);
+        }
+    }
+
+    private void writeStackSlot(StackSlot slot) throws IOException {
+        writeLIRKind(slot.getLIRKind());
+        out.writeInt(slot.getRawOffset());
+        out.writeBoolean(slot.getRawAddFrameSize());
+    }
+
+    private void writeLIRKind(LIRKind kind) throws IOException {
+        if (!(kind.getPlatformKind() instanceof Kind)) {
+            throw unsupported(kind);
+        }
+        out.writeByte(((Kind) kind.getPlatformKind()).ordinal());
+        if (kind.isValue()) {
+            out.writeByte(VALUE_KIND);
+        } else if (kind.isDerivedReference()) {
+            out.writeByte(DERIVED_REFERENCE_KIND);
+        } else {
+            out.writeByte(REFERENCE_KIND);
+        }
+    }
+
+    private void writeConstant(Constant constant) throws IOException {
+        if (HotSpotCompressedNullConstant.COMPRESSED_NULL.equals(constant)) {
+            out.writeByte(COMPRESSED_NULL);
+        } else if (constant instanceof HotSpotMetaspaceConstant) {
+            Object metaspaceObject = HotSpotMetaspaceConstant.getMetaspaceObject(constant);
+            if (metaspaceObject instanceof HotSpotResolvedObjectType) {
+                out.writeByte(METASPACE_TYPE);
+                out.writeBoolean(HotSpotMetaspaceConstant.isCompressed(constant));
+                SymbolicReferences.writeType(out, (HotSpotResolvedObjectType) metaspaceObject);
+            } else if (metaspaceObject instanceof HotSpotResolvedJavaMethod) {
+                out.writeByte(METASPACE_METHOD);
+                SymbolicReferences.writeMethod(out, (HotSpotResolvedJavaMethod) metaspaceObject);
+            } else {
+                throw unsupported(constant);
+            }
+        } else if (constant instanceof HotSpotObjectConstant) {
+            writeObjectConstant(constant);
+        } else if (constant.isNull()) {
+            out.writeByte(NULL);
+        } else if (constant instanceof RawConstant) {
+            out.writeByte(RAW);
+            out.writeLong(constant.asLong());
+        } else if (constant instanceof PrimitiveConstant) {
+            Kind kind = constant.getKind();
+            out.writeByte(PRIMITIVE);
+            out.writeByte(kind.ordinal());
+            switch (kind) {
+                case Illegal:
+                    break;
+                case Boolean:
+                    out.writeLong(constant.asBoolean() ? 1 : 0);
+                    break;
+                case Float:
+                    out.writeLong(Float.floatToRawIntBits(constant.asFloat()));
+                    break;
+                case Double:
+                    out.writeLong(Double.doubleToRawLongBits(constant.asDouble()));
+                    break;
+                default:
+                    out.writeLong(constant.asLong());
+                    break;
+            }
+        } else {
+            throw unsupported(constant);
+        }
+    }
+
+    private void writeObjectConstant(Constant constant) throws IOException {
+        Object object = HotSpotObjectConstant.asObject(constant);
+        boolean compressed = HotSpotObjectConstant.isCompressed(constant);
+        if (object instanceof String && ((String) object).intern() == object) {
+            String string = (String) object;
+            out.writeByte(OBJECT_STRING);
+            out.writeBoolean(compressed);
+            // strings can exceed the length limit of writeUTF
+            out.writeInt(string.length());
+            out.writeChars(string);
+        } else if (object instanceof Class) {
+            out.writeByte(OBJECT_CLASS);
+            out.writeBoolean(compressed);
+            SymbolicReferences.writeType(out, backend.getProviders().getMetaAccess().lookupJavaType((Class<?>) object));
+        } else if (object instanceof Enum) {
+            Enum<?> e = (Enum<?>) object;
+            out.writeByte(OBJECT_ENUM);
+            out.writeBoolean(compressed);
+            SymbolicReferences.writeType(out, backend.getProviders().getMetaAccess().lookupJavaType(e.getDeclaringClass()));
+            out.writeUTF(e.name());
+        } else {
+            throw unsupported(constant);
+        }
+    }
+
+    private static IllegalArgumentException unsupported(Object o) {
+        return new IllegalArgumentException("cannot encode " + o);
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -22,106 +22,508 @@
  */
 package com.oracle.graal.hotspot.server;
 
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.hotspot.server.CompilationProtocol.*;
+
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
-import javax.net.*;
-
-import com.oracle.graal.hotspot.*;
-import com.oracle.graal.hotspot.bridge.*;
+import com.oracle.graal.debug.*;
 import com.oracle.graal.hotspot.logging.*;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Request;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
 
 /**
- * Server side of the client/server compilation model. The server listens for connections on the
- * hardcoded port 1199.
+ * Server side of the client/server compilation model. The server accepts any number of
+ * {@link CompilationClient} connections speaking the {@link CompilationProtocol} and passes their
+ * requests to a {@link CompilationRequestHandler}.
+ *
+ * All network I/O is performed by the thread calling {@link #run()} using a {@link Selector}.
+ * Each connection has its own queue of compile requests, which is processed by a fixed pool of
+ * worker threads. A connection is served by at most one worker at a time and gives up the worker
+ * after each request, so that connections with many requests do not starve the others.
  */
-public class CompilationServer implements Runnable {
+public class CompilationServer implements Runnable, Closeable {
+
+    public static final int DEFAULT_PORT = 1199;
 
+    /**
+     * The maximum number of requests waiting in the queue of a connection. Further requests are
+     * answered with an error.
+     */
+    public static final int MAX_QUEUED_REQUESTS = 1024;
+
+    /**
+     * Starts a server with the {@link HotSpotCompilationRequestHandler}.
+     *
+     * @param args optionally the port to listen on (default {@value #DEFAULT_PORT}) followed by
+     *            the number of worker threads (default: number of available processors)
+     */
     public static void main(String[] args) throws Exception {
-        new CompilationServer(false).run();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        CompilationServer server = new CompilationServer(port, threads, HotSpotCompilationRequestHandler.getVMIdentity(runtime()), new HotSpotCompilationRequestHandler());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> TTY.println(server.getStatistics().toString())));
+        server.run();
     }
 
-    public interface ConnectionObserver {
-
-        void connectionStarted(HotSpotGraalRuntime compiler);
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final String vmIdentity;
+    private final CompilationRequestHandler handler;
+    private final Statistics statistics = new Statistics();
 
-        void connectionFinished(HotSpotGraalRuntime compiler);
-    }
+    /**
+     * Connections with responses that were queued by worker threads and need to be registered for
+     * writing by the selector thread.
+     */
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
 
-    private final boolean multiple;
-    private final ArrayList<ConnectionObserver> observers = new ArrayList<>();
+    private volatile boolean running = true;
 
     /**
-     * Creates a new Compilation server. The server is activated by calling {@link #run()} directly
-     * or via a new {@link Thread}.
-     * 
-     * @param multiple true if the server should server should serve an infinite amount of
-     *            consecutive connections, false if it should terminate after the first connection
-     *            ends.
+     * Creates a compilation server listening on {@code port}. The server is activated by calling
+     * {@link #run()} directly or via a new {@link Thread}.
+     *
+     * @param port the port to listen on or 0 for an ephemeral port
+     * @param threads the number of worker threads performing compilations
+     * @param vmIdentity the identity of the VM for which {@code handler} produces code. Only
+     *            clients with the same identity are served.
      */
-    public CompilationServer(boolean multiple) {
-        this.multiple = multiple;
+    public CompilationServer(int port, int threads, String vmIdentity, CompilationRequestHandler handler) throws IOException {
+        this.vmIdentity = vmIdentity;
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "CompilationServer worker " + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public void addConnectionObserver(ConnectionObserver observer) {
-        observers.add(observer);
+    /**
+     * Gets the port on which this server is listening.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
     }
 
-    public void removeConnectionObserver(ConnectionObserver observer) {
-        observers.remove(observer);
+    public Statistics getStatistics() {
+        return statistics;
     }
 
     public void run() {
-        final ServerSocket serverSocket;
+        Logger.log("Compilation server listening on port " + getPort());
         try {
-            serverSocket = ServerSocketFactory.getDefault().createServerSocket(1199);
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = pendingWrites.poll()) != null) {
+                    connection.enableWrites();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            // a misbehaving client must not take down the server
+                            Logger.log("Closing connection to " + connection.address + ": " + e);
+                            connection.close();
+                        }
+                    }
+                }
+            }
         } catch (IOException e) {
-            throw new RuntimeException("Couldn't create compilation server", e);
-        }
-        do {
-            Socket socket = null;
+            throw new RuntimeException("Compilation server failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
             try {
-                Logger.log("Compilation server ready, waiting for client to connect...");
-                socket = serverSocket.accept();
-                Logger.log("Connected to " + socket.getRemoteSocketAddress());
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+            }
+        }
+    }
 
-                ReplacingStreams streams = new ReplacingStreams(socket.getOutputStream(), socket.getInputStream());
+    /**
+     * Stops the server. Connections are closed and requests that are waiting in their queues are
+     * discarded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdown();
+        selector.wakeup();
+    }
 
-                // get the CompilerToVM proxy from the client
-                CompilerToVM toVM = (CompilerToVM) streams.getInvocation().waitForResult(false);
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            statistics.connections.incrementAndGet();
+            statistics.activeConnections.incrementAndGet();
+            Logger.log("Connected to " + connection.address);
+        }
+    }
 
-                // return the initialized compiler to the client
-                HotSpotGraalRuntime compiler = initializeServer(toVM);
-                streams.getInvocation().sendResult(compiler);
+    private static final class QueuedRequest {
 
-                for (ConnectionObserver observer : observers) {
-                    observer.connectionStarted(compiler);
+        final Request request;
+        final long receivedNanos;
+
+        QueuedRequest(Request request, long receivedNanos) {
+            this.request = request;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+
+    private final class Connection {
+
+        final SocketChannel channel;
+        final SocketAddress address;
+        SelectionKey key;
+
+        /**
+         * Accumulates the bytes of incomplete frames. Only accessed by the selector thread.
+         */
+        ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+        boolean helloReceived;
+
+        /**
+         * Specifies whether the client has a different VM identity. Only accessed by the selector
+         * thread.
+         */
+        boolean rejected;
+
+        /**
+         * Frames waiting to be written by the selector thread.
+         */
+        final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The compile requests of this connection. Guarded by {@code this}.
+         */
+        final Deque<QueuedRequest> requests = new ArrayDeque<>();
+
+        /**
+         * Specifies whether a worker is processing or about to process {@link #requests}. Guarded
+         * by {@code this}.
+         */
+        boolean scheduled;
+
+        volatile boolean closed;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.address = channel.getRemoteAddress();
+        }
+
+        void read() throws IOException {
+            int count = channel.read(readBuffer);
+            if (count < 0) {
+                Logger.log("Connection to " + address + " closed by client");
+                close();
+                return;
+            }
+            statistics.bytesRead.addAndGet(count);
+            readBuffer.flip();
+            while (readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length <= 0 || length > MAX_FRAME_LENGTH) {
+                    throw new IOException("invalid frame length " + length);
+                }
+                if (readBuffer.remaining() < 4 + length) {
+                    break;
                 }
+                readBuffer.getInt();
+                byte type = readBuffer.get();
+                ByteBuffer payload = readBuffer.slice();
+                payload.limit(length - 1);
+                readBuffer.position(readBuffer.position() + length - 1);
+                receive(type, payload);
+            }
+            readBuffer.compact();
+            if (readBuffer.position() >= 4) {
+                int frameSize = 4 + readBuffer.getInt(0);
+                if (frameSize > readBuffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(frameSize);
+                    readBuffer.flip();
+                    larger.put(readBuffer);
+                    readBuffer = larger;
+                }
+            }
+        }
 
-                streams.getInvocation().waitForResult(true);
+        private void receive(byte type, ByteBuffer payload) throws IOException {
+            try {
+                if (!helloReceived) {
+                    if (type != HELLO) {
+                        throw new IOException("expected HELLO but received message type " + type);
+                    }
+                    String clientIdentity = decodeHello(payload);
+                    helloReceived = true;
+                    // the client detects a mismatch from the identity of the server
+                    send(encodeHello(vmIdentity));
+                    if (!clientIdentity.equals(vmIdentity)) {
+                        Logger.log("Rejecting " + address + " with VM identity " + clientIdentity);
+                        rejected = true;
+                    }
+                } else if (rejected) {
+                    throw new IOException("VM identity of client does not match");
+                } else if (type == COMPILE) {
+                    statistics.requestsReceived.incrementAndGet();
+                    enqueue(new QueuedRequest(decodeRequest(payload), System.nanoTime()));
+                } else {
+                    throw new IOException("unexpected message type " + type);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("truncated message of type " + type);
+            }
+        }
 
-                for (ConnectionObserver observer : observers) {
-                    observer.connectionFinished(compiler);
+        private void enqueue(QueuedRequest queuedRequest) throws IOException {
+            synchronized (this) {
+                if (requests.size() < MAX_QUEUED_REQUESTS) {
+                    requests.add(queuedRequest);
+                    if (!scheduled) {
+                        scheduled = true;
+                        try {
+                            workers.execute(this::processNextRequest);
+                        } catch (RejectedExecutionException e) {
+                            scheduled = false;
+                            requests.clear();
+                            throw new IOException("server is shutting down");
+                        }
+                    }
+                    return;
+                }
+            }
+            statistics.requestsRejected.incrementAndGet();
+            send(encodeResponse(Response.error(queuedRequest.request.id, "compile queue full")));
+        }
+
+        private void processNextRequest() {
+            QueuedRequest queuedRequest;
+            synchronized (this) {
+                queuedRequest = requests.poll();
+            }
+            try {
+                if (queuedRequest != null && !closed) {
+                    process(queuedRequest);
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException(e);
             } finally {
-                if (socket != null) {
-                    try {
-                        socket.close();
-                    } catch (IOException e) {
+                synchronized (this) {
+                    scheduled = false;
+                    if (!requests.isEmpty() && !closed) {
+                        try {
+                            workers.execute(this::processNextRequest);
+                            scheduled = true;
+                        } catch (RejectedExecutionException e) {
+                            // the server is shutting down
+                        }
                     }
                 }
             }
-        } while (multiple);
+        }
+
+        private void process(QueuedRequest queuedRequest) {
+            int id = queuedRequest.request.id;
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = handler.compile(queuedRequest.request);
+            } catch (Throwable e) {
+                response = Response.error(id, e.toString());
+            }
+            long end = System.nanoTime();
+            statistics.recordResponse(response, end - start, end - queuedRequest.receivedNanos);
+            ByteBuffer frame;
+            try {
+                frame = encodeResponse(response);
+            } catch (Throwable e) {
+                frame = encodeResponse(Response.error(id, "cannot encode response: " + e.getClass().getName()));
+            }
+            send(frame);
+        }
+
+        private void send(ByteBuffer frame) {
+            writeQueue.add(frame);
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        void enableWrites() {
+            if (key.isValid() && !writeQueue.isEmpty()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void write() throws IOException {
+            ByteBuffer frame;
+            while ((frame = writeQueue.peek()) != null) {
+                statistics.bytesWritten.addAndGet(channel.write(frame));
+                if (frame.hasRemaining()) {
+                    return;
+                }
+                writeQueue.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+            }
+            synchronized (this) {
+                requests.clear();
+            }
+            statistics.activeConnections.decrementAndGet();
+        }
     }
 
-    @SuppressWarnings("unused")
-    private static HotSpotGraalRuntime initializeServer(CompilerToVM toVM) {
-        // TODO(thomaswue): Fix creation of compiler instances on server side.
-        return null;
+    /**
+     * Throughput and latency metrics of a {@link CompilationServer}. The latency of a request is
+     * the time from its arrival until its response is ready to be sent, i.e., it includes the time
+     * spent waiting in the queue of its connection.
+     */
+    public static final class Statistics {
+
+        private final long startNanos = System.nanoTime();
+
+        final AtomicLong connections = new AtomicLong();
+        final AtomicLong activeConnections = new AtomicLong();
+        final AtomicLong requestsReceived = new AtomicLong();
+        final AtomicLong requestsSucceeded = new AtomicLong();
+        final AtomicLong requestsBailedOut = new AtomicLong();
+        final AtomicLong requestsFailed = new AtomicLong();
+        final AtomicLong requestsRejected = new AtomicLong();
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong bytesWritten = new AtomicLong();
+        final AtomicLong totalCompileNanos = new AtomicLong();
+        final AtomicLong totalLatencyNanos = new AtomicLong();
+        final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void recordResponse(Response response, long compileNanos, long latencyNanos) {
+            if (response.isSuccess()) {
+                requestsSucceeded.incrementAndGet();
+            } else if (response.status == STATUS_BAILOUT) {
+                requestsBailedOut.incrementAndGet();
+            } else {
+                requestsFailed.incrementAndGet();
+            }
+            totalCompileNanos.addAndGet(compileNanos);
+            totalLatencyNanos.addAndGet(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        public long getConnections() {
+            return connections.get();
+        }
+
+        public long getActiveConnections() {
+            return activeConnections.get();
+        }
+
+        public long getRequestsReceived() {
+            return requestsReceived.get();
+        }
+
+        public long getRequestsSucceeded() {
+            return requestsSucceeded.get();
+        }
+
+        public long getRequestsBailedOut() {
+            return requestsBailedOut.get();
+        }
+
+        public long getRequestsFailed() {
+            return requestsFailed.get();
+        }
+
+        public long getRequestsRejected() {
+            return requestsRejected.get();
+        }
+
+        /**
+         * Gets the number of requests that have been answered after being processed by a worker.
+         */
+        public long getRequestsProcessed() {
+            return requestsSucceeded.get() + requestsBailedOut.get() + requestsFailed.get();
+        }
+
+        public long getBytesRead() {
+            return bytesRead.get();
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten.get();
+        }
+
+        public double getMeanCompileMillis() {
+            long processed = getRequestsProcessed();
+            return processed == 0 ? 0 : totalCompileNanos.get() / 1e6 / processed;
+        }
+
+        public double getMeanLatencyMillis() {
+            long processed = getRequestsProcessed();
+            return processed == 0 ? 0 : totalLatencyNanos.get() / 1e6 / processed;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyNanos.get() / 1e6;
+        }
+
+        /**
+         * Gets the number of processed requests per second since the server was created.
+         */
+        public double getThroughput() {
+            return getRequestsProcessed() / ((System.nanoTime() - startNanos) / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("connections: %d (%d active), requests: %d received, %d succeeded, %d bailed out, %d failed, %d rejected, " +
+                            "throughput: %.1f/s, latency: %.2f ms mean, %.2f ms max, compile time: %.2f ms mean, bytes: %d read, %d written", getConnections(), getActiveConnections(),
+                            getRequestsReceived(), getRequestsSucceeded(), getRequestsBailedOut(), getRequestsFailed(), getRequestsRejected(), getThroughput(), getMeanLatencyMillis(),
+                            getMaxLatencyMillis(), getMeanCompileMillis(), getBytesRead(), getBytesWritten());
+        }
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import static com.oracle.graal.api.code.CodeUtil.*;
+import static com.oracle.graal.compiler.GraalCompiler.*;
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+
+import java.io.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CallingConvention.Type;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.debug.internal.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Request;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.printer.*;
+
+/**
+ * Compiles the requested methods with the host backend of the Graal runtime of the server VM and
+ * answers with a serialized {@link CompilationResult} that the client installs in its own code
+ * cache. The compilation uses the profiles and class initialization state sent by the client
+ * instead of those of the server. The classes of the requested methods are loaded by the system
+ * class loader of the server VM, which must therefore have the same class path as the clients.
+ */
+public class HotSpotCompilationRequestHandler implements CompilationRequestHandler {
+
+    /**
+     * Gets a description of the VM properties that are embedded in the code produced by
+     * {@code runtime}, e.g., the addresses of VM data structures and the compressed pointer
+     * encodings. Code can only be shared between VMs with the same identity.
+     */
+    public static String getVMIdentity(HotSpotGraalRuntime runtime) {
+        HotSpotVMConfig config = runtime.getConfig();
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.getProperty("java.vm.name")).append(' ').append(System.getProperty("java.vm.version"));
+        sb.append(", ").append(runtime.getTarget().arch.getName());
+        sb.append(String.format(", cpu features 0x%x, SSE %d, AVX %d", config.x86CPUFeatures, config.useSSE, config.useAVX));
+        sb.append(", compressed oops ").append(config.useCompressedOops).append(" (").append(config.getOopEncoding()).append(')');
+        sb.append(", compressed class pointers ").append(config.useCompressedClassPointers).append(" (").append(config.getKlassEncoding()).append(')');
+        sb.append(", TLAB ").append(config.useTLAB).append(", G1 ").append(config.useG1GC).append(", biased locking ").append(config.useBiasedLocking);
+        sb.append(", inline allocation ").append(config.inlineContiguousAllocationSupported);
+        sb.append(String.format(", card table 0x%x >> %d", config.cardtableStartAddress(), config.cardtableShift()));
+        sb.append(String.format(", heap top 0x%x, heap end 0x%x", config.heapTopAddress, config.heapEndAddress));
+        sb.append(String.format(", crc table 0x%x, polling page 0x%x", config.crcTableAddress, config.safepointPollingAddress));
+        sb.append(String.format(", code cache 0x%x-0x%x", config.codeCacheLowBoundary(), config.codeCacheHighBoundary()));
+        return sb.toString();
+    }
+
+    @Override
+    public Response compile(Request request) {
+        // Ensure a debug configuration for this thread is initialized
+        if (Debug.isEnabled() && DebugScope.getConfig() == null) {
+            DebugEnvironment.initialize(TTY.cachedOut);
+        }
+        if (request.entryBCI != StructuredGraph.INVOCATION_ENTRY_BCI) {
+            return Response.error(request.id, "OSR compilation is not supported: " + request);
+        }
+        HotSpotBackend backend = runtime().getHostBackend();
+        HotSpotProviders providers = backend.getProviders();
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        Class<?> javaClass = SymbolicReferences.resolveClass("L" + request.className.replace('.', '/') + ";", loader);
+        if (javaClass == null) {
+            return Response.error(request.id, "class not found: " + request.className);
+        }
+        ResolvedJavaMethod method = SymbolicReferences.findMethod(providers.getMetaAccess().lookupJavaType(javaClass), request.methodName, request.descriptor);
+        if (method == null) {
+            return Response.error(request.id, "method not found: " + request);
+        }
+        HotSpotClientState clientState;
+        try {
+            clientState = ProfileSnapshot.restore(request.profile, providers.getMetaAccess(), loader);
+        } catch (IOException e) {
+            return Response.error(request.id, "invalid profile: " + e.getMessage());
+        }
+        CompilationResult result;
+        try (Scope s = Debug.scope("RemoteCompilation", method); HotSpotClientState.Scope cs = clientState.enter()) {
+            StructuredGraph graph = new StructuredGraph(method);
+            CallingConvention cc = getCallingConvention(providers.getCodeCache(), Type.JavaCallee, method, false);
+            ProfilingInfo profilingInfo = method.getProfilingInfo();
+            // speculations are recorded in the VM that installs the code
+            result = compileGraph(graph, null, cc, method, providers, backend, backend.getTarget(), null, providers.getSuites().getDefaultGraphBuilderSuite(),
+                            new OptimisticOptimizations(profilingInfo), profilingInfo, null, providers.getSuites().getDefaultSuites(), new CompilationResult(), CompilationResultBuilderFactory.Default);
+        } catch (BailoutException e) {
+            return Response.bailout(request.id, e.getMessage());
+        } catch (Throwable e) {
+            return Response.error(request.id, e.toString());
+        }
+        try {
+            return Response.success(request.id, CompilationResultEncoder.encode(result, backend));
+        } catch (IllegalArgumentException e) {
+            return Response.error(request.id, "cannot encode result: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import static com.oracle.graal.bytecode.Bytecodes.*;
+
+import java.io.*;
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.JavaMethodProfile.ProfiledMethod;
+import com.oracle.graal.api.meta.JavaTypeProfile.ProfiledType;
+import com.oracle.graal.api.meta.ProfilingInfo.TriState;
+import com.oracle.graal.bytecode.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.nodes.*;
+
+/**
+ * Captures the profiles of a method, the methods it may inline and the initialization state of
+ * the types they refer to in a client VM so that a {@link CompilationServer} can compile the
+ * method as if it was compiled by the client. The methods and types are written by name and
+ * resolved again by the server.
+ */
+public final class ProfileSnapshot {
+
+    /**
+     * The maximum number of methods whose profiles are captured. The methods are visited breadth
+     * first starting at the compiled method, so the limit cuts off the most deeply nested
+     * callees.
+     */
+    static final int MAX_METHODS = 256;
+
+    private static final int BRANCH = 1;
+    private static final int SWITCH = 2;
+    private static final int TYPES = 4;
+    private static final int METHODS = 8;
+    private static final int EXECUTION_COUNT = 16;
+
+    private ProfileSnapshot() {
+    }
+
+    /**
+     * Captures the profiles for a compilation of {@code root} in the current VM.
+     *
+     * @param entryBCI the entry BCI of the compilation
+     */
+    public static byte[] capture(HotSpotResolvedJavaMethod root, int entryBCI) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Set<ResolvedJavaMethod> methods = new LinkedHashSet<>();
+            Set<ResolvedJavaType> types = new LinkedHashSet<>();
+            Deque<ResolvedJavaMethod> worklist = new ArrayDeque<>();
+            methods.add(root);
+            worklist.add(root);
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            DataOutputStream methodOut = new DataOutputStream(methodBytes);
+            while (!worklist.isEmpty()) {
+                ResolvedJavaMethod method = worklist.poll();
+                ProfilingInfo info = method == root ? root.getCompilationProfilingInfo(entryBCI != StructuredGraph.INVOCATION_ENTRY_BCI) : method.getProfilingInfo();
+                Set<ResolvedJavaMethod> callees = new LinkedHashSet<>();
+                writeMethod(methodOut, method, info, callees, types);
+                for (ResolvedJavaMethod callee : callees) {
+                    if (methods.size() < MAX_METHODS && methods.add(callee)) {
+                        worklist.add(callee);
+                    }
+                }
+            }
+            methodOut.flush();
+            out.writeInt(methods.size());
+            methodBytes.writeTo(out);
+
+            List<ResolvedJavaType> initializedTypes = new ArrayList<>();
+            for (ResolvedJavaType type : types) {
+                if (!type.isArray() && type.isInitialized()) {
+                    initializedTypes.add(type);
+                }
+            }
+            out.writeInt(initializedTypes.size());
+            for (ResolvedJavaType type : initializedTypes) {
+                SymbolicReferences.writeType(out, type);
+            }
+        } catch (IOException e) {
+            throw new GraalInternalError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeMethod(DataOutputStream out, ResolvedJavaMethod method, ProfilingInfo info, Set<ResolvedJavaMethod> callees, Set<ResolvedJavaType> types) throws IOException {
+        SymbolicReferences.writeMethod(out, method);
+        out.writeInt(method.getCodeSize());
+        out.writeBoolean(info.isMature());
+        out.writeInt(info.getCompilerIRSize(StructuredGraph.class));
+        for (DeoptimizationReason reason : DeoptimizationReason.values()) {
+            out.writeInt(info.getDeoptimizationCount(reason));
+        }
+        types.add(method.getDeclaringClass());
+
+        byte[] code = method.getCode();
+        if (code != null) {
+            ConstantPool cp = method.getConstantPool();
+            for (BytecodeStream stream = new BytecodeStream(code); stream.currentBC() != Bytecodes.END; stream.next()) {
+                int bci = stream.currentBCI();
+                int opcode = stream.currentBC();
+                switch (opcode) {
+                    case INVOKEVIRTUAL:
+                    case INVOKESPECIAL:
+                    case INVOKESTATIC:
+                    case INVOKEINTERFACE: {
+                        JavaMethod target = cp.lookupMethod(stream.readCPI(), opcode);
+                        if (target instanceof ResolvedJavaMethod) {
+                            ResolvedJavaMethod resolvedTarget = (ResolvedJavaMethod) target;
+                            callees.add(resolvedTarget);
+                            types.add(resolvedTarget.getDeclaringClass());
+                            JavaTypeProfile typeProfile = info.getTypeProfile(bci);
+                            if (typeProfile != null) {
+                                for (ProfiledType profiledType : typeProfile.getTypes()) {
+                                    ResolvedJavaMethod concrete = profiledType.getType().resolveMethod(resolvedTarget, method.getDeclaringClass());
+                                    if (concrete != null) {
+                                        callees.add(concrete);
+                                    }
+                                }
+                            }
+                        }
+                        break;
+                    }
+                    case NEW:
+                    case ANEWARRAY:
+                    case CHECKCAST:
+                    case INSTANCEOF:
+                        addType(types, cp.lookupType(stream.readCPI(), opcode));
+                        break;
+                    case GETSTATIC:
+                    case PUTSTATIC:
+                        addType(types, cp.lookupField(stream.readCPI(), opcode).getDeclaringClass());
+                        break;
+                }
+                writeEntry(out, bci, info, callees, types);
+            }
+        }
+        out.writeInt(-1);
+    }
+
+    private static void addType(Set<ResolvedJavaType> types, JavaType type) {
+        if (type instanceof ResolvedJavaType) {
+            types.add((ResolvedJavaType) type);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, int bci, ProfilingInfo info, Set<ResolvedJavaMethod> callees, Set<ResolvedJavaType> types) throws IOException {
+        double branch = info.getBranchTakenProbability(bci);
+        double[] switchProbabilities = info.getSwitchProbabilities(bci);
+        JavaTypeProfile typeProfile = info.getTypeProfile(bci);
+        JavaMethodProfile methodProfile = info.getMethodProfile(bci);
+        int executionCount = info.getExecutionCount(bci);
+        TriState exceptionSeen = info.getExceptionSeen(bci);
+        TriState nullSeen = info.getNullSeen(bci);
+        int flags = (branch != -1 ? BRANCH : 0) | (switchProbabilities != null ? SWITCH : 0) | (typeProfile != null ? TYPES : 0) | (methodProfile != null ? METHODS : 0) |
+                        (executionCount != -1 ? EXECUTION_COUNT : 0);
+        if (flags == 0 && exceptionSeen == TriState.UNKNOWN && nullSeen == TriState.UNKNOWN) {
+            return;
+        }
+        out.writeInt(bci);
+        out.writeByte(flags);
+        out.writeByte(exceptionSeen.ordinal());
+        out.writeByte(nullSeen.ordinal());
+        if (branch != -1) {
+            out.writeDouble(branch);
+        }
+        if (switchProbabilities != null) {
+            out.writeInt(switchProbabilities.length);
+            for (double probability : switchProbabilities) {
+                out.writeDouble(probability);
+            }
+        }
+        if (typeProfile != null) {
+            out.writeByte(typeProfile.getNullSeen().ordinal());
+            out.writeDouble(typeProfile.getNotRecordedProbability());
+            out.writeInt(typeProfile.getTypes().length);
+            for (ProfiledType profiledType : typeProfile.getTypes()) {
+                SymbolicReferences.writeType(out, profiledType.getType());
+                out.writeDouble(profiledType.getProbability());
+                types.add(profiledType.getType());
+            }
+        }
+        if (methodProfile != null) {
+            out.writeDouble(methodProfile.getNotRecordedProbability());
+            out.writeInt(methodProfile.getMethods().length);
+            for (ProfiledMethod profiledMethod : methodProfile.getMethods()) {
+                SymbolicReferences.writeMethod(out, profiledMethod.getMethod());
+                out.writeDouble(profiledMethod.getProbability());
+                callees.add(profiledMethod.getMethod());
+            }
+        }
+        if (executionCount != -1) {
+            out.writeInt(executionCount);
+        }
+    }
+
+    /**
+     * Restores a snapshot produced by {@link #capture} in the current VM. Methods and types that
+     * cannot be resolved by {@code loader} are omitted.
+     *
+     * @param snapshot a snapshot or an empty array if no profiles were captured
+     * @throws IOException if {@code snapshot} is malformed
+     */
+    public static HotSpotClientState restore(byte[] snapshot, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        Map<ResolvedJavaMethod, ProfilingInfo> profiles = new HashMap<>();
+        Set<ResolvedJavaType> initializedTypes = new HashSet<>();
+        if (snapshot.length != 0) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+            int methodCount = checkCount(in, in.readInt());
+            for (int i = 0; i < methodCount; i++) {
+                ResolvedJavaMethod method = SymbolicReferences.readMethod(in, metaAccess, loader);
+                SnapshotProfilingInfo info = readMethod(in, metaAccess, loader);
+                if (method != null && info.getCodeSize() == method.getCodeSize()) {
+                    profiles.put(method, info);
+                }
+            }
+            int typeCount = checkCount(in, in.readInt());
+            for (int i = 0; i < typeCount; i++) {
+                ResolvedJavaType type = SymbolicReferences.readType(in, metaAccess, loader);
+                if (type != null) {
+                    initializedTypes.add(type);
+                }
+            }
+            if (in.available() != 0) {
+                throw new IOException(in.available() + " bytes after end of profile snapshot");
+            }
+        }
+        return new HotSpotClientState(profiles, initializedTypes);
+    }
+
+    private static SnapshotProfilingInfo readMethod(DataInputStream in, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        int codeSize = in.readInt();
+        if (codeSize < 0 || codeSize > 0xFFFF) {
+            throw new IOException("invalid code size " + codeSize);
+        }
+        boolean mature = in.readBoolean();
+        int compilerIRSize = in.readInt();
+        DeoptimizationReason[] reasons = DeoptimizationReason.values();
+        int[] deoptimizationCounts = new int[reasons.length];
+        for (int i = 0; i < reasons.length; i++) {
+            deoptimizationCounts[i] = in.readInt();
+        }
+        SnapshotProfilingInfo info = new SnapshotProfilingInfo(codeSize, mature, compilerIRSize, deoptimizationCounts);
+        for (int bci = in.readInt(); bci != -1; bci = in.readInt()) {
+            if (bci < 0 || bci >= codeSize) {
+                throw new IOException("invalid bci " + bci);
+            }
+            int flags = in.readUnsignedByte();
+            SnapshotProfilingInfo.Entry entry = new SnapshotProfilingInfo.Entry(readTriState(in), readTriState(in));
+            if ((flags & BRANCH) != 0) {
+                entry.branchTakenProbability = in.readDouble();
+            }
+            if ((flags & SWITCH) != 0) {
+                double[] switchProbabilities = new double[checkCount(in, in.readInt())];
+                for (int i = 0; i < switchProbabilities.length; i++) {
+                    switchProbabilities[i] = in.readDouble();
+                }
+                entry.switchProbabilities = switchProbabilities;
+            }
+            if ((flags & TYPES) != 0) {
+                entry.typeProfile = readTypeProfile(in, metaAccess, loader);
+            }
+            if ((flags & METHODS) != 0) {
+                entry.methodProfile = readMethodProfile(in, metaAccess, loader);
+            }
+            if ((flags & EXECUTION_COUNT) != 0) {
+                entry.executionCount = in.readInt();
+            }
+            info.entries[bci] = entry;
+        }
+        return info;
+    }
+
+    /**
+     * Reads a type profile, dropping the types that cannot be resolved. Their probability is
+     * added to the probability of the types that were not recorded, which keeps the remaining
+     * types sorted.
+     */
+    private static JavaTypeProfile readTypeProfile(DataInputStream in, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        TriState nullSeen = readTriState(in);
+        double notRecordedProbability = in.readDouble();
+        int count = checkCount(in, in.readInt());
+        List<ProfiledType> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ResolvedJavaType type = SymbolicReferences.readType(in, metaAccess, loader);
+            double probability = in.readDouble();
+            if (type != null) {
+                types.add(new ProfiledType(type, probability));
+            } else {
+                notRecordedProbability += probability;
+            }
+        }
+        return new JavaTypeProfile(nullSeen, Math.min(1.0, notRecordedProbability), types.toArray(new ProfiledType[types.size()]));
+    }
+
+    private static JavaMethodProfile readMethodProfile(DataInputStream in, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        double notRecordedProbability = in.readDouble();
+        int count = checkCount(in, in.readInt());
+        List<ProfiledMethod> methods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ResolvedJavaMethod method = SymbolicReferences.readMethod(in, metaAccess, loader);
+            double probability = in.readDouble();
+            if (method != null) {
+                methods.add(new ProfiledMethod(method, probability));
+            } else {
+                notRecordedProbability += probability;
+            }
+        }
+        return new JavaMethodProfile(Math.min(1.0, notRecordedProbability), methods.toArray(new ProfiledMethod[methods.size()]));
+    }
+
+    private static TriState readTriState(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TriState.values().length) {
+            throw new IOException("invalid tri-state " + ordinal);
+        }
+        return TriState.values()[ordinal];
+    }
+
+    /**
+     * Checks that a count read from {@code in} is not negative and does not exceed the remaining
+     * bytes, each counted element taking at least one byte.
+     */
+    private static int checkCount(DataInputStream in, int count) throws IOException {
+        if (count < 0 || count > in.available()) {
+            throw new IOException("invalid count " + count + " with " + in.available() + " bytes remaining");
+        }
+        return count;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.nodes.*;
+
+/**
+ * The profiling information of a method restored from a {@link ProfileSnapshot}.
+ */
+final class SnapshotProfilingInfo implements ProfilingInfo {
+
+    /**
+     * The profile of a single bytecode.
+     */
+    static final class Entry {
+
+        final TriState exceptionSeen;
+        final TriState nullSeen;
+        double branchTakenProbability = -1;
+        double[] switchProbabilities;
+        JavaTypeProfile typeProfile;
+        JavaMethodProfile methodProfile;
+        int executionCount = -1;
+
+        Entry(TriState exceptionSeen, TriState nullSeen) {
+            this.exceptionSeen = exceptionSeen;
+            this.nullSeen = nullSeen;
+        }
+    }
+
+    private final boolean mature;
+    private final int compilerIRSize;
+    private final int[] deoptimizationCounts;
+
+    /**
+     * The profiles indexed by bci. Bytecodes without profile have no entry.
+     */
+    final Entry[] entries;
+
+    SnapshotProfilingInfo(int codeSize, boolean mature, int compilerIRSize, int[] deoptimizationCounts) {
+        this.mature = mature;
+        this.compilerIRSize = compilerIRSize;
+        this.deoptimizationCounts = deoptimizationCounts;
+        this.entries = new Entry[codeSize];
+    }
+
+    @Override
+    public int getCodeSize() {
+        return entries.length;
+    }
+
+    private Entry getEntry(int bci) {
+        return bci >= 0 && bci < entries.length ? entries[bci] : null;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? -1 : entry.branchTakenProbability;
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? null : entry.switchProbabilities;
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? null : entry.typeProfile;
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? null : entry.methodProfile;
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? TriState.UNKNOWN : entry.exceptionSeen;
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? TriState.UNKNOWN : entry.nullSeen;
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        Entry entry = getEntry(bci);
+        return entry == null ? -1 : entry.executionCount;
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return deoptimizationCounts[reason.ordinal()];
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return false;
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return irType == StructuredGraph.class ? compilerIRSize : -1;
+    }
+
+    @Override
+    public boolean isMature() {
+        return mature;
+    }
+
+    @Override
+    public void setMature() {
+        // the profile of the client cannot be changed
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotProfilingInfo<" + this.toString(null, "; ") + ">";
+    }
+}
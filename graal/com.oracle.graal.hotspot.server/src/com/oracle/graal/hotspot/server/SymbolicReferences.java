@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.server;
+
+import java.io.*;
+
+import com.oracle.graal.api.meta.*;
+
+/**
+ * Writes and reads types and methods by name so that a VM with the same class path can resolve
+ * them to its own {@link ResolvedJavaType}s and {@link ResolvedJavaMethod}s.
+ */
+final class SymbolicReferences {
+
+    private SymbolicReferences() {
+    }
+
+    static void writeType(DataOutput out, JavaType type) throws IOException {
+        out.writeUTF(type.getName());
+    }
+
+    static void writeMethod(DataOutput out, JavaMethod method) throws IOException {
+        writeType(out, method.getDeclaringClass());
+        out.writeUTF(method.getName());
+        out.writeUTF(method.getSignature().toMethodDescriptor());
+    }
+
+    /**
+     * Reads a type written by {@link #writeType}.
+     *
+     * @return the type or null if it cannot be resolved by {@code loader}
+     */
+    static ResolvedJavaType readType(DataInput in, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        Class<?> javaClass = resolveClass(in.readUTF(), loader);
+        return javaClass == null ? null : metaAccess.lookupJavaType(javaClass);
+    }
+
+    /**
+     * Reads a method written by {@link #writeMethod}.
+     *
+     * @return the method or null if it cannot be resolved by {@code loader}
+     */
+    static ResolvedJavaMethod readMethod(DataInput in, MetaAccessProvider metaAccess, ClassLoader loader) throws IOException {
+        ResolvedJavaType holder = readType(in, metaAccess, loader);
+        String name = in.readUTF();
+        String descriptor = in.readUTF();
+        return holder == null ? null : findMethod(holder, name, descriptor);
+    }
+
+    /**
+     * Finds a method declared by {@code type}.
+     *
+     * @param descriptor the method descriptor, e.g., {@code (I)V}
+     * @return the method or null if {@code type} does not declare it
+     */
+    static ResolvedJavaMethod findMethod(ResolvedJavaType type, String name, String descriptor) {
+        if (name.equals("<clinit>")) {
+            return type.getClassInitializer();
+        }
+        ResolvedJavaMethod[] candidates = name.equals("<init>") ? type.getDeclaredConstructors() : type.getDeclaredMethods();
+        for (ResolvedJavaMethod candidate : candidates) {
+            if (candidate.getName().equals(name) && candidate.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the {@linkplain JavaType#getName() name} of a type, e.g., {@code Ljava/lang/String;}
+     * or {@code [I}, without initializing it.
+     *
+     * @return the class or null if it cannot be resolved by {@code loader}
+     */
+    static Class<?> resolveClass(String name, ClassLoader loader) {
+        try {
+            if (name.length() == 1) {
+                return Kind.fromPrimitiveOrVoidTypeChar(name.charAt(0)).toJavaClass();
+            } else if (name.startsWith("[")) {
+                return Class.forName(name.replace('/', '.'), false, loader);
+            } else if (name.startsWith("L") && name.endsWith(";")) {
+                return Class.forName(name.substring(1, name.length() - 1).replace('/', '.'), false, loader);
+            }
+        } catch (IllegalArgumentException | ClassNotFoundException | LinkageError e) {
+            // not resolvable
+        }
+        return null;
+    }
+}
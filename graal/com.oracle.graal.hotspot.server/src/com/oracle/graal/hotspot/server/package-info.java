@@ -21,7 +21,10 @@
  * questions.
  */
 /**
- * Implementation of a compilation server socket that delegates incoming requests to Graal.
+ * A compilation server that accepts compile requests from client VMs over the network and
+ * delegates them to Graal. The server compiles with the profiles of the client and answers with
+ * results the client can install. Client and server must run the same VM build with the same
+ * class path and flags, which is checked by comparing the VM identities when connecting.
  */
 package com.oracle.graal.hotspot.server;
 
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.common.inlining.*;
+import com.oracle.graal.phases.common.inlining.policy.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Tests the grouping of consecutive allocations by {@link AllocationBatchingPhase}.
+ */
+public class AllocationBatchingTest extends GraalCompilerTest {
+
+    public static class Point {
+
+        public int x;
+        public int y;
+
+        public Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class Line {
+
+        public Point from;
+        public Point to;
+        public int[] color;
+
+        public Line(Point from, Point to, int[] color) {
+            this.from = from;
+            this.to = to;
+            this.color = color;
+        }
+    }
+
+    public static Object lineSnippet(int x, int y) {
+        Point from = new Point(x, y);
+        Point to = new Point(y, x);
+        return new Line(from, to, new int[3]);
+    }
+
+    public static Object separatedSnippet(int x, int y) {
+        Point from = new Point(x, y);
+        lineSnippet(y, x);
+        return new Point(from.y, from.x);
+    }
+
+    public static Object variableLengthSnippet(int x, int length) {
+        Point p = new Point(x, length);
+        int[] a = new int[length];
+        Point q = new Point(length, x);
+        return new Object[]{p, a, q};
+    }
+
+    @Test
+    public void testLine() {
+        // executing the snippet first ensures that the allocated classes are initialized
+        test("lineSnippet", 1, 2);
+        assertBatches("lineSnippet", 1, 4);
+    }
+
+    @Test
+    public void testSeparated() {
+        test("separatedSnippet", 3, 4);
+    }
+
+    @Test
+    public void testVariableLength() {
+        test("variableLengthSnippet", 5, 0);
+        test("variableLengthSnippet", 5, 7);
+        test("variableLengthSnippet", 5, -1);
+    }
+
+    /**
+     * The memory reserved for a batched allocation must be formatted even if the allocated object
+     * is not used. Otherwise, the heap would contain an unparsable hole.
+     */
+    @Test
+    public void testDeadBatchedAllocation() {
+        StructuredGraph graph = assertBatches("lineSnippet", 1, 4);
+        BatchedNewArrayNode array = graph.getNodes().filter(BatchedNewArrayNode.class).first();
+        for (Node usage : array.usages().distinct().snapshot()) {
+            if (usage instanceof FrameState) {
+                while (usage.inputs().contains(array)) {
+                    usage.replaceFirstInput(array, null);
+                }
+            } else {
+                // the write storing the array into the line and its barriers
+                Assert.assertTrue(usage.toString(), usage instanceof FixedWithNextNode && usage.usages().isEmpty());
+                graph.removeFixed((FixedWithNextNode) usage);
+            }
+        }
+        Assert.assertTrue(array.usages().isEmpty());
+
+        new CanonicalizerPhase(true).apply(graph, new PhaseContext(getProviders(), new Assumptions(false)));
+        Assert.assertTrue(array.isAlive());
+        Assert.assertEquals(4, graph.getNodes().filter(BatchedNewInstanceNode.class).count() + graph.getNodes().filter(BatchedNewArrayNode.class).count());
+    }
+
+    private StructuredGraph assertBatches(String snippet, int expectedBatches, int expectedBatchedAllocations) {
+        try (Scope s = Debug.scope("AllocationBatchingTest", new DebugDumpScope(snippet))) {
+            StructuredGraph graph = parseEager(snippet);
+            HighTierContext highContext = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+            MidTierContext midContext = new MidTierContext(getProviders(), new Assumptions(false), getCodeCache().getTarget(), OptimisticOptimizations.ALL, graph.method().getProfilingInfo(), null);
+            new InliningPhase(new InlineEverythingPolicy(), new CanonicalizerPhase(true)).apply(graph, highContext);
+            new LoweringPhase(new CanonicalizerPhase(true), LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, highContext);
+            new GuardLoweringPhase().apply(graph, midContext);
+            new LoweringPhase(new CanonicalizerPhase(true), LoweringTool.StandardLoweringStage.MID_TIER).apply(graph, midContext);
+            new FrameStateAssignmentPhase().apply(graph);
+            new WriteBarrierAdditionPhase().apply(graph);
+            new AllocationBatchingPhase(getCodeCache().getTarget()).apply(graph);
+            Debug.dump(graph, "After allocation batching");
+
+            Assert.assertEquals(expectedBatches, graph.getNodes().filter(AllocationBatchNode.class).count());
+            int batchedInstances = graph.getNodes().filter(BatchedNewInstanceNode.class).count();
+            int batchedArrays = graph.getNodes().filter(BatchedNewArrayNode.class).count();
+            Assert.assertEquals(expectedBatchedAllocations, batchedInstances + batchedArrays);
+            Assert.assertEquals(batchedInstances, graph.getNodes().filter(NewInstanceNode.class).count());
+            Assert.assertEquals(batchedArrays, graph.getNodes().filter(NewArrayNode.class).count());
+            for (BatchedNewInstanceNode node : graph.getNodes().filter(BatchedNewInstanceNode.class)) {
+                Assert.assertTrue(node.batch() instanceof AllocationBatchNode);
+            }
+            return graph;
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+    }
+}
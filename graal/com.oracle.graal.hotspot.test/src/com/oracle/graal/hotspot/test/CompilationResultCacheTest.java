@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.CompilationResultCache.Options.*;
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.nodes.StructuredGraph.*;
+
+import org.junit.*;
+
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests that a recompilation with an unchanged profile reuses the result in the
+ * {@link CompilationResultCache}.
+ */
+public class CompilationResultCacheTest extends GraalCompilerTest {
+
+    public static int sumSnippet(int[] values) {
+        int sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    public abstract static class Shape {
+        public abstract int area();
+    }
+
+    public static class Square extends Shape {
+        @Override
+        public int area() {
+            return 4;
+        }
+    }
+
+    /**
+     * Must only be loaded by {@link #testInvalidatedResult()}.
+     */
+    public static class Circle extends Shape {
+        @Override
+        public int area() {
+            return 3;
+        }
+    }
+
+    public static int areaSnippet(Shape shape) {
+        return shape.area();
+    }
+
+    private static CompilationTask compile(HotSpotResolvedJavaMethod method) {
+        CompilationTask task = new CompilationTask(runtime().getHostBackend(), method, INVOCATION_ENTRY_BCI, 0L, method.allocateCompileId(INVOCATION_ENTRY_BCI), false);
+        task.runCompilation();
+        return task;
+    }
+
+    @Test
+    public void testRecompilation() {
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getResolvedJavaMethod("sumSnippet");
+        try (OverrideScope s = OptionValue.override(CompilationResultCacheSize, 16)) {
+            CompilationTask first = compile(method);
+            Assert.assertNotEquals(-1, first.getGraphNodeCount());
+
+            // The recompilation installs the cached result without building a graph
+            CompilationTask second = compile(method);
+            Assert.assertEquals(-1, second.getGraphNodeCount());
+            Assert.assertEquals(first.getTargetCodeSize(), second.getTargetCodeSize());
+        }
+    }
+
+    @Test
+    public void testInvalidatedResult() throws ClassNotFoundException {
+        Assert.assertEquals(4, new Square().area());
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getResolvedJavaMethod("areaSnippet");
+        try (OverrideScope s = OptionValue.override(CompilationResultCacheSize, 16)) {
+            // The call is devirtualized under the assumption that Square is the only Shape
+            Assert.assertNotEquals(-1, compile(method).getGraphNodeCount());
+
+            Class.forName(CompilationResultCacheTest.class.getName() + "$Circle");
+
+            // The cached result cannot be installed any more, so the method is compiled again
+            Assert.assertNotEquals(-1, compile(method).getGraphNodeCount());
+            Assert.assertEquals(-1, compile(method).getGraphNodeCount());
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getResolvedJavaMethod("sumSnippet");
+        try (OverrideScope s = OptionValue.override(CompilationResultCacheSize, 0)) {
+            compile(method);
+            Assert.assertNotEquals(-1, compile(method).getGraphNodeCount());
+        }
+    }
+}
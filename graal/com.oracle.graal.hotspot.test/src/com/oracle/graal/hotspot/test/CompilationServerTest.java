@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.hotspot.server.*;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Request;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
+
+/**
+ * Tests the transport of the {@link CompilationServer} with several concurrent clients on the
+ * loopback interface. The compilations are simulated by a handler answering with the method name.
+ */
+public class CompilationServerTest {
+
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 100;
+    private static final String VM_IDENTITY = "simulated VM";
+
+    private CompilationServer server;
+    private Thread serverThread;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new CompilationServer(0, 4, VM_IDENTITY, request -> {
+            if (request.methodName.equals("bailout")) {
+                return Response.bailout(request.id, "simulated bailout");
+            }
+            if (request.methodName.equals("crash")) {
+                throw new IllegalStateException("simulated crash");
+            }
+            return Response.success(request.id, (request.className + "." + request.methodName + request.descriptor).getBytes(StandardCharsets.UTF_8));
+        });
+        serverThread = new Thread(server);
+        serverThread.start();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+        serverThread.join();
+    }
+
+    private InetSocketAddress serverAddress() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                String className = "Client" + i;
+                futures.add(clients.submit(() -> {
+                    try (CompilationClient client = new CompilationClient(serverAddress(), VM_IDENTITY)) {
+                        for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                            Response response = client.compile(className, "m" + j, "()V", -1);
+                            Assert.assertTrue(response.isSuccess());
+                            Assert.assertEquals(className + ".m" + j + "()V", new String(response.result, StandardCharsets.UTF_8));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        CompilationServer.Statistics statistics = server.getStatistics();
+        Assert.assertEquals(CLIENTS, statistics.getConnections());
+        Assert.assertEquals(CLIENTS * REQUESTS_PER_CLIENT, statistics.getRequestsReceived());
+        Assert.assertEquals(CLIENTS * REQUESTS_PER_CLIENT, statistics.getRequestsSucceeded());
+        Assert.assertTrue(statistics.getMaxLatencyMillis() >= statistics.getMeanLatencyMillis());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        try (CompilationClient client = new CompilationClient(serverAddress(), VM_IDENTITY)) {
+            Assert.assertEquals(CompilationProtocol.STATUS_BAILOUT, client.compile("C", "bailout", "()V", -1).status);
+            Response response = client.compile("C", "crash", "()V", -1);
+            Assert.assertEquals(CompilationProtocol.STATUS_ERROR, response.status);
+            Assert.assertTrue(response.message.contains("simulated crash"));
+            // the connection is still usable after a failed compilation
+            Assert.assertTrue(client.compile("C", "m", "()V", -1).isSuccess());
+        }
+        Assert.assertEquals(1, server.getStatistics().getRequestsBailedOut());
+        Assert.assertEquals(1, server.getStatistics().getRequestsFailed());
+    }
+
+    @Test
+    public void testNegativeStringLength() throws Exception {
+        try (SocketChannel channel = SocketChannel.open(serverAddress())) {
+            write(channel, CompilationProtocol.encodeHello(VM_IDENTITY));
+            ByteBuffer hello = ByteBuffer.allocate(CompilationProtocol.encodeHello(VM_IDENTITY).remaining());
+            while (hello.hasRemaining()) {
+                Assert.assertTrue(channel.read(hello) >= 0);
+            }
+
+            ByteBuffer compile = ByteBuffer.allocate(4 + 1 + 8 + 2);
+            compile.putInt(1 + 8 + 2);
+            compile.put(CompilationProtocol.COMPILE);
+            compile.putInt(1);
+            compile.putInt(-1);
+            compile.putShort((short) -1);
+            compile.flip();
+            write(channel, compile);
+
+            // the server closes the offending connection ...
+            Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+        // ... but keeps serving other clients
+        try (CompilationClient client = new CompilationClient(serverAddress(), VM_IDENTITY)) {
+            Assert.assertTrue(client.compile("C", "m", "()V", -1).isSuccess());
+        }
+    }
+
+    @Test
+    public void testVMIdentityMismatch() throws Exception {
+        try {
+            new CompilationClient(serverAddress(), "other VM").close();
+            Assert.fail("expected IOException");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains(VM_IDENTITY));
+        }
+        // a client that ignores the identity of the server is disconnected
+        try (SocketChannel channel = SocketChannel.open(serverAddress())) {
+            write(channel, CompilationProtocol.encodeHello("other VM"));
+            ByteBuffer hello = ByteBuffer.allocate(CompilationProtocol.encodeHello(VM_IDENTITY).remaining());
+            while (hello.hasRemaining()) {
+                Assert.assertTrue(channel.read(hello) >= 0);
+            }
+            write(channel, CompilationProtocol.encodeRequest(new Request(1, "C", "m", "()V", -1, new byte[0])));
+            Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        }
+        Assert.assertEquals(0, server.getStatistics().getRequestsReceived());
+    }
+
+    @Test
+    public void testRequestRoundTrip() throws Exception {
+        byte[] profile = {1, 2, 3};
+        ByteBuffer frame = CompilationProtocol.encodeRequest(new Request(7, "C", "m", "(I)V", -1, profile));
+        frame.position(5);
+        Request request = CompilationProtocol.decodeRequest(frame.slice());
+        Assert.assertEquals(7, request.id);
+        Assert.assertEquals("C.m(I)V", request.toString());
+        Assert.assertArrayEquals(profile, request.profile);
+    }
+
+    @Test
+    public void testStringLengthBeyondPayload() throws Exception {
+        ByteBuffer payload = ByteBuffer.allocate(8 + 2 + 3);
+        payload.putInt(1).putInt(-1).putShort((short) 100).put(new byte[3]).flip();
+        try {
+            CompilationProtocol.decodeRequest(payload);
+            Assert.fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer frame) throws Exception {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+}
@@ -24,6 +24,10 @@ package com.oracle.graal.hotspot.test;
 
 import static com.oracle.graal.compiler.common.GraalOptions.*;
 
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
 import org.junit.*;
 
 import com.oracle.graal.compiler.test.*;
@@ -44,4 +48,25 @@ public class CompileTheWorldTest extends GraalCompilerTest {
         ExitVMOnException.setValue(originalSetting);
     }
 
+    @Test
+    public void testRtJarParallelWithReport() throws Throwable {
+        boolean originalSetting = ExitVMOnException.getValue();
+        File report = File.createTempFile("ctw", ".csv");
+        try {
+            // Compile a couple classes in rt.jar on two threads
+            String file = System.getProperty("java.home") + "/lib/rt.jar";
+            new CompileTheWorld(file, new Config(null), 1, 5, 2, report.getPath(), false).compile();
+            List<String> lines = Files.readAllLines(report.toPath());
+            Assert.assertEquals("classIndex,class,method,compileTimeNanos,allocatedBytes,nodeCount,codeSize", lines.get(0));
+            Assert.assertTrue(lines.size() > 1);
+            String[] columns = lines.get(1).split(",");
+            Assert.assertTrue(columns[0].matches("\\d+"));
+            // the class column holds a quoted Java class name
+            Assert.assertTrue(columns[1].matches("\"[\\w.$]+\""));
+        } finally {
+            report.delete();
+            ExitVMOnException.setValue(originalSetting);
+        }
+    }
+
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.HotSpotGraalRuntime.*;
+import static com.oracle.graal.nodes.StructuredGraph.*;
+
+import java.net.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.server.*;
+import com.oracle.graal.hotspot.server.CompilationProtocol.Response;
+
+/**
+ * Compiles methods on a {@link CompilationServer} running in the same VM, installs the results
+ * with a {@link CompilationClient} and executes them.
+ */
+public class RemoteCompilationTest extends GraalCompilerTest {
+
+    public static String concatSnippet(int n) {
+        StringBuilder sb = new StringBuilder("values:");
+        for (int i = 0; i < n; i++) {
+            sb.append(' ').append(i);
+        }
+        return sb.toString();
+    }
+
+    public static int hashSnippet(Object[] values) {
+        int hash = 17;
+        for (Object value : values) {
+            hash = hash * 31 + (value == null ? 0 : value.hashCode());
+        }
+        return hash;
+    }
+
+    private CompilationServer server;
+    private Thread serverThread;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new CompilationServer(0, 1, HotSpotCompilationRequestHandler.getVMIdentity(runtime()), new HotSpotCompilationRequestHandler());
+        serverThread = new Thread(server);
+        serverThread.start();
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.close();
+        serverThread.join();
+    }
+
+    private InstalledCode compileRemotely(String name) throws Exception {
+        HotSpotResolvedJavaMethod method = (HotSpotResolvedJavaMethod) getResolvedJavaMethod(name);
+        try (CompilationClient client = new CompilationClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            Response response = client.compile(method, INVOCATION_ENTRY_BCI);
+            Assert.assertTrue(response.toString(), response.isSuccess());
+            InstalledCode code = client.install(method, response);
+            Assert.assertTrue(code.isValid());
+            return code;
+        }
+    }
+
+    @Test
+    public void testConcat() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            concatSnippet(i % 10);
+        }
+        InstalledCode code = compileRemotely("concatSnippet");
+        Assert.assertEquals(concatSnippet(5), code.executeVarargs(5));
+    }
+
+    @Test
+    public void testProfiledCalls() throws Exception {
+        Object[] values = {"a", 1, 2L, null, "b"};
+        for (int i = 0; i < 10000; i++) {
+            hashSnippet(values);
+        }
+        InstalledCode code = compileRemotely("hashSnippet");
+        Assert.assertEquals(hashSnippet(values), code.executeVarargs(new Object[]{values}));
+        // a receiver type that was not profiled deoptimizes or takes the generic path
+        Object[] others = {new Object[0], 3.0};
+        Assert.assertEquals(hashSnippet(others), code.executeVarargs(new Object[]{others}));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.JavaTypeProfile.ProfiledType;
+import com.oracle.graal.bytecode.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Caches the results of {@link CompilationTask}s so that a method that is recompiled with an
+ * unchanged profile, e.g., after its code was invalidated, can reinstall the previously produced
+ * code instead of being compiled again.
+ *
+ * A result is only reused for the same method, entry BCI and bytecodes, the same set of failed
+ * speculations and the same {@link OptimisticOptimizations}. The profile of the method is
+ * summarized as the set of never and always taken branches, seen exceptions and null values and
+ * the receiver types of type profiles, so that changes in exact branch probabilities do not
+ * prevent reuse. Profiles of inlined methods are not considered.
+ *
+ * Reusing a result is safe because the VM checks the {@linkplain Assumptions assumptions} of the
+ * code when it is installed, including the contents of all inlined methods. If installing a cached
+ * result fails, the entry is evicted and the method is compiled instead.
+ */
+public class CompilationResultCache {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Maximum number of compilation results that are cached for reuse by recompilations (0 disables the cache)")
+        public static final OptionValue<Integer> CompilationResultCacheSize = new OptionValue<>(0);
+        // @formatter:on
+    }
+
+    private static final DebugMetric CacheHits = Debug.metric("CompilationResultCacheHits");
+    private static final DebugMetric CacheMisses = Debug.metric("CompilationResultCacheMisses");
+    private static final DebugMetric CacheEvictions = Debug.metric("CompilationResultCacheEvictions");
+
+    private final LinkedHashMap<Key, CompilationResult> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Determines if the cache is enabled.
+     */
+    public static boolean isEnabled() {
+        return Options.CompilationResultCacheSize.getValue() > 0;
+    }
+
+    /**
+     * Creates the key under which the result of compiling {@code method} with the given profile
+     * and optimistic optimizations is cached.
+     */
+    public static Key createKey(HotSpotResolvedJavaMethod method, int entryBCI, ProfilingInfo profilingInfo, OptimisticOptimizations optimisticOpts) {
+        SpeculationLog speculationLog = method.getSpeculationLog();
+        speculationLog.collectFailedSpeculations();
+        byte[] code = method.getCode();
+        return new Key(method, entryBCI, code, speculationLog.getFailedSpeculationCount(), optimisticOpts, summarizeProfile(code, profilingInfo));
+    }
+
+    /**
+     * Gets the cached result for {@code key}.
+     *
+     * @return the cached result or null if there is none
+     */
+    public CompilationResult lookup(Key key) {
+        CompilationResult result;
+        synchronized (cache) {
+            result = cache.get(key);
+        }
+        if (result != null) {
+            CacheHits.increment();
+        } else {
+            CacheMisses.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a compilation whose code was successfully installed. The result must not
+     * be modified afterwards because it is installed by other compiler threads without
+     * synchronization.
+     */
+    public void put(Key key, CompilationResult result) {
+        int maxEntries = Options.CompilationResultCacheSize.getValue();
+        DataSection data = result.getDataSection();
+        if (!data.isFinalized()) {
+            // installing a result must not modify it once it is shared
+            data.finalizeLayout();
+        }
+        synchronized (cache) {
+            cache.put(key, result);
+            Iterator<CompilationResult> iterator = cache.values().iterator();
+            while (cache.size() > maxEntries) {
+                iterator.next();
+                iterator.remove();
+                CacheEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key}, e.g., because its code could not be installed.
+     */
+    public void evict(Key key) {
+        synchronized (cache) {
+            if (cache.remove(key) != null) {
+                CacheEvictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Summarizes the parts of {@code profilingInfo} that influence the compilation. The summary is
+     * a list of the states of all profiled bytecodes in bytecode order so that two summaries are
+     * only equal if the profiles they were built from are equivalent.
+     */
+    private static List<Object> summarizeProfile(byte[] code, ProfilingInfo profilingInfo) {
+        List<Object> summary = new ArrayList<>();
+        BytecodeStream stream = new BytecodeStream(code);
+        while (stream.currentBC() != Bytecodes.END) {
+            int bci = stream.currentBCI();
+            int opcode = stream.currentBC();
+            if (Bytecodes.isConditionalBranch(opcode)) {
+                double probability = profilingInfo.getBranchTakenProbability(bci);
+                summary.add(probability < 0 ? -1 : probability == 0 ? 0 : probability == 1 ? 1 : 2);
+            }
+            if (Bytecodes.canTrap(opcode) || Bytecodes.isInvoke(opcode)) {
+                summary.add(profilingInfo.getExceptionSeen(bci));
+                summary.add(profilingInfo.getNullSeen(bci));
+                JavaTypeProfile typeProfile = profilingInfo.getTypeProfile(bci);
+                if (typeProfile != null) {
+                    Set<ResolvedJavaType> types = new HashSet<>();
+                    for (ProfiledType type : typeProfile.getTypes()) {
+                        types.add(type.getType());
+                    }
+                    summary.add(types);
+                    summary.add(typeProfile.getNotRecordedProbability() > 0);
+                } else {
+                    summary.add(null);
+                }
+            }
+            stream.next();
+        }
+        return summary;
+    }
+
+    /**
+     * Identifies the compilations that produce the same result.
+     */
+    public static final class Key {
+
+        private final HotSpotResolvedJavaMethod method;
+        private final int entryBCI;
+        private final byte[] code;
+        private final int failedSpeculationCount;
+        private final OptimisticOptimizations optimisticOpts;
+        private final List<Object> profileSummary;
+        private final int hash;
+
+        Key(HotSpotResolvedJavaMethod method, int entryBCI, byte[] code, int failedSpeculationCount, OptimisticOptimizations optimisticOpts, List<Object> profileSummary) {
+            this.method = method;
+            this.entryBCI = entryBCI;
+            this.code = code;
+            this.failedSpeculationCount = failedSpeculationCount;
+            this.optimisticOpts = optimisticOpts;
+            this.profileSummary = profileSummary;
+            this.hash = (method.hashCode() * 31 + entryBCI) * 31 + Arrays.hashCode(code) + profileSummary.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return hash == other.hash && method.equals(other.method) && entryBCI == other.entryBCI && failedSpeculationCount == other.failedSpeculationCount &&
+                                optimisticOpts.equals(other.optimisticOpts) && Arrays.equals(code, other.code) && profileSummary.equals(other.profileSummary);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return method.format("%H.%n(%p)") + "@" + entryBCI;
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.util.*;
 import java.util.concurrent.*;
 
 import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.phases.*;
 import com.sun.management.ThreadMXBean;
 
 @SuppressWarnings("unused")
@@ -76,6 +77,9 @@ public final class CompilationStatistics {
     private int codeSize;
     @TimeValue private long duration;
     private long memoryUsed;
+    private boolean budgetExceeded;
+    private int skippedPhases;
+    private int stoppedInlining;
     private final boolean osr;
     private final String holder;
     private final String name;
@@ -110,6 +114,17 @@ public final class CompilationStatistics {
         }
     }
 
+    /**
+     * Records whether the compilation exceeded its {@link CompilationBudget} and how it degraded.
+     */
+    public void recordBudget(CompilationBudget budget) {
+        if (ENABLED) {
+            budgetExceeded = budget.isExceeded();
+            skippedPhases = budget.getSkippedPhases();
+            stoppedInlining = budget.getStoppedInlining();
+        }
+    }
+
     public static CompilationStatistics current() {
         return current.get().isEmpty() ? null : current.get().getLast();
     }
@@ -74,6 +74,8 @@ public class CompilationTask {
 
     private static final DebugMetric BAILOUTS = Debug.metric("Bailouts");
 
+    private static final CompilationResultCache resultCache = new CompilationResultCache();
+
     private final HotSpotBackend backend;
     private final HotSpotResolvedJavaMethod method;
     private final int entryBCI;
@@ -87,6 +89,11 @@ public class CompilationTask {
 
     private StructuredGraph graph;
 
+    /**
+     * The size of the code produced by this task, or -1 if no code was produced.
+     */
+    private int targetCodeSize = -1;
+
     /**
      * A {@link com.sun.management.ThreadMXBean} to be able to query some information about the
      * current compiler thread, e.g. total allocated bytes.
@@ -125,6 +132,22 @@ public class CompilationTask {
         return entryBCI;
     }
 
+    /**
+     * Gets the number of nodes in the graph at the end of the compilation, or -1 if no graph was
+     * built.
+     */
+    public int getGraphNodeCount() {
+        return graph == null ? -1 : graph.getNodeCount();
+    }
+
+    /**
+     * Gets the size of the code produced by this task, or -1 if the compilation did not produce
+     * code.
+     */
+    public int getTargetCodeSize() {
+        return targetCodeSize;
+    }
+
     /**
      * Time spent in compilation.
      */
@@ -183,11 +206,13 @@ public class CompilationTask {
             }
 
             CompilationResult result = null;
+            CompilationResultCache.Key resultCacheKey = null;
+            boolean cachedResult = false;
             TTY.Filter filter = new TTY.Filter(PrintFilter.getValue(), method);
             final long start = System.currentTimeMillis();
             final long allocatedBytesBefore = threadMXBean.getThreadAllocatedBytes(threadId);
 
-            try (Scope s = Debug.scope("Compiling", new DebugDumpScope(String.valueOf(id), true))) {
+            try (Scope s = Debug.scope("Compiling", new DebugDumpScope(String.valueOf(id), true)); CompilationBudget.Scope budget = CompilationBudget.open()) {
                 // Begin the compilation event.
                 compilationEvent.begin();
 
@@ -197,37 +222,30 @@ public class CompilationTask {
                     OptimisticOptimizations optimisticOpts = OptimisticOptimizations.ALL;
                     result = baselineCompiler.generate(method, -1, backend, new CompilationResult(), method, CompilationResultBuilderFactory.Default, optimisticOpts);
                 } else {
-                    Map<ResolvedJavaMethod, StructuredGraph> graphCache = null;
-                    if (GraalOptions.CacheGraphs.getValue()) {
-                        graphCache = new HashMap<>();
-                    }
-
                     HotSpotProviders providers = backend.getProviders();
-                    Replacements replacements = providers.getReplacements();
-                    graph = replacements.getMethodSubstitution(method);
-                    if (graph == null || entryBCI != INVOCATION_ENTRY_BCI) {
-                        graph = new StructuredGraph(method, entryBCI);
-                    } else {
-                        // Compiling method substitution - must clone the graph
-                        graph = graph.copy();
-                    }
-                    InlinedBytecodes.add(method.getCodeSize());
-                    CallingConvention cc = getCallingConvention(providers.getCodeCache(), Type.JavaCallee, graph.method(), false);
-                    if (graph.getEntryBCI() != StructuredGraph.INVOCATION_ENTRY_BCI) {
-                        // for OSR, only a pointer is passed to the method.
-                        JavaType[] parameterTypes = new JavaType[]{providers.getMetaAccess().lookupJavaType(long.class)};
-                        CallingConvention tmp = providers.getCodeCache().getRegisterConfig().getCallingConvention(JavaCallee, providers.getMetaAccess().lookupJavaType(void.class), parameterTypes,
-                                        backend.getTarget(), false);
-                        cc = new CallingConvention(cc.getStackSize(), cc.getReturn(), tmp.getArgument(0));
-                    }
-                    Suites suites = getSuites(providers);
                     ProfilingInfo profilingInfo = getProfilingInfo();
                     OptimisticOptimizations optimisticOpts = getOptimisticOpts(profilingInfo);
-                    result = compileGraph(graph, null, cc, method, providers, backend, backend.getTarget(), graphCache, getGraphBuilderSuite(providers), optimisticOpts, profilingInfo,
-                                    method.getSpeculationLog(), suites, new CompilationResult(), CompilationResultBuilderFactory.Default);
+                    if (CompilationResultCache.isEnabled()) {
+                        resultCacheKey = CompilationResultCache.createKey(method, entryBCI, profilingInfo, optimisticOpts);
+                        CompilationResult cached = resultCache.lookup(resultCacheKey);
+                        if (cached != null) {
+                            installedCode = installCachedResult(cached, resultCacheKey);
+                            if (installedCode != null) {
+                                result = cached;
+                                cachedResult = true;
+                            }
+                        }
+                    }
+                    if (!cachedResult) {
+                        result = compile(providers, profilingInfo, optimisticOpts);
+                    }
                 }
-                result.setId(getId());
-                result.setEntryBCI(entryBCI);
+                if (!cachedResult) {
+                    // a cached result is shared and must not be modified
+                    result.setId(getId());
+                    result.setEntryBCI(entryBCI);
+                }
+                stats.recordBudget(budget.getBudget());
             } catch (Throwable e) {
                 throw Debug.handle(e);
             } finally {
@@ -251,13 +269,19 @@ public class CompilationTask {
                 }
             }
 
-            try (TimerCloseable b = CodeInstallationTime.start()) {
-                installedCode = (HotSpotInstalledCode) installMethod(result);
-                if (!isOSR) {
-                    ProfilingInfo profile = method.getProfilingInfo();
-                    profile.setCompilerIRSize(StructuredGraph.class, graph.getNodeCount());
+            if (!cachedResult) {
+                try (TimerCloseable b = CodeInstallationTime.start()) {
+                    installedCode = (HotSpotInstalledCode) installMethod(result);
+                    if (resultCacheKey != null && installedCode.isValid()) {
+                        resultCache.put(resultCacheKey, result);
+                    }
+                    if (!isOSR) {
+                        ProfilingInfo profile = method.getProfilingInfo();
+                        profile.setCompilerIRSize(StructuredGraph.class, graph.getNodeCount());
+                    }
                 }
             }
+            targetCodeSize = result.getTargetCodeSize();
             stats.finish(method, installedCode);
         } catch (BailoutException bailout) {
             BAILOUTS.increment();
@@ -313,16 +337,62 @@ public class CompilationTask {
         }
     }
 
+    private CompilationResult compile(HotSpotProviders providers, ProfilingInfo profilingInfo, OptimisticOptimizations optimisticOpts) {
+        Map<ResolvedJavaMethod, StructuredGraph> graphCache = null;
+        if (GraalOptions.CacheGraphs.getValue()) {
+            graphCache = new HashMap<>();
+        }
+
+        Replacements replacements = providers.getReplacements();
+        graph = replacements.getMethodSubstitution(method);
+        if (graph == null || entryBCI != INVOCATION_ENTRY_BCI) {
+            graph = new StructuredGraph(method, entryBCI);
+        } else {
+            // Compiling method substitution - must clone the graph
+            graph = graph.copy();
+        }
+        InlinedBytecodes.add(method.getCodeSize());
+        CallingConvention cc = getCallingConvention(providers.getCodeCache(), Type.JavaCallee, graph.method(), false);
+        if (graph.getEntryBCI() != StructuredGraph.INVOCATION_ENTRY_BCI) {
+            // for OSR, only a pointer is passed to the method.
+            JavaType[] parameterTypes = new JavaType[]{providers.getMetaAccess().lookupJavaType(long.class)};
+            CallingConvention tmp = providers.getCodeCache().getRegisterConfig().getCallingConvention(JavaCallee, providers.getMetaAccess().lookupJavaType(void.class), parameterTypes,
+                            backend.getTarget(), false);
+            cc = new CallingConvention(cc.getStackSize(), cc.getReturn(), tmp.getArgument(0));
+        }
+        Suites suites = getSuites(providers);
+        return compileGraph(graph, null, cc, method, providers, backend, backend.getTarget(), graphCache, getGraphBuilderSuite(providers), optimisticOpts, profilingInfo, method.getSpeculationLog(),
+                        suites, new CompilationResult(), CompilationResultBuilderFactory.Default);
+    }
+
     private String getMethodDescription() {
         return String.format("%-6d Graal %-70s %-45s %-50s %s", id, method.getDeclaringClass().getName(), method.getName(), method.getSignature().toMethodDescriptor(),
                         entryBCI == StructuredGraph.INVOCATION_ENTRY_BCI ? "" : "(OSR@" + entryBCI + ") ");
     }
 
+    /**
+     * Installs a result from the {@link CompilationResultCache}.
+     *
+     * @return the installed code or null if the code could not be installed, e.g., because an
+     *         assumption of the result no longer holds, in which case the entry is evicted
+     */
+    private HotSpotInstalledCode installCachedResult(CompilationResult cached, CompilationResultCache.Key key) {
+        HotSpotInstalledCode installedCode;
+        try (TimerCloseable b = CodeInstallationTime.start()) {
+            installedCode = (HotSpotInstalledCode) installMethod(cached);
+        }
+        if (!installedCode.isValid()) {
+            resultCache.evict(key);
+            return null;
+        }
+        return installedCode;
+    }
+
     private InstalledCode installMethod(final CompilationResult compResult) {
         final HotSpotCodeCacheProvider codeCache = backend.getProviders().getCodeCache();
         InstalledCode installedCode = null;
         try (Scope s = Debug.scope("CodeInstall", new DebugDumpScope(String.valueOf(id), true), codeCache, method)) {
-            installedCode = codeCache.installMethod(method, compResult, ctask, installAsDefault);
+            installedCode = codeCache.installMethod(method, compResult, id, entryBCI, ctask, installAsDefault);
         } catch (Throwable e) {
             throw Debug.handle(e);
         }
@@ -32,17 +32,21 @@ import java.io.*;
 import java.lang.reflect.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.jar.*;
 
 import com.oracle.graal.api.meta.*;
 import com.oracle.graal.api.meta.ProfilingInfo.TriState;
 import com.oracle.graal.bytecode.*;
+import com.oracle.graal.compiler.*;
 import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.hotspot.HotSpotOptions.OptionConsumer;
 import com.oracle.graal.hotspot.meta.*;
 import com.oracle.graal.options.*;
 import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.printer.*;
 import com.oracle.graal.replacements.*;
 
 /**
@@ -71,6 +75,12 @@ public final class CompileTheWorld {
                        "to disable inlining and partial escape analysis specify '-PartialEscapeAnalysis -Inline'. " +
                        "The format for each option is the same as on the command line just without the '-G:' prefix.")
         public static final OptionValue<String> CompileTheWorldConfig = new OptionValue<>(null);
+        @Option(help = "Number of threads compiling the classes found by CompileTheWorld in parallel")
+        public static final OptionValue<Integer> CompileTheWorldThreads = new OptionValue<>(1);
+        @Option(help = "File to which CompileTheWorld writes the compile time, allocated bytes, graph node count " +
+                       "and code size of each compiled method. The report is written in JSON format if the " +
+                       "file name ends with '.json' and in CSV format otherwise.")
+        public static final OptionValue<String> CompileTheWorldReport = new OptionValue<>(null);
         // @formatter:on
 
         /**
@@ -155,11 +165,23 @@ public final class CompileTheWorld {
     /** Class index to stop compilation at (see {@link Options#CompileTheWorldStopAt}). */
     private final int stopAt;
 
+    /** Number of compiler threads (see {@link Options#CompileTheWorldThreads}). */
+    private final int threads;
+
+    /** File to which the per-method report is written (see {@link Options#CompileTheWorldReport}). */
+    private final String reportFile;
+
     // Counters
     private int classFileCounter = 0;
-    private int compiledMethodsCounter = 0;
-    private long compileTime = 0;
-    private long memoryUsed = 0;
+    private final AtomicInteger compiledMethodsCounter = new AtomicInteger();
+    private final AtomicLong compileTime = new AtomicLong();
+    private final AtomicLong memoryUsed = new AtomicLong();
+
+    /**
+     * Statistics of the methods compiled so far. Only collected if there is a
+     * {@link #reportFile}.
+     */
+    private final List<MethodStatistics> methodStatistics;
 
     private boolean verbose;
     private final Config config;
@@ -172,9 +194,26 @@ public final class CompileTheWorld {
      * @param stopAt index of the class file to stop compilation at
      */
     public CompileTheWorld(String files, Config config, int startAt, int stopAt, boolean verbose) {
+        this(files, config, startAt, stopAt, 1, null, verbose);
+    }
+
+    /**
+     * Creates a compile-the-world instance.
+     *
+     * @param files {@link File#pathSeparator} separated list of Zip/Jar files to compile
+     * @param startAt index of the class file to start compilation at
+     * @param stopAt index of the class file to stop compilation at
+     * @param threads number of threads compiling classes in parallel
+     * @param reportFile file to which per-method statistics are written or null if no report is
+     *            to be written
+     */
+    public CompileTheWorld(String files, Config config, int startAt, int stopAt, int threads, String reportFile, boolean verbose) {
         this.files = files;
         this.startAt = startAt;
         this.stopAt = stopAt;
+        this.threads = Math.max(1, threads);
+        this.reportFile = reportFile;
+        this.methodStatistics = reportFile == null ? null : Collections.synchronizedList(new ArrayList<>());
         this.verbose = verbose;
         this.config = config;
 
@@ -236,6 +275,21 @@ public final class CompileTheWorld {
      */
     private void compile(String fileList) throws Throwable {
         final String[] entries = fileList.split(File.pathSeparator);
+        long start = System.currentTimeMillis();
+
+        ThreadPoolExecutor executor = null;
+        if (threads > 1) {
+            CompilerThreadFactory factory = new CompilerThreadFactory("CompileTheWorld", new CompilerThreadFactory.DebugConfigAccess() {
+                public GraalDebugConfig getDebugConfig() {
+                    return Debug.isEnabled() ? DebugEnvironment.initialize(TTY.out().out()) : null;
+                }
+            });
+            /*
+             * The queue is bounded so that class loading does not run too far ahead of
+             * compilation. If it is full, the loading thread compiles the class itself.
+             */
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 4), factory, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
 
         try (AutoCloseable s = config.apply()) {
             for (int i = 0; i < entries.length; i++) {
@@ -292,19 +346,30 @@ public final class CompileTheWorld {
                         if (classFileCounter >= startAt) {
                             println("CompileTheWorld (%d) : %s", classFileCounter, className);
 
-                            // Compile each constructor/method in the class.
+                            // Collect each constructor/method in the class.
+                            List<HotSpotResolvedJavaMethod> methods = new ArrayList<>();
                             for (Constructor<?> constructor : javaClass.getDeclaredConstructors()) {
                                 HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) metaAccess.lookupJavaConstructor(constructor);
                                 if (canBeCompiled(javaMethod, constructor.getModifiers())) {
-                                    compileMethod(javaMethod);
+                                    methods.add(javaMethod);
                                 }
                             }
                             for (Method method : javaClass.getDeclaredMethods()) {
                                 HotSpotResolvedJavaMethod javaMethod = (HotSpotResolvedJavaMethod) metaAccess.lookupJavaMethod(method);
                                 if (canBeCompiled(javaMethod, method.getModifiers())) {
-                                    compileMethod(javaMethod);
+                                    methods.add(javaMethod);
                                 }
                             }
+                            if (executor == null) {
+                                compileMethods(classFileCounter, methods);
+                            } else {
+                                final int classIndex = classFileCounter;
+                                executor.execute(() -> {
+                                    try (OverrideScope scope = OptionValue.override(config)) {
+                                        compileMethods(classIndex, methods);
+                                    }
+                                });
+                            }
                         }
                     } catch (Throwable t) {
                         println("CompileTheWorld (%d) : Skipping %s", classFileCounter, className);
@@ -312,10 +377,32 @@ public final class CompileTheWorld {
                 }
                 jarFile.close();
             }
+
+            if (executor != null) {
+                executor.shutdown();
+                while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // wait for the remaining compilations
+                }
+            }
         }
 
         println();
-        println("CompileTheWorld : Done (%d classes, %d methods, %d ms, %d bytes of memory used)", classFileCounter, compiledMethodsCounter, compileTime, memoryUsed);
+        if (threads > 1) {
+            println("CompileTheWorld : Done (%d classes, %d methods, %d ms on %d threads, %d ms elapsed, %d bytes of memory used)", classFileCounter, compiledMethodsCounter.get(), compileTime.get(),
+                            threads, System.currentTimeMillis() - start, memoryUsed.get());
+        } else {
+            println("CompileTheWorld : Done (%d classes, %d methods, %d ms, %d bytes of memory used)", classFileCounter, compiledMethodsCounter.get(), compileTime.get(), memoryUsed.get());
+        }
+        if (reportFile != null) {
+            writeReport(reportFile);
+            println("CompileTheWorld : Report written to %s", reportFile);
+        }
+    }
+
+    private void compileMethods(int classIndex, List<HotSpotResolvedJavaMethod> methods) {
+        for (HotSpotResolvedJavaMethod method : methods) {
+            compileMethod(classIndex, method);
+        }
     }
 
     class CTWCompilationTask extends CompilationTask {
@@ -337,25 +424,100 @@ public final class CompileTheWorld {
     /**
      * Compiles a method and gathers some statistics.
      */
-    private void compileMethod(HotSpotResolvedJavaMethod method) {
+    private void compileMethod(int classIndex, HotSpotResolvedJavaMethod method) {
         try {
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             long allocatedAtStart = getCurrentThreadAllocatedBytes();
 
             HotSpotBackend backend = runtime.getHostBackend();
             CompilationTask task = new CTWCompilationTask(backend, method);
             task.runCompilation();
 
-            memoryUsed += getCurrentThreadAllocatedBytes() - allocatedAtStart;
-            compileTime += (System.currentTimeMillis() - start);
-            compiledMethodsCounter++;
+            long allocated = getCurrentThreadAllocatedBytes() - allocatedAtStart;
+            long time = System.nanoTime() - start;
+            memoryUsed.addAndGet(allocated);
+            compileTime.addAndGet(TimeUnit.NANOSECONDS.toMillis(time));
+            compiledMethodsCounter.incrementAndGet();
+            if (methodStatistics != null) {
+                methodStatistics.add(new MethodStatistics(classIndex, method.getDeclaringClass().toJavaName(), method.format("%H.%n(%p)"), time, allocated, task.getGraphNodeCount(), task.getTargetCodeSize()));
+            }
         } catch (Throwable t) {
             // Catch everything and print a message
-            println("CompileTheWorld (%d) : Error compiling method: %s", classFileCounter, method.format("%H.%n(%p):%r"));
+            println("CompileTheWorld (%d) : Error compiling method: %s", classIndex, method.format("%H.%n(%p):%r"));
             t.printStackTrace(TTY.cachedOut);
         }
     }
 
+    /**
+     * Statistics about the compilation of a single method.
+     */
+    static final class MethodStatistics implements Comparable<MethodStatistics> {
+
+        final int classIndex;
+        final String className;
+        final String method;
+        final long compileTimeNanos;
+        final long allocatedBytes;
+        final int nodeCount;
+        final int codeSize;
+
+        MethodStatistics(int classIndex, String className, String method, long compileTimeNanos, long allocatedBytes, int nodeCount, int codeSize) {
+            this.classIndex = classIndex;
+            this.className = className;
+            this.method = method;
+            this.compileTimeNanos = compileTimeNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.nodeCount = nodeCount;
+            this.codeSize = codeSize;
+        }
+
+        public int compareTo(MethodStatistics o) {
+            return Integer.compare(classIndex, o.classIndex);
+        }
+    }
+
+    /**
+     * Writes the statistics of all compiled methods to a file, in class file order. A node count or
+     * code size of -1 denotes a compilation that did not produce code.
+     */
+    private void writeReport(String fileName) throws IOException {
+        List<MethodStatistics> statistics;
+        synchronized (methodStatistics) {
+            statistics = new ArrayList<>(methodStatistics);
+        }
+        // stable sort, so methods of a class remain in compilation order
+        Collections.sort(statistics);
+        boolean json = fileName.endsWith(".json");
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            if (json) {
+                out.println("[");
+            } else {
+                out.println("classIndex,class,method,compileTimeNanos,allocatedBytes,nodeCount,codeSize");
+            }
+            for (int i = 0; i < statistics.size(); i++) {
+                MethodStatistics m = statistics.get(i);
+                if (json) {
+                    String separator = i == statistics.size() - 1 ? "" : ",";
+                    out.printf("  {\"classIndex\": %d, \"class\": \"%s\", \"method\": \"%s\", \"compileTimeNanos\": %d, \"allocatedBytes\": %d, \"nodeCount\": %d, \"codeSize\": %d}%s%n",
+                                    m.classIndex, jsonEscape(m.className), jsonEscape(m.method), m.compileTimeNanos, m.allocatedBytes, m.nodeCount, m.codeSize, separator);
+                } else {
+                    out.printf("%d,\"%s\",\"%s\",%d,%d,%d,%d%n", m.classIndex, csvEscape(m.className), csvEscape(m.method), m.compileTimeNanos, m.allocatedBytes, m.nodeCount, m.codeSize);
+                }
+            }
+            if (json) {
+                out.println("]");
+            }
+        }
+    }
+
+    private static String jsonEscape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String csvEscape(String s) {
+        return s.replace("\"", "\"\"");
+    }
+
     /**
      * Determines if a method should be compiled (Cf. CompilationPolicy::can_be_compiled).
      *
@@ -94,7 +94,10 @@ public abstract class HotSpotCompiledCode extends CompilerObject {
         assert validateFrames();
 
         DataSection data = compResult.getDataSection();
-        data.finalizeLayout();
+        if (!data.isFinalized()) {
+            // the layout of a result that is installed more than once is only computed once
+            data.finalizeLayout();
+        }
         dataSection = new byte[data.getSectionSize()];
 
         ByteBuffer buffer = ByteBuffer.wrap(dataSection).order(ByteOrder.nativeOrder());
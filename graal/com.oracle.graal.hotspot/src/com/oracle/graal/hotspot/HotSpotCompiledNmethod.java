@@ -41,10 +41,18 @@ public final class HotSpotCompiledNmethod extends HotSpotCompiledCode {
     }
 
     public HotSpotCompiledNmethod(HotSpotResolvedJavaMethod method, CompilationResult compResult, long ctask) {
+        this(method, compResult, compResult.getId(), compResult.getEntryBCI(), ctask);
+    }
+
+    /**
+     * Creates the code to be installed for {@code compResult} with a compile id and entry BCI that
+     * may differ from those recorded in {@code compResult}.
+     */
+    public HotSpotCompiledNmethod(HotSpotResolvedJavaMethod method, CompilationResult compResult, int id, int entryBCI, long ctask) {
         super(compResult);
         this.method = method;
-        this.entryBCI = compResult.getEntryBCI();
-        this.id = compResult.getId();
+        this.entryBCI = entryBCI;
+        this.id = id;
         this.ctask = ctask;
     }
 }
@@ -29,6 +29,7 @@ import com.oracle.graal.graph.*;
 import com.oracle.graal.hotspot.meta.*;
 import com.oracle.graal.lir.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
 
 /**
  * Extends {@link DebugInfoBuilder} to allocate the extra debug information required for locks.
@@ -55,8 +56,9 @@ public class HotSpotDebugInfoBuilder extends DebugInfoBuilder {
         StackSlot slot = lockStack.makeLockSlot(lockDepth);
         ValueNode lock = state.lockAt(lockIndex);
         Value object = toValue(lock);
-        boolean eliminated = object instanceof VirtualObject && state.monitorIdAt(lockIndex) != null;
-        assert state.monitorIdAt(lockIndex) == null || state.monitorIdAt(lockIndex).getLockDepth() == lockDepth;
+        MonitorIdNode monitorId = state.monitorIdAt(lockIndex);
+        boolean eliminated = monitorId != null && (object instanceof VirtualObject || monitorId.isEliminated());
+        assert monitorId == null || monitorId.getLockDepth() == lockDepth;
         return new HotSpotMonitorValue(object, slot, eliminated);
     }
 
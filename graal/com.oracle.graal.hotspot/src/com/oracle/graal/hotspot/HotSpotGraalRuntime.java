@@ -50,6 +50,7 @@ import com.oracle.graal.hotspot.debug.*;
 import com.oracle.graal.hotspot.events.*;
 import com.oracle.graal.hotspot.logging.*;
 import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.nodes.spi.*;
 import com.oracle.graal.options.*;
 import com.oracle.graal.printer.*;
 import com.oracle.graal.replacements.*;
@@ -575,7 +576,7 @@ public final class HotSpotGraalRuntime implements GraalRuntime, RuntimeProvider,
             getCompilerToVM().resetCompilationStatistics();
             TTY.println("CompileTheWorld : iteration " + i);
             CompileTheWorld ctw = new CompileTheWorld(CompileTheWorldClasspath.getValue(), new Config(CompileTheWorldConfig.getValue()), CompileTheWorldStartAt.getValue(),
-                            CompileTheWorldStopAt.getValue(), CompileTheWorldVerbose.getValue());
+                            CompileTheWorldStopAt.getValue(), CompileTheWorldThreads.getValue(), CompileTheWorldReport.getValue(), CompileTheWorldVerbose.getValue());
             ctw.compile();
         }
         System.exit(0);
@@ -593,6 +594,11 @@ public final class HotSpotGraalRuntime implements GraalRuntime, RuntimeProvider,
         }
         phaseTransition("final");
 
+        Replacements replacements = getHostProviders().getReplacements();
+        if (replacements instanceof ReplacementsImpl) {
+            ((ReplacementsImpl) replacements).persistSnippetGraphCache();
+        }
+
         SnippetCounter.printGroups(TTY.out().out());
         BenchmarkCounters.shutdown(getCompilerToVM(), runtimeStartTime);
     }
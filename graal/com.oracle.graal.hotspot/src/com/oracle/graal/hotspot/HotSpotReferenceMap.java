@@ -79,6 +79,33 @@ public class HotSpotReferenceMap implements ReferenceMap, Serializable {
         this.target = target;
     }
 
+    /**
+     * Creates a reference map with the given bits, e.g., for a map that was transferred from
+     * another VM.
+     */
+    public HotSpotReferenceMap(BitSet registerRefMap, BitSet frameRefMap, TargetDescription target) {
+        this.registerRefMap = registerRefMap;
+        this.frameRefMap = frameRefMap;
+        this.target = target;
+    }
+
+    /**
+     * Gets the register bits, or null if this map has no register bits. The VM reads as many
+     * registers from the map as fit into its {@linkplain BitSet#size() size}. The returned set must
+     * not be modified.
+     */
+    public BitSet getRegisterRefMap() {
+        return registerRefMap;
+    }
+
+    /**
+     * Gets the stack slot bits. The VM reads as many stack slots from the map as fit into its
+     * {@linkplain BitSet#size() size}. The returned set must not be modified.
+     */
+    public BitSet getFrameRefMap() {
+        return frameRefMap;
+    }
+
     private static void setOop(BitSet map, int startIdx, LIRKind kind) {
         int length = kind.getPlatformKind().getVectorLength();
         map.clear(BITS_PER_WORD * startIdx, BITS_PER_WORD * (startIdx + length) - 1);
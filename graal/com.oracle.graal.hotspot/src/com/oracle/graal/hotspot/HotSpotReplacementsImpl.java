@@ -22,7 +22,12 @@
  */
 package com.oracle.graal.hotspot;
 
+import java.io.*;
 import java.lang.reflect.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
@@ -45,6 +50,81 @@ public class HotSpotReplacementsImpl extends ReplacementsImpl {
     public HotSpotReplacementsImpl(Providers providers, SnippetReflectionProvider snippetReflection, HotSpotVMConfig config, Assumptions assumptions, TargetDescription target) {
         super(providers, snippetReflection, assumptions, target);
         this.config = config;
+        String cacheFile = SnippetGraphCache.Options.SnippetGraphCacheFile.getValue();
+        if (cacheFile != null) {
+            this.snippetGraphCache = new SnippetGraphCache(providers.getMetaAccess(), snippetReflection, new File(cacheFile), snippetGraphCacheKey(config));
+        }
+    }
+
+    /**
+     * Computes the key identifying the graphs that can be read from the snippet graph cache.
+     * Snippet graphs fold values of the {@link HotSpotVMConfig} (e.g. offsets and flags) and so the
+     * key includes these values besides the VM version and the Graal build.
+     */
+    private static String snippetGraphCacheKey(HotSpotVMConfig config) {
+        long configHash = 0;
+        for (Field field : HotSpotVMConfig.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && (field.getType().isPrimitive() || field.getType() == String.class)) {
+                try {
+                    field.setAccessible(true);
+                    configHash = configHash * 31 + field.getName().hashCode();
+                    configHash = configHash * 31 + String.valueOf(field.get(config)).hashCode();
+                } catch (IllegalAccessException e) {
+                    throw new GraalInternalError(e);
+                }
+            }
+        }
+        String build = "";
+        CodeSource codeSource = HotSpotReplacementsImpl.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) {
+            File location = new File(codeSource.getLocation().getPath());
+            if (location.isDirectory()) {
+                build = buildStamp(location);
+            } else {
+                build = location.getPath() + ":" + location.length() + ":" + location.lastModified();
+            }
+        }
+        return System.getProperty("java.vm.version") + "|" + build + "|" + Long.toHexString(configHash);
+    }
+
+    /**
+     * Computes a stamp for Graal classes loaded from a class directory. The modification time of a
+     * directory does not change if a class file in it is overwritten, so the stamp is computed from
+     * the class files themselves. In an mx source tree each project has its own {@code bin}
+     * directory, so the directories of all sibling projects are included.
+     */
+    private static String buildStamp(File location) {
+        List<File> directories = new ArrayList<>();
+        File project = location.getAbsoluteFile().getParentFile();
+        File[] projects = project == null || project.getParentFile() == null ? null : project.getParentFile().listFiles();
+        if (projects != null && location.getName().equals("bin")) {
+            Arrays.sort(projects);
+            for (File p : projects) {
+                File bin = new File(p, location.getName());
+                if (bin.isDirectory()) {
+                    directories.add(bin);
+                }
+            }
+        } else {
+            directories.add(location);
+        }
+        long[] stamp = new long[3];
+        for (File directory : directories) {
+            try {
+                Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        stamp[0]++;
+                        stamp[1] += attrs.size();
+                        stamp[2] = Math.max(stamp[2], attrs.lastModifiedTime().toMillis());
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                // an unreadable directory gives a stamp that differs from that of a complete one
+            }
+        }
+        return location.getPath() + ":" + stamp[0] + ":" + stamp[1] + ":" + stamp[2];
     }
 
     @Override
@@ -69,10 +149,11 @@ public class HotSpotReplacementsImpl extends ReplacementsImpl {
             if (!config.useCRC32Intrinsics) {
                 return null;
             }
-        } else if (substituteClass == StringSubstitutions.class) {
+        } else if (substituteClass == StringSubstitutions.class || substituteClass == ISO8859_1EncoderSubstitutions.class) {
             /*
-             * AMD64's String.equals substitution needs about 8 registers so we better disable the
-             * substitution if there is some register pressure.
+             * AMD64's String.equals substitution needs about 8 registers and the String.indexOf,
+             * String.compareTo and ISO-8859-1 encoding substitutions need rax, rcx and rdx, so we
+             * better disable the substitutions if there is some register pressure.
              */
             if (GraalOptions.RegisterPressure.getValue() != null) {
                 return null;
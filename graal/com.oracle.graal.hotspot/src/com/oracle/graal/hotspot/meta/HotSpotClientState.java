@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.meta;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.meta.ProfilingInfo.TriState;
+
+/**
+ * The profiling information and class initialization state of another VM for which the current
+ * thread compiles code, e.g., on behalf of a remote compilation client. While a state is
+ * {@linkplain #enter() entered}, {@link HotSpotResolvedJavaMethod#getProfilingInfo()} returns the
+ * profiles of the other VM and a type is only {@linkplain HotSpotResolvedObjectType#isInitialized()
+ * initialized} if it is initialized in both VMs.
+ */
+public final class HotSpotClientState {
+
+    private static final ThreadLocal<HotSpotClientState> current = new ThreadLocal<>();
+
+    /**
+     * Graal's own classes are never initialized by compiled application code. Snippets fold their
+     * static final fields, which must therefore stay constant even though the other VM does not
+     * report them.
+     */
+    private static final String GRAAL_PACKAGE_PREFIX = "Lcom/oracle/graal/";
+
+    private final Map<ResolvedJavaMethod, ProfilingInfo> profiles;
+    private final Set<ResolvedJavaType> initializedTypes;
+
+    /**
+     * @param profiles the profiles of the other VM. Methods without an entry are treated as not
+     *            being profiled.
+     * @param initializedTypes the types initialized in the other VM
+     */
+    public HotSpotClientState(Map<ResolvedJavaMethod, ProfilingInfo> profiles, Set<ResolvedJavaType> initializedTypes) {
+        this.profiles = profiles;
+        this.initializedTypes = initializedTypes;
+    }
+
+    /**
+     * Gets the state entered by the current thread or null if the current thread compiles for this
+     * VM.
+     */
+    public static HotSpotClientState current() {
+        return current.get();
+    }
+
+    /**
+     * Makes this the state of the current thread until the returned scope is closed.
+     */
+    public Scope enter() {
+        return new Scope(this);
+    }
+
+    public ProfilingInfo getProfilingInfo(ResolvedJavaMethod method) {
+        ProfilingInfo info = profiles.get(method);
+        return info == null ? DefaultProfilingInfo.get(TriState.UNKNOWN) : info;
+    }
+
+    public boolean isInitialized(ResolvedJavaType type) {
+        return initializedTypes.contains(type) || type.getName().startsWith(GRAAL_PACKAGE_PREFIX);
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final HotSpotClientState previous;
+
+        private Scope(HotSpotClientState state) {
+            previous = current.get();
+            current.set(state);
+        }
+
+        @Override
+        public void close() {
+            current.set(previous);
+        }
+    }
+}
@@ -213,6 +213,17 @@ public class HotSpotCodeCacheProvider implements CodeCacheProvider {
         return logOrDump(installedCode, compResult);
     }
 
+    /**
+     * Installs {@code compResult} with the given compile id and entry BCI without modifying
+     * {@code compResult}, which may be shared with other compiler threads, e.g., if it comes from
+     * a cache.
+     */
+    public InstalledCode installMethod(HotSpotResolvedJavaMethod method, CompilationResult compResult, int id, int entryBCI, long ctask, boolean isDefault) {
+        HotSpotInstalledCode installedCode = new HotSpotNmethod(method, compResult.getName(), isDefault);
+        runtime.getCompilerToVM().installCode(new HotSpotCompiledNmethod(method, compResult, id, entryBCI, ctask), installedCode, method.getSpeculationLog());
+        return logOrDump(installedCode, compResult);
+    }
+
     @Override
     public InstalledCode addMethod(ResolvedJavaMethod method, CompilationResult compResult, SpeculationLog log, InstalledCode predefinedInstalledCode) {
         HotSpotResolvedJavaMethod hotspotMethod = (HotSpotResolvedJavaMethod) method;
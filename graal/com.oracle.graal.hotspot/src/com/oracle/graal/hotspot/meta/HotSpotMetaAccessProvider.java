@@ -230,6 +230,8 @@ public class HotSpotMetaAccessProvider implements MetaAccessProvider {
                 return config.deoptReasonConstraint;
             case LoopLimitCheck:
                 return config.deoptReasonLoopLimitCheck;
+            case LoopPredicate:
+                return config.deoptReasonLoopPredicate;
             case Aliasing:
                 return config.deoptReasonAliasing;
             case TransferToInterpreter:
@@ -283,6 +285,9 @@ public class HotSpotMetaAccessProvider implements MetaAccessProvider {
         if (reason == config.deoptReasonLoopLimitCheck) {
             return DeoptimizationReason.LoopLimitCheck;
         }
+        if (reason == config.deoptReasonLoopPredicate) {
+            return DeoptimizationReason.LoopPredicate;
+        }
         if (reason == config.deoptReasonAliasing) {
             return DeoptimizationReason.Aliasing;
         }
@@ -38,6 +38,10 @@ public final class HotSpotMetaspaceConstant extends PrimitiveConstant implements
         return ((HotSpotMetaspaceConstant) constant).metaspaceObject;
     }
 
+    public static boolean isCompressed(Constant constant) {
+        return ((HotSpotMetaspaceConstant) constant).compressed;
+    }
+
     private final Object metaspaceObject;
     private final boolean compressed;
 
@@ -417,6 +417,10 @@ public final class HotSpotResolvedJavaMethod extends HotSpotMethod implements Re
     }
 
     private ProfilingInfo getProfilingInfo(boolean includeNormal, boolean includeOSR) {
+        HotSpotClientState clientState = HotSpotClientState.current();
+        if (clientState != null) {
+            return clientState.getProfilingInfo(this);
+        }
         ProfilingInfo info;
 
         if (UseProfilingInformation.getValue() && methodData == null) {
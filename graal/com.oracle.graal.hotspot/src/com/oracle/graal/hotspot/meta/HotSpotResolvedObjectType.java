@@ -302,6 +302,11 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public boolean isInitialized() {
+        HotSpotClientState clientState = HotSpotClientState.current();
+        return isFullyInitialized() && (clientState == null || clientState.isInitialized(this));
+    }
+
+    private boolean isFullyInitialized() {
         return isArray() ? true : getInitState() == runtime().getConfig().instanceKlassStateFullyInitialized;
     }
 
@@ -323,9 +328,9 @@ public final class HotSpotResolvedObjectType extends HotSpotResolvedJavaType {
 
     @Override
     public void initialize() {
-        if (!isInitialized()) {
+        if (!isFullyInitialized()) {
             unsafe.ensureClassInitialized(mirror());
-            assert isInitialized();
+            assert isFullyInitialized();
         }
     }
 
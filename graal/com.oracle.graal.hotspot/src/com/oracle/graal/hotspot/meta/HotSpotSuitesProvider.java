@@ -77,6 +77,9 @@ public class HotSpotSuitesProvider implements SuitesProvider, Supplier<Suites> {
         if (VerifyPhases.getValue()) {
             ret.getMidTier().appendPhase(new WriteBarrierVerificationPhase());
         }
+        if (AllocationBatchingPhase.Options.OptAllocationBatching.getValue()) {
+            ret.getMidTier().appendPhase(new AllocationBatchingPhase(runtime.getTarget()));
+        }
 
         return ret;
     }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.hotspot.phases.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Reserves TLAB memory for a group of allocations with a single limit check. The value of this node
+ * is the address of the reserved memory or zero if the TLAB has no room for the whole group, in
+ * which case each {@link BatchedNewInstanceNode} and {@link BatchedNewArrayNode} of the group calls
+ * the runtime on its own.
+ *
+ * @see AllocationBatchingPhase
+ */
+@NodeInfo
+public class AllocationBatchNode extends FixedWithNextNode implements Lowerable {
+
+    protected final int size;
+
+    public static AllocationBatchNode create(Kind wordKind, int size) {
+        return new AllocationBatchNode(wordKind, size);
+    }
+
+    protected AllocationBatchNode(Kind wordKind, int size) {
+        super(StampFactory.forKind(wordKind));
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of bytes reserved for the group.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void lower(LoweringTool tool) {
+        tool.getLowerer().lower(this, tool);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.graph.spi.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+
+/**
+ * An instance allocation that takes its memory from an {@link AllocationBatchNode}.
+ */
+@NodeInfo(nameTemplate = "BatchedNew {p#instanceClass/s}")
+public class BatchedNewInstanceNode extends NewInstanceNode {
+
+    @Input ValueNode batch;
+    protected final int offset;
+
+    public static BatchedNewInstanceNode create(ResolvedJavaType type, boolean fillContents, ValueNode batch, int offset) {
+        return new BatchedNewInstanceNode(type, fillContents, batch, offset);
+    }
+
+    protected BatchedNewInstanceNode(ResolvedJavaType type, boolean fillContents, ValueNode batch, int offset) {
+        super(type, fillContents);
+        this.batch = batch;
+        this.offset = offset;
+    }
+
+    public ValueNode batch() {
+        return batch;
+    }
+
+    /**
+     * Gets the offset of this object in the memory reserved by {@link #batch()}.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    @Override
+    public void simplify(SimplifierTool tool) {
+        // the memory reserved for this object must be formatted even if the object is unused
+    }
+}
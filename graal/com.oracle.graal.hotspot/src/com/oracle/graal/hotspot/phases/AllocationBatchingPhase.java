@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.phases;
+
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.hotspot.*;
+import com.oracle.graal.hotspot.meta.*;
+import com.oracle.graal.hotspot.nodes.*;
+import com.oracle.graal.hotspot.replacements.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Groups allocations of a constant size that follow each other in a block so that their memory is
+ * reserved in the TLAB by a single {@link AllocationBatchNode}. The allocations of a group may only
+ * be separated by nodes that can neither deoptimize nor reach a safepoint, so that once the memory
+ * is reserved every allocation of the group formats its part of it before a GC can see the TLAB.
+ */
+public class AllocationBatchingPhase extends Phase {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Reserve the TLAB memory of consecutive allocations in a block with a single limit check")
+        public static final OptionValue<Boolean> OptAllocationBatching = new OptionValue<>(true);
+        @Option(help = "Maximum number of allocations whose memory is reserved together")
+        public static final OptionValue<Integer> AllocationBatchMaxCount = new OptionValue<>(8);
+        @Option(help = "Maximum number of bytes reserved for a group of allocations")
+        public static final OptionValue<Integer> AllocationBatchMaxSize = new OptionValue<>(512);
+        // @formatter:on
+    }
+
+    private static final DebugMetric metricBatches = Debug.metric("AllocationBatches");
+    private static final DebugMetric metricBatchedAllocations = Debug.metric("BatchedAllocations");
+
+    private final Kind wordKind;
+    private final int wordSize;
+
+    public AllocationBatchingPhase(TargetDescription target) {
+        this.wordKind = target.wordKind;
+        this.wordSize = target.wordSize;
+    }
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        int maxCount = Options.AllocationBatchMaxCount.getValue();
+        int maxSize = Options.AllocationBatchMaxSize.getValue();
+        for (BeginNode begin : graph.getNodes().filter(BeginNode.class).snapshot()) {
+            List<AbstractNewObjectNode> allocations = new ArrayList<>();
+            int batchSize = 0;
+            FixedNode node = begin;
+            while (node instanceof FixedWithNextNode) {
+                int size = node instanceof AbstractNewObjectNode ? allocationSize((AbstractNewObjectNode) node) : -1;
+                if (size > 0) {
+                    if (allocations.size() == maxCount || batchSize + size > maxSize) {
+                        createBatch(graph, allocations, batchSize);
+                        allocations.clear();
+                        batchSize = 0;
+                    }
+                    allocations.add((AbstractNewObjectNode) node);
+                    batchSize += size;
+                } else if (!canSeparateBatchedAllocations(node)) {
+                    createBatch(graph, allocations, batchSize);
+                    allocations.clear();
+                    batchSize = 0;
+                }
+                node = ((FixedWithNextNode) node).next();
+            }
+            createBatch(graph, allocations, batchSize);
+        }
+    }
+
+    /**
+     * Gets the number of bytes allocated by {@code allocation} or -1 if it cannot be part of a
+     * group.
+     */
+    private int allocationSize(AbstractNewObjectNode allocation) {
+        if (allocation.getClass() == NewInstanceNode.class) {
+            ResolvedJavaType type = ((NewInstanceNode) allocation).instanceClass();
+            if (type instanceof HotSpotResolvedObjectType) {
+                int size = ((HotSpotResolvedObjectType) type).instanceSize();
+                return size > 0 ? size : -1;
+            }
+        } else if (allocation.getClass() == NewArrayNode.class) {
+            NewArrayNode newArray = (NewArrayNode) allocation;
+            int maxSize = Options.AllocationBatchMaxSize.getValue();
+            if (newArray.length().isConstant() && newArray.length().asConstant().asInt() >= 0 && newArray.length().asConstant().asInt() <= maxSize) {
+                Kind elementKind = newArray.elementType().getKind();
+                int log2ElementSize = CodeUtil.log2(HotSpotGraalRuntime.getArrayIndexScale(elementKind));
+                int headerSize = HotSpotGraalRuntime.getArrayBaseOffset(elementKind);
+                int size = NewObjectSnippets.computeArrayAllocationSize(newArray.length().asConstant().asInt(), wordSize, headerSize, log2ElementSize);
+                return size <= maxSize ? size : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines if {@code node} may appear between two allocations of a group. Such a node must
+     * not deoptimize, throw an exception or reach a safepoint.
+     */
+    private static boolean canSeparateBatchedAllocations(FixedNode node) {
+        if (node instanceof DeoptimizingNode && ((DeoptimizingNode) node).canDeoptimize()) {
+            return false;
+        }
+        return node instanceof WriteNode || node instanceof ReadNode || node instanceof WriteBarrier || node instanceof MembarNode || node instanceof FixedValueAnchorNode ||
+                        node instanceof ValueAnchorNode;
+    }
+
+    private void createBatch(StructuredGraph graph, List<AbstractNewObjectNode> allocations, int batchSize) {
+        if (allocations.size() < 2) {
+            return;
+        }
+        AllocationBatchNode batch = graph.add(AllocationBatchNode.create(wordKind, batchSize));
+        graph.addBeforeFixed(allocations.get(0), batch);
+        int offset = 0;
+        for (AbstractNewObjectNode allocation : allocations) {
+            AbstractNewObjectNode batched;
+            if (allocation instanceof NewInstanceNode) {
+                batched = graph.add(BatchedNewInstanceNode.create(((NewInstanceNode) allocation).instanceClass(), allocation.fillContents(), batch, offset));
+            } else {
+                NewArrayNode newArray = (NewArrayNode) allocation;
+                batched = graph.add(BatchedNewArrayNode.create(newArray.elementType(), newArray.length(), newArray.fillContents(), batch, offset));
+            }
+            offset += allocationSize(allocation);
+            batched.setStateBefore(allocation.stateBefore());
+            graph.replaceFixedWithFixed(allocation, batched);
+        }
+        assert offset == batchSize;
+        metricBatches.increment();
+        metricBatchedAllocations.add(allocations.size());
+    }
+}
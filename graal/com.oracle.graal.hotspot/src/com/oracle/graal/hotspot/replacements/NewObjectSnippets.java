@@ -69,6 +69,8 @@ public class NewObjectSnippets implements Snippets {
         //@formatter:off
         @Option(help = "")
         static final OptionValue<Boolean> ProfileAllocations = new OptionValue<>(false);
+        @Option(help = "Maximum outer length of a two-dimensional array whose sub-arrays are allocated inline (0 always uses the runtime stub)")
+        static final OptionValue<Integer> InlineMultiArrayMaxLength = new OptionValue<>(64);
         //@formatter:on
     }
 
@@ -167,6 +169,7 @@ public class NewObjectSnippets implements Snippets {
                 }
             }
         }
+        new_dynamicStub.inc();
         return dynamicNewInstanceStub(type);
     }
 
@@ -183,6 +186,16 @@ public class NewObjectSnippets implements Snippets {
 
     private static Object allocateArrayImpl(Word hub, int length, Word prototypeMarkWord, int headerSize, int log2ElementSize, boolean fillContents, @ConstantParameter Register threadRegister,
                     @ConstantParameter boolean maybeUnroll, String typeContext, boolean skipNegativeCheck) {
+        Object result = allocateUncastArray(hub, length, prototypeMarkWord, headerSize, log2ElementSize, fillContents, threadRegister, maybeUnroll, typeContext, skipNegativeCheck);
+        return piArrayCast(verifyOop(result), length, StampFactory.forNodeIntrinsic());
+    }
+
+    /**
+     * Allocates an array in the TLAB if possible and with the runtime stub otherwise. The result is
+     * not yet cast to the stamp of the node being lowered.
+     */
+    private static Object allocateUncastArray(Word hub, int length, Word prototypeMarkWord, int headerSize, int log2ElementSize, boolean fillContents, Register threadRegister,
+                    boolean maybeUnroll, String typeContext, boolean skipNegativeCheck) {
         Object result;
         int alignment = wordSize();
         int allocationSize = computeArrayAllocationSize(length, alignment, headerSize, log2ElementSize);
@@ -200,6 +213,57 @@ public class NewObjectSnippets implements Snippets {
             result = NewArrayStubCall.call(hub, length);
         }
         profileAllocation("array", allocationSize, typeContext);
+        return result;
+    }
+
+    /**
+     * Reserves the TLAB memory of an {@link AllocationBatchNode}, returning zero if the TLAB has no
+     * room for it.
+     */
+    @Snippet
+    public static Word allocateBatch(@ConstantParameter int size, @ConstantParameter Register threadRegister) {
+        Word thread = registerAsWord(threadRegister);
+        Word top = readTlabTop(thread);
+        Word end = readTlabEnd(thread);
+        Word newTop = top.add(size);
+        if (useTLAB() && probability(FAST_PATH_PROBABILITY, newTop.belowOrEqual(end))) {
+            writeTlabTop(thread, newTop);
+            // a group usually spans more than one cache line, like an array
+            emitPrefetchAllocate(newTop, true);
+            batch_tlab.inc();
+            return top;
+        }
+        batch_stub.inc();
+        return Word.zero();
+    }
+
+    @Snippet
+    public static Object allocateInstanceInBatch(Word batch, int offset, @ConstantParameter int size, Word hub, Word prototypeMarkWord, @ConstantParameter boolean fillContents,
+                    @ConstantParameter String typeContext) {
+        Object result;
+        if (probability(FAST_PATH_PROBABILITY, batch.notEqual(Word.zero()))) {
+            result = formatObject(hub, size, batch.add(offset), prototypeMarkWord, fillContents, true, true);
+        } else {
+            new_stub.inc();
+            result = NewInstanceStubCall.call(hub);
+        }
+        profileAllocation("instance", size, typeContext);
+        return piCast(verifyOop(result), StampFactory.forNodeIntrinsic());
+    }
+
+    @Snippet
+    public static Object allocateArrayInBatch(Word batch, int offset, Word hub, int length, Word prototypeMarkWord, @ConstantParameter int headerSize, @ConstantParameter int log2ElementSize,
+                    @ConstantParameter boolean fillContents, @ConstantParameter String typeContext) {
+        Object result;
+        int allocationSize = computeArrayAllocationSize(length, wordSize(), headerSize, log2ElementSize);
+        if (probability(FAST_PATH_PROBABILITY, batch.notEqual(Word.zero()))) {
+            newarray_loopInit.inc();
+            result = formatArray(hub, allocationSize, length, headerSize, batch.add(offset), prototypeMarkWord, fillContents, true, true);
+        } else {
+            newarray_stub.inc();
+            result = NewArrayStubCall.call(hub, length);
+        }
+        profileAllocation("array", allocationSize, typeContext);
         return piArrayCast(verifyOop(result), length, StampFactory.forNodeIntrinsic());
     }
 
@@ -220,6 +284,7 @@ public class NewObjectSnippets implements Snippets {
     public static Object allocateArrayDynamic(Class<?> elementType, int length, @ConstantParameter boolean fillContents, @ConstantParameter Register threadRegister) {
         Word hub = loadWordFromObject(elementType, arrayKlassOffset());
         if (hub.equal(Word.zero()) || !belowThan(length, MAX_ARRAY_FAST_PATH_ALLOCATION_LENGTH)) {
+            newarray_dynamicStub.inc();
             return dynamicNewArrayStub(DYNAMIC_NEW_ARRAY, elementType, length);
         }
 
@@ -273,6 +338,51 @@ public class NewObjectSnippets implements Snippets {
         return NewMultiArrayStubCall.call(hub, rank, dims);
     }
 
+    @Fold
+    private static int inlineMultiArrayMaxLength() {
+        return InlineMultiArrayMaxLength.getValue();
+    }
+
+    private static final LocationIdentity OBJECT_ARRAY_LOCATION = NamedLocationIdentity.getArrayLocation(Kind.Object);
+
+    /**
+     * Implements MULTIANEWARRAY for two dimensions. If the outer length is at most
+     * {@link Options#InlineMultiArrayMaxLength}, the outer array and each sub-array are allocated
+     * like a NEWARRAY, which avoids the runtime stub as long as the TLAB has room. All other cases,
+     * including negative dimensions, are handled by the stub.
+     */
+    @Snippet
+    public static Object newmultiarray2(Word hub, Word prototypeMarkWord, @ConstantParameter int headerSize, @ConstantParameter int log2ElementSize, Word subArrayHub,
+                    Word subArrayPrototypeMarkWord, @ConstantParameter int subArrayHeaderSize, @ConstantParameter int subArrayLog2ElementSize, int dimension0, int dimension1,
+                    @ConstantParameter Register threadRegister, @ConstantParameter String typeContext) {
+        Object result;
+        if (probability(FAST_PATH_PROBABILITY, belowOrEqual(dimension0, inlineMultiArrayMaxLength())) && probability(FAST_PATH_PROBABILITY, belowThan(dimension1, MAX_ARRAY_FAST_PATH_ALLOCATION_LENGTH))) {
+            newmultiarray_inline.inc();
+            result = allocateUncastArray(hub, dimension0, prototypeMarkWord, headerSize, log2ElementSize, true, threadRegister, false, typeContext, true);
+            for (int i = 0; i < dimension0; i++) {
+                Object subArray = allocateUncastArray(subArrayHub, dimension1, subArrayPrototypeMarkWord, subArrayHeaderSize, subArrayLog2ElementSize, true, threadRegister, false, typeContext, true);
+                DirectObjectStoreNode.storeObject(result, arrayBaseOffset(Kind.Object), (long) i * arrayIndexScale(Kind.Object), verifyOop(subArray), OBJECT_ARRAY_LOCATION);
+            }
+            /*
+             * This snippet is instantiated after WriteBarrierAdditionPhase and a GC in the slow path
+             * of a sub-array allocation may have promoted the outer array, so the stores above are
+             * covered by an explicit post barrier.
+             */
+            if (useG1GC()) {
+                WriteBarrierSnippets.g1ArrayRangePostWriteBarrier(result, 0, dimension0, threadRegister);
+            } else {
+                WriteBarrierSnippets.serialArrayRangeWriteBarrier(result, 0, dimension0);
+            }
+        } else {
+            newmultiarray_stub.inc();
+            Word dims = DimensionsNode.allocaDimsArray(2);
+            dims.writeInt(0, dimension0, INIT_LOCATION);
+            dims.writeInt(4, dimension1, INIT_LOCATION);
+            result = NewMultiArrayStubCall.call(hub, 2, dims);
+        }
+        return piArrayCast(verifyOop(result), dimension0, StampFactory.forNodeIntrinsic());
+    }
+
     /**
      * Maximum number of long stores to emit when zeroing an object with a constant size. Larger
      * objects have their bodies initialized in a loop.
@@ -375,6 +485,10 @@ public class NewObjectSnippets implements Snippets {
         private final SnippetInfo allocateArrayDynamic = snippet(NewObjectSnippets.class, "allocateArrayDynamic");
         private final SnippetInfo allocateInstanceDynamic = snippet(NewObjectSnippets.class, "allocateInstanceDynamic");
         private final SnippetInfo newmultiarray = snippet(NewObjectSnippets.class, "newmultiarray");
+        private final SnippetInfo newmultiarray2 = snippet(NewObjectSnippets.class, "newmultiarray2");
+        private final SnippetInfo allocateBatch = snippet(NewObjectSnippets.class, "allocateBatch");
+        private final SnippetInfo allocateInstanceInBatch = snippet(NewObjectSnippets.class, "allocateInstanceInBatch");
+        private final SnippetInfo allocateArrayInBatch = snippet(NewObjectSnippets.class, "allocateArrayInBatch");
 
         public Templates(HotSpotProviders providers, TargetDescription target) {
             super(providers, providers.getSnippetReflection(), target);
@@ -434,6 +548,70 @@ public class NewObjectSnippets implements Snippets {
             template.instantiate(providers.getMetaAccess(), newArrayNode, DEFAULT_REPLACER, args);
         }
 
+        /**
+         * Lowers an {@link AllocationBatchNode}.
+         */
+        public void lower(AllocationBatchNode batchNode, HotSpotRegistersProvider registers, LoweringTool tool) {
+            StructuredGraph graph = batchNode.graph();
+            Arguments args = new Arguments(allocateBatch, graph.getGuardsStage(), tool.getLoweringStage());
+            args.addConst("size", batchNode.size());
+            args.addConst("threadRegister", registers.getThreadRegister());
+
+            SnippetTemplate template = template(args);
+            Debug.log("Lowering allocateBatch in %s: node=%s, template=%s, arguments=%s", graph, batchNode, template, args);
+            template.instantiate(providers.getMetaAccess(), batchNode, DEFAULT_REPLACER, args);
+        }
+
+        /**
+         * Lowers a {@link BatchedNewInstanceNode}.
+         */
+        public void lower(BatchedNewInstanceNode newInstanceNode, LoweringTool tool) {
+            StructuredGraph graph = newInstanceNode.graph();
+            HotSpotResolvedObjectType type = (HotSpotResolvedObjectType) newInstanceNode.instanceClass();
+            ConstantNode hub = ConstantNode.forConstant(type.klass(), providers.getMetaAccess(), graph);
+
+            Arguments args = new Arguments(allocateInstanceInBatch, graph.getGuardsStage(), tool.getLoweringStage());
+            args.add("batch", newInstanceNode.batch());
+            args.add("offset", newInstanceNode.offset());
+            args.addConst("size", instanceSize(type));
+            args.add("hub", hub);
+            args.add("prototypeMarkWord", type.prototypeMarkWord());
+            args.addConst("fillContents", newInstanceNode.fillContents());
+            args.addConst("typeContext", ProfileAllocations.getValue() ? type.toJavaName(false) : "");
+
+            SnippetTemplate template = template(args);
+            Debug.log("Lowering allocateInstanceInBatch in %s: node=%s, template=%s, arguments=%s", graph, newInstanceNode, template, args);
+            template.instantiate(providers.getMetaAccess(), newInstanceNode, DEFAULT_REPLACER, args);
+        }
+
+        /**
+         * Lowers a {@link BatchedNewArrayNode}.
+         */
+        public void lower(BatchedNewArrayNode newArrayNode, LoweringTool tool) {
+            StructuredGraph graph = newArrayNode.graph();
+            ResolvedJavaType elementType = newArrayNode.elementType();
+            HotSpotResolvedObjectType arrayType = (HotSpotResolvedObjectType) elementType.getArrayClass();
+            Kind elementKind = elementType.getKind();
+            ConstantNode hub = ConstantNode.forConstant(arrayType.klass(), providers.getMetaAccess(), graph);
+            HotSpotLoweringProvider lowerer = (HotSpotLoweringProvider) providers.getLowerer();
+
+            Arguments args = new Arguments(allocateArrayInBatch, graph.getGuardsStage(), tool.getLoweringStage());
+            args.add("batch", newArrayNode.batch());
+            args.add("offset", newArrayNode.offset());
+            args.add("hub", hub);
+            ValueNode length = newArrayNode.length();
+            args.add("length", length.isAlive() ? length : graph.addOrUniqueWithInputs(length));
+            args.add("prototypeMarkWord", arrayType.prototypeMarkWord());
+            args.addConst("headerSize", HotSpotGraalRuntime.getArrayBaseOffset(elementKind));
+            args.addConst("log2ElementSize", CodeUtil.log2(lowerer.arrayScalingFactor(elementKind)));
+            args.addConst("fillContents", newArrayNode.fillContents());
+            args.addConst("typeContext", ProfileAllocations.getValue() ? arrayType.toJavaName(false) : "");
+
+            SnippetTemplate template = template(args);
+            Debug.log("Lowering allocateArrayInBatch in %s: node=%s, template=%s, arguments=%s", graph, newArrayNode, template, args);
+            template.instantiate(providers.getMetaAccess(), newArrayNode, DEFAULT_REPLACER, args);
+        }
+
         public void lower(DynamicNewInstanceNode newInstanceNode, HotSpotRegistersProvider registers, LoweringTool tool) {
             Arguments args = new Arguments(allocateInstanceDynamic, newInstanceNode.graph().getGuardsStage(), tool.getLoweringStage());
             args.add("type", newInstanceNode.getInstanceType());
@@ -457,9 +635,13 @@ public class NewObjectSnippets implements Snippets {
             template.instantiate(providers.getMetaAccess(), newArrayNode, DEFAULT_REPLACER, args);
         }
 
-        public void lower(NewMultiArrayNode newmultiarrayNode, LoweringTool tool) {
+        public void lower(NewMultiArrayNode newmultiarrayNode, HotSpotRegistersProvider registers, LoweringTool tool) {
             StructuredGraph graph = newmultiarrayNode.graph();
             int rank = newmultiarrayNode.dimensionCount();
+            if (rank == 2 && InlineMultiArrayMaxLength.getValue() > 0) {
+                lowerTwoDimensional(newmultiarrayNode, registers, tool);
+                return;
+            }
             ValueNode[] dims = new ValueNode[rank];
             for (int i = 0; i < newmultiarrayNode.dimensionCount(); i++) {
                 dims[i] = newmultiarrayNode.dimension(i);
@@ -474,6 +656,32 @@ public class NewObjectSnippets implements Snippets {
             template(args).instantiate(providers.getMetaAccess(), newmultiarrayNode, DEFAULT_REPLACER, args);
         }
 
+        private void lowerTwoDimensional(NewMultiArrayNode newmultiarrayNode, HotSpotRegistersProvider registers, LoweringTool tool) {
+            StructuredGraph graph = newmultiarrayNode.graph();
+            HotSpotResolvedObjectType type = (HotSpotResolvedObjectType) newmultiarrayNode.type();
+            HotSpotResolvedObjectType subArrayType = (HotSpotResolvedObjectType) type.getComponentType();
+            Kind subArrayElementKind = subArrayType.getComponentType().getKind();
+            HotSpotLoweringProvider lowerer = (HotSpotLoweringProvider) providers.getLowerer();
+
+            Arguments args = new Arguments(newmultiarray2, graph.getGuardsStage(), tool.getLoweringStage());
+            args.add("hub", ConstantNode.forConstant(type.klass(), providers.getMetaAccess(), graph));
+            args.add("prototypeMarkWord", type.prototypeMarkWord());
+            args.addConst("headerSize", HotSpotGraalRuntime.getArrayBaseOffset(Kind.Object));
+            args.addConst("log2ElementSize", CodeUtil.log2(lowerer.arrayScalingFactor(Kind.Object)));
+            args.add("subArrayHub", ConstantNode.forConstant(subArrayType.klass(), providers.getMetaAccess(), graph));
+            args.add("subArrayPrototypeMarkWord", subArrayType.prototypeMarkWord());
+            args.addConst("subArrayHeaderSize", HotSpotGraalRuntime.getArrayBaseOffset(subArrayElementKind));
+            args.addConst("subArrayLog2ElementSize", CodeUtil.log2(lowerer.arrayScalingFactor(subArrayElementKind)));
+            args.add("dimension0", newmultiarrayNode.dimension(0));
+            args.add("dimension1", newmultiarrayNode.dimension(1));
+            args.addConst("threadRegister", registers.getThreadRegister());
+            args.addConst("typeContext", ProfileAllocations.getValue() ? type.toJavaName(false) : "");
+
+            SnippetTemplate template = template(args);
+            Debug.log("Lowering newmultiarray2 in %s: node=%s, template=%s, arguments=%s", graph, newmultiarrayNode, template, args);
+            template.instantiate(providers.getMetaAccess(), newmultiarrayNode, DEFAULT_REPLACER, args);
+        }
+
         private static int instanceSize(HotSpotResolvedObjectType type) {
             int size = type.instanceSize();
             assert (size % wordSize()) == 0;
@@ -486,8 +694,18 @@ public class NewObjectSnippets implements Snippets {
     private static final SnippetCounter new_seqInit = new SnippetCounter(countersNew, "tlabSeqInit", "TLAB alloc with unrolled zeroing");
     private static final SnippetCounter new_loopInit = new SnippetCounter(countersNew, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
     private static final SnippetCounter new_stub = new SnippetCounter(countersNew, "stub", "alloc and zeroing via stub");
+    private static final SnippetCounter new_dynamicStub = new SnippetCounter(countersNew, "dynamicStub", "dynamic alloc via stub");
 
     private static final SnippetCounter.Group countersNewArray = SnippetCounters.getValue() ? new SnippetCounter.Group("NewArray") : null;
     private static final SnippetCounter newarray_loopInit = new SnippetCounter(countersNewArray, "tlabLoopInit", "TLAB alloc with zeroing in a loop");
     private static final SnippetCounter newarray_stub = new SnippetCounter(countersNewArray, "stub", "alloc and zeroing via stub");
+    private static final SnippetCounter newarray_dynamicStub = new SnippetCounter(countersNewArray, "dynamicStub", "dynamic alloc via stub");
+
+    private static final SnippetCounter.Group countersAllocationBatch = SnippetCounters.getValue() ? new SnippetCounter.Group("AllocationBatch") : null;
+    private static final SnippetCounter batch_tlab = new SnippetCounter(countersAllocationBatch, "tlab", "group of allocations reserved in TLAB");
+    private static final SnippetCounter batch_stub = new SnippetCounter(countersAllocationBatch, "stub", "group of allocations done via stub");
+
+    private static final SnippetCounter.Group countersNewMultiArray = SnippetCounters.getValue() ? new SnippetCounter.Group("NewMultiArray") : null;
+    private static final SnippetCounter newmultiarray_inline = new SnippetCounter(countersNewMultiArray, "inline", "2-dimensional alloc of sub-arrays inline");
+    private static final SnippetCounter newmultiarray_stub = new SnippetCounter(countersNewMultiArray, "stub", "alloc via MULTIANEWARRAY stub");
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.jtt;
+
+import static com.oracle.graal.compiler.alloc.TraceRegisterAllocator.Options.*;
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import org.junit.*;
+import org.junit.runner.*;
+import org.junit.runner.notification.*;
+
+import com.oracle.graal.compiler.alloc.*;
+import com.oracle.graal.jtt.except.*;
+import com.oracle.graal.jtt.hotpath.*;
+import com.oracle.graal.jtt.lang.*;
+import com.oracle.graal.jtt.loop.*;
+import com.oracle.graal.jtt.micro.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Runs a subset of the JTT tests with the {@link TraceRegisterAllocator}. Every method is allocated
+ * with only hot traces, only cold traces, the default split into hot and cold traces, and with too
+ * few scratch registers for cold traces so that the allocation falls back to linear scan.
+ */
+public class TraceRegisterAllocatorJTTTest {
+
+    private static final Class<?>[] TESTS = {
+                    // loops and phis
+                    Loop01.class, Loop05.class, Loop07.class, Loop09.class, Loop16.class, LoopPhi.class, LoopSwitch01.class, LoopParseLong.class, LoopLastIndexOf.class,
+                    // values live across calls and many traces
+                    Bubblesort.class, Fibonacci.class, Matrix01.class, BigMixedParams01.class, BigDoubleParams02.class, ReferenceMap01.class, StrangeFrames.class,
+                    HP_life.class, HP_nest01.class, HP_series.class, HP_control01.class,
+                    // exception handlers
+                    BC_athrow0.class, Catch_Loop01.class, Catch_Loop02.class, Catch_NPE_01.class,
+                    // long and floating point values
+                    Long_greater01.class, Double_01.class};
+
+    private static void runTests(Object... overrides) {
+        Result result;
+        try (OverrideScope s = OptionValue.override(overrides)) {
+            result = new JUnitCore().run(TESTS);
+        }
+        if (!result.wasSuccessful()) {
+            StringBuilder message = new StringBuilder(result.getFailureCount() + " of " + result.getRunCount() + " tests failed:");
+            for (Failure failure : result.getFailures()) {
+                message.append(String.format("%n%s: %s", failure.getTestHeader(), failure.getMessage()));
+            }
+            AssertionError error = new AssertionError(message.toString());
+            error.initCause(result.getFailures().get(0).getException());
+            throw error;
+        }
+    }
+
+    @Test
+    public void testDefault() {
+        runTests(TraceRA, true);
+    }
+
+    @Test
+    public void testHotTraces() {
+        runTests(TraceRA, true, ColdBlockProbability, 0.0);
+    }
+
+    @Test
+    public void testColdTraces() {
+        runTests(TraceRA, true, ColdBlockProbability, 2.0);
+    }
+
+    @Test
+    public void testFallback() {
+        runTests(TraceRA, true, ColdBlockProbability, 2.0, TraceRAMaxScratchRegisters, 1);
+    }
+}
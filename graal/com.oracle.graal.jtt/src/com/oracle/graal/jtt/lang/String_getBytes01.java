@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.jtt.lang;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+import org.junit.*;
+
+import com.oracle.graal.jtt.*;
+
+/*
+ */
+public class String_getBytes01 extends JTTTest {
+
+    private static final String[] STRINGS = {"", "a", "abcdefg", "abcdefgh", "abcdefghi", "0123456789abcdef0123456789abcdef", "0123456789abcdef\u00ff0123456789abcdef",
+                    "0123456789abcdef\u01000123456789abcdef", "\u20ac", "\u00e4\u00f6\u00fc\u00df0123456789"};
+
+    public static byte[] test(int i) {
+        return STRINGS[i].getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    public static int testEncoder(int i) {
+        CharsetEncoder encoder = StandardCharsets.ISO_8859_1.newEncoder();
+        ByteBuffer out = ByteBuffer.allocate(64);
+        CoderResult result = encoder.encode(CharBuffer.wrap(STRINGS[i]), out, true);
+        return result.isUnmappable() ? -out.position() - 1 : out.position();
+    }
+
+    @Test
+    public void run0() throws Throwable {
+        for (int i = 0; i < STRINGS.length; i++) {
+            runTest("test", i);
+        }
+    }
+
+    @Test
+    public void run1() throws Throwable {
+        for (int i = 0; i < STRINGS.length; i++) {
+            runTest("testEncoder", i);
+        }
+    }
+
+}
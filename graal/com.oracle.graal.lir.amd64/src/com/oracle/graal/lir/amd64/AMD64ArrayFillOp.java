@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits code which stores a value to a range of array elements. The value is replicated into a
+ * 128-bit vector that is stored with unaligned SSE moves; the bytes that do not fill a whole vector
+ * are covered by a last vector store overlapping the previous one. Ranges of at least
+ * {@link #REP_STOS_THRESHOLD} bytes are filled with {@code rep stosq}, and ranges shorter than a
+ * vector are filled with scalar stores.
+ */
+@Opcode("ARRAY_FILL")
+public class AMD64ArrayFillOp extends AMD64LIRInstruction {
+
+    private static final int VECTOR_SIZE = 16;
+
+    /**
+     * Size in bytes from which {@code rep stosq} is faster than a loop of vector stores.
+     */
+    private static final int REP_STOS_THRESHOLD = 2048;
+
+    private final Kind kind;
+    private final int arrayBaseOffset;
+    private final int arrayIndexScale;
+
+    @Alive({REG}) protected Value arrayValue;
+    @Alive({REG}) protected Value fromValue;
+    @Alive({REG}) protected Value toValue;
+    @Alive({REG}) protected Value valueValue;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value rdiTemp;
+    @Temp({REG}) protected Value rdxTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64ArrayFillOp(LIRGeneratorTool tool, Kind kind, Value array, Value from, Value to, Value value) {
+        this.kind = kind;
+
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(arrayClass);
+        this.arrayIndexScale = unsafe.arrayIndexScale(arrayClass);
+
+        this.arrayValue = array;
+        this.fromValue = from;
+        this.toValue = to;
+        this.valueValue = value;
+
+        // rep stosq stores rax to rcx quadwords starting at rdi
+        this.raxTemp = AMD64.rax.asValue(LIRKind.value(Kind.Long));
+        this.rcxTemp = AMD64.rcx.asValue(LIRKind.value(Kind.Long));
+        this.rdiTemp = AMD64.rdi.asValue(LIRKind.derivedReference(tool.target().wordKind));
+        this.rdxTemp = AMD64.rdx.asValue(LIRKind.value(Kind.Long));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register vector = asDoubleReg(vectorTemp);
+
+        Label vectorFill = new Label();
+        Label loop = new Label();
+        Label vectorTail = new Label();
+        Label scalarFill = new Label();
+        Label done = new Label();
+
+        emitReplicateValue(masm);
+        masm.movdq(vector, AMD64.rax);
+        masm.pshufd(vector, vector, 0x44);
+
+        // Load the address of the first element and the size of the range in bytes.
+        masm.movslq(AMD64.rdi, asRegister(fromValue));
+        masm.leaq(AMD64.rdi, new AMD64Address(asRegister(arrayValue), AMD64.rdi, Scale.fromInt(arrayIndexScale), arrayBaseOffset));
+        masm.movl(AMD64.rcx, asRegister(toValue));
+        masm.subl(AMD64.rcx, asRegister(fromValue));
+        if (arrayIndexScale > 1) {
+            masm.shll(AMD64.rcx, CodeUtil.log2(arrayIndexScale));
+        }
+        masm.cmpq(AMD64.rcx, VECTOR_SIZE);
+        masm.jcc(ConditionFlag.Less, scalarFill);
+        masm.movl(AMD64.rdx, AMD64.rcx);
+        masm.andl(AMD64.rdx, VECTOR_SIZE - 1);
+        masm.cmpq(AMD64.rcx, REP_STOS_THRESHOLD);
+        masm.jcc(ConditionFlag.Less, vectorFill);
+
+        // Fill whole quadwords, rdi points to the remaining bytes afterwards.
+        masm.andl(AMD64.rdx, 7);
+        masm.shrq(AMD64.rcx, 3);
+        masm.repStosq();
+        masm.jmp(vectorTail);
+
+        masm.bind(vectorFill);
+        masm.andl(AMD64.rcx, ~(VECTOR_SIZE - 1));
+        masm.addq(AMD64.rdi, AMD64.rcx);
+        masm.negq(AMD64.rcx);
+
+        // Align the main loop
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        masm.movdqu(new AMD64Address(AMD64.rdi, AMD64.rcx, Scale.Times1, 0), vector);
+        masm.addq(AMD64.rcx, VECTOR_SIZE);
+        masm.jcc(ConditionFlag.NotZero, loop);
+
+        /*
+         * Fill the remaining bytes with an unaligned store aligned to the end of the range. The
+         * remaining bytes are a multiple of the element size, so the store writes whole elements.
+         */
+        masm.bind(vectorTail);
+        masm.testl(AMD64.rdx, AMD64.rdx);
+        masm.jcc(ConditionFlag.Zero, done);
+        masm.movdqu(new AMD64Address(AMD64.rdi, AMD64.rdx, Scale.Times1, -VECTOR_SIZE), vector);
+        masm.jmp(done);
+
+        masm.bind(scalarFill);
+        emitScalarFill(masm, done);
+        masm.bind(done);
+    }
+
+    /**
+     * Emits code that replicates the value into all elements of a quadword in {@code rax}.
+     */
+    private void emitReplicateValue(AMD64MacroAssembler masm) {
+        Register value = asRegister(valueValue);
+        switch (kind) {
+            case Boolean:
+            case Byte:
+                masm.movl(AMD64.rax, value);
+                masm.andl(AMD64.rax, 0xFF);
+                masm.movq(AMD64.rdx, 0x0101010101010101L);
+                masm.imulq(AMD64.rax, AMD64.rdx);
+                break;
+            case Char:
+            case Short:
+                masm.movl(AMD64.rax, value);
+                masm.andl(AMD64.rax, 0xFFFF);
+                masm.movq(AMD64.rdx, 0x0001000100010001L);
+                masm.imulq(AMD64.rax, AMD64.rdx);
+                break;
+            case Int:
+            case Float:
+                masm.movl(AMD64.rax, value);
+                masm.movq(AMD64.rdx, 0x0000000100000001L);
+                masm.imulq(AMD64.rax, AMD64.rdx);
+                break;
+            case Long:
+            case Double:
+                masm.movq(AMD64.rax, value);
+                break;
+            default:
+                throw GraalInternalError.shouldNotReachHere();
+        }
+    }
+
+    /**
+     * Emits code that fills a range of less than {@link #VECTOR_SIZE} bytes.
+     */
+    private void emitScalarFill(AMD64MacroAssembler masm, Label done) {
+        Label fill4Bytes = new Label();
+        Label fill2Bytes = new Label();
+        Label fill1Byte = new Label();
+
+        masm.testl(AMD64.rcx, 8);
+        masm.jccb(ConditionFlag.Zero, fill4Bytes);
+        masm.movq(new AMD64Address(AMD64.rdi, 0), AMD64.rax);
+        masm.addq(AMD64.rdi, 8);
+
+        masm.bind(fill4Bytes);
+        if (kind.getByteCount() <= 4) {
+            masm.testl(AMD64.rcx, 4);
+            masm.jccb(ConditionFlag.Zero, fill2Bytes);
+            masm.movl(new AMD64Address(AMD64.rdi, 0), AMD64.rax);
+            masm.addq(AMD64.rdi, 4);
+        }
+
+        masm.bind(fill2Bytes);
+        if (kind.getByteCount() <= 2) {
+            masm.testl(AMD64.rcx, 2);
+            masm.jccb(ConditionFlag.Zero, fill1Byte);
+            masm.movw(new AMD64Address(AMD64.rdi, 0), AMD64.rax);
+            masm.addq(AMD64.rdi, 2);
+        }
+
+        masm.bind(fill1Byte);
+        if (kind.getByteCount() <= 1) {
+            masm.testl(AMD64.rcx, 1);
+            masm.jccb(ConditionFlag.Zero, done);
+            masm.movb(new AMD64Address(AMD64.rdi, 0), AMD64.rax);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits code which computes the polynomial hash code {@code h = 31 * h + a[i]} of the elements of
+ * an array, starting with {@code h = 1}. If the CPU supports SSE 4.1, four elements are processed
+ * at a time: each lane of a vector accumulates every fourth element and is multiplied by
+ * {@code 31^4} per iteration, and the lanes are combined with weights {@code 31^3} to {@code 1}
+ * at the end. The remaining elements are processed one at a time.
+ */
+@Opcode("ARRAY_HASH_CODE")
+public class AMD64ArrayHashCodeOp extends AMD64LIRInstruction {
+
+    private static final int ELEMENTS_PER_VECTOR = 4;
+
+    /**
+     * {@code 31^4}, the factor by which the hash code is multiplied per vector.
+     */
+    private static final int VECTOR_FACTOR = 31 * 31 * 31 * 31;
+
+    private final Kind kind;
+    private final int arrayBaseOffset;
+    private final int arrayIndexScale;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value arrayValue;
+    @Alive({REG}) protected Value lengthValue;
+    @Temp({REG}) protected Value indexTemp;
+    @Temp({REG}) protected Value temp;
+    @Temp({REG, ILLEGAL}) protected Value endTemp;
+    @Temp({REG, ILLEGAL}) protected Value vectorTemp1;
+    @Temp({REG, ILLEGAL}) protected Value vectorTemp2;
+    @Temp({REG, ILLEGAL}) protected Value vectorTemp3;
+
+    public AMD64ArrayHashCodeOp(LIRGeneratorTool tool, Kind kind, Value result, Value array, Value length) {
+        assert isSupported(kind);
+        this.kind = kind;
+
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(arrayClass);
+        this.arrayIndexScale = unsafe.arrayIndexScale(arrayClass);
+
+        this.resultValue = result;
+        this.arrayValue = array;
+        this.lengthValue = length;
+
+        this.indexTemp = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.temp = tool.newVariable(LIRKind.value(Kind.Int));
+
+        // We only need the vector temporaries if we generate SSE code.
+        if (supportsSSE41(tool.target())) {
+            this.endTemp = tool.newVariable(LIRKind.value(tool.target().wordKind));
+            this.vectorTemp1 = tool.newVariable(LIRKind.value(Kind.Double));
+            this.vectorTemp2 = tool.newVariable(LIRKind.value(Kind.Double));
+            this.vectorTemp3 = tool.newVariable(LIRKind.value(Kind.Double));
+        } else {
+            this.endTemp = Value.ILLEGAL;
+            this.vectorTemp1 = Value.ILLEGAL;
+            this.vectorTemp2 = Value.ILLEGAL;
+            this.vectorTemp3 = Value.ILLEGAL;
+        }
+    }
+
+    /**
+     * Determines if the hash code of arrays of {@code kind} can be computed by this operation.
+     */
+    public static boolean isSupported(Kind kind) {
+        return kind == Kind.Byte || kind == Kind.Char || kind == Kind.Short || kind == Kind.Int;
+    }
+
+    private static boolean supportsSSE41(TargetDescription target) {
+        AMD64 arch = (AMD64) target.arch;
+        return arch.getFeatures().contains(CPUFeature.SSE4_1);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register index = asRegister(indexTemp);
+        Register length = asRegister(lengthValue);
+        Register element = asRegister(temp);
+
+        Label scalarLoop = new Label();
+        Label scalarTail = new Label();
+        Label done = new Label();
+
+        masm.movl(result, 1);
+        masm.xorl(index, index);
+
+        if (supportsSSE41(crb.target)) {
+            emitSSE41HashCode(crb, masm, result, index, scalarTail);
+        }
+
+        masm.bind(scalarTail);
+        masm.cmpl(index, length);
+        masm.jcc(ConditionFlag.GreaterEqual, done);
+
+        masm.bind(scalarLoop);
+        masm.imull(result, result, 31);
+        emitLoadElement(masm, element, elementAddress(index));
+        masm.addl(result, element);
+        masm.addq(index, 1);
+        masm.cmpl(index, length);
+        masm.jcc(ConditionFlag.Less, scalarLoop);
+
+        masm.bind(done);
+    }
+
+    private AMD64Address elementAddress(Register index) {
+        return new AMD64Address(asRegister(arrayValue), index, Scale.fromInt(arrayIndexScale), arrayBaseOffset);
+    }
+
+    /**
+     * Emits code that hashes the elements in {@code [0, length & ~3)} with SSE 4.1 vector
+     * instructions.
+     */
+    private void emitSSE41HashCode(CompilationResultBuilder crb, AMD64MacroAssembler masm, Register result, Register index, Label scalarTail) {
+        assert supportsSSE41(crb.target);
+
+        Register end = asRegister(endTemp);
+        Register element = asRegister(temp);
+        Register accumulator = asDoubleReg(vectorTemp1);
+        Register factor = asDoubleReg(vectorTemp2);
+        Register vector = asDoubleReg(vectorTemp3);
+
+        Label loop = new Label();
+
+        masm.movl(end, asRegister(lengthValue));
+        masm.andl(end, ~(ELEMENTS_PER_VECTOR - 1));
+        masm.jcc(ConditionFlag.Zero, scalarTail);
+
+        // The initial hash code goes to the lane with the weight 1, the other lanes start at 0.
+        masm.movdl(accumulator, result);
+        masm.pshufd(accumulator, accumulator, 0x15);
+        masm.movl(element, VECTOR_FACTOR);
+        masm.movdl(factor, element);
+        masm.pshufd(factor, factor, 0x00);
+
+        // Align the main loop
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        masm.pmulld(accumulator, factor);
+        AMD64Address address = elementAddress(index);
+        switch (kind) {
+            case Byte:
+                masm.pmovsxbd(vector, address);
+                break;
+            case Char:
+                masm.pmovzxwd(vector, address);
+                break;
+            case Short:
+                masm.pmovsxwd(vector, address);
+                break;
+            case Int:
+                masm.movdqu(vector, address);
+                break;
+            default:
+                throw GraalInternalError.shouldNotReachHere();
+        }
+        masm.paddd(accumulator, vector);
+        masm.addq(index, ELEMENTS_PER_VECTOR);
+        masm.cmpq(index, end);
+        masm.jcc(ConditionFlag.Less, loop);
+
+        // Combine the lanes: result = ((lane0 * 31 + lane1) * 31 + lane2) * 31 + lane3
+        masm.movdl(result, accumulator);
+        for (int lane = 1; lane < ELEMENTS_PER_VECTOR; lane++) {
+            masm.imull(result, result, 31);
+            masm.pshufd(vector, accumulator, lane);
+            masm.movdl(element, vector);
+            masm.addl(result, element);
+        }
+    }
+
+    private void emitLoadElement(AMD64MacroAssembler masm, Register dst, AMD64Address address) {
+        switch (kind) {
+            case Byte:
+                masm.movsbl(dst, address);
+                break;
+            case Char:
+                masm.movzwl(dst, address);
+                break;
+            case Short:
+                masm.movswl(dst, address);
+                break;
+            case Int:
+                masm.movl(dst, address);
+                break;
+            default:
+                throw GraalInternalError.shouldNotReachHere();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits code which finds the index of the first element that differs between two arrays. Like
+ * {@link AMD64ArrayEqualsOp}, the arrays are compared in 16-byte vectors with the remaining bytes
+ * compared by an unaligned vector load aligned to the end of the range, and ranges shorter than a
+ * vector are compared with 8, 4, 2 and 1 byte loads. The position of the first differing byte is
+ * found with {@code pcmpeqb}/{@code pmovmskb} or {@code xor} and {@code bsf}.
+ */
+@Opcode("ARRAY_MISMATCH")
+public class AMD64ArrayMismatchOp extends AMD64LIRInstruction {
+
+    private static final int VECTOR_SIZE = 16;
+
+    private final Kind kind;
+    private final int arrayBaseOffset;
+    private final int arrayIndexScale;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value array1Value;
+    @Alive({REG}) protected Value array2Value;
+    @Alive({REG}) protected Value lengthValue;
+    @Temp({REG}) protected Value temp1;
+    @Temp({REG}) protected Value temp2;
+    @Temp({REG}) protected Value temp3;
+    @Temp({REG}) protected Value vectorTemp1;
+    @Temp({REG}) protected Value vectorTemp2;
+
+    public AMD64ArrayMismatchOp(LIRGeneratorTool tool, Kind kind, Value result, Value array1, Value array2, Value length) {
+        this.kind = kind;
+
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(arrayClass);
+        this.arrayIndexScale = unsafe.arrayIndexScale(arrayClass);
+
+        this.resultValue = result;
+        this.array1Value = array1;
+        this.array2Value = array2;
+        this.lengthValue = length;
+
+        this.temp1 = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.temp2 = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.temp3 = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.vectorTemp1 = tool.newVariable(LIRKind.value(Kind.Double));
+        this.vectorTemp2 = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        // The result register holds the byte offset of the compared bytes until the end.
+        Register offset = asRegister(resultValue);
+        Register length = asRegister(temp1);
+        Register mask = asRegister(temp2);
+
+        Label shortCompare = new Label();
+        Label found = new Label();
+        Label foundBits = new Label();
+        Label addPosition = new Label();
+        Label equal = new Label();
+        Label done = new Label();
+
+        // Get the length in bytes.
+        masm.movl(length, asRegister(lengthValue));
+        if (arrayIndexScale > 1) {
+            masm.shll(length, CodeUtil.log2(arrayIndexScale));
+        }
+        masm.xorl(offset, offset);
+
+        masm.cmpq(length, VECTOR_SIZE);
+        masm.jcc(ConditionFlag.Less, shortCompare);
+        emitVectorCompare(crb, masm, offset, length, mask, found, equal);
+
+        masm.bind(shortCompare);
+        emitTailCompares(masm, offset, length, mask, foundBits, equal);
+
+        masm.bind(equal);
+        masm.movl(offset, -1);
+        masm.jmp(done);
+
+        // The lowest set bit of a vector mask marks the first differing byte.
+        masm.bind(found);
+        masm.bsfq(mask, mask);
+        masm.jmp(addPosition);
+
+        // The lowest set bit of an xor is in the first differing byte.
+        masm.bind(foundBits);
+        masm.bsfq(mask, mask);
+        masm.shrl(mask, 3);
+
+        masm.bind(addPosition);
+        masm.addq(offset, mask);
+        if (arrayIndexScale > 1) {
+            masm.shrl(offset, CodeUtil.log2(arrayIndexScale));
+        }
+        masm.bind(done);
+    }
+
+    private AMD64Address address(Value array, Register offset, int displacement) {
+        return new AMD64Address(asRegister(array), offset, Scale.Times1, arrayBaseOffset + displacement);
+    }
+
+    /**
+     * Emits code that compares at least {@link #VECTOR_SIZE} bytes with 16-byte vector compares.
+     * A mismatching vector leaves a mask with one bit per differing byte in {@code mask}.
+     */
+    private void emitVectorCompare(CompilationResultBuilder crb, AMD64MacroAssembler masm, Register offset, Register length, Register mask, Label found, Label equal) {
+        Register end = asRegister(temp3);
+
+        Label loop = new Label();
+
+        masm.movl(end, length);
+        masm.andl(end, ~(VECTOR_SIZE - 1));
+
+        // Align the main loop
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        emitVectorMask(masm, offset, mask);
+        masm.jcc(ConditionFlag.NotZero, found);
+        masm.addq(offset, VECTOR_SIZE);
+        masm.cmpq(offset, end);
+        masm.jcc(ConditionFlag.Less, loop);
+
+        masm.cmpq(offset, length);
+        masm.jcc(ConditionFlag.Equal, equal);
+
+        /*
+         * Compare the remaining bytes with an unaligned memory load aligned to the end of the
+         * range. The bytes it shares with the last vector are known to be equal.
+         */
+        masm.movq(offset, length);
+        masm.subq(offset, VECTOR_SIZE);
+        emitVectorMask(masm, offset, mask);
+        masm.jcc(ConditionFlag.NotZero, found);
+        masm.jmp(equal);
+    }
+
+    /**
+     * Emits code that loads a mask of the differing bytes of the vectors at {@code offset} into
+     * {@code mask} and sets the zero flag if there are none.
+     */
+    private void emitVectorMask(AMD64MacroAssembler masm, Register offset, Register mask) {
+        Register vector1 = asDoubleReg(vectorTemp1);
+        Register vector2 = asDoubleReg(vectorTemp2);
+        masm.movdqu(vector1, address(array1Value, offset, 0));
+        masm.movdqu(vector2, address(array2Value, offset, 0));
+        masm.pcmpeqb(vector1, vector2);
+        masm.pmovmskb(mask, vector1);
+        masm.xorl(mask, 0xFFFF);
+    }
+
+    /**
+     * Emits code to compare the remaining 1 to 15 bytes. A mismatch leaves the xor of the
+     * differing bytes in {@code mask}.
+     */
+    private void emitTailCompares(AMD64MacroAssembler masm, Register offset, Register length, Register mask, Label foundBits, Label equal) {
+        Label compare4Bytes = new Label();
+        Label compare2Bytes = new Label();
+        Label compare1Byte = new Label();
+
+        Register temp = asRegister(temp3);
+
+        masm.testl(length, 8);
+        masm.jccb(ConditionFlag.Zero, compare4Bytes);
+        masm.movq(mask, address(array1Value, offset, 0));
+        masm.xorq(mask, address(array2Value, offset, 0));
+        masm.jcc(ConditionFlag.NotZero, foundBits);
+        masm.addq(offset, 8);
+
+        masm.bind(compare4Bytes);
+        if (kind.getByteCount() <= 4) {
+            masm.testl(length, 4);
+            masm.jccb(ConditionFlag.Zero, compare2Bytes);
+            masm.movl(mask, address(array1Value, offset, 0));
+            masm.xorl(mask, address(array2Value, offset, 0));
+            masm.jcc(ConditionFlag.NotZero, foundBits);
+            masm.addq(offset, 4);
+        }
+
+        masm.bind(compare2Bytes);
+        if (kind.getByteCount() <= 2) {
+            masm.testl(length, 2);
+            masm.jccb(ConditionFlag.Zero, compare1Byte);
+            masm.movzwl(mask, address(array1Value, offset, 0));
+            masm.movzwl(temp, address(array2Value, offset, 0));
+            masm.xorl(mask, temp);
+            masm.jcc(ConditionFlag.NotZero, foundBits);
+            masm.addq(offset, 2);
+        }
+
+        masm.bind(compare1Byte);
+        if (kind.getByteCount() <= 1) {
+            masm.testl(length, 1);
+            masm.jcc(ConditionFlag.Zero, equal);
+            masm.movzbl(mask, address(array1Value, offset, 0));
+            masm.movzbl(temp, address(array2Value, offset, 0));
+            masm.xorl(mask, temp);
+            masm.jcc(ConditionFlag.NotZero, foundBits);
+        }
+        masm.jmp(equal);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits a loop that compares the elements of two char arrays, eight chars at a time, using the
+ * SSE 4.2 {@code pcmpestri} instruction. The result is the index of the first differing char, or
+ * the index of the first char that was not compared because it is in the tail that does not fill
+ * a whole vector.
+ */
+@Opcode("CHAR_ARRAY_COMPARE")
+public class AMD64CharArrayCompareOp extends AMD64LIRInstruction {
+
+    private static final int CHARS_PER_VECTOR = 8;
+
+    /**
+     * {@code pcmpestri} mode: unsigned words, equal each, negative polarity.
+     */
+    private static final int EQUAL_EACH_NEGATED = 0x19;
+
+    private final int arrayBaseOffset;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value array1Value;
+    @Alive({REG}) protected Value array2Value;
+    @Alive({REG}) protected Value lengthValue;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value rdxTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64CharArrayCompareOp(LIRGeneratorTool tool, Value result, Value array1, Value array2, Value length) {
+        assert isSupported(tool.target());
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(char[].class);
+
+        this.resultValue = result;
+        this.array1Value = array1;
+        this.array2Value = array2;
+        this.lengthValue = length;
+
+        // pcmpestri takes the vector lengths in rax and rdx and returns the index in rcx
+        this.raxTemp = AMD64.rax.asValue(LIRKind.value(Kind.Int));
+        this.rcxTemp = AMD64.rcx.asValue(LIRKind.value(Kind.Int));
+        this.rdxTemp = AMD64.rdx.asValue(LIRKind.value(Kind.Int));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    /**
+     * Determines if {@code target} supports the instructions used by this operation.
+     */
+    public static boolean isSupported(TargetDescription target) {
+        return ((AMD64) target.arch).getFeatures().contains(CPUFeature.SSE4_2);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register vector = asDoubleReg(vectorTemp);
+
+        Label loop = new Label();
+        Label found = new Label();
+        Label done = new Label();
+
+        masm.movl(AMD64.rax, CHARS_PER_VECTOR);
+        masm.movl(AMD64.rdx, CHARS_PER_VECTOR);
+        masm.movl(result, 0);
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        // Stop if the next vector extends beyond the range.
+        masm.movl(AMD64.rcx, result);
+        masm.addl(AMD64.rcx, CHARS_PER_VECTOR);
+        masm.cmpl(AMD64.rcx, asRegister(lengthValue));
+        masm.jcc(ConditionFlag.Greater, done);
+        masm.movdqu(vector, new AMD64Address(asRegister(array1Value), result, Scale.Times2, arrayBaseOffset));
+        masm.pcmpestri(vector, new AMD64Address(asRegister(array2Value), result, Scale.Times2, arrayBaseOffset), EQUAL_EACH_NEGATED);
+        // The carry flag is set if the chars at index rcx of the vectors differ.
+        masm.jcc(ConditionFlag.Below, found);
+        masm.addl(result, CHARS_PER_VECTOR);
+        masm.jmp(loop);
+
+        masm.bind(found);
+        masm.addl(result, AMD64.rcx);
+        masm.bind(done);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits a loop that searches a range of a char array for a char, eight chars at a time, using the
+ * SSE 4.2 {@code pcmpestri} instruction. The tail of the range that does not fill a whole vector
+ * is not examined; the result is the index of the char if it was found and the index of the first
+ * unexamined char otherwise.
+ */
+@Opcode("CHAR_ARRAY_INDEX_OF")
+public class AMD64CharArrayIndexOfOp extends AMD64LIRInstruction {
+
+    private static final int CHARS_PER_VECTOR = 8;
+
+    /**
+     * {@code pcmpestri} mode: unsigned words, equal any.
+     */
+    private static final int EQUAL_ANY = 0x01;
+
+    private final int arrayBaseOffset;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value arrayValue;
+    @Alive({REG}) protected Value fromValue;
+    @Alive({REG}) protected Value toValue;
+    @Alive({REG}) protected Value charValue;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value rdxTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64CharArrayIndexOfOp(LIRGeneratorTool tool, Value result, Value array, Value from, Value to, Value value) {
+        assert isSupported(tool.target());
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(char[].class);
+
+        this.resultValue = result;
+        this.arrayValue = array;
+        this.fromValue = from;
+        this.toValue = to;
+        this.charValue = value;
+
+        // pcmpestri takes the vector lengths in rax and rdx and returns the index in rcx
+        this.raxTemp = AMD64.rax.asValue(LIRKind.value(Kind.Int));
+        this.rcxTemp = AMD64.rcx.asValue(LIRKind.value(Kind.Int));
+        this.rdxTemp = AMD64.rdx.asValue(LIRKind.value(Kind.Int));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    /**
+     * Determines if {@code target} supports the instructions used by this operation.
+     */
+    public static boolean isSupported(TargetDescription target) {
+        return ((AMD64) target.arch).getFeatures().contains(CPUFeature.SSE4_2);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register vector = asDoubleReg(vectorTemp);
+
+        Label loop = new Label();
+        Label found = new Label();
+        Label done = new Label();
+
+        // The set of chars to search for consists of the lowest word of the vector.
+        masm.movdl(vector, asRegister(charValue));
+        masm.movl(AMD64.rax, 1);
+        masm.movl(AMD64.rdx, CHARS_PER_VECTOR);
+        masm.movl(result, asRegister(fromValue));
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        // Stop if the next vector extends beyond the range.
+        masm.movl(AMD64.rcx, result);
+        masm.addl(AMD64.rcx, CHARS_PER_VECTOR);
+        masm.cmpl(AMD64.rcx, asRegister(toValue));
+        masm.jcc(ConditionFlag.Greater, done);
+        masm.pcmpestri(vector, new AMD64Address(asRegister(arrayValue), result, Scale.Times2, arrayBaseOffset), EQUAL_ANY);
+        // The carry flag is set if the char was found at index rcx of the vector.
+        masm.jcc(ConditionFlag.Below, found);
+        masm.addl(result, CHARS_PER_VECTOR);
+        masm.jmp(loop);
+
+        masm.bind(found);
+        masm.addl(result, AMD64.rcx);
+        masm.bind(done);
+    }
+}
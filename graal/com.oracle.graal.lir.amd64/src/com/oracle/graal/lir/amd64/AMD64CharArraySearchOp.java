@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits a loop that searches a char array for the possible starting points of a sequence of chars,
+ * eight chars at a time, using the SSE 4.2 {@code pcmpestri} instruction. Only the first eight
+ * chars of the sequence are compared, so the result is a candidate that still needs to be
+ * verified: the sequence does not start at any index between the start of the search and the
+ * result. The tail of the array that does not fill a whole vector is not examined.
+ */
+@Opcode("CHAR_ARRAY_SEARCH")
+public class AMD64CharArraySearchOp extends AMD64LIRInstruction {
+
+    private static final int CHARS_PER_VECTOR = 8;
+
+    /**
+     * {@code pcmpestri} mode: unsigned words, equal ordered.
+     */
+    private static final int EQUAL_ORDERED = 0x0D;
+
+    private final int arrayBaseOffset;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value sourceValue;
+    @Alive({REG}) protected Value fromValue;
+    @Alive({REG}) protected Value maxValue;
+    @Alive({REG}) protected Value targetValue;
+    @Alive({REG}) protected Value targetOffsetValue;
+    @Alive({REG}) protected Value targetCountValue;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value rdxTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64CharArraySearchOp(LIRGeneratorTool tool, Value result, Value source, Value from, Value max, Value target, Value targetOffset, Value targetCount) {
+        assert isSupported(tool.target());
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(char[].class);
+
+        this.resultValue = result;
+        this.sourceValue = source;
+        this.fromValue = from;
+        this.maxValue = max;
+        this.targetValue = target;
+        this.targetOffsetValue = targetOffset;
+        this.targetCountValue = targetCount;
+
+        // pcmpestri takes the vector lengths in rax and rdx and returns the index in rcx
+        this.raxTemp = AMD64.rax.asValue(LIRKind.value(Kind.Int));
+        this.rcxTemp = AMD64.rcx.asValue(LIRKind.value(Kind.Int));
+        this.rdxTemp = AMD64.rdx.asValue(LIRKind.value(Kind.Int));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    /**
+     * Determines if {@code target} supports the instructions used by this operation.
+     */
+    public static boolean isSupported(TargetDescription target) {
+        return ((AMD64) target.arch).getFeatures().contains(CPUFeature.SSE4_2);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register vector = asDoubleReg(vectorTemp);
+        Register targetCount = asRegister(targetCountValue);
+
+        Label needleLoaded = new Label();
+        Label loop = new Label();
+        Label found = new Label();
+        Label done = new Label();
+
+        // Load up to eight chars of the target without reading beyond its end.
+        masm.movslq(AMD64.rcx, asRegister(targetOffsetValue));
+        for (int i = 0; i < CHARS_PER_VECTOR; i++) {
+            masm.cmpl(targetCount, i);
+            masm.jcc(ConditionFlag.LessEqual, needleLoaded);
+            masm.movzwl(AMD64.rdx, new AMD64Address(asRegister(targetValue), AMD64.rcx, Scale.Times2, arrayBaseOffset + i * 2));
+            masm.pinsrw(vector, AMD64.rdx, i);
+        }
+        masm.bind(needleLoaded);
+
+        // pcmpestri limits the length of the target to the size of a vector.
+        masm.movl(AMD64.rax, targetCount);
+        masm.movl(AMD64.rdx, CHARS_PER_VECTOR);
+        masm.movl(result, asRegister(fromValue));
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        // Stop if the next vector extends beyond the last possible occurrence.
+        masm.movl(AMD64.rcx, result);
+        masm.addl(AMD64.rcx, CHARS_PER_VECTOR);
+        masm.subl(AMD64.rcx, targetCount);
+        masm.cmpl(AMD64.rcx, asRegister(maxValue));
+        masm.jcc(ConditionFlag.Greater, done);
+        masm.pcmpestri(vector, new AMD64Address(asRegister(sourceValue), result, Scale.Times2, arrayBaseOffset), EQUAL_ORDERED);
+        /*
+         * The carry flag is set if the target, or the part of it that fits into the vector, starts
+         * at index rcx of the vector.
+         */
+        masm.jcc(ConditionFlag.Below, found);
+        masm.addl(result, CHARS_PER_VECTOR);
+        masm.jmp(loop);
+
+        masm.bind(found);
+        masm.addl(result, AMD64.rcx);
+        masm.bind(done);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits a loop that converts chars to ISO-8859-1 bytes, eight chars at a time. The SSE 4.2
+ * {@code pcmpestri} instruction checks that all chars of a vector are in the range
+ * {@code [0, 0xFF]} before they are packed into bytes. The loop stops at the first vector that
+ * contains a char outside this range or that would extend beyond the end of the range; the result
+ * is the number of converted chars.
+ */
+@Opcode("ENCODE_ISO_ARRAY")
+public class AMD64EncodeISOArrayOp extends AMD64LIRInstruction {
+
+    private static final int CHARS_PER_VECTOR = 8;
+
+    /**
+     * {@code pcmpestri} mode: unsigned words, ranges.
+     */
+    private static final int RANGES = 0x05;
+
+    /**
+     * The range of chars that cannot be converted, {@code [0x100, 0xFFFF]}, as a pair of words.
+     */
+    private static final int UNMAPPABLE_RANGE = 0xFFFF0100;
+
+    private final int charArrayBaseOffset;
+    private final int byteArrayBaseOffset;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value srcValue;
+    @Alive({REG}) protected Value srcOffsetValue;
+    @Alive({REG}) protected Value dstValue;
+    @Alive({REG}) protected Value dstOffsetValue;
+    @Alive({REG}) protected Value lengthValue;
+    @Temp({REG}) protected Value srcTemp;
+    @Temp({REG}) protected Value dstTemp;
+    @Temp({REG}) protected Value raxTemp;
+    @Temp({REG}) protected Value rcxTemp;
+    @Temp({REG}) protected Value rdxTemp;
+    @Temp({REG}) protected Value rangeTemp;
+    @Temp({REG}) protected Value vectorTemp;
+
+    public AMD64EncodeISOArrayOp(LIRGeneratorTool tool, Value result, Value src, Value srcOffset, Value dst, Value dstOffset, Value length) {
+        assert isSupported(tool.target());
+        this.charArrayBaseOffset = unsafe.arrayBaseOffset(char[].class);
+        this.byteArrayBaseOffset = unsafe.arrayBaseOffset(byte[].class);
+
+        this.resultValue = result;
+        this.srcValue = src;
+        this.srcOffsetValue = srcOffset;
+        this.dstValue = dst;
+        this.dstOffsetValue = dstOffset;
+        this.lengthValue = length;
+
+        this.srcTemp = tool.newVariable(LIRKind.derivedReference(tool.target().wordKind));
+        this.dstTemp = tool.newVariable(LIRKind.derivedReference(tool.target().wordKind));
+        // pcmpestri takes the vector lengths in rax and rdx and returns the index in rcx
+        this.raxTemp = AMD64.rax.asValue(LIRKind.value(Kind.Int));
+        this.rcxTemp = AMD64.rcx.asValue(LIRKind.value(Kind.Int));
+        this.rdxTemp = AMD64.rdx.asValue(LIRKind.value(Kind.Int));
+        this.rangeTemp = tool.newVariable(LIRKind.value(Kind.Double));
+        this.vectorTemp = tool.newVariable(LIRKind.value(Kind.Double));
+    }
+
+    /**
+     * Determines if {@code target} supports the instructions used by this operation.
+     */
+    public static boolean isSupported(TargetDescription target) {
+        return ((AMD64) target.arch).getFeatures().contains(CPUFeature.SSE4_2);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register src = asRegister(srcTemp);
+        Register dst = asRegister(dstTemp);
+        Register range = asDoubleReg(rangeTemp);
+        Register vector = asDoubleReg(vectorTemp);
+
+        Label loop = new Label();
+        Label done = new Label();
+
+        // Load the addresses of the first elements of both ranges.
+        masm.movslq(AMD64.rcx, asRegister(srcOffsetValue));
+        masm.leaq(src, new AMD64Address(asRegister(srcValue), AMD64.rcx, Scale.Times2, charArrayBaseOffset));
+        masm.movslq(AMD64.rcx, asRegister(dstOffsetValue));
+        masm.leaq(dst, new AMD64Address(asRegister(dstValue), AMD64.rcx, Scale.Times1, byteArrayBaseOffset));
+
+        masm.movl(AMD64.rcx, UNMAPPABLE_RANGE);
+        masm.movdl(range, AMD64.rcx);
+        masm.movl(AMD64.rax, 2);
+        masm.movl(AMD64.rdx, CHARS_PER_VECTOR);
+        masm.movl(result, 0);
+
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        // Stop if the next vector extends beyond the range.
+        masm.movl(AMD64.rcx, result);
+        masm.addl(AMD64.rcx, CHARS_PER_VECTOR);
+        masm.cmpl(AMD64.rcx, asRegister(lengthValue));
+        masm.jcc(ConditionFlag.Greater, done);
+        masm.movdqu(vector, new AMD64Address(src, result, Scale.Times2, 0));
+        masm.pcmpestri(range, vector, RANGES);
+        // The carry flag is set if the vector contains a char that cannot be converted.
+        masm.jcc(ConditionFlag.Below, done);
+        masm.packuswb(vector, vector);
+        masm.movq(new AMD64Address(dst, result, Scale.Times1, 0), vector);
+        masm.addl(result, CHARS_PER_VECTOR);
+        masm.jmp(loop);
+
+        masm.bind(done);
+    }
+}
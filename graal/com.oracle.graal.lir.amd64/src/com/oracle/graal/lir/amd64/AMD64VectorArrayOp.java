@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64;
+
+import static com.oracle.graal.api.code.ValueUtil.*;
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.oracle.graal.amd64.*;
+import com.oracle.graal.amd64.AMD64.CPUFeature;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.asm.*;
+import com.oracle.graal.asm.amd64.*;
+import com.oracle.graal.asm.amd64.AMD64Address.Scale;
+import com.oracle.graal.asm.amd64.AMD64Assembler.ConditionFlag;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.compiler.common.calc.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.asm.*;
+import com.oracle.graal.lir.gen.*;
+
+/**
+ * Emits a loop that applies an element-wise {@link VectorOperation} to a range of array elements
+ * using packed SSE or, if available, AVX instructions. Only as many elements as fit into whole
+ * vectors are processed; the result is the index of the first unprocessed element.
+ */
+@Opcode("VECTOR_ARRAY_OP")
+public class AMD64VectorArrayOp extends AMD64LIRInstruction {
+
+    private final VectorOperation op;
+    private final Kind kind;
+    private final int arrayBaseOffset;
+    private final int arrayIndexScale;
+
+    @Def({REG}) protected Value resultValue;
+    @Alive({REG}) protected Value dstValue;
+    @Alive({REG}) protected Value src1Value;
+    @Alive({REG, ILLEGAL}) protected Value src2Value;
+    @Alive({REG}) protected Value fromValue;
+    @Alive({REG}) protected Value toValue;
+    @Temp({REG}) protected Value indexTemp;
+    @Temp({REG}) protected Value endTemp;
+    @Temp({REG}) protected Value vectorTemp1;
+    @Temp({REG, ILLEGAL}) protected Value vectorTemp2;
+
+    public AMD64VectorArrayOp(LIRGeneratorTool tool, VectorOperation op, Kind kind, Value result, Value dst, Value src1, Value src2, Value from, Value to) {
+        assert isSupported(tool.target(), op, kind);
+        this.op = op;
+        this.kind = kind;
+
+        Class<?> arrayClass = Array.newInstance(kind.toJavaClass(), 0).getClass();
+        this.arrayBaseOffset = unsafe.arrayBaseOffset(arrayClass);
+        this.arrayIndexScale = unsafe.arrayIndexScale(arrayClass);
+
+        this.resultValue = result;
+        this.dstValue = dst;
+        this.src1Value = src1;
+        this.src2Value = src2;
+        this.fromValue = from;
+        this.toValue = to;
+
+        this.indexTemp = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.endTemp = tool.newVariable(LIRKind.value(tool.target().wordKind));
+        this.vectorTemp1 = tool.newVariable(LIRKind.value(Kind.Double));
+        this.vectorTemp2 = op.isBinary() ? tool.newVariable(LIRKind.value(Kind.Double)) : Value.ILLEGAL;
+    }
+
+    /**
+     * Determines if the operation {@code op} on arrays of {@code kind} can be performed with the
+     * vector instructions available on {@code target}.
+     */
+    public static boolean isSupported(TargetDescription target, VectorOperation op, Kind kind) {
+        EnumSet<CPUFeature> features = ((AMD64) target.arch).getFeatures();
+        switch (op) {
+            case COPY:
+            case ADD:
+            case SUB:
+                return kind == Kind.Int || kind == Kind.Long || kind == Kind.Float || kind == Kind.Double;
+            case MUL:
+                return (kind == Kind.Int && features.contains(CPUFeature.SSE4_1)) || kind == Kind.Float || kind == Kind.Double;
+            case DIV:
+                return kind == Kind.Float || kind == Kind.Double;
+            case AND:
+            case OR:
+            case XOR:
+                return kind == Kind.Int || kind == Kind.Long;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Determines if 256-bit AVX instructions are used. Packed floating point operations are
+     * available with AVX whereas packed integer operations require AVX2.
+     */
+    private boolean useAVX(TargetDescription target) {
+        EnumSet<CPUFeature> features = ((AMD64) target.arch).getFeatures();
+        if (op == VectorOperation.COPY || kind == Kind.Float || kind == Kind.Double) {
+            return features.contains(CPUFeature.AVX);
+        }
+        return features.contains(CPUFeature.AVX2);
+    }
+
+    @Override
+    public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+        Register result = asRegister(resultValue);
+        Register index = asRegister(indexTemp);
+        Register end = asRegister(endTemp);
+        boolean avx = useAVX(crb.target);
+        int elementsPerVector = (avx ? 32 : 16) / arrayIndexScale;
+
+        Label loop = new Label();
+        Label tooShort = new Label();
+        Label done = new Label();
+
+        // Number of elements in the range, rounded down to whole vectors.
+        masm.movl(end, asRegister(toValue));
+        masm.subl(end, asRegister(fromValue));
+        masm.cmpl(end, elementsPerVector);
+        masm.jcc(ConditionFlag.Less, tooShort);
+        masm.andl(end, ~(elementsPerVector - 1));
+
+        // The range is non-negative, so the index can be used as a 64-bit value.
+        masm.movslq(index, asRegister(fromValue));
+        masm.addq(end, index);
+
+        // Align the main loop
+        masm.align(crb.target.wordSize * 2);
+        masm.bind(loop);
+        if (avx) {
+            emitAVXVector(masm, index);
+        } else {
+            emitSSEVector(masm, index);
+        }
+        masm.addq(index, elementsPerVector);
+        masm.cmpq(index, end);
+        masm.jcc(ConditionFlag.Less, loop);
+
+        if (avx) {
+            masm.vzeroupper();
+        }
+        masm.movl(result, end);
+        masm.jmp(done);
+
+        masm.bind(tooShort);
+        masm.movl(result, asRegister(fromValue));
+        masm.bind(done);
+    }
+
+    private AMD64Address elementAddress(Value array, Register index) {
+        return new AMD64Address(asRegister(array), index, Scale.fromInt(arrayIndexScale), arrayBaseOffset);
+    }
+
+    /**
+     * Emits code that processes one 128-bit vector.
+     */
+    private void emitSSEVector(AMD64MacroAssembler masm, Register index) {
+        Register vector1 = asDoubleReg(vectorTemp1);
+        masm.movdqu(vector1, elementAddress(src1Value, index));
+        if (op.isBinary()) {
+            Register vector2 = asDoubleReg(vectorTemp2);
+            masm.movdqu(vector2, elementAddress(src2Value, index));
+            switch (op) {
+                case ADD:
+                    switch (kind) {
+                        case Int:
+                            masm.paddd(vector1, vector2);
+                            break;
+                        case Long:
+                            masm.paddq(vector1, vector2);
+                            break;
+                        case Float:
+                            masm.addps(vector1, vector2);
+                            break;
+                        case Double:
+                            masm.addpd(vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case SUB:
+                    switch (kind) {
+                        case Int:
+                            masm.psubd(vector1, vector2);
+                            break;
+                        case Long:
+                            masm.psubq(vector1, vector2);
+                            break;
+                        case Float:
+                            masm.subps(vector1, vector2);
+                            break;
+                        case Double:
+                            masm.subpd(vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case MUL:
+                    switch (kind) {
+                        case Int:
+                            masm.pmulld(vector1, vector2);
+                            break;
+                        case Float:
+                            masm.mulps(vector1, vector2);
+                            break;
+                        case Double:
+                            masm.mulpd(vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case DIV:
+                    if (kind == Kind.Float) {
+                        masm.divps(vector1, vector2);
+                    } else {
+                        masm.divpd(vector1, vector2);
+                    }
+                    break;
+                case AND:
+                    masm.pand(vector1, vector2);
+                    break;
+                case OR:
+                    masm.por(vector1, vector2);
+                    break;
+                case XOR:
+                    masm.pxor(vector1, vector2);
+                    break;
+                default:
+                    throw GraalInternalError.shouldNotReachHere();
+            }
+        }
+        masm.movdqu(elementAddress(dstValue, index), vector1);
+    }
+
+    /**
+     * Emits code that processes one 256-bit vector.
+     */
+    private void emitAVXVector(AMD64MacroAssembler masm, Register index) {
+        Register vector1 = asDoubleReg(vectorTemp1);
+        masm.vmovdqu(vector1, elementAddress(src1Value, index));
+        if (op.isBinary()) {
+            Register vector2 = asDoubleReg(vectorTemp2);
+            masm.vmovdqu(vector2, elementAddress(src2Value, index));
+            switch (op) {
+                case ADD:
+                    switch (kind) {
+                        case Int:
+                            masm.vpaddd(vector1, vector1, vector2);
+                            break;
+                        case Long:
+                            masm.vpaddq(vector1, vector1, vector2);
+                            break;
+                        case Float:
+                            masm.vaddps(vector1, vector1, vector2);
+                            break;
+                        case Double:
+                            masm.vaddpd(vector1, vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case SUB:
+                    switch (kind) {
+                        case Int:
+                            masm.vpsubd(vector1, vector1, vector2);
+                            break;
+                        case Long:
+                            masm.vpsubq(vector1, vector1, vector2);
+                            break;
+                        case Float:
+                            masm.vsubps(vector1, vector1, vector2);
+                            break;
+                        case Double:
+                            masm.vsubpd(vector1, vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case MUL:
+                    switch (kind) {
+                        case Int:
+                            masm.vpmulld(vector1, vector1, vector2);
+                            break;
+                        case Float:
+                            masm.vmulps(vector1, vector1, vector2);
+                            break;
+                        case Double:
+                            masm.vmulpd(vector1, vector1, vector2);
+                            break;
+                        default:
+                            throw GraalInternalError.shouldNotReachHere();
+                    }
+                    break;
+                case DIV:
+                    if (kind == Kind.Float) {
+                        masm.vdivps(vector1, vector1, vector2);
+                    } else {
+                        masm.vdivpd(vector1, vector1, vector2);
+                    }
+                    break;
+                case AND:
+                    masm.vpand(vector1, vector1, vector2);
+                    break;
+                case OR:
+                    masm.vpor(vector1, vector1, vector2);
+                    break;
+                case XOR:
+                    masm.vpxor(vector1, vector1, vector2);
+                    break;
+                default:
+                    throw GraalInternalError.shouldNotReachHere();
+            }
+        }
+        masm.vmovdqu(elementAddress(dstValue, index), vector1);
+    }
+}
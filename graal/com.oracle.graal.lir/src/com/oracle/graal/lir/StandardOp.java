@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.lir;
 
+import static com.oracle.graal.compiler.common.GraalOptions.*;
 import static com.oracle.graal.lir.LIRInstruction.OperandFlag.*;
 
 import java.util.*;
@@ -90,7 +91,8 @@ public class StandardOp {
         @Override
         public void emitCode(CompilationResultBuilder crb) {
             if (align) {
-                crb.asm.align(crb.target.wordSize * 2);
+                int alignment = LoopHeaderAlignment.getValue();
+                crb.asm.align(alignment > 0 ? alignment : crb.target.wordSize * 2);
             }
             crb.asm.bind(label);
         }
@@ -323,6 +323,41 @@ public abstract class LIRGenerator implements LIRGeneratorTool, LIRKindTool {
 
     protected abstract void emitTableSwitch(int lowKey, LabelRef defaultTarget, LabelRef[] targets, Value key);
 
+    /**
+     * Processes none of the elements. Backends that support vector instructions override this.
+     */
+    public Value emitVectorArrayOp(VectorOperation op, Kind kind, Value dst, Value src1, Value src2, Value from, Value to) {
+        return emitMove(from);
+    }
+
+    /**
+     * Examines none of the elements. Backends that support vector instructions override this.
+     */
+    public Value emitCharArrayIndexOf(Value array, Value fromIndex, Value toIndex, Value value) {
+        return emitMove(fromIndex);
+    }
+
+    /**
+     * Examines none of the elements. Backends that support vector instructions override this.
+     */
+    public Value emitCharArraySearch(Value source, Value fromIndex, Value maxIndex, Value target, Value targetOffset, Value targetCount) {
+        return emitMove(fromIndex);
+    }
+
+    /**
+     * Compares none of the elements. Backends that support vector instructions override this.
+     */
+    public Value emitCharArrayCompare(Value array1, Value array2, Value length) {
+        return emitMove(Constant.INT_0);
+    }
+
+    /**
+     * Converts none of the elements. Backends that support vector instructions override this.
+     */
+    public Value emitEncodeISOArray(Value src, Value srcOffset, Value dst, Value dstOffset, Value length) {
+        return emitMove(Constant.INT_0);
+    }
+
     public CallingConvention getCallingConvention() {
         return cc;
     }
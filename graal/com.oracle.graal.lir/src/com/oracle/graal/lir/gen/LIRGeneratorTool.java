@@ -189,4 +189,76 @@ public interface LIRGeneratorTool extends ArithmeticLIRGenerator {
 
     Value emitArrayEquals(Kind kind, Value array1, Value array2, Value length);
 
+    /**
+     * Emits code that stores {@code value} to the elements of {@code array} in the range
+     * {@code [fromIndex, toIndex)}, which must be within the bounds of the array. Float and double
+     * values are passed as their raw int and long bits, boolean values as 0 or 1.
+     */
+    void emitArrayFill(Kind kind, Value array, Value fromIndex, Value toIndex, Value value);
+
+    /**
+     * Emits code that computes the hash code of the first {@code length} elements of
+     * {@code array} as defined by {@link java.util.Arrays#hashCode(int[])}.
+     */
+    Value emitArrayHashCode(Kind kind, Value array, Value length);
+
+    /**
+     * Emits code that compares the first {@code length} elements of two arrays.
+     *
+     * @return the index of the first element that differs or -1 if the elements are equal
+     */
+    Value emitArrayMismatch(Kind kind, Value array1, Value array2, Value length);
+
+    /**
+     * Emits code that applies an element-wise operation to the elements of arrays in the range
+     * {@code [from, to)}, i.e., {@code dst[i] = src1[i] op src2[i]}. The range must be within the
+     * bounds of all arrays. The code may process only a prefix of the range, e.g. as many elements
+     * as fit into whole vectors.
+     *
+     * @param src2 the second source array or {@link Value#ILLEGAL} if {@code op} is not binary
+     * @return the index of the first element that was not processed
+     */
+    Value emitVectorArrayOp(VectorOperation op, Kind kind, Value dst, Value src1, Value src2, Value from, Value to);
+
+    /**
+     * Emits code that searches the char array {@code array} for {@code value} in the range
+     * {@code [fromIndex, toIndex)}, which must be within the bounds of the array. The code may
+     * examine only a prefix of the range.
+     *
+     * @return an index {@code i} with {@code fromIndex <= i <= toIndex} such that no element in
+     *         {@code [fromIndex, i)} is equal to {@code value}
+     */
+    Value emitCharArrayIndexOf(Value array, Value fromIndex, Value toIndex, Value value);
+
+    /**
+     * Emits code that searches the char array {@code source} for an occurrence of the
+     * {@code targetCount > 0} chars of {@code target} starting at {@code targetOffset}. Occurrences
+     * may start at indexes in {@code [fromIndex, maxIndex]}, and
+     * {@code maxIndex + targetCount} must not exceed the length of {@code source}. The code may
+     * examine only a prefix of the range.
+     *
+     * @return an index {@code i >= fromIndex} such that no occurrence starts at an index in
+     *         {@code [fromIndex, min(i, maxIndex + 1))}
+     */
+    Value emitCharArraySearch(Value source, Value fromIndex, Value maxIndex, Value target, Value targetOffset, Value targetCount);
+
+    /**
+     * Emits code that compares the first {@code length} elements of two char arrays. The code may
+     * compare only a prefix of the range.
+     *
+     * @return an index {@code i} with {@code 0 <= i <= length} such that the elements in
+     *         {@code [0, i)} are equal in both arrays
+     */
+    Value emitCharArrayCompare(Value array1, Value array2, Value length);
+
+    /**
+     * Emits code that stores the {@code length} chars of {@code src} starting at {@code srcOffset}
+     * as ISO-8859-1 bytes in {@code dst} starting at {@code dstOffset}, stopping before the first
+     * char greater than {@code 0xFF}. Both ranges must be within the bounds of the arrays. The code
+     * may convert only a prefix of the range.
+     *
+     * @return the number of chars that were converted
+     */
+    Value emitEncodeISOArray(Value src, Value srcOffset, Value dst, Value dstOffset, Value length);
+
 }
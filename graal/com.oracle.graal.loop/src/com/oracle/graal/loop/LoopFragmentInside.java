@@ -74,9 +74,52 @@ public class LoopFragmentInside extends LoopFragment {
         return (LoopFragmentInside) super.original();
     }
 
-    @SuppressWarnings("unused")
+    /**
+     * Appends this duplicate of the inside of a loop with a single back edge to the end of the
+     * loop body, so that each iteration of the loop executes the original and then the duplicated
+     * code. The loop exits of the duplicate are left unconnected: the caller must make them
+     * unreachable, e.g., by removing the control split in front of them.
+     */
     public void appendInside(LoopEx loop) {
-        // TODO (gd)
+        assert this.isDuplicate() && this.original().loop() == loop;
+        final LoopBeginNode loopBegin = loop.loopBegin();
+        assert loopBegin.loopEnds().count() == 1;
+        final LoopEndNode loopEnd = loopBegin.loopEnds().first();
+
+        // the duplicate sees the values of the loop phis at the end of the original body
+        patchNodes(new DuplicationReplacement() {
+
+            @Override
+            public Node replacement(Node oriInput) {
+                if (loopBegin.isPhiAtMerge(oriInput)) {
+                    return ((PhiNode) oriInput).valueAt(loopEnd);
+                }
+                return oriInput;
+            }
+        });
+
+        Map<PhiNode, ValueNode> newBackValues = newNodeIdentityMap();
+        for (PhiNode phi : loopBegin.phis()) {
+            ValueNode backValue = phi.valueAt(loopEnd);
+            ValueNode newBackValue;
+            if (loopBegin.isPhiAtMerge(backValue)) {
+                newBackValue = ((PhiNode) backValue).valueAt(loopEnd);
+            } else {
+                ValueNode duplicate = getDuplicatedNode(backValue);
+                newBackValue = duplicate != null ? duplicate : backValue;
+            }
+            newBackValues.put(phi, newBackValue);
+        }
+
+        BeginNode duplicateBegin = getDuplicatedNode(loopBegin);
+        AbstractEndNode duplicateEnd = getDuplicatedNode(loopEnd);
+        loopEnd.replaceAtPredecessor(duplicateBegin);
+        duplicateEnd.replaceAtPredecessor(loopEnd);
+        duplicateEnd.safeDelete();
+
+        for (Map.Entry<PhiNode, ValueNode> entry : newBackValues.entrySet()) {
+            entry.getKey().setValueAt(loopEnd, entry.getValue());
+        }
     }
 
     @Override
@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.loop;
 
+import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.compiler.common.cfg.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.graph.Graph.DuplicationReplacement;
@@ -101,9 +102,39 @@ public class LoopFragmentWhole extends LoopFragment {
         // TODO (gd) ?
     }
 
+    /**
+     * Inserts this duplicate of a loop with a single exit before the original loop: the duplicate
+     * loop is entered instead of the original loop and its exit enters the original loop, which
+     * starts with the values of the duplicate's loop phis.
+     */
     @Override
     public void insertBefore(LoopEx loop) {
-        // TODO Auto-generated method stub
+        assert this.isDuplicate() && this.original().loop() == loop;
+        assert loop.loopBegin().loopExits().count() == 1 : "loops with several exits can not be put in sequence";
 
+        patchNodes(null);
+
+        StructuredGraph graph = graph();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        LoopBeginNode newLoopBegin = getDuplicatedNode(loopBegin);
+        LoopExitNode newExit = getDuplicatedNode(loopBegin.loopExits().first());
+        AbstractEndNode entry = loopBegin.forwardEnd();
+        entry.replaceAtPredecessor(newLoopBegin.forwardEnd());
+        newExit.setNext(entry);
+
+        for (PhiNode phi : loopBegin.phis()) {
+            PhiNode newPhi = getDuplicatedNode(phi);
+            ValueNode exitValue = newPhi;
+            if (graph.hasValueProxies()) {
+                if (phi instanceof ValuePhiNode) {
+                    exitValue = ProxyNode.forValue(newPhi, newExit, graph);
+                } else if (phi instanceof GuardPhiNode) {
+                    exitValue = ProxyNode.forGuard((GuardPhiNode) newPhi, newExit, graph);
+                } else {
+                    throw GraalInternalError.shouldNotReachHere();
+                }
+            }
+            phi.setValueAt(entry, exitValue);
+        }
     }
 }
@@ -29,6 +29,7 @@ import java.util.function.*;
 
 import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.nodes.cfg.*;
 
@@ -60,6 +61,39 @@ public abstract class LoopPolicies {
         return size * maxTrips <= maxNodes;
     }
 
+    /**
+     * Determines if a counted loop should be split into pre, main and post loops with a main loop
+     * that is unrolled {@code factor} times (see
+     * {@link LoopTransformations#partialUnroll(LoopEx, int, boolean)}).
+     */
+    public static boolean shouldPartialUnroll(LoopEx loop, int factor) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (loopBegin.isPartiallyUnrolled() || !loop.isCounted() || !loop.loop().getChildren().isEmpty() || !loopBegin.graph().hasValueProxies()) {
+            return false;
+        }
+        CountedLoopInfo counted = loop.counted();
+        InductionVariable counter = counted.getCounter();
+        if (!(counter instanceof BasicInductionVariable) || counter.direction() != Direction.Up || !counter.isConstantStride() || counted.getStamp().getBits() != 32) {
+            return false;
+        }
+        long stride = counter.constantStride();
+        if (stride <= 0 || stride * factor > Short.MAX_VALUE) {
+            return false;
+        }
+        // pre and main loops are put in sequence with the original loop, which needs a single exit
+        if (loopBegin.loopEnds().count() != 1 || loopBegin.loopExits().count() != 1 || loopBegin.phis().filter(MemoryPhiNode.class).isNotEmpty()) {
+            return false;
+        }
+        if (counted.isConstantMaxTripCount() && counted.constantMaxTripCount() < 2 * factor) {
+            return false;
+        }
+        if (loopBegin.loopFrequency() < factor) {
+            return false;
+        }
+        int addedNodes = loop.size() * (factor + 1);
+        return addedNodes <= PartialUnrollMaxNodes.getValue() && loopBegin.graph().getNodeCount() + addedNodes <= MaximumDesiredSize.getValue();
+    }
+
     public static boolean shouldTryUnswitch(LoopEx loop) {
         return loop.loopBegin().unswitches() <= LoopMaxUnswitch.getValue();
     }
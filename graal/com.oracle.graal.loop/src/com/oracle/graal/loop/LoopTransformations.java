@@ -31,7 +31,9 @@ import com.oracle.graal.graph.Graph.Mark;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.nodeinfo.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
 import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.util.*;
 import com.oracle.graal.phases.common.*;
 import com.oracle.graal.phases.tiers.*;
 
@@ -142,6 +144,106 @@ public abstract class LoopTransformations {
         }
     }
 
+    /**
+     * Splits a counted loop into an optional pre loop that runs until the counter is a multiple of
+     * {@code factor}, a main loop whose body is unrolled {@code factor} times and a post loop that
+     * runs the remaining iterations. The pre and main loop are copies of the original loop with a
+     * stricter loop condition. The condition of the main loop guarantees that all {@code factor}
+     * iterations in its body would pass the original loop condition, so the copies of the body are
+     * not separated by exit checks. The original loop serves as the post loop.
+     *
+     * @param factor the unroll factor of the main loop, a power of two
+     * @param align specifies if a pre loop should be inserted
+     */
+    public static void partialUnroll(LoopEx loop, int factor, boolean align) {
+        assert loop.isCounted() && factor > 1 && CodeUtil.isPowerOf2(factor);
+        LoopBeginNode loopBegin = loop.loopBegin();
+        StructuredGraph graph = loopBegin.graph();
+        CountedLoopInfo counted = loop.counted();
+        IfNode countedIf = (IfNode) counted.getBody().predecessor();
+        ValueNode start = counted.getStart();
+        ValueNode limit = counted.getLimit();
+        long stride = counted.getCounter().constantStride();
+
+        // all copies of the loop inherit this flag
+        loopBegin.setPartiallyUnrolled();
+
+        if (align && stride == 1) {
+            ValueNode aligned = graph.unique(AndNode.create(BinaryArithmeticNode.add(graph, start, ConstantNode.forInt(factor - 1, graph)), ConstantNode.forInt(-factor, graph)));
+            if (counted.isLimitIncluded()) {
+                aligned = BinaryArithmeticNode.sub(graph, aligned, ConstantNode.forInt(1, graph));
+            }
+            ValueNode preLimit = graph.unique(ConditionalNode.create(graph.unique(IntegerLessThanNode.create(limit, aligned)), limit, aligned));
+            LoopFragmentWhole pre = new LoopFragmentWhole(loop.whole());
+            pre.insertBefore(loop);
+            restrictLimit(pre.getDuplicatedNode(countedIf), limit, preLimit);
+            loop.invalidateFragments();
+        }
+
+        // the main loop condition implies that the counter does not exceed the limit within the
+        // next factor - 1 iterations
+        int distance = (int) ((factor - 1) * stride);
+        LogicNode wouldUnderflow = graph.unique(IntegerLessThanNode.create(limit, ConstantNode.forInt(Integer.MIN_VALUE + distance, graph)));
+        ValueNode reducedLimit = BinaryArithmeticNode.sub(graph, limit, ConstantNode.forInt(distance, graph));
+        LoopFragmentWhole main = new LoopFragmentWhole(loop.whole());
+        main.insertBefore(loop);
+        IfNode mainIf = main.getDuplicatedNode(countedIf);
+        BeginNode mainBody = main.getDuplicatedNode(counted.getBody());
+        LoopBeginNode mainBegin = main.getDuplicatedNode(loopBegin);
+        IntegerLessThanNode compare = (IntegerLessThanNode) mainIf.condition();
+        if (compare.getY() == limit && mainIf.trueSuccessor() == mainBody) {
+            // the main loop is entered if counter < mainLimit, which never holds for MIN_VALUE
+            ConstantNode min = ConstantNode.forInt(Integer.MIN_VALUE, graph);
+            restrictLimit(mainIf, limit, graph.unique(ConditionalNode.create(wouldUnderflow, min, reducedLimit)));
+        } else {
+            // no limit excludes all values of the counter, so the underflow has to be tested
+            restrictLimit(mainIf, limit, reducedLimit);
+            skipLoopIf(mainIf, mainBody, wouldUnderflow);
+        }
+        loop.invalidateFragments();
+
+        // every round doubles the body of the main loop
+        for (int copies = 1; copies < factor; copies *= 2) {
+            LoopEx mainLoop = new LoopsData(graph).loop(mainBegin);
+            LoopFragmentInside inside = mainLoop.inside().duplicate();
+            inside.appendInside(mainLoop);
+            graph.removeSplitPropagate(inside.getDuplicatedNode(mainIf), inside.getDuplicatedNode(mainBody));
+        }
+        mainBegin.setLoopFrequency(Math.max(1, mainBegin.loopFrequency() / factor));
+    }
+
+    /**
+     * Changes the condition of {@code ifNode}, which controls whether the loop body {@code body}
+     * is executed, such that the body is not executed if {@code skip} holds.
+     */
+    private static void skipLoopIf(IfNode ifNode, BeginNode body, LogicNode skip) {
+        StructuredGraph graph = ifNode.graph();
+        LogicNode condition = ifNode.condition();
+        double probability = BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY;
+        if (ifNode.falseSuccessor() == body) {
+            ifNode.setCondition(graph.unique(ShortCircuitOrNode.create(skip, false, condition, false, probability)));
+        } else {
+            LogicNode exit = graph.unique(ShortCircuitOrNode.create(skip, false, condition, true, probability));
+            ifNode.setCondition(graph.unique(LogicNegationNode.create(exit)));
+        }
+    }
+
+    private static void restrictLimit(IfNode ifNode, ValueNode limit, ValueNode newLimit) {
+        StructuredGraph graph = ifNode.graph();
+        IntegerLessThanNode compare = (IntegerLessThanNode) ifNode.condition();
+        IntegerLessThanNode newCompare;
+        if (compare.getX() == limit) {
+            newCompare = IntegerLessThanNode.create(newLimit, compare.getY());
+        } else {
+            assert compare.getY() == limit;
+            newCompare = IntegerLessThanNode.create(compare.getX(), newLimit);
+        }
+        ifNode.setCondition(graph.unique(newCompare));
+        if (compare.usages().isEmpty()) {
+            GraphUtil.killWithUnusedFloatingInputs(compare);
+        }
+    }
+
     public static List<ControlSplitNode> findUnswitchable(LoopEx loop) {
         List<ControlSplitNode> controls = null;
         ValueNode invariantValue = null;
@@ -38,6 +38,11 @@ public class LoopFullUnrollPhase extends BasePhase<PhaseContext> {
         this.canonicalizer = canonicalizer;
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, PhaseContext context) {
         if (graph.hasLoops()) {
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Replaces the array bounds and null checks in the body of a counted loop by predicates that are
+ * evaluated once before the loop.
+ *
+ * A floating bounds check {@code index |<| length} is predicated if {@code length} is loop
+ * invariant and {@code index} is an affine function of the loop counter (e.g., {@code i},
+ * {@code i + k}, {@code k - i} or {@code 2 * i + 1}). Such an index is monotonic, so the check
+ * holds in every iteration if it holds for the first and the last value of the counter. These two
+ * values are computed in 64 bits from the start, limit and stride of the loop, which makes the
+ * predicate immune to overflow of the 32-bit arithmetic in the loop body. The predicate only
+ * applies if the loop is entered at all.
+ *
+ * A null check of a loop invariant object is moved before the loop and likewise only applies if
+ * the loop is entered, so that loops executing zero times do not deoptimize.
+ *
+ * Only checks that are executed in every iteration are considered, i.e., checks whose anchor
+ * dominates all loop ends and all exits of the loop except the exit taken when the loop condition
+ * fails. A loop exit that can be taken before the check (e.g., a {@code break} guarding the array
+ * access) means that the check is not executed for all values of the counter, so the predicate
+ * could fail although the loop would never fail the check.
+ *
+ * The new guards deoptimize with {@link DeoptimizationReason#LoopPredicate} and
+ * {@link DeoptimizationAction#InvalidateRecompile}: a method whose predicates fail repeatedly is
+ * recompiled without {@link OptimisticOptimizations#useLoopPredication() loop predication} and
+ * thus with the checks kept in the loop.
+ */
+public class LoopPredicationPhase extends BasePhase<MidTierContext> {
+
+    private static final DebugMetric PREDICATED_LOOPS = Debug.metric("PredicatedLoops");
+    private static final DebugMetric PREDICATED_BOUNDS_CHECKS = Debug.metric("PredicatedBoundsChecks");
+    private static final DebugMetric PREDICATED_NULL_CHECKS = Debug.metric("PredicatedNullChecks");
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        OptimisticOptimizations optimisticOpts = context.getOptimisticOptimizations();
+        // the predicates of bounds checks rely on the overflow guard of the counted loop
+        if (!graph.hasLoops() || !optimisticOpts.useLoopPredication() || !optimisticOpts.useLoopLimitChecks()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        loops.detectedCountedLoops();
+        for (LoopEx loop : loops.innerFirst()) {
+            if (loop.isCounted()) {
+                new LoopPredicator(loop, loops.controlFlowGraph()).apply();
+            }
+        }
+        loops.deleteUnusedNodes();
+    }
+
+    private static final class LoopPredicator {
+
+        private final LoopEx loop;
+        private final ControlFlowGraph cfg;
+        private final CountedLoopInfo counted;
+        private final StructuredGraph graph;
+        private final Stamp longStamp = StampFactory.forKind(Kind.Long);
+
+        private ValueNode firstCounter;
+        private ValueNode lastCounter;
+        private LogicNode entered;
+        private boolean enteredNegated;
+        private boolean predicated;
+
+        LoopPredicator(LoopEx loop, ControlFlowGraph cfg) {
+            this.loop = loop;
+            this.cfg = cfg;
+            this.counted = loop.counted();
+            this.graph = loop.loopBegin().graph();
+        }
+
+        void apply() {
+            List<GuardNode> guards = graph.getNodes(GuardNode.class).snapshot();
+            for (GuardNode guard : guards) {
+                if (guard.isAlive() && isNullCheck(guard) && isExecutedInEveryIteration(guard)) {
+                    LogicNode predicate = createEnteredPredicate(guard.condition(), true);
+                    replaceGuard(guard, GuardNode.create(predicate, anchor(), DeoptimizationReason.LoopPredicate, DeoptimizationAction.InvalidateRecompile, false, Constant.NULL_OBJECT));
+                    PREDICATED_NULL_CHECKS.increment();
+                }
+            }
+            if (predicated) {
+                // array length reads guarded by a moved null check may now be loop invariant
+                loop.invalidateFragments();
+            }
+            if (hasPredicableCounter()) {
+                for (GuardNode guard : guards) {
+                    if (guard.isAlive() && isPredicableBoundsCheck(guard) && isExecutedInEveryIteration(guard)) {
+                        IntegerBelowNode boundsCheck = (IntegerBelowNode) guard.condition();
+                        LogicNode predicate = createBoundsPredicate(boundsCheck.getX(), boundsCheck.getY());
+                        replaceGuard(guard, GuardNode.create(predicate, anchor(), DeoptimizationReason.LoopPredicate, DeoptimizationAction.InvalidateRecompile, false, Constant.NULL_OBJECT));
+                        PREDICATED_BOUNDS_CHECKS.increment();
+                    }
+                }
+            }
+            if (predicated) {
+                PREDICATED_LOOPS.increment();
+                Debug.log("Predicated checks of %s", loop);
+            }
+        }
+
+        private AnchoringNode anchor() {
+            return BeginNode.prevBegin(loop.entryPoint());
+        }
+
+        private void replaceGuard(GuardNode guard, GuardNode predicate) {
+            guard.replaceAtUsages(graph.unique(predicate));
+            GraphUtil.killWithUnusedFloatingInputs(guard);
+            predicated = true;
+        }
+
+        private boolean isNullCheck(GuardNode guard) {
+            return guard.negated() && guard.condition() instanceof IsNullNode && loop.isOutsideLoop(((IsNullNode) guard.condition()).getValue());
+        }
+
+        private boolean isPredicableBoundsCheck(GuardNode guard) {
+            if (guard.negated() || !(guard.condition() instanceof IntegerBelowNode)) {
+                return false;
+            }
+            IntegerBelowNode boundsCheck = (IntegerBelowNode) guard.condition();
+            ValueNode length = boundsCheck.getY();
+            if (!loop.isOutsideLoop(length) || !isInt(length) || ((IntegerStamp) length.stamp()).lowerBound() < 0) {
+                return false;
+            }
+            return scalingOperations(boundsCheck.getX()) <= 1;
+        }
+
+        /**
+         * Determines if a guard is anchored in the loop body such that it is executed in every
+         * iteration. Such a guard is only reached if the loop condition holds, and no other exit
+         * of the loop can be taken before it.
+         */
+        private boolean isExecutedInEveryIteration(GuardNode guard) {
+            Block anchorBlock = cfg.blockFor(guard.getAnchor().asNode());
+            if (anchorBlock == null || !AbstractControlFlowGraph.dominates(cfg.blockFor(counted.getBody()), anchorBlock)) {
+                return false;
+            }
+            for (LoopEndNode loopEnd : loop.loopBegin().loopEnds()) {
+                if (!AbstractControlFlowGraph.dominates(anchorBlock, cfg.blockFor(loopEnd))) {
+                    return false;
+                }
+            }
+            for (LoopExitNode loopExit : loop.loopBegin().loopExits()) {
+                if (loopExit != conditionExit() && !AbstractControlFlowGraph.dominates(anchorBlock, cfg.blockFor(loopExit))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gets the loop exit taken if the loop condition does not hold.
+         */
+        private BeginNode conditionExit() {
+            IfNode loopTest = (IfNode) counted.getBody().predecessor();
+            return loopTest.trueSuccessor() == counted.getBody() ? loopTest.falseSuccessor() : loopTest.trueSuccessor();
+        }
+
+        private boolean hasPredicableCounter() {
+            InductionVariable counter = counted.getCounter();
+            return counter instanceof BasicInductionVariable && counter.direction() == Direction.Up && counter.isConstantStride() && counter.constantStride() > 0 &&
+                            counted.getStamp().getBits() == 32;
+        }
+
+        private static boolean isInt(ValueNode value) {
+            return value.stamp() instanceof IntegerStamp && ((IntegerStamp) value.stamp()).getBits() == 32;
+        }
+
+        /**
+         * Returns the number of multiplications in {@code index} if it is an affine function of the
+         * loop counter and {@link Integer#MAX_VALUE} otherwise. With at most one multiplication
+         * the function cannot overflow when evaluated in 64 bits for 32-bit arguments.
+         */
+        private int scalingOperations(ValueNode index) {
+            if (!isInt(index)) {
+                return Integer.MAX_VALUE;
+            }
+            if (index == counted.getCounter().valueNode()) {
+                return 0;
+            }
+            if (index instanceof AddNode || index instanceof SubNode) {
+                BinaryArithmeticNode<?> arithmetic = (BinaryArithmeticNode<?>) index;
+                if (loop.isOutsideLoop(arithmetic.getY())) {
+                    return scalingOperations(arithmetic.getX());
+                } else if (loop.isOutsideLoop(arithmetic.getX())) {
+                    return scalingOperations(arithmetic.getY());
+                }
+            } else if (index instanceof MulNode) {
+                MulNode mul = (MulNode) index;
+                if (mul.getY().isConstant()) {
+                    return scalingOperations(mul.getX()) + 1;
+                } else if (mul.getX().isConstant()) {
+                    return scalingOperations(mul.getY()) + 1;
+                }
+            } else if (index instanceof LeftShiftNode) {
+                LeftShiftNode shift = (LeftShiftNode) index;
+                if (shift.getY().isConstant()) {
+                    return scalingOperations(shift.getX()) + 1;
+                }
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Evaluates the affine function {@code index} of the loop counter in 64 bits, substituting
+         * {@code counterValue} for the counter.
+         */
+        private ValueNode evaluate(ValueNode index, ValueNode counterValue) {
+            if (index == counted.getCounter().valueNode()) {
+                return counterValue;
+            }
+            if (index instanceof AddNode || index instanceof SubNode) {
+                BinaryArithmeticNode<?> arithmetic = (BinaryArithmeticNode<?>) index;
+                boolean counterIsX = loop.isOutsideLoop(arithmetic.getY());
+                ValueNode x = counterIsX ? evaluate(arithmetic.getX(), counterValue) : toLong(arithmetic.getX());
+                ValueNode y = counterIsX ? toLong(arithmetic.getY()) : evaluate(arithmetic.getY(), counterValue);
+                return index instanceof AddNode ? BinaryArithmeticNode.add(graph, x, y) : BinaryArithmeticNode.sub(graph, x, y);
+            }
+            if (index instanceof MulNode) {
+                MulNode mul = (MulNode) index;
+                if (mul.getY().isConstant()) {
+                    return BinaryArithmeticNode.mul(graph, evaluate(mul.getX(), counterValue), toLong(mul.getY()));
+                }
+                return BinaryArithmeticNode.mul(graph, toLong(mul.getX()), evaluate(mul.getY(), counterValue));
+            }
+            LeftShiftNode shift = (LeftShiftNode) index;
+            int distance = shift.getY().asConstant().asInt() & 31;
+            return BinaryArithmeticNode.mul(graph, evaluate(shift.getX(), counterValue), ConstantNode.forLong(1L << distance, graph));
+        }
+
+        private ValueNode toLong(ValueNode value) {
+            return IntegerConvertNode.convert(value, longStamp, graph);
+        }
+
+        /**
+         * Creates the condition under which {@code index |<| length} holds in all iterations of the
+         * loop.
+         */
+        private LogicNode createBoundsPredicate(ValueNode index, ValueNode length) {
+            if (firstCounter == null) {
+                createCounterRange();
+            }
+            ValueNode longLength = toLong(length);
+            LogicNode firstInBounds = graph.unique(IntegerBelowNode.create(evaluate(index, firstCounter), longLength));
+            LogicNode lastInBounds = graph.unique(IntegerBelowNode.create(evaluate(index, lastCounter), longLength));
+            LogicNode outOfBounds = graph.unique(ShortCircuitOrNode.create(firstInBounds, true, lastInBounds, true, BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY));
+            return createEnteredPredicate(outOfBounds, true);
+        }
+
+        /**
+         * Creates the condition {@code !entered || condition} (or {@code !entered || !condition}
+         * if {@code negated}), where {@code entered} holds if the loop executes at least once.
+         */
+        private LogicNode createEnteredPredicate(LogicNode condition, boolean negated) {
+            if (entered == null) {
+                createEnteredCondition();
+            }
+            return graph.unique(ShortCircuitOrNode.create(entered, !enteredNegated, condition, negated, BranchProbabilityNode.NOT_FREQUENT_PROBABILITY));
+        }
+
+        /**
+         * Computes the condition under which the loop is entered, i.e., under which the loop
+         * condition holds for the initial value of the counter.
+         */
+        private void createEnteredCondition() {
+            ValueNode start = counted.getStart();
+            ValueNode limit = counted.getLimit();
+            boolean up = counted.getCounter().direction() == Direction.Up;
+            ValueNode low = up ? start : limit;
+            ValueNode high = up ? limit : start;
+            if (counted.isLimitIncluded()) {
+                entered = graph.unique(IntegerLessThanNode.create(high, low));
+                enteredNegated = true;
+            } else {
+                entered = graph.unique(IntegerLessThanNode.create(low, high));
+            }
+        }
+
+        /**
+         * Computes the first and last value of the loop counter. The overflow guard ensures that
+         * the counter never wraps around.
+         */
+        private void createCounterRange() {
+            counted.createOverFlowGuard();
+            ValueNode start = counted.getStart();
+            ValueNode limit = counted.getLimit();
+            firstCounter = toLong(start);
+            ValueNode lastBound = toLong(limit);
+            if (!counted.isLimitIncluded()) {
+                lastBound = BinaryArithmeticNode.sub(graph, lastBound, ConstantNode.forLong(1, graph));
+            }
+            long stride = counted.getCounter().constantStride();
+            if (stride == 1) {
+                lastCounter = lastBound;
+            } else {
+                ConstantNode longStride = ConstantNode.forLong(stride, graph);
+                IntegerDivNode iterations = graph.add(IntegerDivNode.create(BinaryArithmeticNode.sub(graph, lastBound, firstCounter), longStride));
+                graph.addBeforeFixed(loop.entryPoint(), iterations);
+                lastCounter = BinaryArithmeticNode.add(graph, firstCounter, BinaryArithmeticNode.mul(graph, iterations, longStride));
+            }
+        }
+    }
+}
@@ -31,6 +31,11 @@ import com.oracle.graal.phases.tiers.*;
 
 public class LoopSafepointEliminationPhase extends BasePhase<MidTierContext> {
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, MidTierContext context) {
         LoopsData loops = new LoopsData(graph);
@@ -34,6 +34,11 @@ import com.oracle.graal.phases.graph.*;
 
 public class LoopTransformHighPhase extends Phase {
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph) {
         if (graph.hasLoops()) {
@@ -37,6 +37,12 @@ public class LoopTransformLowPhase extends Phase {
 
     private static final DebugMetric UNSWITCHED = Debug.metric("Unswitched");
     private static final DebugMetric UNSWITCH_CANDIDATES = Debug.metric("UnswitchCandidates");
+    private static final DebugMetric PARTIALLY_UNROLLED = Debug.metric("PartiallyUnrolled");
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
 
     @Override
     protected void run(StructuredGraph graph) {
@@ -76,6 +82,20 @@ public class LoopTransformLowPhase extends Phase {
                     }
                 } while (unswitched);
             }
+            int factor = Integer.highestOneBit(PartialUnrollFactor.getValue());
+            if (PartialUnroll.getValue() && factor > 1) {
+                final LoopsData dataUnroll = new LoopsData(graph);
+                dataUnroll.detectedCountedLoops();
+                for (LoopEx loop : dataUnroll.countedLoops()) {
+                    if (LoopPolicies.shouldPartialUnroll(loop, factor)) {
+                        Debug.log("Partially unrolling %s by %d", loop, factor);
+                        LoopTransformations.partialUnroll(loop, factor, PartialUnrollAlignment.getValue());
+                        PARTIALLY_UNROLLED.increment();
+                        Debug.dump(graph, "After partially unrolling %s", loop);
+                    }
+                }
+                dataUnroll.deleteUnusedNodes();
+            }
         }
     }
 
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.calc.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.loop.*;
+import com.oracle.graal.loop.InductionVariable.Direction;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Replaces simple element-wise array loops such as
+ *
+ * <pre>
+ * for (int i = start; i &lt; limit; i++) {
+ *     dst[i] = src1[i] + src2[i];
+ * }
+ * </pre>
+ *
+ * by a {@link VectorArrayOpNode} that processes as many iterations as possible with vector
+ * instructions. The loop itself is kept and executes the iterations not processed by the vector
+ * operation.
+ *
+ * One iteration is peeled off the loop first. Having executed it proves that the arrays are not
+ * null and that the first index is within bounds. The vector operation is then inserted between
+ * the peeled iteration and the loop and is restricted to the indexes below the length of all
+ * arrays, so that it never needs bounds checks. The loop continues at the index returned by the
+ * vector operation.
+ */
+public class LoopVectorizationPhase extends Phase {
+
+    private static final DebugMetric VECTORIZED_LOOPS = Debug.metric("VectorizedLoops");
+
+    /**
+     * The element-wise operation performed by a loop.
+     */
+    private static final class Candidate {
+
+        final VectorOperation op;
+        final Kind kind;
+        final StoreIndexedNode store;
+        final ValueNode src1;
+        final ValueNode src2;
+
+        Candidate(VectorOperation op, Kind kind, StoreIndexedNode store, ValueNode src1, ValueNode src2) {
+            this.op = op;
+            this.kind = kind;
+            this.store = store;
+            this.src1 = src1;
+            this.src2 = src2;
+        }
+    }
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        if (!graph.hasLoops()) {
+            return;
+        }
+        Map<LoopBeginNode, List<ArrayLengthNode>> hoisted = hoistArrayLengths(new LoopsData(graph));
+        Set<LoopBeginNode> processed = new HashSet<>();
+        boolean vectorized;
+        do {
+            vectorized = false;
+            LoopsData data = new LoopsData(graph);
+            data.detectedCountedLoops();
+            for (LoopEx loop : data.countedLoops()) {
+                if (processed.add(loop.loopBegin())) {
+                    Candidate candidate = match(loop);
+                    if (candidate != null) {
+                        Debug.log("Vectorizing %s", loop);
+                        hoisted.remove(loop.loopBegin());
+                        vectorize(loop, candidate);
+                        Debug.dump(graph, "After vectorizing %s", loop);
+                        VECTORIZED_LOOPS.increment();
+                        vectorized = true;
+                        break;
+                    }
+                }
+            }
+            data.deleteUnusedNodes();
+        } while (vectorized);
+        restoreArrayLengths(hoisted);
+    }
+
+    /**
+     * Moves the array length loads at the start of innermost loops whose array is defined outside
+     * the loop in front of the loop. This turns loops like
+     * {@code for (int i = 0; i < a.length; i++)} into counted loops. The header of a loop is
+     * executed at least once and the length of an array never changes, so this does not change
+     * the behavior of the loop.
+     *
+     * @return the hoisted array length loads of each loop, in their original order
+     */
+    private static Map<LoopBeginNode, List<ArrayLengthNode>> hoistArrayLengths(LoopsData data) {
+        Map<LoopBeginNode, List<ArrayLengthNode>> hoisted = new HashMap<>();
+        for (LoopEx loop : data.innerFirst()) {
+            LoopBeginNode loopBegin = loop.loopBegin();
+            if (!loop.loop().getChildren().isEmpty() || loopBegin.forwardEndCount() != 1) {
+                continue;
+            }
+            while (loopBegin.next() instanceof ArrayLengthNode && loop.isOutsideLoop(((ArrayLengthNode) loopBegin.next()).array())) {
+                ArrayLengthNode length = (ArrayLengthNode) loopBegin.next();
+                GraphUtil.unlinkFixedNode(length);
+                loopBegin.graph().addBeforeFixed(loopBegin.forwardEnd(), length);
+                List<ArrayLengthNode> lengths = hoisted.get(loopBegin);
+                if (lengths == null) {
+                    lengths = new ArrayList<>(2);
+                    hoisted.put(loopBegin, lengths);
+                }
+                lengths.add(length);
+            }
+        }
+        return hoisted;
+    }
+
+    /**
+     * Moves the array length loads hoisted by {@link #hoistArrayLengths} back to the start of the
+     * loops that were not vectorized, so that the phase leaves these loops unchanged.
+     */
+    private static void restoreArrayLengths(Map<LoopBeginNode, List<ArrayLengthNode>> hoisted) {
+        for (Map.Entry<LoopBeginNode, List<ArrayLengthNode>> entry : hoisted.entrySet()) {
+            LoopBeginNode loopBegin = entry.getKey();
+            List<ArrayLengthNode> lengths = entry.getValue();
+            for (int i = lengths.size() - 1; i >= 0; i--) {
+                ArrayLengthNode length = lengths.get(i);
+                GraphUtil.unlinkFixedNode(length);
+                loopBegin.graph().addAfterFixed(loopBegin, length);
+            }
+        }
+    }
+
+    private static Candidate match(LoopEx loop) {
+        LoopBeginNode loopBegin = loop.loopBegin();
+        if (!loop.loop().getChildren().isEmpty() || loopBegin.forwardEndCount() != 1 || loopBegin.loopEnds().count() != 1) {
+            return null;
+        }
+        CountedLoopInfo counted = loop.counted();
+        if (counted.isLimitIncluded() || counted.getDirection() != Direction.Up || !(counted.getCounter() instanceof BasicInductionVariable)) {
+            return null;
+        }
+        BasicInductionVariable iv = (BasicInductionVariable) counted.getCounter();
+        ValuePhiNode phi = iv.valueNode();
+        if (phi.getKind() != Kind.Int || !iv.isConstantStride() || iv.constantStride() != 1) {
+            return null;
+        }
+        for (PhiNode otherPhi : loopBegin.phis()) {
+            if (otherPhi != phi) {
+                return null;
+            }
+        }
+
+        FixedNode exitCheck = counted.getBody().predecessor() instanceof IfNode ? (FixedNode) counted.getBody().predecessor() : null;
+        StoreIndexedNode store = null;
+        List<LoadIndexedNode> loads = new ArrayList<>(2);
+        for (Block block : loop.loop().getBlocks()) {
+            for (FixedNode node : block.getNodes()) {
+                if (node instanceof StoreIndexedNode && store == null) {
+                    store = (StoreIndexedNode) node;
+                } else if (node instanceof LoadIndexedNode) {
+                    loads.add((LoadIndexedNode) node);
+                } else if (node != loopBegin && node != exitCheck && !(node instanceof LoopEndNode) && (!(node instanceof BeginNode) || node instanceof MergeNode)) {
+                    return null;
+                }
+            }
+        }
+        if (store == null || !isElementAccess(loop, phi, store.array(), store.index()) || store.value().usages().count() != 1) {
+            return null;
+        }
+        Kind kind = store.elementKind();
+        if (kind != Kind.Int && kind != Kind.Long && kind != Kind.Float && kind != Kind.Double) {
+            return null;
+        }
+        for (LoadIndexedNode load : loads) {
+            if (load.elementKind() != kind || !isElementAccess(loop, phi, load.array(), load.index())) {
+                return null;
+            }
+        }
+
+        ValueNode value = store.value();
+        if (value instanceof LoadIndexedNode) {
+            if (loads.size() != 1 || loads.get(0) != value) {
+                return null;
+            }
+            return new Candidate(VectorOperation.COPY, kind, store, ((LoadIndexedNode) value).array(), null);
+        }
+        VectorOperation op = operationOf(value, kind);
+        if (op == null || value.getKind() != kind.getStackKind()) {
+            return null;
+        }
+        BinaryNode binary = (BinaryNode) value;
+        if (!(binary.getX() instanceof LoadIndexedNode) || !(binary.getY() instanceof LoadIndexedNode)) {
+            return null;
+        }
+        LoadIndexedNode x = (LoadIndexedNode) binary.getX();
+        LoadIndexedNode y = (LoadIndexedNode) binary.getY();
+        int expectedLoads = x == y ? 1 : 2;
+        if (loads.size() != expectedLoads || !loads.contains(x) || !loads.contains(y) || x.usages().count() != (x == y ? 2 : 1) || y.usages().count() != (x == y ? 2 : 1)) {
+            return null;
+        }
+        return new Candidate(op, kind, store, x.array(), y.array());
+    }
+
+    private static boolean isElementAccess(LoopEx loop, ValuePhiNode phi, ValueNode array, ValueNode index) {
+        return index == phi && loop.isOutsideLoop(array);
+    }
+
+    /**
+     * Gets the vector operation corresponding to an arithmetic node. The exact node class is
+     * matched since subclasses such as the overflow checking arithmetic nodes of Truffle have
+     * semantics the wrapping vector operations do not provide.
+     */
+    private static VectorOperation operationOf(ValueNode value, Kind kind) {
+        Class<?> c = value.getClass();
+        if (c == AddNode.class) {
+            return VectorOperation.ADD;
+        } else if (c == SubNode.class) {
+            return VectorOperation.SUB;
+        } else if (c == MulNode.class) {
+            // there is no packed 64-bit integer multiplication
+            return kind == Kind.Long ? null : VectorOperation.MUL;
+        } else if (c == DivNode.class) {
+            return VectorOperation.DIV;
+        } else if (c == AndNode.class) {
+            return VectorOperation.AND;
+        } else if (c == OrNode.class) {
+            return VectorOperation.OR;
+        } else if (c == XorNode.class) {
+            return VectorOperation.XOR;
+        }
+        return null;
+    }
+
+    private static void vectorize(LoopEx loop, Candidate candidate) {
+        StructuredGraph graph = loop.loopBegin().graph();
+        LoopBeginNode loopBegin = loop.loopBegin();
+        ValuePhiNode phi = ((BasicInductionVariable) loop.counted().getCounter()).valueNode();
+        ValueNode limit = loop.counted().getLimit();
+
+        LoopTransformations.peel(loop);
+
+        AbstractEndNode forwardEnd = loopBegin.forwardEnd();
+        ValueNode from = phi.valueAt(forwardEnd);
+        ValueNode to = limit;
+        Set<ValueNode> arrays = new LinkedHashSet<>(Arrays.asList(candidate.store.array(), candidate.src1));
+        if (candidate.src2 != null) {
+            arrays.add(candidate.src2);
+        }
+        for (ValueNode array : arrays) {
+            ArrayLengthNode length = graph.add(ArrayLengthNode.create(array));
+            graph.addBeforeFixed(forwardEnd, length);
+            to = graph.unique(ConditionalNode.create(graph.unique(IntegerLessThanNode.create(to, length)), to, length));
+        }
+
+        VectorArrayOpNode vector = graph.add(VectorArrayOpNode.create(candidate.op, candidate.kind, candidate.store.array(), candidate.src1, candidate.src2, from, to));
+        graph.addBeforeFixed(forwardEnd, vector);
+
+        /*
+         * Deoptimizing after the vector operation resumes the interpreter at the loop header with
+         * the index of the first element that was not processed.
+         */
+        FrameState stateAfter = loopBegin.stateAfter().duplicate();
+        for (int i = 0; i < stateAfter.values().size(); i++) {
+            if (stateAfter.values().get(i) == phi) {
+                stateAfter.values().set(i, vector);
+            }
+        }
+        vector.setStateAfter(stateAfter);
+        phi.setValueAt(forwardEnd, vector);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.tiers.*;
+
+/**
+ * Gives the benchmarks access to the compiler infrastructure of {@link GraalCompilerTest}.
+ */
+class BenchmarkCompiler extends GraalCompilerTest {
+
+    /**
+     * Resolves a method given as a fully qualified class name followed by a method name, e.g.
+     * {@code java.util.HashMap.putVal}. The class must declare exactly one method of that name.
+     */
+    ResolvedJavaMethod resolveMethod(String name) {
+        int dot = name.lastIndexOf('.');
+        String className = name.substring(0, dot);
+        String methodName = name.substring(dot + 1);
+        Method result = null;
+        try {
+            for (Method m : Class.forName(className).getDeclaredMethods()) {
+                if (m.getName().equals(methodName)) {
+                    if (result != null) {
+                        throw new IllegalArgumentException("method name is not unique: " + name);
+                    }
+                    result = m;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(e);
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("method not found: " + name);
+        }
+        return getMetaAccess().lookupJavaMethod(result);
+    }
+
+    StructuredGraph parse(ResolvedJavaMethod method) {
+        return parseProfiled(method);
+    }
+
+    HighTierContext createHighTierContext() {
+        return new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+    }
+
+    MidTierContext createMidTierContext(StructuredGraph graph) {
+        return new MidTierContext(getProviders(), new Assumptions(false), getTarget(), OptimisticOptimizations.ALL, graph.method().getProfilingInfo(), null);
+    }
+
+    LowTierContext createLowTierContext() {
+        return new LowTierContext(getProviders(), new Assumptions(false), getTarget());
+    }
+
+    @Override
+    public Suites getSuites() {
+        return super.getSuites();
+    }
+
+    @Override
+    public Backend getBackend() {
+        return super.getBackend();
+    }
+
+    @Override
+    public TargetDescription getTarget() {
+        return super.getTarget();
+    }
+
+    @Override
+    public CodeCacheProvider getCodeCache() {
+        return super.getCodeCache();
+    }
+
+    /**
+     * Gets a suite containing the phases of {@code suite} that precede the first phase that is an
+     * instance of {@code phaseClass}.
+     */
+    @SuppressWarnings("unchecked")
+    static <C> PhaseSuite<C> phasesBefore(PhaseSuite<C> suite, Class<?> phaseClass) {
+        PhaseSuite<C> result = suite.copy();
+        ListIterator<BasePhase<? super C>> it = result.findPhase((Class<? extends BasePhase<? super C>>) phaseClass);
+        if (it == null) {
+            throw new IllegalArgumentException(phaseClass.getSimpleName() + " is not part of the suite");
+        }
+        it.previous();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        return result;
+    }
+}
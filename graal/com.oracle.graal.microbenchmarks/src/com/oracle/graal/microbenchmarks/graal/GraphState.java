@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import static com.oracle.graal.phases.common.DeadCodeEliminationPhase.Optionality.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.common.*;
+
+/**
+ * State providing a new graph for a method of the benchmark corpus in each invocation. The graph
+ * is a copy of a graph that has been parsed and then processed by
+ * {@link #prepareGraph(StructuredGraph)}, so that a benchmark only measures the phase it applies
+ * to the graph.
+ */
+@State(Scope.Thread)
+public abstract class GraphState {
+
+    /**
+     * The corpus of methods compiled by the benchmarks. They are taken from the JDK so that they
+     * are the same for all Graal versions being compared.
+     */
+    @Param({"java.lang.String.equals", "java.util.HashMap.putVal", "java.util.TreeMap.fixAfterInsertion", "java.util.ArrayList.removeIf", "java.math.BigInteger.multiplyToLen",
+                    "java.util.regex.Pattern.expr"}) public String method;
+
+    BenchmarkCompiler compiler;
+
+    private StructuredGraph preparedGraph;
+
+    /**
+     * The graph to be processed by the current benchmark invocation.
+     */
+    public StructuredGraph graph;
+
+    @Setup(Level.Trial)
+    public void prepareTrial() {
+        compiler = new BenchmarkCompiler();
+        StructuredGraph parsedGraph = compiler.parse(compiler.resolveMethod(method));
+        new DeadCodeEliminationPhase(Optional).apply(parsedGraph);
+        preparedGraph = prepareGraph(parsedGraph);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyGraph() {
+        graph = preparedGraph.copy();
+    }
+
+    /**
+     * Brings a freshly parsed graph into the state expected by the benchmarked phase.
+     */
+    protected abstract StructuredGraph prepareGraph(StructuredGraph parsedGraph);
+}
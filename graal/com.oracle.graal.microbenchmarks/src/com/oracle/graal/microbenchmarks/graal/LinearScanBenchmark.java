@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.alloc.*;
+import com.oracle.graal.api.code.*;
+import com.oracle.graal.api.code.CallingConvention.Type;
+import com.oracle.graal.compiler.alloc.*;
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.compiler.target.*;
+import com.oracle.graal.lir.*;
+import com.oracle.graal.lir.gen.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.phases.schedule.*;
+
+/**
+ * Measures the time of {@link LinearScan} register allocation and, for comparison, of
+ * {@link TraceRegisterAllocator} allocation on the same LIR. The LIR is generated before each
+ * invocation in the same way as {@code GraalCompiler.emitLIR} does it.
+ *
+ * Use the JMH option {@code -prof gc} to also measure the allocation rate.
+ */
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LinearScanBenchmark {
+
+    public static class LIRState extends PhaseBenchmark.AfterLowTier {
+
+        LIRGenerationResult lirGenRes;
+
+        @Setup(Level.Invocation)
+        public void generateLIR() {
+            SchedulePhase schedule = new SchedulePhase();
+            schedule.apply(graph);
+            List<Block> blocks = schedule.getCFG().getBlocks();
+            Block startBlock = schedule.getCFG().getStartBlock();
+            List<Block> codeEmittingOrder = ComputeBlockOrder.computeCodeEmittingOrder(blocks.size(), startBlock);
+            List<Block> linearScanOrder = ComputeBlockOrder.computeLinearScanOrder(blocks.size(), startBlock);
+            LIR lir = new LIR(schedule.getCFG(), linearScanOrder, codeEmittingOrder);
+
+            Backend backend = compiler.getBackend();
+            CallingConvention cc = CodeUtil.getCallingConvention(compiler.getCodeCache(), Type.JavaCallee, graph.method(), false);
+            lirGenRes = backend.newLIRGenerationResult(lir, backend.newFrameMapBuilder(null), graph.method(), null);
+            LIRGeneratorTool lirGen = backend.newLIRGenerator(cc, lirGenRes);
+            NodeLIRBuilderTool nodeLirGen = backend.newNodeLIRBuilder(graph, lirGen);
+            for (Block b : linearScanOrder) {
+                emitBlock(nodeLirGen, lirGenRes, b, graph, schedule.getBlockToNodesMap());
+            }
+            lirGen.beforeRegisterAllocation();
+        }
+
+        private static void emitBlock(NodeLIRBuilderTool nodeLirGen, LIRGenerationResult lirGenRes, Block b, StructuredGraph graph, BlockMap<List<ScheduledNode>> blockMap) {
+            if (lirGenRes.getLIR().getLIRforBlock(b) == null) {
+                for (Block pred : b.getPredecessors()) {
+                    if (!b.isLoopHeader() || !pred.isLoopEnd()) {
+                        emitBlock(nodeLirGen, lirGenRes, pred, graph, blockMap);
+                    }
+                }
+                nodeLirGen.doBlock(b, graph, blockMap);
+            }
+        }
+    }
+
+    @Benchmark
+    public LIRGenerationResult allocate(LIRState s) {
+        LinearScan.allocate(s.compiler.getTarget(), s.lirGenRes);
+        return s.lirGenRes;
+    }
+
+    @Benchmark
+    public LIRGenerationResult traceAllocate(LIRState s) {
+        TraceRegisterAllocator.allocate(s.compiler.getTarget(), s.lirGenRes);
+        return s.lirGenRes;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.common.inlining.*;
+import com.oracle.graal.phases.schedule.*;
+import com.oracle.graal.phases.tiers.*;
+import com.oracle.graal.virtual.phases.ea.*;
+
+/**
+ * Measures the compile time of individual compiler phases in isolation. Each benchmark applies a
+ * phase to a graph of the {@linkplain GraphState#method method corpus} that has been brought into
+ * the state in which the phase sees it during a regular compilation.
+ *
+ * Use the JMH option {@code -prof gc} to also measure the allocation rate of the phases.
+ */
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhaseBenchmark {
+
+    /**
+     * A graph directly after parsing.
+     */
+    public static class ParsedGraph extends GraphState {
+        @Override
+        protected StructuredGraph prepareGraph(StructuredGraph parsedGraph) {
+            return parsedGraph;
+        }
+    }
+
+    /**
+     * A graph processed by the high tier phases preceding {@link PartialEscapePhase}.
+     */
+    public static class BeforePartialEscape extends GraphState {
+        @Override
+        protected StructuredGraph prepareGraph(StructuredGraph parsedGraph) {
+            BenchmarkCompiler.phasesBefore(compiler.getSuites().getHighTier(), PartialEscapePhase.class).apply(parsedGraph, compiler.createHighTierContext());
+            return parsedGraph;
+        }
+    }
+
+    /**
+     * A graph processed by the high tier and the mid tier phases preceding the
+     * {@link IncrementalCanonicalizerPhase} that wraps {@link FloatingReadPhase}.
+     */
+    public static class BeforeFloatingRead extends GraphState {
+        @Override
+        protected StructuredGraph prepareGraph(StructuredGraph parsedGraph) {
+            compiler.getSuites().getHighTier().apply(parsedGraph, compiler.createHighTierContext());
+            BenchmarkCompiler.phasesBefore(compiler.getSuites().getMidTier(), IncrementalCanonicalizerPhase.class).apply(parsedGraph, compiler.createMidTierContext(parsedGraph));
+            return parsedGraph;
+        }
+    }
+
+    /**
+     * A graph processed by all tiers, i.e., in the state in which it is scheduled for LIR
+     * generation.
+     */
+    public static class AfterLowTier extends GraphState {
+        @Override
+        protected StructuredGraph prepareGraph(StructuredGraph parsedGraph) {
+            compiler.getSuites().getHighTier().apply(parsedGraph, compiler.createHighTierContext());
+            compiler.getSuites().getMidTier().apply(parsedGraph, compiler.createMidTierContext(parsedGraph));
+            compiler.getSuites().getLowTier().apply(parsedGraph, compiler.createLowTierContext());
+            return parsedGraph;
+        }
+    }
+
+    @Benchmark
+    public StructuredGraph canonicalizer(ParsedGraph s) {
+        new CanonicalizerPhase(!ImmutableCode.getValue()).apply(s.graph, s.compiler.createHighTierContext());
+        return s.graph;
+    }
+
+    @Benchmark
+    public StructuredGraph inlining(ParsedGraph s) {
+        new InliningPhase(new CanonicalizerPhase(!ImmutableCode.getValue())).apply(s.graph, s.compiler.createHighTierContext());
+        return s.graph;
+    }
+
+    @Benchmark
+    public StructuredGraph partialEscape(BeforePartialEscape s) {
+        new PartialEscapePhase(true, new CanonicalizerPhase(!ImmutableCode.getValue())).apply(s.graph, s.compiler.createHighTierContext());
+        return s.graph;
+    }
+
+    @Benchmark
+    public StructuredGraph floatingRead(BeforeFloatingRead s) {
+        new FloatingReadPhase().apply(s.graph);
+        return s.graph;
+    }
+
+    @Benchmark
+    public SchedulePhase schedule(AfterLowTier s) {
+        SchedulePhase schedule = new SchedulePhase();
+        schedule.apply(s.graph);
+        return schedule;
+    }
+
+    /**
+     * Measures all tiers together as a reference for the individual phases.
+     */
+    @Benchmark
+    public StructuredGraph frontEnd(ParsedGraph s) {
+        Suites suites = s.compiler.getSuites();
+        suites.getHighTier().apply(s.graph, s.compiler.createHighTierContext());
+        suites.getMidTier().apply(s.graph, s.compiler.createMidTierContext(s.graph));
+        suites.getLowTier().apply(s.graph, s.compiler.createLowTierContext());
+        return s.graph;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graph;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+
+/**
+ * Measures the basic graph mutation operations that dominate the graph manipulation cost of a
+ * compilation: adding nodes, replacing a node at its usages, deleting nodes and compressing the
+ * node list of a graph.
+ *
+ * The benchmark graph is a chain of additions in which every addition also uses one of a small
+ * number of parameters. Each parameter therefore has many usages, as is common for frequently
+ * used values in large graphs after inlining.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphMutationBenchmark {
+
+    @State(Scope.Thread)
+    public static class GraphState {
+
+        @Param({"1000", "10000"}) public int nodeCount;
+        @Param({"4", "64"}) public int parameterCount;
+
+        StructuredGraph graph;
+        ParameterNode[] parameters;
+        AddNode[] additions;
+
+        @Setup(Level.Invocation)
+        public void createGraph() {
+            graph = new StructuredGraph();
+            parameters = createParameters(graph, parameterCount);
+            additions = createAdditions(graph, parameters, nodeCount);
+        }
+    }
+
+    static ParameterNode[] createParameters(StructuredGraph graph, int count) {
+        ParameterNode[] parameters = new ParameterNode[count];
+        for (int i = 0; i < count; i++) {
+            parameters[i] = graph.unique(ParameterNode.create(i, StampFactory.forKind(Kind.Int)));
+        }
+        return parameters;
+    }
+
+    static AddNode[] createAdditions(StructuredGraph graph, ParameterNode[] parameters, int count) {
+        AddNode[] additions = new AddNode[count];
+        ValueNode previous = parameters[0];
+        for (int i = 0; i < count; i++) {
+            previous = additions[i] = graph.addWithoutUnique(AddNode.create(parameters[i % parameters.length], previous));
+        }
+        return additions;
+    }
+
+    @Benchmark
+    public StructuredGraph addNodes(GraphState s) {
+        StructuredGraph graph = new StructuredGraph();
+        createAdditions(graph, createParameters(graph, s.parameterCount), s.nodeCount);
+        return graph;
+    }
+
+    @Benchmark
+    public StructuredGraph replaceAtUsages(GraphState s) {
+        for (int i = 1; i < s.parameters.length; i++) {
+            s.parameters[i].replaceAtUsages(s.parameters[0]);
+        }
+        return s.graph;
+    }
+
+    @Benchmark
+    public StructuredGraph replaceAndDelete(GraphState s) {
+        // replace every addition by its first input, which removes usages from the front of the
+        // usage lists of the parameters
+        for (AddNode addition : s.additions) {
+            addition.replaceAndDelete(addition.getX());
+        }
+        return s.graph;
+    }
+
+    @Benchmark
+    public StructuredGraph safeDelete(GraphState s) {
+        for (int i = s.additions.length - 1; i >= 0; i--) {
+            s.additions[i].safeDelete();
+        }
+        return s.graph;
+    }
+
+    @Benchmark
+    public boolean maybeCompress(GraphState s) {
+        for (int i = 0; i < s.additions.length; i += 2) {
+            s.additions[i].replaceAndDelete(s.additions[i].getY());
+        }
+        return s.graph.maybeCompress();
+    }
+}
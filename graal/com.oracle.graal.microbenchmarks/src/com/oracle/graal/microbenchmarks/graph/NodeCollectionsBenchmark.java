@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graph;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.calc.*;
+
+/**
+ * Compares the collections keyed by nodes: {@link IdentityHashMap}, which used to back
+ * {@link NodeCollectionsProvider#newNodeIdentityMap()}, with {@link NodeIdHashMap}, which backs it
+ * now, and with the dense {@link NodeMap}. The maps are filled with every {@code stride}th node of
+ * a graph, so that a large stride models the sparse maps created per operation by phases such as
+ * snippet instantiation.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NodeCollectionsBenchmark {
+
+    @State(Scope.Thread)
+    public static class GraphState {
+
+        @Param({"1000", "10000"}) public int nodeCount;
+        @Param({"1", "16"}) public int stride;
+
+        StructuredGraph graph;
+        AddNode[] nodes;
+
+        @Setup(Level.Trial)
+        public void createGraph() {
+            graph = new StructuredGraph();
+            AddNode[] additions = GraphMutationBenchmark.createAdditions(graph, GraphMutationBenchmark.createParameters(graph, 4), nodeCount);
+            nodes = new AddNode[(additions.length + stride - 1) / stride];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = additions[i * stride];
+            }
+        }
+    }
+
+    private static int fillAndLookup(Map<Node, Integer> map, AddNode[] nodes) {
+        for (int i = 0; i < nodes.length; i++) {
+            map.put(nodes[i], i);
+        }
+        int sum = 0;
+        for (AddNode node : nodes) {
+            sum += map.get(node);
+            sum += map.containsKey(node.getX()) ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int identityHashMap(GraphState s) {
+        return fillAndLookup(new IdentityHashMap<>(), s.nodes);
+    }
+
+    @Benchmark
+    public int nodeIdHashMap(GraphState s) {
+        return fillAndLookup(new NodeIdHashMap<>(), s.nodes);
+    }
+
+    @Benchmark
+    public int nodeMap(GraphState s) {
+        NodeMap<Integer> map = s.graph.createNodeMap();
+        for (int i = 0; i < s.nodes.length; i++) {
+            map.set(s.nodes[i], i);
+        }
+        int sum = 0;
+        for (AddNode node : s.nodes) {
+            sum += map.get(node);
+            sum += map.get(node.getX()) != null ? 1 : 0;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Map<Node, Integer> copyIdentityHashMap(GraphState s) {
+        Map<Node, Integer> map = new IdentityHashMap<>();
+        fillAndLookup(map, s.nodes);
+        return new IdentityHashMap<>(map);
+    }
+
+    @Benchmark
+    public Map<Node, Integer> copyNodeIdHashMap(GraphState s) {
+        Map<Node, Integer> map = new NodeIdHashMap<>();
+        fillAndLookup(map, s.nodes);
+        return new NodeIdHashMap<>(map);
+    }
+
+    @Benchmark
+    public int iterateNodeBitMap(GraphState s) {
+        NodeBitMap bitMap = s.graph.createNodeBitMap();
+        for (AddNode node : s.nodes) {
+            bitMap.mark(node);
+        }
+        int count = 0;
+        for (Node node : bitMap) {
+            count += node != null ? 1 : 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.lang;
+
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the {@link String} operations that are intrinsified on AMD64 with SSE 4.2:
+ * {@link String#indexOf(int)}, {@link String#indexOf(String)}, {@link String#compareTo(String)} and
+ * encoding to ISO-8859-1. The intrinsics process eight chars at a time, so the lengths include
+ * strings shorter and longer than eight chars. The searched char and string are at the end and two
+ * compared strings only differ in their last char, so that every operation looks at all chars.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StringBenchmark {
+
+    @State(Scope.Thread)
+    public static class StringState {
+
+        @Param({"5", "16", "1000"}) public int length;
+
+        String string;
+        String other;
+        String needle;
+        char lastChar;
+
+        @Setup(Level.Trial)
+        public void createStrings() {
+            char[] chars = new char[length];
+            Random random = new Random(42);
+            for (int i = 0; i < length - 1; i++) {
+                // letters except 'z', which only occurs at the end
+                chars[i] = (char) ('a' + random.nextInt(25));
+            }
+            chars[length - 1] = 'z';
+            string = new String(chars);
+            lastChar = chars[length - 1];
+            chars[length - 1] = 'y';
+            other = new String(chars);
+            needle = string.substring(Math.max(0, length - 3));
+        }
+    }
+
+    @Benchmark
+    public int indexOfChar(StringState s) {
+        return s.string.indexOf(s.lastChar);
+    }
+
+    @Benchmark
+    public int indexOfString(StringState s) {
+        return s.string.indexOf(s.needle);
+    }
+
+    @Benchmark
+    public int compareTo(StringState s) {
+        return s.string.compareTo(s.other);
+    }
+
+    @Benchmark
+    public byte[] getBytesISO88591(StringState s) {
+        return s.string.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
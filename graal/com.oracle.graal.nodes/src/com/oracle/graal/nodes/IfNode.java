@@ -127,6 +127,9 @@ public class IfNode extends ControlSplitNode implements Simplifiable, LIRLowerab
     public void setTrueSuccessorProbability(double prob) {
         assert prob >= -0.000000001 && prob <= 1.000000001 : "Probability out of bounds: " + prob;
         trueSuccessorProbability = Math.min(1.0, Math.max(0.0, prob));
+        if (isAlive()) {
+            graph().notifyDataChanged();
+        }
     }
 
     @Override
@@ -152,12 +155,12 @@ public class IfNode extends ControlSplitNode implements Simplifiable, LIRLowerab
         if (trueSuccessor().next() instanceof DeoptimizeNode) {
             if (trueSuccessorProbability != 0) {
                 CORRECTED_PROBABILITIES.increment();
-                trueSuccessorProbability = 0;
+                setTrueSuccessorProbability(0);
             }
         } else if (falseSuccessor().next() instanceof DeoptimizeNode) {
             if (trueSuccessorProbability != 1) {
                 CORRECTED_PROBABILITIES.increment();
-                trueSuccessorProbability = 1;
+                setTrueSuccessorProbability(1);
             }
         }
 
@@ -42,6 +42,7 @@ public class LoopBeginNode extends MergeNode implements IterableNodeType, LIRLow
     protected double loopFrequency;
     protected int nextEndIndex;
     protected int unswitches;
+    protected boolean partiallyUnrolled;
     @OptionalInput(InputType.Guard) GuardingNode overflowGuard;
 
     public static LoopBeginNode create() {
@@ -59,6 +60,9 @@ public class LoopBeginNode extends MergeNode implements IterableNodeType, LIRLow
     public void setLoopFrequency(double loopFrequency) {
         assert loopFrequency >= 0;
         this.loopFrequency = loopFrequency;
+        if (isAlive()) {
+            graph().notifyDataChanged();
+        }
     }
 
     /**
@@ -181,6 +185,18 @@ public class LoopBeginNode extends MergeNode implements IterableNodeType, LIRLow
         unswitches++;
     }
 
+    /**
+     * Determines if this loop is (or was derived from) a loop that has been split into pre, main
+     * and post loops and must therefore not be split again.
+     */
+    public boolean isPartiallyUnrolled() {
+        return partiallyUnrolled;
+    }
+
+    public void setPartiallyUnrolled() {
+        partiallyUnrolled = true;
+    }
+
     @Override
     public void simplify(SimplifierTool tool) {
         removeDeadPhis();
@@ -26,9 +26,11 @@ import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.cfg.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.graph.spi.*;
 import com.oracle.graal.nodes.calc.*;
+import com.oracle.graal.nodes.cfg.*;
 import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.util.*;
 
@@ -79,6 +81,40 @@ public class StructuredGraph extends Graph {
     private GuardsStage guardsStage = GuardsStage.FLOATING_GUARDS;
     private boolean isAfterFloatingReadPhase = false;
     private boolean hasValueProxies = true;
+    private ScheduleResult lastSchedule;
+
+    /**
+     * A schedule of a graph. It is only valid for the graph as long as the
+     * {@linkplain #getModificationCount() modification count} of the graph is the same as when the
+     * schedule was computed.
+     */
+    public static final class ScheduleResult {
+
+        private final Object kind;
+        private final int modificationCount;
+        private final ControlFlowGraph cfg;
+        private final BlockMap<List<ScheduledNode>> blockToNodesMap;
+
+        /**
+         * @param kind identifies the parameters the schedule was computed with
+         * @param modificationCount the modification count of the graph when the schedule was
+         *            computed
+         */
+        public ScheduleResult(Object kind, int modificationCount, ControlFlowGraph cfg, BlockMap<List<ScheduledNode>> blockToNodesMap) {
+            this.kind = kind;
+            this.modificationCount = modificationCount;
+            this.cfg = cfg;
+            this.blockToNodesMap = blockToNodesMap;
+        }
+
+        public ControlFlowGraph getCFG() {
+            return cfg;
+        }
+
+        public BlockMap<List<ScheduledNode>> getBlockToNodesMap() {
+            return blockToNodesMap;
+        }
+    }
 
     /**
      * Creates a new Graph containing a single {@link BeginNode} as the {@link #start() start} node.
@@ -429,6 +465,40 @@ public class StructuredGraph extends Graph {
         isAfterFloatingReadPhase = state;
     }
 
+    /**
+     * Gets the last schedule {@linkplain #setLastSchedule(ScheduleResult) recorded} for this graph
+     * if it was computed with the parameters identified by {@code kind} and this graph was not
+     * modified since.
+     */
+    public ScheduleResult getLastSchedule(Object kind) {
+        ScheduleResult result = lastSchedule;
+        if (result != null && result.kind.equals(kind) && result.modificationCount == getModificationCount()) {
+            return result;
+        }
+        return null;
+    }
+
+    public void setLastSchedule(ScheduleResult schedule) {
+        if (!isFrozen()) {
+            lastSchedule = schedule;
+        }
+    }
+
+    /**
+     * Drops the last schedule recorded for this graph. This must be called before a graph is
+     * cached so that the cache does not keep the schedule, which refers to the nodes of this graph,
+     * alive. A {@linkplain #copy() copy} of a graph never has a schedule.
+     */
+    public void clearLastSchedule() {
+        lastSchedule = null;
+    }
+
+    @Override
+    public void freeze() {
+        clearLastSchedule();
+        super.freeze();
+    }
+
     public boolean hasValueProxies() {
         return hasValueProxies;
     }
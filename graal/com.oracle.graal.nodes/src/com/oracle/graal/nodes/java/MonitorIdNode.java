@@ -37,6 +37,7 @@ import com.oracle.graal.nodes.spi.*;
 public class MonitorIdNode extends ValueNode implements IterableNodeType, LIRLowerable {
 
     protected int lockDepth;
+    protected boolean eliminated;
 
     public static MonitorIdNode create(int lockDepth) {
         return new MonitorIdNode(lockDepth);
@@ -55,6 +56,19 @@ public class MonitorIdNode extends ValueNode implements IterableNodeType, LIRLow
         this.lockDepth = lockDepth;
     }
 
+    /**
+     * Determines if the monitor enter and exits of this locking scope have been removed because the
+     * monitor is already held by an enclosing scope. The lock must be re-acquired when
+     * deoptimizing in this scope.
+     */
+    public boolean isEliminated() {
+        return eliminated;
+    }
+
+    public void setEliminated() {
+        this.eliminated = true;
+    }
+
     public void generate(NodeLIRBuilderTool generator) {
         // nothing to do
     }
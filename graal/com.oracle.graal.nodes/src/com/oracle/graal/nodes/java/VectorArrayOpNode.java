@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.nodes.java;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.calc.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Applies an element-wise {@link VectorOperation} to the elements of arrays in a range, i.e.,
+ * {@code dst[i] = src1[i] op src2[i]} for {@code from <= i < to}. The backend may process only a
+ * prefix of the range (e.g., the elements that fit into whole vectors). The value of this node is
+ * the index of the first element that was not processed.
+ *
+ * The range must be within the bounds of all arrays and none of the arrays may be null.
+ */
+@NodeInfo
+public class VectorArrayOpNode extends AbstractStateSplit implements LIRLowerable, MemoryCheckpoint.Single {
+
+    protected final VectorOperation op;
+    protected final Kind elementKind;
+
+    @Input ValueNode dst;
+    @Input ValueNode src1;
+    @OptionalInput ValueNode src2;
+    @Input ValueNode from;
+    @Input ValueNode to;
+
+    public static VectorArrayOpNode create(VectorOperation op, Kind elementKind, ValueNode dst, ValueNode src1, ValueNode src2, ValueNode from, ValueNode to) {
+        return new VectorArrayOpNode(op, elementKind, dst, src1, src2, from, to);
+    }
+
+    protected VectorArrayOpNode(VectorOperation op, Kind elementKind, ValueNode dst, ValueNode src1, ValueNode src2, ValueNode from, ValueNode to) {
+        super(StampFactory.forKind(Kind.Int));
+        assert op.isBinary() == (src2 != null);
+        this.op = op;
+        this.elementKind = elementKind;
+        this.dst = dst;
+        this.src1 = src1;
+        this.src2 = src2;
+        this.from = from;
+        this.to = to;
+    }
+
+    public VectorOperation getOperation() {
+        return op;
+    }
+
+    public Kind elementKind() {
+        return elementKind;
+    }
+
+    public void generate(NodeLIRBuilderTool gen) {
+        Value src2Value = src2 == null ? Value.ILLEGAL : gen.operand(src2);
+        gen.setResult(this, gen.getLIRGeneratorTool().emitVectorArrayOp(op, elementKind, gen.operand(dst), gen.operand(src1), src2Value, gen.operand(from), gen.operand(to)));
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(elementKind);
+    }
+}
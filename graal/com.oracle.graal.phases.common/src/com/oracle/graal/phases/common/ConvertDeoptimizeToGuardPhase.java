@@ -55,6 +55,11 @@ public class ConvertDeoptimizeToGuardPhase extends Phase {
         return GraphUtil.predecessorIterable(startNode).filter(BeginNode.class).first();
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(final StructuredGraph graph) {
         assert graph.hasValueProxies() : "ConvertDeoptimizeToGuardPhase always creates proxies";
@@ -37,6 +37,11 @@ import com.oracle.graal.phases.tiers.*;
  */
 public class DeoptimizationGroupingPhase extends BasePhase<MidTierContext> {
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, MidTierContext context) {
         ControlFlowGraph cfg = null;
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases.common;
+
+import java.util.*;
+
+import com.oracle.graal.compiler.common.cfg.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.cfg.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.util.*;
+import com.oracle.graal.phases.*;
+
+/**
+ * Value numbering of floating nodes that differ only in the guard or anchor they depend on. Such
+ * nodes are not merged by {@link Graph#unique} because their guard inputs differ, although a node
+ * whose guard dominates the guard of an equal node can be used in its place. This applies to
+ * {@link FloatingReadNode}s with the same address and the same last location access as computed
+ * by {@link FloatingReadPhase}, to pure computations guarded by {@link PiNode}s and to redundant
+ * {@link GuardNode}s. Reads that stay fixed have no memory input and are left alone.
+ *
+ * Before numbering, guards anchored at a loop header whose condition is loop invariant are moved
+ * in front of the loop. Since such a guard is executed in every iteration including the first, this
+ * does not introduce new deoptimizations. Reads depending on these guards whose last location
+ * access is outside the loop, i.e., which are not killed by a write to the same location inside the
+ * loop, become loop invariant and are scheduled out of the loop.
+ */
+public class GlobalValueNumberingPhase extends Phase {
+
+    private static final DebugMetric metricHoistedGuards = Debug.metric("GVNHoistedGuards");
+    private static final DebugMetric metricRedundantReads = Debug.metric("GVNRedundantReads");
+    private static final DebugMetric metricRedundantNodes = Debug.metric("GVNRedundantNodes");
+
+    /**
+     * Upper bound on the number of numbering rounds. Another round is only needed if replacing
+     * nodes made their usages equal.
+     */
+    private static final int MAX_ITERATIONS = 4;
+
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
+    @Override
+    protected void run(StructuredGraph graph) {
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, true, false);
+        if (!cfg.getLoops().isEmpty()) {
+            hoistInvariantGuards(cfg);
+        }
+        NodeMap<Integer> order = graph.createNodeMap();
+        int index = 0;
+        for (Block block : cfg.getBlocks()) {
+            for (FixedNode node : block.getNodes()) {
+                order.set(node, index++);
+            }
+        }
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            if (!numberValues(graph, cfg, order)) {
+                break;
+            }
+        }
+    }
+
+    private static void hoistInvariantGuards(ControlFlowGraph cfg) {
+        List<Loop<Block>> loops = new ArrayList<>(cfg.getLoops());
+        Collections.sort(loops, (a, b) -> b.getDepth() - a.getDepth());
+        for (Loop<Block> loop : loops) {
+            LoopBeginNode loopBegin = (LoopBeginNode) loop.getHeader().getBeginNode();
+            if (loopBegin.forwardEndCount() != 1) {
+                continue;
+            }
+            BeginNode newAnchor = BeginNode.prevBegin(loopBegin.forwardEnd());
+            Map<Node, Boolean> invariant = new HashMap<>();
+            for (GuardNode guard : loopBegin.guards().snapshot()) {
+                if (isInvariant(guard.condition(), loop, cfg, invariant)) {
+                    guard.setAnchor(newAnchor);
+                    metricHoistedGuards.increment();
+                }
+            }
+        }
+    }
+
+    private static boolean isInvariant(Node node, Loop<Block> loop, ControlFlowGraph cfg, Map<Node, Boolean> invariant) {
+        Boolean known = invariant.get(node);
+        if (known != null) {
+            return known;
+        }
+        boolean result;
+        if (node instanceof FixedNode) {
+            result = !isInLoop(cfg.blockFor(node), loop);
+        } else if (node instanceof PhiNode) {
+            result = !isInLoop(cfg.blockFor(((PhiNode) node).merge()), loop);
+        } else {
+            // conservatively assume cycles to be variant
+            invariant.put(node, false);
+            result = true;
+            for (Node input : node.inputs()) {
+                if (!isInvariant(input, loop, cfg, invariant)) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        invariant.put(node, result);
+        return result;
+    }
+
+    private static boolean isInLoop(Block block, Loop<Block> loop) {
+        if (block == null) {
+            return true;
+        }
+        for (Loop<Block> l = block.getLoop(); l != null; l = l.getParent()) {
+            if (l == loop) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces each candidate node by an equal node whose position dominates its own position.
+     *
+     * @return true if a node was replaced
+     */
+    private static boolean numberValues(StructuredGraph graph, ControlFlowGraph cfg, NodeMap<Integer> order) {
+        List<Node> candidates = new ArrayList<>();
+        Map<Node, FixedNode> positions = new HashMap<>();
+        for (Node node : graph.getNodes()) {
+            if ((node instanceof FloatingGuardedNode || node instanceof FloatingAnchoredNode) && node.getNodeClass().valueNumberable()) {
+                FixedNode position = position(graph, node);
+                if (position != null && order.get(position) != null) {
+                    candidates.add(node);
+                    positions.put(node, position);
+                }
+            }
+        }
+        Collections.sort(candidates, (a, b) -> order.get(positions.get(a)) - order.get(positions.get(b)));
+
+        boolean changed = false;
+        Map<ValueNumber, List<Node>> values = new HashMap<>();
+        for (Node node : candidates) {
+            ValueNumber number = new ValueNumber(node);
+            List<Node> equal = values.get(number);
+            if (equal == null) {
+                equal = new ArrayList<>(2);
+                values.put(number, equal);
+            }
+            Node replacement = null;
+            FixedNode position = positions.get(node);
+            for (Node other : equal) {
+                if (dominates(positions.get(other), position, cfg, order)) {
+                    replacement = other;
+                    break;
+                }
+            }
+            if (replacement == null) {
+                equal.add(node);
+            } else {
+                if (node instanceof FloatingReadNode) {
+                    metricRedundantReads.increment();
+                } else {
+                    metricRedundantNodes.increment();
+                }
+                node.replaceAtUsages(replacement);
+                GraphUtil.killWithUnusedFloatingInputs(node);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Gets the fixed node after which {@code node} is valid or null if it cannot be determined.
+     */
+    private static FixedNode position(StructuredGraph graph, Node node) {
+        Node anchor;
+        if (node instanceof FloatingAnchoredNode) {
+            anchor = ((FloatingAnchoredNode) node).getAnchor().asNode();
+        } else {
+            GuardingNode guard = ((FloatingGuardedNode) node).getGuard();
+            if (guard == null) {
+                return graph.start();
+            }
+            anchor = guard.asNode();
+            if (anchor instanceof GuardNode) {
+                anchor = ((GuardNode) anchor).getAnchor().asNode();
+            }
+        }
+        return anchor instanceof FixedNode ? (FixedNode) anchor : null;
+    }
+
+    private static boolean dominates(FixedNode a, FixedNode b, ControlFlowGraph cfg, NodeMap<Integer> order) {
+        Block blockA = cfg.blockFor(a);
+        Block blockB = cfg.blockFor(b);
+        if (blockA == blockB) {
+            return order.get(a) <= order.get(b);
+        }
+        return AbstractControlFlowGraph.dominates(blockA, blockB);
+    }
+
+    /**
+     * Key of a node that compares the class, the data fields and all inputs except guards and
+     * anchors.
+     */
+    private static final class ValueNumber {
+
+        private final Node node;
+        private final int hashCode;
+
+        ValueNumber(Node node) {
+            this.node = node;
+            int hash = node.getNodeClass().valueNumber(node);
+            NodePosIterator iterator = node.inputs().withNullIterator();
+            while (iterator.hasNext()) {
+                Position pos = iterator.nextPosition();
+                Node input = pos.get(node);
+                if (!isPositionInput(pos) && input != null) {
+                    hash = hash * 31 + input.hashCode();
+                }
+            }
+            this.hashCode = hash;
+        }
+
+        private static boolean isPositionInput(Position pos) {
+            return pos.getInputType() == InputType.Guard || pos.getInputType() == InputType.Anchor;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ValueNumber)) {
+                return false;
+            }
+            Node other = ((ValueNumber) obj).node;
+            if (other.getClass() != node.getClass() || hashCode != obj.hashCode() || !node.valueEquals(other)) {
+                return false;
+            }
+            NodePosIterator iterator = node.inputs().withNullIterator();
+            NodePosIterator otherIterator = other.inputs().withNullIterator();
+            while (iterator.hasNext()) {
+                if (!otherIterator.hasNext()) {
+                    return false;
+                }
+                Position pos = iterator.nextPosition();
+                Position otherPos = otherIterator.nextPosition();
+                if (!isPositionInput(pos) && pos.get(node) != otherPos.get(other)) {
+                    return false;
+                }
+            }
+            return !otherIterator.hasNext();
+        }
+    }
+}
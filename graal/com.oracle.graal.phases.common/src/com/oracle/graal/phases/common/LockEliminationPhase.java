@@ -22,24 +22,134 @@
  */
 package com.oracle.graal.phases.common;
 
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.*;
+
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
 import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.util.*;
 import com.oracle.graal.phases.*;
 
+/**
+ * Removes monitor operations that are redundant in the presence of other monitor operations on the
+ * same object.
+ * <ul>
+ * <li>A monitor enter on an object whose monitor is already held according to the frame state of
+ * the enter is removed along with its exits. Its {@link MonitorIdNode} is marked as
+ * {@linkplain MonitorIdNode#isEliminated() eliminated} so that deoptimization re-acquires the
+ * lock.</li>
+ * <li>A monitor exit that is followed by a monitor enter on the same object is removed along with
+ * the enter, coarsening the two locking scopes into one. The straight-line code between the exit
+ * and the enter is moved into the locked region. It may not contain more than
+ * {@link GraalOptions#LockCoarseningMaxGap} fixed nodes, none of which may have a frame state
+ * since such a state would not describe the lock. At most
+ * {@link GraalOptions#LockCoarseningMaxRegions} scopes are merged into one to bound the time the
+ * lock is held. Scopes of consecutive loop iterations are merged if the loop was unrolled.</li>
+ * </ul>
+ */
 public class LockEliminationPhase extends Phase {
 
+    private static final DebugMetric metricNestedLocksEliminated = Debug.metric("NestedLocksEliminated");
+    private static final DebugMetric metricLocksCoarsened = Debug.metric("LocksCoarsened");
+
     @Override
     protected void run(StructuredGraph graph) {
-        for (MonitorExitNode node : graph.getNodes(MonitorExitNode.class)) {
-            FixedNode next = node.next();
-            if (next instanceof MonitorEnterNode) {
-                MonitorEnterNode monitorEnterNode = (MonitorEnterNode) next;
-                if (monitorEnterNode.object() == node.object()) {
-                    GraphUtil.removeFixedWithUnusedInputs(monitorEnterNode);
-                    GraphUtil.removeFixedWithUnusedInputs(node);
+        if (OptEliminateNestedLocks.getValue()) {
+            for (MonitorEnterNode enter : graph.getNodes(MonitorEnterNode.class).snapshot()) {
+                if (enter.isAlive() && isHeldByOuterScope(enter)) {
+                    eliminateNested(enter);
+                }
+            }
+        }
+
+        /*
+         * Find the pairs of locking scopes that can be merged: maps the monitor id of a scope to the
+         * exit that is followed by the enter of the next scope.
+         */
+        Map<MonitorIdNode, MonitorExitNode> links = new HashMap<>();
+        Set<MonitorIdNode> successors = new HashSet<>();
+        for (MonitorExitNode exit : graph.getNodes(MonitorExitNode.class)) {
+            MonitorEnterNode enter = coarsenableEnter(exit);
+            if (enter != null && !links.containsKey(exit.getMonitorId()) && successors.add(enter.getMonitorId())) {
+                links.put(exit.getMonitorId(), exit);
+            }
+        }
+
+        int maxRegions = Math.max(LockCoarseningMaxRegions.getValue(), 2);
+        for (MonitorIdNode head : links.keySet()) {
+            if (successors.contains(head)) {
+                continue;
+            }
+            int regions = 1;
+            for (MonitorExitNode exit = links.get(head); exit != null;) {
+                MonitorEnterNode enter = coarsenableEnter(exit);
+                MonitorExitNode next = links.get(enter.getMonitorId());
+                if (regions + 1 > maxRegions) {
+                    regions = 1;
+                } else {
+                    GraphUtil.removeFixedWithUnusedInputs(enter);
+                    GraphUtil.removeFixedWithUnusedInputs(exit);
+                    metricLocksCoarsened.increment();
+                    regions++;
                 }
+                exit = next;
             }
         }
     }
+
+    /**
+     * Determines if the monitor of the object locked by {@code enter} is already held by the
+     * current thread when {@code enter} is executed.
+     */
+    private static boolean isHeldByOuterScope(MonitorEnterNode enter) {
+        ValueNode object = GraphUtil.unproxify(enter.object());
+        for (FrameState state = enter.stateAfter(); state != null; state = state.outerFrameState()) {
+            for (int i = 0; i < state.locksSize(); i++) {
+                if (state.monitorIdAt(i) != enter.getMonitorId() && GraphUtil.unproxify(state.lockAt(i)) == object) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void eliminateNested(MonitorEnterNode enter) {
+        MonitorIdNode monitorId = enter.getMonitorId();
+        for (MonitorExitNode exit : monitorId.usages().filter(MonitorExitNode.class).snapshot()) {
+            GraphUtil.removeFixedWithUnusedInputs(exit);
+        }
+        GraphUtil.removeFixedWithUnusedInputs(enter);
+        monitorId.setEliminated();
+        metricNestedLocksEliminated.increment();
+    }
+
+    /**
+     * Gets the monitor enter following {@code exit} if the two can be removed to merge the
+     * enclosing locking scopes.
+     */
+    private static MonitorEnterNode coarsenableEnter(MonitorExitNode exit) {
+        int gap = 0;
+        FixedNode node = exit.next();
+        while (!(node instanceof MonitorEnterNode)) {
+            if (!(node instanceof FixedWithNextNode) || node instanceof MonitorEnter || node instanceof MonitorExit || ++gap > LockCoarseningMaxGap.getValue()) {
+                return null;
+            }
+            for (Node input : node.inputs()) {
+                if (input instanceof FrameState) {
+                    return null;
+                }
+            }
+            node = ((FixedWithNextNode) node).next();
+        }
+        MonitorEnterNode enter = (MonitorEnterNode) node;
+        if (GraphUtil.unproxify(enter.object()) != GraphUtil.unproxify(exit.object()) || enter.getMonitorId().getLockDepth() != exit.getMonitorId().getLockDepth()) {
+            return null;
+        }
+        return enter;
+    }
 }
@@ -52,6 +52,11 @@ public class OptimizeGuardAnchorsPhase extends Phase {
         }
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph) {
         LazyCFG cfg = new LazyCFG(graph);
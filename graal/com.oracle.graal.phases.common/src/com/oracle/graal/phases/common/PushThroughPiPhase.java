@@ -32,6 +32,11 @@ public class PushThroughPiPhase extends Phase {
 
     public static final DebugMetric PUSHED_NODES = Debug.metric("NodesPushedThroughPi");
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph) {
         for (PiNode pi : graph.getNodes(PiNode.class)) {
@@ -156,6 +156,11 @@ public class TailDuplicationPhase extends BasePhase<PhaseContext> {
         this.canonicalizer = canonicalizer;
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, PhaseContext phaseContext) {
         if (graph.hasNode(MergeNode.class)) {
@@ -46,6 +46,11 @@ public class IterativeFlowSensitiveReductionPhase extends BasePhase<PhaseContext
 
     // private Histogram histogram = new Histogram("FSR-");
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, PhaseContext context) {
         FlowSensitiveReductionPhase eliminate = new FlowSensitiveReductionPhase(context.getMetaAccess());
@@ -26,6 +26,7 @@ import java.util.*;
 
 import com.oracle.graal.nodes.*;
 import com.oracle.graal.options.*;
+import com.oracle.graal.phases.*;
 import com.oracle.graal.phases.common.*;
 import com.oracle.graal.phases.common.inlining.policy.GreedyInliningPolicy;
 import com.oracle.graal.phases.common.inlining.policy.InliningPolicy;
@@ -83,6 +84,10 @@ public class InliningPhase extends AbstractInliningPhase {
 
         assert data.repOK();
         while (data.hasUnprocessedGraphs()) {
+            if (CompilationBudget.stopInlining()) {
+                // each step leaves the root graph complete, so the remaining calls can stay calls
+                return;
+            }
             boolean wasInlined = data.moveForward();
             assert data.repOK();
             if (wasInlined) {
@@ -254,6 +254,7 @@ public class InlineableGraph implements Inlineable {
             }
 
             if (context.getGraphCache() != null) {
+                newGraph.clearLastSchedule();
                 context.getGraphCache().put(newGraph.method(), newGraph);
             }
             return newGraph;
@@ -131,5 +131,14 @@ public abstract class BasePhase<C> {
         return name;
     }
 
+    /**
+     * Determines if this phase only improves the graph and can be left out without affecting
+     * correctness. Optional phases are skipped by {@link PhaseSuite} once the
+     * {@link CompilationBudget} of a compilation is exceeded.
+     */
+    public boolean isOptional() {
+        return false;
+    }
+
     protected abstract void run(StructuredGraph graph, C context);
 }
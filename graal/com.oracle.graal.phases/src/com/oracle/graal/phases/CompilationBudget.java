@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.concurrent.*;
+
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.debug.internal.*;
+
+/**
+ * Limits the time and memory a single compilation may use before it degrades gracefully. Once the
+ * {@link GraalOptions#CompilationTimeBudget} or {@link GraalOptions#CompilationMemoryBudget} of a
+ * compilation is exceeded, {@linkplain BasePhase#isOptional() optional} phases are skipped and no
+ * further call sites are inlined. Unlike a bailout, the compilation still produces code.
+ *
+ * The budget of the compilation running on the current thread is established with {@link #open()}
+ * and queried with {@link #current()}.
+ */
+public final class CompilationBudget {
+
+    private static final DebugMetric metricBudgetExceeded = Debug.metric("CompilationBudgetExceeded");
+    private static final DebugMetric metricSkippedPhases = Debug.metric("CompilationBudgetSkippedPhases");
+    private static final DebugMetric metricStoppedInlining = Debug.metric("CompilationBudgetStoppedInlining");
+
+    private static final ThreadLocal<CompilationBudget> current = new ThreadLocal<>();
+
+    private final long startTime;
+    private final long startMemory;
+    private final long timeLimit;
+    private final long memoryLimit;
+
+    private boolean exceeded;
+    private int skippedPhases;
+    private int stoppedInlining;
+
+    private CompilationBudget() {
+        int time = CompilationTimeBudget.getValue();
+        int memory = CompilationMemoryBudget.getValue();
+        this.timeLimit = time > 0 ? TimeUnit.MILLISECONDS.toNanos(time) : Long.MAX_VALUE;
+        this.memoryLimit = memory > 0 ? memory * 1024L * 1024L : Long.MAX_VALUE;
+        this.startTime = System.nanoTime();
+        this.startMemory = memoryLimit != Long.MAX_VALUE ? MemUseTrackerImpl.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Scope in which a {@link CompilationBudget} is {@linkplain CompilationBudget#current()
+     * current}.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final CompilationBudget budget;
+        private final boolean opened;
+
+        private Scope(CompilationBudget budget, boolean opened) {
+            this.budget = budget;
+            this.opened = opened;
+        }
+
+        public CompilationBudget getBudget() {
+            return budget;
+        }
+
+        public void close() {
+            if (opened) {
+                current.remove();
+            }
+        }
+    }
+
+    /**
+     * Starts accounting a compilation on the current thread. If a budget is already current, for
+     * example because a compiler entry point calls another one, the enclosing budget remains in
+     * effect and closing the returned scope has no effect.
+     */
+    public static Scope open() {
+        CompilationBudget budget = current.get();
+        if (budget != null) {
+            return new Scope(budget, false);
+        }
+        budget = new CompilationBudget();
+        current.set(budget);
+        return new Scope(budget, true);
+    }
+
+    /**
+     * Gets the budget of the compilation running on the current thread or {@code null} if there is
+     * none.
+     */
+    public static CompilationBudget current() {
+        return current.get();
+    }
+
+    /**
+     * Determines if the compilation running on the current thread has exceeded its budget.
+     */
+    public static boolean isCurrentExceeded() {
+        CompilationBudget budget = current.get();
+        return budget != null && budget.check();
+    }
+
+    /**
+     * Determines if {@code phase} should be skipped because it is optional and the budget of the
+     * compilation running on the current thread is exceeded.
+     */
+    public static boolean skipPhase(BasePhase<?> phase) {
+        if (!phase.isOptional() || !isCurrentExceeded()) {
+            return false;
+        }
+        CompilationBudget budget = current.get();
+        budget.skippedPhases++;
+        metricSkippedPhases.increment();
+        Debug.log("Compilation budget exceeded: skipping phase %s", phase.getName());
+        return true;
+    }
+
+    /**
+     * Determines if inlining should stop because the budget of the compilation running on the
+     * current thread is exceeded.
+     */
+    public static boolean stopInlining() {
+        if (!isCurrentExceeded()) {
+            return false;
+        }
+        CompilationBudget budget = current.get();
+        budget.stoppedInlining++;
+        metricStoppedInlining.increment();
+        Debug.log("Compilation budget exceeded: stopping inlining");
+        return true;
+    }
+
+    private boolean check() {
+        if (!exceeded) {
+            if (System.nanoTime() - startTime > timeLimit) {
+                exceeded = true;
+            } else if (memoryLimit != Long.MAX_VALUE && MemUseTrackerImpl.getCurrentThreadAllocatedBytes() - startMemory > memoryLimit) {
+                exceeded = true;
+            }
+            if (exceeded) {
+                metricBudgetExceeded.increment();
+                Debug.log("Compilation budget exceeded after %d ms", getElapsedMillis());
+            }
+        }
+        return exceeded;
+    }
+
+    /**
+     * Determines if this budget was exceeded by the time it was last checked.
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * Gets the number of optional phases that were skipped because this budget was exceeded.
+     */
+    public int getSkippedPhases() {
+        return skippedPhases;
+    }
+
+    /**
+     * Gets the number of times inlining was stopped because this budget was exceeded.
+     */
+    public int getStoppedInlining() {
+        return stoppedInlining;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+}
@@ -73,6 +73,9 @@ public class PhaseSuite<C> extends BasePhase<C> {
     @Override
     protected void run(StructuredGraph graph, C context) {
         for (BasePhase<? super C> phase : phases) {
+            if (CompilationBudget.skipPhase(phase)) {
+                continue;
+            }
             phase.apply(graph, context);
         }
     }
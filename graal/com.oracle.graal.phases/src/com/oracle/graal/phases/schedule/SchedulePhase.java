@@ -35,6 +35,7 @@ import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
 import com.oracle.graal.nodeinfo.*;
 import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.StructuredGraph.ScheduleResult;
 import com.oracle.graal.nodes.cfg.*;
 import com.oracle.graal.nodes.extended.*;
 import com.oracle.graal.nodes.spi.*;
@@ -47,6 +48,8 @@ import com.oracle.graal.phases.util.*;
 
 public final class SchedulePhase extends Phase {
 
+    private static final DebugMetric metricReusedSchedules = Debug.metric("ReusedSchedules");
+
     /**
      * Error thrown when a graph cannot be scheduled.
      */
@@ -290,6 +293,21 @@ public final class SchedulePhase extends Phase {
 
     @Override
     protected void run(StructuredGraph graph) {
+        Object kind = Arrays.asList(selectedStrategy, memsched);
+        if (ReuseSchedules.getValue()) {
+            ScheduleResult lastSchedule = graph.getLastSchedule(kind);
+            if (lastSchedule != null) {
+                metricReusedSchedules.increment();
+                cfg = lastSchedule.getCFG();
+                blockToNodesMap = lastSchedule.getBlockToNodesMap();
+                return;
+            }
+        }
+        schedule(graph);
+        graph.setLastSchedule(new ScheduleResult(kind, graph.getModificationCount(), cfg, blockToNodesMap));
+    }
+
+    private void schedule(StructuredGraph graph) {
         assert GraphOrder.assertNonCyclicGraph(graph);
         cfg = ControlFlowGraph.compute(graph, true, true, true, true);
         earliestCache = graph.createNodeMap();
@@ -824,13 +842,18 @@ public final class SchedulePhase extends Phase {
         // now true usages are ready
     }
 
+    /**
+     * Sorts the nodes within each block. Sorting a block only reads the graph and only marks nodes
+     * of this block as visited. The blocks can therefore be sorted in parallel as long as each
+     * partition of the blocks has its own node bit maps.
+     */
     private void sortNodesWithinBlocks(StructuredGraph graph, SchedulingStrategy strategy) {
-        NodeBitMap visited = graph.createNodeBitMap();
-        NodeBitMap beforeLastLocation = graph.createNodeBitMap();
-        for (Block b : cfg.getBlocks()) {
-            sortNodesWithinBlock(b, visited, beforeLastLocation, strategy);
-            assert noDuplicatedNodesInBlock(b) : "duplicated nodes in " + b;
-        }
+        ParallelExecution.forEachPartition(cfg.getBlocks(), () -> new NodeBitMap[]{graph.createNodeBitMap(), graph.createNodeBitMap()}, (bitMaps, blocks) -> {
+            for (Block b : blocks) {
+                sortNodesWithinBlock(b, bitMaps[0], bitMaps[1], strategy);
+                assert noDuplicatedNodesInBlock(b) : "duplicated nodes in " + b;
+            }
+        });
     }
 
     private boolean noDuplicatedNodesInBlock(Block b) {
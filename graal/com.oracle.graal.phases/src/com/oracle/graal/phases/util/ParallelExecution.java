@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.phases.util;
+
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.debug.*;
+
+/**
+ * Executes independent work items of a single compilation on a shared fork-join pool if
+ * {@link GraalOptions#ParallelCompilation} is enabled. The work items must not modify the graph or
+ * any other state shared with other work items; they are only allowed to read the graph and to
+ * write state that is private to their partition.
+ */
+public final class ParallelExecution {
+
+    private static final DebugMetric metricParallelTasks = Debug.metric("ParallelCompilationTasks");
+
+    private ParallelExecution() {
+    }
+
+    private static class PoolHolder {
+
+        static final ForkJoinPool pool = createPool();
+
+        private static ForkJoinPool createPool() {
+            int threads = ParallelCompilationThreads.getValue();
+            if (threads <= 0) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+            return new ForkJoinPool(threads, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("Graal compilation worker " + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+    }
+
+    /**
+     * Determines if {@code count} work items should be processed in parallel.
+     */
+    public static boolean isEnabled(int count) {
+        return ParallelCompilation.getValue() && count >= ParallelCompilationThreshold.getValue();
+    }
+
+    /**
+     * Splits {@code items} into contiguous partitions and applies {@code action} to each partition.
+     * The partitions are processed in parallel if {@link #isEnabled(int)} is true for the number
+     * of items and sequentially in order otherwise. This method returns after all partitions have
+     * been processed and rethrows the exception thrown by any of them.
+     *
+     * @param partitionState creates the state that is private to one partition
+     */
+    public static <T, S> void forEachPartition(List<T> items, Supplier<S> partitionState, BiConsumer<S, List<T>> action) {
+        if (!isEnabled(items.size())) {
+            action.accept(partitionState.get(), items);
+            return;
+        }
+        ForkJoinPool pool = PoolHolder.pool;
+        int partitions = Math.min(items.size(), pool.getParallelism() * 4);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            List<T> partition = items.subList(i * items.size() / partitions, (i + 1) * items.size() / partitions);
+            // the partition state is created by the compiler thread
+            S state = partitionState.get();
+            tasks.add(ForkJoinTask.adapt(() -> action.accept(state, partition)));
+        }
+        metricParallelTasks.add(partitions);
+        for (ForkJoinTask<?> task : tasks) {
+            pool.execute(task);
+        }
+        // wait for all tasks so that none of them is still reading the graph when this returns
+        RuntimeException exception = null;
+        Error error = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                exception = exception == null ? e : exception;
+            } catch (Error e) {
+                error = error == null ? e : error;
+            }
+        }
+        if (error != null) {
+            throw error;
+        } else if (exception != null) {
+            throw exception;
+        }
+    }
+}
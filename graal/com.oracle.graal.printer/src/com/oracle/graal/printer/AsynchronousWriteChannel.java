@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.printer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+
+/**
+ * A channel that copies the bytes written to it and writes them to a target channel on a
+ * background thread, so that the writing thread does not wait for I/O. All asynchronous channels
+ * share a single background thread which writes the bytes in the order in which they were written.
+ *
+ * The number of bytes waiting to be written is bounded. When the bound is reached, writers are
+ * blocked until the background thread caught up. Writers that can skip output, such as
+ * {@link BinaryGraphPrinter} dropping a graph, can use {@link #shouldDrop()} to avoid blocking.
+ */
+public class AsynchronousWriteChannel implements WritableByteChannel {
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Graal graph writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final WritableByteChannel target;
+    private final long capacity;
+    private final boolean dropWhenFull;
+
+    /**
+     * The number of bytes waiting to be written. Guarded by {@code this}.
+     */
+    private long pendingBytes;
+
+    private volatile IOException failure;
+    private volatile boolean open = true;
+
+    /**
+     * Creates a channel writing to {@code target}.
+     *
+     * @param capacity the maximum number of bytes waiting to be written
+     * @param dropWhenFull specifies if {@link #shouldDrop()} returns true when {@code capacity} is
+     *            exhausted
+     */
+    public AsynchronousWriteChannel(WritableByteChannel target, long capacity, boolean dropWhenFull) {
+        this.target = target;
+        this.capacity = capacity;
+        this.dropWhenFull = dropWhenFull;
+    }
+
+    /**
+     * Determines if the caller should drop its output instead of writing it because the bytes
+     * waiting to be written exceed the capacity of this channel and it is configured to drop
+     * output in this case.
+     */
+    public synchronized boolean shouldDrop() {
+        return dropWhenFull && pendingBytes >= capacity;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        byte[] bytes = new byte[src.remaining()];
+        src.get(bytes);
+        synchronized (this) {
+            while (pendingBytes > 0 && pendingBytes + bytes.length > capacity) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            pendingBytes += bytes.length;
+        }
+        writer.execute(() -> writeToTarget(bytes));
+        return bytes.length;
+    }
+
+    private void writeToTarget(byte[] bytes) {
+        try {
+            if (failure == null) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            synchronized (this) {
+                pendingBytes -= bytes.length;
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Waits until all bytes have been written and closes the target channel.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        Future<?> closed = writer.submit(() -> {
+            target.close();
+            return null;
+        });
+        try {
+            closed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
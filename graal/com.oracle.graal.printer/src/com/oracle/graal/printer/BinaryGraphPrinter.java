@@ -33,6 +33,7 @@ import java.util.Map.Entry;
 import java.util.function.*;
 
 import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.*;
 import com.oracle.graal.compiler.common.cfg.*;
 import com.oracle.graal.debug.*;
 import com.oracle.graal.graph.*;
@@ -45,6 +46,8 @@ public class BinaryGraphPrinter implements GraphPrinter {
 
     private static final int CONSTANT_POOL_MAX_SIZE = 8000;
 
+    private static final DebugMetric DroppedGraphs = Debug.metric("DroppedGraphs");
+
     private static final int BEGIN_GROUP = 0x00;
     private static final int BEGIN_GRAPH = 0x01;
     private static final int CLOSE_GROUP = 0x02;
@@ -117,6 +120,10 @@ public class BinaryGraphPrinter implements GraphPrinter {
     }
 
     public void print(Graph graph, String title, SchedulePhase predefinedSchedule) throws IOException {
+        if (channel instanceof AsynchronousWriteChannel && ((AsynchronousWriteChannel) channel).shouldDrop()) {
+            DroppedGraphs.increment();
+            return;
+        }
         writeByte(BEGIN_GRAPH);
         writePoolObject(title);
         writeGraph(graph, predefinedSchedule);
@@ -413,31 +420,62 @@ public class BinaryGraphPrinter implements GraphPrinter {
 
         for (Node node : graph.getNodes()) {
             NodeClass nodeClass = node.getNodeClass();
-            node.getDebugProperties(props);
+            Object probability = null;
             if (probabilities != null && node instanceof FixedNode) {
                 try {
-                    props.put("probability", probabilities.applyAsDouble((FixedNode) node));
+                    probability = probabilities.applyAsDouble((FixedNode) node);
                 } catch (Throwable t) {
-                    props.put("probability", t);
+                    probability = t;
                 }
             }
             writeInt(getNodeId(node));
             writePoolObject(nodeClass);
             writeByte(node.predecessor() == null ? 0 : 1);
             // properties
-            writeShort((char) props.size());
-            for (Entry<Object, Object> entry : props.entrySet()) {
-                String key = entry.getKey().toString();
-                writePoolObject(key);
-                writePropertyObject(entry.getValue());
+            if (hasCustomDebugProperties.get(node.getClass())) {
+                node.getDebugProperties(props);
+                if (probability != null) {
+                    props.put("probability", probability);
+                }
+                writeShort((char) props.size());
+                for (Entry<Object, Object> entry : props.entrySet()) {
+                    String key = entry.getKey().toString();
+                    writePoolObject(key);
+                    writePropertyObject(entry.getValue());
+                }
+                props.clear();
+            } else {
+                // same properties as Node.getDebugProperties, without going through a map
+                Fields data = nodeClass.getData();
+                writeShort((char) (data.getCount() + (probability != null ? 1 : 0)));
+                for (int i = 0; i < data.getCount(); i++) {
+                    writePoolObject(data.getName(i));
+                    writePropertyObject(data.get(node, i));
+                }
+                if (probability != null) {
+                    writePoolObject("probability");
+                    writePropertyObject(probability);
+                }
             }
             writeEdges(node, Inputs);
             writeEdges(node, Successors);
-
-            props.clear();
         }
     }
 
+    /**
+     * Determines if a node class adds properties to those of {@link Node#getDebugProperties(Map)}.
+     */
+    private static final ClassValue<Boolean> hasCustomDebugProperties = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> c) {
+            try {
+                return c.getMethod("getDebugProperties", Map.class).getDeclaringClass() != Node.class;
+            } catch (NoSuchMethodException e) {
+                throw new GraalInternalError(e);
+            }
+        }
+    };
+
     private void writeEdges(Node node, Edges.Type type) throws IOException {
         NodeClass nodeClass = node.getNodeClass();
         Edges edges = nodeClass.getEdges(type);
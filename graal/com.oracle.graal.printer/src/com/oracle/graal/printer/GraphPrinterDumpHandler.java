@@ -113,7 +113,13 @@ public class GraphPrinterDumpHandler implements DebugDumpHandler {
         }
         try {
             if (PrintBinaryGraphs.getValue()) {
-                printer = new BinaryGraphPrinter(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW));
+                WritableByteChannel channel;
+                if (PrintBinaryGraphsMappedFile.getValue()) {
+                    channel = new MappedFileChannel(file.toPath());
+                } else {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                }
+                printer = new BinaryGraphPrinter(withAsynchronousWrites(channel));
             } else {
                 printer = new IdealGraphPrinter(new FileOutputStream(file), true);
             }
@@ -125,12 +131,19 @@ public class GraphPrinterDumpHandler implements DebugDumpHandler {
         }
     }
 
+    private static WritableByteChannel withAsynchronousWrites(WritableByteChannel channel) {
+        if (PrintBinaryGraphsAsync.getValue()) {
+            return new AsynchronousWriteChannel(channel, PrintBinaryGraphsAsyncBufferSize.getValue(), PrintBinaryGraphsAsyncDrop.getValue());
+        }
+        return channel;
+    }
+
     private void initializeNetworkPrinter() {
         String host = PrintIdealGraphAddress.getValue();
         int port = PrintBinaryGraphs.getValue() ? PrintBinaryGraphPort.getValue() : PrintIdealGraphPort.getValue();
         try {
             if (PrintBinaryGraphs.getValue()) {
-                printer = new BinaryGraphPrinter(SocketChannel.open(new InetSocketAddress(host, port)));
+                printer = new BinaryGraphPrinter(withAsynchronousWrites(SocketChannel.open(new InetSocketAddress(host, port))));
             } else {
                 IdealGraphPrinter xmlPrinter = new IdealGraphPrinter(new Socket(host, port).getOutputStream(), true);
                 printer = xmlPrinter;
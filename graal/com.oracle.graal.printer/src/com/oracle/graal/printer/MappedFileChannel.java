@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.printer;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.*;
+
+/**
+ * A channel writing to a new file through memory-mapped regions. Writing only copies the bytes to
+ * the mapped memory and leaves the I/O to the operating system. The file is truncated to the
+ * number of bytes written when the channel is closed.
+ */
+public class MappedFileChannel implements WritableByteChannel {
+
+    private static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    private final FileChannel file;
+
+    /**
+     * The number of bytes mapped at a time.
+     */
+    private final int regionSize;
+
+    /**
+     * The currently mapped region of {@link #file}, or null if nothing has been written yet.
+     */
+    private MappedByteBuffer region;
+
+    /**
+     * The file position at which {@link #region} starts.
+     */
+    private long regionStart;
+
+    public MappedFileChannel(Path path) throws IOException {
+        this(path, DEFAULT_REGION_SIZE);
+    }
+
+    public MappedFileChannel(Path path, int regionSize) throws IOException {
+        assert regionSize > 0;
+        this.regionSize = regionSize;
+        file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int length = src.remaining();
+        while (src.hasRemaining()) {
+            if (region == null || !region.hasRemaining()) {
+                long start = region == null ? 0 : regionStart + region.capacity();
+                region = file.map(MapMode.READ_WRITE, start, regionSize);
+                regionStart = start;
+            }
+            int count = Math.min(region.remaining(), src.remaining());
+            ByteBuffer chunk = src.duplicate();
+            chunk.limit(chunk.position() + count);
+            region.put(chunk);
+            src.position(src.position() + count);
+        }
+        return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return file.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file.isOpen()) {
+            long size = region == null ? 0 : regionStart + region.position();
+            region = null;
+            file.truncate(size);
+            file.close();
+        }
+    }
+}
@@ -25,6 +25,7 @@ package com.oracle.graal.replacements.amd64;
 
 import static com.oracle.graal.compiler.common.GraalOptions.*;
 
+import java.lang.reflect.*;
 import java.util.*;
 
 import com.oracle.graal.api.code.*;
@@ -40,10 +41,24 @@ import com.oracle.graal.replacements.*;
 @ServiceProvider(ReplacementsProvider.class)
 public class AMD64Substitutions implements ReplacementsProvider {
 
+    static class NamedType implements Type {
+        private final String name;
+
+        public NamedType(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
     public void registerReplacements(MetaAccessProvider metaAccess, LoweringProvider lowerer, SnippetReflectionProvider snippetReflection, Replacements replacements, TargetDescription target) {
         if (Intrinsify.getValue()) {
             replacements.registerSubstitutions(Arrays.class, ArraysSubstitutions.class);
             replacements.registerSubstitutions(String.class, StringSubstitutions.class);
+            replacements.registerSubstitutions(new NamedType("sun.nio.cs.ISO_8859_1$Encoder"), ISO8859_1EncoderSubstitutions.class);
         }
     }
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.test;
+
+import org.junit.*;
+
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.replacements.nodes.*;
+
+/**
+ * Tests {@link ArrayMismatchNode} by comparing a Java implementation of a mismatch search with a
+ * substitution that uses the node.
+ */
+public class ArrayMismatchTest extends MethodSubstitutionTest {
+
+    private static boolean initReplacements = false;
+
+    @Before
+    public void initReplacements() {
+        if (!initReplacements) {
+            getReplacements().registerSubstitutions(ArrayMismatchTest.class, ArrayMismatchTestSubstitutions.class);
+            initReplacements = true;
+        }
+    }
+
+    public static int mismatch(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int mismatch(char[] a, char[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int mismatch(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int mismatch(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @ClassSubstitution(ArrayMismatchTest.class)
+    private static class ArrayMismatchTestSubstitutions {
+
+        @MethodSubstitution
+        public static int mismatch(byte[] a, byte[] b) {
+            return ArrayMismatchNode.mismatch(a, b, a.length);
+        }
+
+        @MethodSubstitution
+        public static int mismatch(char[] a, char[] b) {
+            return ArrayMismatchNode.mismatch(a, b, a.length);
+        }
+
+        @MethodSubstitution
+        public static int mismatch(int[] a, int[] b) {
+            return ArrayMismatchNode.mismatch(a, b, a.length);
+        }
+
+        @MethodSubstitution
+        public static int mismatch(long[] a, long[] b) {
+            return ArrayMismatchNode.mismatch(a, b, a.length);
+        }
+    }
+
+    public static int byteMismatch(byte[] a, byte[] b) {
+        return mismatch(a, b);
+    }
+
+    public static int charMismatch(char[] a, char[] b) {
+        return mismatch(a, b);
+    }
+
+    public static int intMismatch(int[] a, int[] b) {
+        return mismatch(a, b);
+    }
+
+    public static int longMismatch(long[] a, long[] b) {
+        return mismatch(a, b);
+    }
+
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 7, 8, 9, 15, 16, 17, 31, 32, 33, 100};
+
+    @Test
+    public void testGraph() {
+        for (String snippet : new String[]{"byteMismatch", "charMismatch", "intMismatch", "longMismatch"}) {
+            assertInGraph(test(snippet), ArrayMismatchNode.class);
+        }
+    }
+
+    @Test
+    public void testMismatch() {
+        for (int length : LENGTHS) {
+            // equal arrays and a difference at each index
+            for (int diff = -1; diff < length; diff++) {
+                byte[] bytes = new byte[length];
+                char[] chars = new char[length];
+                int[] ints = new int[length];
+                long[] longs = new long[length];
+                if (diff >= 0) {
+                    bytes[diff] = (byte) 0x80;
+                    chars[diff] = (char) 0x100;
+                    ints[diff] = 0x10000;
+                    longs[diff] = 1L << 40;
+                }
+                test("byteMismatch", new byte[length], bytes);
+                test("charMismatch", new char[length], chars);
+                test("intMismatch", new int[length], ints);
+                test("longMismatch", new long[length], longs);
+            }
+        }
+    }
+}
@@ -397,4 +397,151 @@ public class ArraysSubstitutionsTest extends MethodSubstitutionTest {
         int[] array2 = new int[]{1, 2, 3, 4};
         return Arrays.equals(array1, array2);
     }
+
+    /**
+     * Array lengths covering the scalar, vector and {@code rep stos} code of the fill and the
+     * scalar and vector code of the hash code.
+     */
+    private static final int[] LENGTHS = {0, 1, 2, 3, 4, 5, 7, 8, 9, 15, 16, 17, 31, 32, 33, 100, 1000, 3000, 3001};
+
+    @Test
+    public void testFill() {
+        for (String snippet : new String[]{"arraysFillBoolean", "arraysFillByte", "arraysFillChar", "arraysFillShort", "arraysFillInt", "arraysFillLong", "arraysFillFloat", "arraysFillDouble"}) {
+            assertInGraph(test(snippet), ArrayFillNode.class);
+        }
+        for (int length : LENGTHS) {
+            test("arraysFillBoolean", length, true);
+            test("arraysFillByte", length, (byte) -3);
+            test("arraysFillChar", length, '\uABCD');
+            test("arraysFillShort", length, (short) -3);
+            test("arraysFillInt", length, 0x12345678);
+            test("arraysFillLong", length, 0x123456789ABCDEFL);
+            test("arraysFillFloat", length, -1.5f);
+            test("arraysFillDouble", length, Double.NaN);
+        }
+    }
+
+    public static boolean[] arraysFillBoolean(int length, boolean val) {
+        boolean[] a = new boolean[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static byte[] arraysFillByte(int length, byte val) {
+        byte[] a = new byte[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static char[] arraysFillChar(int length, char val) {
+        char[] a = new char[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static short[] arraysFillShort(int length, short val) {
+        short[] a = new short[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static int[] arraysFillInt(int length, int val) {
+        int[] a = new int[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static long[] arraysFillLong(int length, long val) {
+        long[] a = new long[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static float[] arraysFillFloat(int length, float val) {
+        float[] a = new float[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    public static double[] arraysFillDouble(int length, double val) {
+        double[] a = new double[length];
+        Arrays.fill(a, val);
+        return a;
+    }
+
+    @Test
+    public void testFillRange() {
+        assertInGraph(test("arraysFillRangeByte"), ArrayFillNode.class);
+        assertInGraph(test("arraysFillRangeShort"), ArrayFillNode.class);
+        assertInGraph(test("arraysFillRangeLong"), ArrayFillNode.class);
+        for (int length : LENGTHS) {
+            for (int from : new int[]{0, 1, 3, length / 2, length}) {
+                test("arraysFillRangeByte", length, from, length - 1, (byte) 7);
+                test("arraysFillRangeShort", length, from, length, (short) 7);
+                test("arraysFillRangeLong", length, from, length - from / 2, 7L);
+            }
+        }
+        // out of bounds
+        test("arraysFillRangeByte", 10, -1, 5, (byte) 7);
+        test("arraysFillRangeShort", 10, 6, 5, (short) 7);
+        test("arraysFillRangeLong", 10, 5, 11, 7L);
+    }
+
+    public static byte[] arraysFillRangeByte(int length, int fromIndex, int toIndex, byte val) {
+        byte[] a = new byte[length];
+        Arrays.fill(a, fromIndex, toIndex, val);
+        return a;
+    }
+
+    public static short[] arraysFillRangeShort(int length, int fromIndex, int toIndex, short val) {
+        short[] a = new short[length];
+        Arrays.fill(a, fromIndex, toIndex, val);
+        return a;
+    }
+
+    public static long[] arraysFillRangeLong(int length, int fromIndex, int toIndex, long val) {
+        long[] a = new long[length];
+        Arrays.fill(a, fromIndex, toIndex, val);
+        return a;
+    }
+
+    @Test
+    public void testHashCode() {
+        for (String snippet : new String[]{"arraysHashCodeByte", "arraysHashCodeChar", "arraysHashCodeShort", "arraysHashCodeInt"}) {
+            assertInGraph(test(snippet), ArrayHashCodeNode.class);
+        }
+        for (int length : LENGTHS) {
+            byte[] bytes = new byte[length];
+            char[] chars = new char[length];
+            short[] shorts = new short[length];
+            int[] ints = new int[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (i * 37);
+                chars[i] = (char) (i * 4099);
+                shorts[i] = (short) (i * 4099);
+                ints[i] = i * 0x10001 - 1000;
+            }
+            test("arraysHashCodeByte", bytes);
+            test("arraysHashCodeChar", chars);
+            test("arraysHashCodeShort", shorts);
+            test("arraysHashCodeInt", ints);
+        }
+        test("arraysHashCodeInt", (Object) null);
+    }
+
+    public static int arraysHashCodeByte(byte[] a) {
+        return Arrays.hashCode(a);
+    }
+
+    public static int arraysHashCodeChar(char[] a) {
+        return Arrays.hashCode(a);
+    }
+
+    public static int arraysHashCodeShort(short[] a) {
+        return Arrays.hashCode(a);
+    }
+
+    public static int arraysHashCodeInt(int[] a) {
+        return Arrays.hashCode(a);
+    }
 }
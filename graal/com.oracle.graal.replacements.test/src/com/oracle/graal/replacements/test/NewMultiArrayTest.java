@@ -127,4 +127,31 @@ public class NewMultiArrayTest extends GraalCompilerTest {
     public static Object newMultiArrayException() {
         return new Object[10][9][-8];
     }
+
+    @Test
+    public void test3() {
+        for (int dimension0 : new int[]{0, 1, 7, 64, 65, 1000}) {
+            for (int dimension1 : new int[]{0, 1, 3, 100}) {
+                test("newDoubleMatrix", dimension0, dimension1);
+                test("newObjectMatrix", dimension0, dimension1);
+            }
+        }
+        test("newDoubleMatrix", 0, -1);
+        test("newDoubleMatrix", 5, -1);
+        test("newDoubleMatrix", -1, 5);
+    }
+
+    public static Object newDoubleMatrix(int dimension0, int dimension1) {
+        return new double[dimension0][dimension1];
+    }
+
+    public static Object newObjectMatrix(int dimension0, int dimension1) {
+        String[][] matrix = new String[dimension0][dimension1];
+        for (int i = 0; i < dimension0; i++) {
+            for (int j = 0; j < dimension1; j++) {
+                matrix[i][j] = String.valueOf(i + j);
+            }
+        }
+        return matrix;
+    }
 }
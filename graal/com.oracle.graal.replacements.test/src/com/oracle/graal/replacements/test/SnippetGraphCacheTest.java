@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.test;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.replacements.*;
+
+/**
+ * Tests that graphs written to a {@link SnippetGraphCache} are read back unchanged.
+ */
+public class SnippetGraphCacheTest extends GraalCompilerTest {
+
+    public static int loopSnippet(int[] array, int limit) {
+        int sum = 0;
+        for (int i = 0; i < array.length && i < limit; i++) {
+            if (array[i] > 0) {
+                sum += array[i];
+            } else {
+                sum -= 1;
+            }
+        }
+        return sum;
+    }
+
+    public static double floatSnippet(double a, float b, long c) {
+        return a * b + c / 3.5 + Math.PI;
+    }
+
+    static final String VALUE = "value";
+
+    public static Object objectSnippet(Object[] array, Object o) {
+        if (o == null) {
+            array[0] = VALUE;
+            return null;
+        }
+        return array[array.length - 1];
+    }
+
+    private File cacheFile;
+
+    @Before
+    public void createCacheFile() throws IOException {
+        cacheFile = File.createTempFile("snippetGraphCache", ".bin");
+        cacheFile.delete();
+    }
+
+    @After
+    public void deleteCacheFile() {
+        cacheFile.delete();
+    }
+
+    private SnippetGraphCache createCache(String buildKey) {
+        return new SnippetGraphCache(getMetaAccess(), getSnippetReflection(), cacheFile, buildKey);
+    }
+
+    private void test(String snippet) throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod(snippet);
+        StructuredGraph graph = parseEager(snippet);
+
+        SnippetGraphCache cache = createCache("key");
+        Assert.assertNull(cache.lookup(method));
+        cache.record(method, graph);
+        cache.persist();
+        Assert.assertTrue(cacheFile.isFile());
+
+        StructuredGraph cachedGraph = createCache("key").lookup(method);
+        Assert.assertNotNull(cachedGraph);
+        Assert.assertEquals(method, cachedGraph.method());
+        Assert.assertEquals(describe(graph), describe(cachedGraph));
+
+        Assert.assertNull(createCache("otherKey").lookup(method));
+    }
+
+    /**
+     * Tests that an entry is not used if a class of a node in its graph or the layout of a node
+     * class changed.
+     */
+    private void testStale(Class<?> nodeClass, int occurrence, int offset) throws IOException {
+        ResolvedJavaMethod method = getResolvedJavaMethod("loopSnippet");
+        SnippetGraphCache cache = createCache("key");
+        cache.record(method, parseEager("loopSnippet"));
+        cache.persist();
+        Assert.assertNotNull(createCache("key").lookup(method));
+
+        // the hash of a class and the layout of a node class follow the name of the class
+        byte[] contents = Files.readAllBytes(cacheFile.toPath());
+        int index = indexOfClassName(contents, nodeClass.getName(), occurrence);
+        Assert.assertTrue(index >= 0);
+        contents[index + offset]++;
+        Files.write(cacheFile.toPath(), contents);
+        Assert.assertNull(createCache("key").lookup(method));
+    }
+
+    /**
+     * Finds an occurrence of a class name written by {@link DataOutputStream#writeUTF}.
+     *
+     * @return the index of the byte after the name or -1
+     */
+    private static int indexOfClassName(byte[] contents, String name, int occurrence) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int found = 0;
+        for (int i = 2; i + bytes.length < contents.length; i++) {
+            if (((contents[i - 2] & 0xFF) << 8 | (contents[i - 1] & 0xFF)) == bytes.length && Arrays.equals(bytes, Arrays.copyOfRange(contents, i, i + bytes.length))) {
+                if (found++ == occurrence) {
+                    return i + bytes.length;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> describe(StructuredGraph graph) {
+        Map<Node, Integer> indexes = new HashMap<>();
+        for (Node node : graph.getNodes()) {
+            indexes.put(node, indexes.size());
+        }
+        List<String> result = new ArrayList<>();
+        for (Node node : graph.getNodes()) {
+            StringBuilder sb = new StringBuilder(node.toString(Verbosity.Name));
+            sb.append(" inputs:");
+            for (Node input : node.inputs()) {
+                sb.append(' ').append(indexes.get(input));
+            }
+            sb.append(" successors:");
+            for (Node successor : node.successors()) {
+                sb.append(' ').append(indexes.get(successor));
+            }
+            sb.append(" usages:").append(node.usages().count());
+            if (node instanceof ValueNode) {
+                sb.append(" stamp:").append(((ValueNode) node).stamp());
+            }
+            if (node instanceof ConstantNode) {
+                sb.append(" value:").append(((ConstantNode) node).getValue());
+            }
+            result.add(sb.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void testLoop() throws IOException {
+        test("loopSnippet");
+    }
+
+    @Test
+    public void testFloat() throws IOException {
+        test("floatSnippet");
+    }
+
+    @Test
+    public void testObject() throws IOException {
+        test("objectSnippet");
+    }
+
+    @Test
+    public void testStaleNodeClass() throws IOException {
+        testStale(ReturnNode.class, 0, 0);
+    }
+
+    @Test
+    public void testStaleNodeSuperclass() throws IOException {
+        testStale(FixedNode.class, 0, 0);
+    }
+
+    @Test
+    public void testChangedNodeLayout() throws IOException {
+        // change the first character after the length of the layout string
+        testStale(ReturnNode.class, 1, 2);
+    }
+}
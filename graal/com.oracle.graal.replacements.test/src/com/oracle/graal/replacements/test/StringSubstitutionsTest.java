@@ -36,7 +36,10 @@ import com.oracle.graal.replacements.nodes.*;
 public class StringSubstitutionsTest extends MethodSubstitutionTest {
 
     public void testSubstitution(String testMethodName, Class<?> intrinsicClass, Class<?> holder, String methodName, boolean optional, Object[] args1, Object[] args2) {
-        ResolvedJavaMethod realMethod = getResolvedJavaMethod(holder, methodName);
+        testSubstitution(testMethodName, intrinsicClass, getResolvedJavaMethod(holder, methodName), optional, args1, args2);
+    }
+
+    public void testSubstitution(String testMethodName, Class<?> intrinsicClass, ResolvedJavaMethod realMethod, boolean optional, Object[] args1, Object[] args2) {
         ResolvedJavaMethod testMethod = getResolvedJavaMethod(testMethodName);
         StructuredGraph graph = test(testMethodName);
 
@@ -95,4 +98,85 @@ public class StringSubstitutionsTest extends MethodSubstitutionTest {
         return a.equals(b);
     }
 
+    /**
+     * Strings of all lengths up to {@code n} made of {@code '0'}s, with a char of {@code c} at
+     * some positions.
+     */
+    private static String[] strings(int n, char c) {
+        String[] strings = new String[n * 3];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            strings[i * 3] = sb.toString();
+            strings[i * 3 + 1] = sb.toString() + c;
+            strings[i * 3 + 2] = c + sb.toString() + c;
+            sb.append('0');
+        }
+        return strings;
+    }
+
+    @Test
+    public void testIndexOfChar() {
+        String[] strings = strings(40, '\u1234');
+        int[] chars = {'0', '1', '\u1234', '\u0034', -1, 0x1F600};
+        Object[] args1 = new Object[strings.length * chars.length];
+        Object[] args2 = new Object[strings.length * chars.length];
+        for (int i = 0; i < strings.length; i++) {
+            for (int j = 0; j < chars.length; j++) {
+                args1[i * chars.length + j] = strings[i];
+                args2[i * chars.length + j] = chars[j];
+            }
+        }
+        testSubstitution("stringIndexOfChar", CharArrayIndexOfNode.class, getResolvedJavaMethod(String.class, "indexOf", int.class), false, args1, args2);
+    }
+
+    @SuppressWarnings("all")
+    public static int stringIndexOfChar(String a, int ch) {
+        return a.indexOf(ch);
+    }
+
+    @Test
+    public void testIndexOfString() {
+        String[] strings = strings(40, 'x');
+        String[] targets = {"", "0", "x", "0x", "x0", "00000000x", "0000000000", "x0000000000x", "y"};
+        Object[] args1 = new Object[strings.length * targets.length];
+        Object[] args2 = new Object[strings.length * targets.length];
+        for (int i = 0; i < strings.length; i++) {
+            for (int j = 0; j < targets.length; j++) {
+                args1[i * targets.length + j] = strings[i];
+                args2[i * targets.length + j] = targets[j];
+            }
+        }
+        testSubstitution("stringIndexOfString", CharArraySearchNode.class, getResolvedJavaMethod(String.class, "indexOf", String.class), false, args1, args2);
+    }
+
+    @SuppressWarnings("all")
+    public static int stringIndexOfString(String a, String b) {
+        return a.indexOf(b);
+    }
+
+    @Test
+    public void testCompareTo() {
+        String[] strings = strings(20, '\u1234');
+        Object[] args1 = new Object[strings.length * strings.length];
+        Object[] args2 = new Object[strings.length * strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            for (int j = 0; j < strings.length; j++) {
+                args1[i * strings.length + j] = strings[i];
+                args2[i * strings.length + j] = strings[j];
+            }
+        }
+        testSubstitution("stringCompareTo", CharArrayCompareNode.class, getResolvedJavaMethod(String.class, "compareTo", String.class), false, args1, args2);
+    }
+
+    @SuppressWarnings("all")
+    public static int stringCompareTo(String a, String b) {
+        return a.compareTo(b);
+    }
+
+    @Test
+    public void testCompareToNull() {
+        test("stringCompareTo", "a", null);
+        test("stringCompareTo", "", null);
+    }
+
 }
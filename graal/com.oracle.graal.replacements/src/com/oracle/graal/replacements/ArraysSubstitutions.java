@@ -118,4 +118,156 @@ public class ArraysSubstitutions {
         }
         return ArrayEqualsNode.equals(a, a2, a.length);
     }
+
+    @MethodSubstitution
+    public static void fill(boolean[] a, boolean val) {
+        ArrayFillNode.fill(a, 0, a.length, val ? 1 : 0);
+    }
+
+    @MethodSubstitution
+    public static void fill(boolean[] a, int fromIndex, int toIndex, boolean val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val ? 1 : 0);
+    }
+
+    @MethodSubstitution
+    public static void fill(byte[] a, byte val) {
+        ArrayFillNode.fill(a, 0, a.length, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(byte[] a, int fromIndex, int toIndex, byte val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(char[] a, char val) {
+        ArrayFillNode.fill(a, 0, a.length, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(char[] a, int fromIndex, int toIndex, char val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(short[] a, short val) {
+        ArrayFillNode.fill(a, 0, a.length, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(short[] a, int fromIndex, int toIndex, short val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(int[] a, int val) {
+        ArrayFillNode.fill(a, 0, a.length, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(int[] a, int fromIndex, int toIndex, int val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(long[] a, long val) {
+        ArrayFillNode.fill(a, 0, a.length, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(long[] a, int fromIndex, int toIndex, long val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, val);
+    }
+
+    @MethodSubstitution
+    public static void fill(float[] a, float val) {
+        ArrayFillNode.fill(a, 0, a.length, Float.floatToRawIntBits(val));
+    }
+
+    @MethodSubstitution
+    public static void fill(float[] a, int fromIndex, int toIndex, float val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, Float.floatToRawIntBits(val));
+    }
+
+    @MethodSubstitution
+    public static void fill(double[] a, double val) {
+        ArrayFillNode.fill(a, 0, a.length, Double.doubleToRawLongBits(val));
+    }
+
+    @MethodSubstitution
+    public static void fill(double[] a, int fromIndex, int toIndex, double val) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > a.length) {
+            // calls the original method, which throws the exception
+            fill(a, fromIndex, toIndex, val);
+            return;
+        }
+        ArrayFillNode.fill(a, fromIndex, toIndex, Double.doubleToRawLongBits(val));
+    }
+
+    @MethodSubstitution
+    public static int hashCode(byte[] a) {
+        if (a == null) {
+            return 0;
+        }
+        return ArrayHashCodeNode.hashCode(a, a.length);
+    }
+
+    @MethodSubstitution
+    public static int hashCode(char[] a) {
+        if (a == null) {
+            return 0;
+        }
+        return ArrayHashCodeNode.hashCode(a, a.length);
+    }
+
+    @MethodSubstitution
+    public static int hashCode(short[] a) {
+        if (a == null) {
+            return 0;
+        }
+        return ArrayHashCodeNode.hashCode(a, a.length);
+    }
+
+    @MethodSubstitution
+    public static int hashCode(int[] a) {
+        if (a == null) {
+            return 0;
+        }
+        return ArrayHashCodeNode.hashCode(a, a.length);
+    }
 }
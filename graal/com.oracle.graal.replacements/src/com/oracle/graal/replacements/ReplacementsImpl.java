@@ -27,6 +27,7 @@ import static com.oracle.graal.compiler.GraalCompiler.*;
 import static com.oracle.graal.compiler.common.GraalOptions.*;
 import static com.oracle.graal.phases.common.DeadCodeEliminationPhase.Optionality.*;
 
+import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.*;
@@ -71,6 +72,12 @@ public class ReplacementsImpl implements Replacements {
      */
     protected final ConcurrentMap<ResolvedJavaMethod, StructuredGraph> graphs;
 
+    /**
+     * The cache from which preprocessed replacement graphs are read instead of being built. This
+     * is null if graphs are not cached across VM runs.
+     */
+    protected SnippetGraphCache snippetGraphCache;
+
     /**
      * Encapsulates method and macro substitutions for a single class.
      */
@@ -244,11 +251,18 @@ public class ReplacementsImpl implements Replacements {
             try (TimerCloseable a = SnippetPreparationTime.start()) {
                 FrameStateProcessing frameStateProcessing = method.getAnnotation(Snippet.class).removeAllFrameStates() ? FrameStateProcessing.Removal
                                 : FrameStateProcessing.CollapseFrameForSingleSideEffect;
-                StructuredGraph newGraph = makeGraph(method, recursiveEntry, inliningPolicy(method), frameStateProcessing);
+                StructuredGraph newGraph = snippetGraphCache == null ? null : snippetGraphCache.lookup(method);
+                if (newGraph == null) {
+                    newGraph = makeGraph(method, recursiveEntry, inliningPolicy(method), frameStateProcessing);
+                    if (snippetGraphCache != null) {
+                        snippetGraphCache.record(method, newGraph);
+                    }
+                }
                 Debug.metric("SnippetNodeCount[%#s]", method).add(newGraph.getNodeCount());
                 if (!UseSnippetGraphCache) {
                     return newGraph;
                 }
+                newGraph.clearLastSchedule();
                 graphs.putIfAbsent(method, newGraph);
                 graph = graphs.get(method);
             }
@@ -284,7 +298,13 @@ public class ReplacementsImpl implements Replacements {
         }
         StructuredGraph graph = graphs.get(substitute);
         if (graph == null) {
-            graph = makeGraph(substitute, original, inliningPolicy(substitute), FrameStateProcessing.None);
+            graph = snippetGraphCache == null ? null : snippetGraphCache.lookup(substitute);
+            if (graph == null) {
+                graph = makeGraph(substitute, original, inliningPolicy(substitute), FrameStateProcessing.None);
+                if (snippetGraphCache != null) {
+                    snippetGraphCache.record(substitute, graph);
+                }
+            }
             graph.freeze();
             graphs.putIfAbsent(substitute, graph);
             graph = graphs.get(substitute);
@@ -294,6 +314,20 @@ public class ReplacementsImpl implements Replacements {
 
     }
 
+    /**
+     * Writes the replacement graphs built during this run to the {@linkplain SnippetGraphCache
+     * persistent graph cache}, if there is one.
+     */
+    public void persistSnippetGraphCache() {
+        if (snippetGraphCache != null) {
+            try {
+                snippetGraphCache.persist();
+            } catch (IOException e) {
+                TTY.println("Warning: could not write snippet graph cache " + snippetGraphCache.getFile() + ": " + e);
+            }
+        }
+    }
+
     public Class<? extends FixedWithNextNode> getMacroSubstitution(ResolvedJavaMethod method) {
         ClassReplacements cr = getClassReplacements(method.getDeclaringClass().getName());
         return cr == null ? null : cr.macroSubstitutions.get(method);
@@ -560,6 +594,7 @@ public class ReplacementsImpl implements Replacements {
                     throw Debug.handle(e);
                 }
 
+                newGraph.clearLastSchedule();
                 graphCache.putIfAbsent(methodToParse, newGraph);
                 graph = graphCache.get(methodToParse);
                 assert graph != null;
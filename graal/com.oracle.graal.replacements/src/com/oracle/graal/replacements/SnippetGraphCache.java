@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.debug.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.replacements.SnippetGraphEncoder.UnsupportedValueException;
+
+/**
+ * A cache of preprocessed snippet and method substitution graphs that persists across VM runs.
+ * Preprocessing a replacement graph (parsing, inlining, node intrinsification) is a significant
+ * part of the compiler's startup time, so graphs are written to a file when the VM shuts down and
+ * read back in the next run instead of being rebuilt.
+ *
+ * The file starts with a header containing a build key that identifies the compiler build and VM
+ * configuration the graphs were created for. A file with a different key is ignored. Each entry
+ * additionally records a hash of every class referenced by its graph, including the node classes
+ * and their superclasses, and the field layout of each node class. An entry is only used if none
+ * of these classes and layouts changed. The file is mapped into memory and the graph of an entry
+ * is only decoded from the mapped file when it is requested.
+ */
+public class SnippetGraphCache {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "File in which preprocessed snippet and method substitution graphs are cached between VM runs")
+        public static final OptionValue<String> SnippetGraphCacheFile = new OptionValue<>(null);
+        // @formatter:on
+    }
+
+    private static final int MAGIC = 0x47534743;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final DebugMetric SnippetGraphCacheHits = Debug.metric("SnippetGraphCacheHits");
+    private static final DebugMetric SnippetGraphCacheMisses = Debug.metric("SnippetGraphCacheMisses");
+    private static final DebugMetric SnippetGraphCacheStale = Debug.metric("SnippetGraphCacheStale");
+    private static final DebugMetric SnippetGraphCacheUnencodable = Debug.metric("SnippetGraphCacheUnencodable");
+
+    /**
+     * A graph in its encoded form together with the hashes of the classes and the layouts of the
+     * node classes it depends on.
+     */
+    private static final class Entry {
+
+        final Map<String, Long> classHashes;
+        final Map<String, String> nodeLayouts;
+
+        /**
+         * The encoded graph between position and limit. For entries read from the file, this is a
+         * slice of the mapped file.
+         */
+        final ByteBuffer encodedGraph;
+
+        Entry(Map<String, Long> classHashes, Map<String, String> nodeLayouts, ByteBuffer encodedGraph) {
+            this.classHashes = classHashes;
+            this.nodeLayouts = nodeLayouts;
+            this.encodedGraph = encodedGraph;
+        }
+    }
+
+    private final MetaAccessProvider metaAccess;
+    private final SnippetReflectionProvider snippetReflection;
+    private final File file;
+    private final String buildKey;
+
+    /**
+     * Entries read from {@link #file}. Created on first use.
+     */
+    private Map<String, Entry> loadedEntries;
+
+    /**
+     * Entries created during this run that will be written to {@link #file} by {@link #persist()}.
+     */
+    private final ConcurrentMap<String, Entry> recordedEntries = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, Long> classHashes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache backed by a given file.
+     *
+     * @param buildKey identifies the compiler build and configuration. Entries in {@code file} are
+     *            only used if the file was written with the same key.
+     */
+    public SnippetGraphCache(MetaAccessProvider metaAccess, SnippetReflectionProvider snippetReflection, File file, String buildKey) {
+        this.metaAccess = metaAccess;
+        this.snippetReflection = snippetReflection;
+        this.file = file;
+        this.buildKey = buildKey;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    private static String keyFor(ResolvedJavaMethod method) {
+        return method.getDeclaringClass().getName() + method.getName() + method.getSignature().toMethodDescriptor();
+    }
+
+    /**
+     * Gets the cached graph for a given method.
+     *
+     * @return a new graph for {@code method} or null if the cache does not contain an up to date
+     *         graph for {@code method}
+     */
+    public StructuredGraph lookup(ResolvedJavaMethod method) {
+        String key = keyFor(method);
+        Entry entry = getLoadedEntries().get(key);
+        if (entry == null) {
+            SnippetGraphCacheMisses.increment();
+            return null;
+        }
+        if (!isUpToDate(entry)) {
+            SnippetGraphCacheStale.increment();
+            return null;
+        }
+        try {
+            StructuredGraph graph = new SnippetGraphDecoder(metaAccess, snippetReflection, entry.encodedGraph).decode();
+            if (graph.method() == null || !graph.method().equals(method)) {
+                SnippetGraphCacheStale.increment();
+                return null;
+            }
+            SnippetGraphCacheHits.increment();
+            return graph;
+        } catch (IOException | RuntimeException | LinkageError e) {
+            /*
+             * The entry refers to something that no longer exists. The graph will be rebuilt and
+             * the entry replaced when the cache is next persisted.
+             */
+            SnippetGraphCacheStale.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Records the graph for a given method so that it is included the next time this cache is
+     * {@linkplain #persist() persisted}. Graphs that cannot be encoded are ignored.
+     */
+    public void record(ResolvedJavaMethod method, StructuredGraph graph) {
+        SnippetGraphEncoder encoder = new SnippetGraphEncoder(snippetReflection);
+        byte[] encodedGraph;
+        try {
+            encodedGraph = encoder.encode(graph);
+        } catch (UnsupportedValueException e) {
+            SnippetGraphCacheUnencodable.increment();
+            return;
+        }
+        Map<String, Long> hashes = new LinkedHashMap<>();
+        for (Class<?> c : encoder.getReferencedClasses()) {
+            Long hash = hashOf(c);
+            if (hash == null) {
+                SnippetGraphCacheUnencodable.increment();
+                return;
+            }
+            hashes.put(c.getName(), hash);
+        }
+        recordedEntries.put(keyFor(method), new Entry(hashes, new LinkedHashMap<>(encoder.getNodeLayouts()), ByteBuffer.wrap(encodedGraph)));
+    }
+
+    private boolean isUpToDate(Entry entry) {
+        for (Map.Entry<String, Long> e : entry.classHashes.entrySet()) {
+            Class<?> c = ReplacementsImpl.resolveClass(e.getKey(), true);
+            if (c == null || !e.getValue().equals(hashOf(c))) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, String> e : entry.nodeLayouts.entrySet()) {
+            Class<?> c = ReplacementsImpl.resolveClass(e.getKey(), true);
+            if (c == null || !Node.class.isAssignableFrom(c) || !e.getValue().equals(SnippetGraphEncoder.layoutOf(NodeClass.get(c)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes a hash of the class file of a given class.
+     *
+     * @return the hash or null if the class file is not available
+     */
+    private Long hashOf(Class<?> c) {
+        Long hash = classHashes.get(c);
+        if (hash == null) {
+            try (InputStream in = c.getResourceAsStream("/" + c.getName().replace('.', '/') + ".class")) {
+                if (in == null) {
+                    return null;
+                }
+                CRC32 crc = new CRC32();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, n);
+                }
+                hash = crc.getValue();
+            } catch (IOException e) {
+                return null;
+            }
+            classHashes.put(c, hash);
+        }
+        return hash;
+    }
+
+    private synchronized Map<String, Entry> getLoadedEntries() {
+        if (loadedEntries == null) {
+            loadedEntries = new HashMap<>();
+            if (file.isFile()) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    load(buffer, new DataInputStream(new ByteBufferInputStream(buffer)));
+                } catch (IOException e) {
+                    // an unreadable or truncated file is treated like an empty one
+                    loadedEntries.clear();
+                }
+            }
+        }
+        return loadedEntries;
+    }
+
+    /**
+     * Reads the entries from {@code in}, which reads from {@code buffer} without buffering. The
+     * encoded graphs are not copied but referenced as slices of {@code buffer}.
+     */
+    private void load(ByteBuffer buffer, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(buildKey)) {
+            return;
+        }
+        int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            String key = in.readUTF();
+            int classCount = in.readInt();
+            Map<String, Long> hashes = new LinkedHashMap<>();
+            for (int j = 0; j < classCount; j++) {
+                hashes.put(in.readUTF(), in.readLong());
+            }
+            int layoutCount = in.readInt();
+            Map<String, String> layouts = new LinkedHashMap<>();
+            for (int j = 0; j < layoutCount; j++) {
+                layouts.put(in.readUTF(), in.readUTF());
+            }
+            int length = in.readInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new EOFException();
+            }
+            ByteBuffer encodedGraph = buffer.slice();
+            encodedGraph.limit(length);
+            buffer.position(buffer.position() + length);
+            loadedEntries.put(key, new Entry(hashes, layouts, encodedGraph));
+        }
+    }
+
+    /**
+     * Writes the graphs recorded during this run to the backing file. Entries of the existing file
+     * whose graphs were not requested during this run are preserved. The file is replaced
+     * atomically so that a concurrently starting VM never sees a partially written file.
+     */
+    public synchronized void persist() throws IOException {
+        if (recordedEntries.isEmpty()) {
+            return;
+        }
+        Map<String, Entry> entries = new LinkedHashMap<>(getLoadedEntries());
+        entries.putAll(recordedEntries);
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(buildKey);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.writeUTF(e.getKey());
+                    out.writeInt(entry.classHashes.size());
+                    for (Map.Entry<String, Long> hash : entry.classHashes.entrySet()) {
+                        out.writeUTF(hash.getKey());
+                        out.writeLong(hash.getValue());
+                    }
+                    out.writeInt(entry.nodeLayouts.size());
+                    for (Map.Entry<String, String> layout : entry.nodeLayouts.entrySet()) {
+                        out.writeUTF(layout.getKey());
+                        out.writeUTF(layout.getValue());
+                    }
+                    byte[] encodedGraph = new byte[entry.encodedGraph.remaining()];
+                    entry.encodedGraph.duplicate().get(encodedGraph);
+                    out.writeInt(encodedGraph.length);
+                    out.write(encodedGraph);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+        loadedEntries = entries;
+        recordedEntries.clear();
+    }
+
+    /**
+     * Adapts a {@link ByteBuffer} to an {@link InputStream}.
+     */
+    static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
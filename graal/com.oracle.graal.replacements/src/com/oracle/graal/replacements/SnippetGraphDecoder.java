@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements;
+
+import static com.oracle.graal.compiler.common.UnsafeAccess.*;
+import static com.oracle.graal.replacements.SnippetGraphEncoder.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.StructuredGraph.GuardsStage;
+import com.oracle.graal.replacements.SnippetGraphCache.ByteBufferInputStream;
+
+/**
+ * Rebuilds a {@link StructuredGraph} from the form produced by {@link SnippetGraphEncoder}.
+ */
+final class SnippetGraphDecoder {
+
+    private final MetaAccessProvider metaAccess;
+    private final SnippetReflectionProvider snippetReflection;
+    private final DataInputStream in;
+
+    /**
+     * @param encoded the encoded graph between its position and limit. The position of
+     *            {@code encoded} is not changed.
+     */
+    SnippetGraphDecoder(MetaAccessProvider metaAccess, SnippetReflectionProvider snippetReflection, ByteBuffer encoded) {
+        this.metaAccess = metaAccess;
+        this.snippetReflection = snippetReflection;
+        this.in = new DataInputStream(new ByteBufferInputStream(encoded.duplicate()));
+    }
+
+    /**
+     * Decodes the graph.
+     *
+     * @throws IOException if the encoded graph is malformed or refers to classes, methods or fields
+     *             that no longer exist
+     */
+    StructuredGraph decode() throws IOException {
+        ResolvedJavaMethod method = (ResolvedJavaMethod) readValue();
+        int entryBCI = in.readInt();
+        StructuredGraph graph = new StructuredGraph(method, entryBCI);
+        GuardsStage guardsStage = (GuardsStage) readValue();
+        if (guardsStage != graph.getGuardsStage()) {
+            graph.setGuardsStage(guardsStage);
+        }
+        if (in.readBoolean()) {
+            graph.setAfterFloatingReadPhase(true);
+        }
+        if (!in.readBoolean()) {
+            graph.setHasValueProxies(false);
+        }
+
+        int nodeCount = in.readInt();
+        int startIndex = in.readInt();
+        Node[] nodes = new Node[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            Class<?> nodeClass = readClassName(in.readUTF());
+            Node node;
+            if (i == startIndex) {
+                node = graph.start();
+                if (node.getClass() != nodeClass) {
+                    throw new IOException("unexpected start node " + nodeClass.getName());
+                }
+            } else {
+                try {
+                    node = (Node) unsafe.allocateInstance(nodeClass);
+                } catch (InstantiationException e) {
+                    throw new IOException(e);
+                }
+                NodeClass.get(nodeClass).initRawNode(node);
+            }
+            Fields data = node.getNodeClass().getData();
+            for (int j = 0; j < data.getCount(); j++) {
+                data.set(node, j, readValue());
+            }
+            nodes[i] = node;
+        }
+        for (Node node : nodes) {
+            if (!node.isAlive()) {
+                graph.addWithoutUnique(node);
+            }
+        }
+        for (Node node : nodes) {
+            readEdges(node, node.getNodeClass().getEdges(Edges.Type.Inputs), nodes);
+            readEdges(node, node.getNodeClass().getEdges(Edges.Type.Successors), nodes);
+        }
+        return graph;
+    }
+
+    private void readEdges(Node node, Edges edges, Node[] nodes) throws IOException {
+        int index = 0;
+        while (index < edges.getDirectCount()) {
+            Node value = readNode(nodes);
+            if (value != null) {
+                edges.setNode(node, index, value);
+            }
+            index++;
+        }
+        while (index < edges.getCount()) {
+            NodeList<Node> list = edges.getNodeList(node, index);
+            list.clear();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                list.add(readNode(nodes));
+            }
+            index++;
+        }
+    }
+
+    private Node readNode(Node[] nodes) throws IOException {
+        int index = in.readInt();
+        return index == -1 ? null : nodes[index];
+    }
+
+    private Object readValue() throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_BYTE:
+                return in.readByte();
+            case TAG_SHORT:
+                return in.readShort();
+            case TAG_CHAR:
+                return in.readChar();
+            case TAG_INT:
+                return in.readInt();
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_ENUM:
+                return readEnum(readClassName(in.readUTF()), in.readUTF());
+            case TAG_CLASS:
+                return readClass();
+            case TAG_TYPE:
+                return metaAccess.lookupJavaType(readClass());
+            case TAG_METHOD:
+                return readMethod(metaAccess.lookupJavaType(readClass()), in.readUTF(), in.readUTF());
+            case TAG_FIELD:
+                return readField(readClass(), in.readUTF());
+            case TAG_NULL_CONSTANT:
+                return Constant.NULL_OBJECT;
+            case TAG_PRIMITIVE_CONSTANT:
+                return readPrimitiveConstant(Kind.valueOf(in.readUTF()), in.readLong());
+            case TAG_RAW_CONSTANT:
+                return new RawConstant(in.readLong());
+            case TAG_OBJECT_CONSTANT:
+                Object object = readValue();
+                return snippetReflection.forObject(object instanceof String ? ((String) object).intern() : object);
+            case TAG_INTEGER_STAMP:
+                return new IntegerStamp(in.readInt(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+            case TAG_FLOAT_STAMP:
+                return new FloatStamp(in.readInt(), Double.longBitsToDouble(in.readLong()), Double.longBitsToDouble(in.readLong()), in.readBoolean());
+            case TAG_OBJECT_STAMP:
+                return new ObjectStamp((ResolvedJavaType) readValue(), in.readBoolean(), in.readBoolean(), in.readBoolean());
+            case TAG_VOID_STAMP:
+                return StampFactory.forVoid();
+            case TAG_ILLEGAL_STAMP:
+                return StampFactory.illegal(Kind.Illegal);
+            case TAG_ARRAY_LOCATION:
+                return NamedLocationIdentity.getArrayLocation(Kind.valueOf(in.readUTF()));
+            case TAG_STATIC_FIELD_VALUE:
+                return readStaticFieldValue(readClassName(in.readUTF()), in.readUTF());
+            case TAG_ARRAY:
+                return readArray(readClass());
+            default:
+                throw new IOException("unknown tag " + tag);
+        }
+    }
+
+    private static Class<?> readClassName(String name) throws IOException {
+        Class<?> c = ReplacementsImpl.resolveClass(name, false);
+        if (c == null) {
+            throw new IOException("cannot resolve " + name);
+        }
+        return c;
+    }
+
+    private Class<?> readClass() throws IOException {
+        boolean primitive = in.readBoolean();
+        String name = in.readUTF();
+        return primitive ? Kind.valueOf(name).toJavaClass() : readClassName(name);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(Class<?> enumClass, String name) throws IOException {
+        try {
+            return Enum.valueOf((Class) enumClass, name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static ResolvedJavaMethod readMethod(ResolvedJavaType holder, String name, String descriptor) throws IOException {
+        if (name.equals("<clinit>")) {
+            ResolvedJavaMethod clinit = holder.getClassInitializer();
+            if (clinit != null) {
+                return clinit;
+            }
+        }
+        ResolvedJavaMethod[] methods = name.equals("<init>") ? holder.getDeclaredConstructors() : holder.getDeclaredMethods();
+        for (ResolvedJavaMethod method : methods) {
+            if (method.getName().equals(name) && method.getSignature().toMethodDescriptor().equals(descriptor)) {
+                return method;
+            }
+        }
+        throw new IOException("cannot resolve " + holder.toJavaName() + "." + name + descriptor);
+    }
+
+    private ResolvedJavaField readField(Class<?> holder, String name) throws IOException {
+        try {
+            return metaAccess.lookupJavaField(holder.getDeclaredField(name));
+        } catch (NoSuchFieldException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Constant readPrimitiveConstant(Kind kind, long bits) {
+        switch (kind) {
+            case Boolean:
+                return Constant.forBoolean(bits != 0);
+            case Float:
+                return Constant.forFloat(Float.intBitsToFloat((int) bits));
+            case Double:
+                return Constant.forDouble(Double.longBitsToDouble(bits));
+            case Illegal:
+                return Constant.forIllegal();
+            default:
+                return Constant.forIntegerKind(kind, bits);
+        }
+    }
+
+    private static Object readStaticFieldValue(Class<?> holder, String name) throws IOException {
+        try {
+            Field field = holder.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(null);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private Object readArray(Class<?> componentType) throws IOException {
+        int length = in.readInt();
+        Object array = Array.newInstance(componentType, length);
+        for (int i = 0; i < length; i++) {
+            try {
+                Array.set(array, i, readValue());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e);
+            }
+        }
+        return array;
+    }
+}
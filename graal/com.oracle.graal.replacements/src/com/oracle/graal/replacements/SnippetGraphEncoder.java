@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.api.replacements.*;
+import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.nodes.*;
+
+/**
+ * Encodes a {@link StructuredGraph} into the compact binary form stored by
+ * {@link SnippetGraphCache}. The encoding is driven by the {@link NodeClass} of each node: the data
+ * fields of a node are written as tagged values, and its edges as indexes into the node table.
+ *
+ * Not every value that can appear in a node is supported. Graphs containing an unsupported value
+ * (e.g. an arbitrary object constant or a type profile) cannot be encoded and are simply not cached.
+ * Object values are only supported if they are held in a static final field of one of the classes
+ * referenced by the graph, so that the decoder can recover the identical instance.
+ *
+ * @see SnippetGraphDecoder
+ */
+final class SnippetGraphEncoder {
+
+    static final byte TAG_NULL = 0;
+    static final byte TAG_BOOLEAN = 1;
+    static final byte TAG_BYTE = 2;
+    static final byte TAG_SHORT = 3;
+    static final byte TAG_CHAR = 4;
+    static final byte TAG_INT = 5;
+    static final byte TAG_LONG = 6;
+    static final byte TAG_FLOAT = 7;
+    static final byte TAG_DOUBLE = 8;
+    static final byte TAG_STRING = 9;
+    static final byte TAG_ENUM = 10;
+    static final byte TAG_CLASS = 11;
+    static final byte TAG_TYPE = 12;
+    static final byte TAG_METHOD = 13;
+    static final byte TAG_FIELD = 14;
+    static final byte TAG_NULL_CONSTANT = 15;
+    static final byte TAG_PRIMITIVE_CONSTANT = 16;
+    static final byte TAG_RAW_CONSTANT = 17;
+    static final byte TAG_OBJECT_CONSTANT = 18;
+    static final byte TAG_INTEGER_STAMP = 19;
+    static final byte TAG_FLOAT_STAMP = 20;
+    static final byte TAG_OBJECT_STAMP = 21;
+    static final byte TAG_VOID_STAMP = 22;
+    static final byte TAG_ILLEGAL_STAMP = 23;
+    static final byte TAG_ARRAY_LOCATION = 24;
+    static final byte TAG_STATIC_FIELD_VALUE = 25;
+    static final byte TAG_ARRAY = 26;
+
+    /**
+     * Thrown if a graph contains a value that cannot be encoded.
+     */
+    @SuppressWarnings("serial")
+    static final class UnsupportedValueException extends Exception {
+
+        UnsupportedValueException(String message) {
+            super(message);
+        }
+    }
+
+    private final SnippetReflectionProvider snippetReflection;
+
+    /**
+     * The classes referenced by the graph. The decoder can only rebuild the graph if all of these
+     * classes are unchanged.
+     */
+    private final Set<Class<?>> referencedClasses = new LinkedHashSet<>();
+
+    /**
+     * The {@linkplain #layoutOf(NodeClass) layouts} of the node classes in the graph by class name.
+     */
+    private final Map<String, String> nodeLayouts = new LinkedHashMap<>();
+
+    /**
+     * Static final fields of {@link #referencedClasses} by the object they hold.
+     */
+    private final Map<Object, Field> staticFieldValues = new IdentityHashMap<>();
+    private final Set<Class<?>> scannedClasses = new HashSet<>();
+
+    private final Map<Node, Integer> nodeIndexes = new IdentityHashMap<>();
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    SnippetGraphEncoder(SnippetReflectionProvider snippetReflection) {
+        this.snippetReflection = snippetReflection;
+        this.out = new DataOutputStream(buffer);
+    }
+
+    Set<Class<?>> getReferencedClasses() {
+        return referencedClasses;
+    }
+
+    Map<String, String> getNodeLayouts() {
+        return nodeLayouts;
+    }
+
+    /**
+     * Describes the data fields and edges of a node class in the order in which they are encoded.
+     * The decoder can only rebuild a node if the layout of its class is unchanged.
+     */
+    static String layoutOf(NodeClass nodeClass) {
+        StringBuilder sb = new StringBuilder();
+        appendLayout(sb, nodeClass.getData());
+        sb.append('|');
+        appendLayout(sb, nodeClass.getEdges(Edges.Type.Inputs));
+        sb.append('|');
+        appendLayout(sb, nodeClass.getEdges(Edges.Type.Successors));
+        return sb.toString();
+    }
+
+    private static void appendLayout(StringBuilder sb, Fields fields) {
+        if (fields instanceof Edges) {
+            sb.append(((Edges) fields).getDirectCount()).append(';');
+        }
+        for (int i = 0; i < fields.getCount(); i++) {
+            sb.append(fields.getName(i)).append(':').append(fields.getType(i).getName()).append(';');
+        }
+    }
+
+    /**
+     * Encodes {@code graph}.
+     *
+     * @return the encoded graph
+     * @throws UnsupportedValueException if the graph cannot be encoded
+     */
+    byte[] encode(StructuredGraph graph) throws UnsupportedValueException {
+        try {
+            if (graph.start().getClass() != StartNode.class || graph.method() == null) {
+                throw new UnsupportedValueException("unsupported graph " + graph);
+            }
+            addReferencedClass(resolveClass(graph.method().getDeclaringClass()));
+            for (Node node : graph.getNodes()) {
+                nodeIndexes.put(node, nodeIndexes.size());
+                collectReferencedClasses(node);
+            }
+
+            writeValue(graph.method());
+            out.writeInt(graph.getEntryBCI());
+            writeValue(graph.getGuardsStage());
+            out.writeBoolean(graph.isAfterFloatingReadPhase());
+            out.writeBoolean(graph.hasValueProxies());
+
+            out.writeInt(nodeIndexes.size());
+            out.writeInt(nodeIndexes.get(graph.start()));
+            for (Node node : graph.getNodes()) {
+                NodeClass nodeClass = node.getNodeClass();
+                out.writeUTF(nodeClass.getJavaClass().getName());
+                Fields data = nodeClass.getData();
+                for (int i = 0; i < data.getCount(); i++) {
+                    writeValue(data.get(node, i));
+                }
+            }
+            for (Node node : graph.getNodes()) {
+                writeEdges(node, node.getNodeClass().getEdges(Edges.Type.Inputs));
+                writeEdges(node, node.getNodeClass().getEdges(Edges.Type.Successors));
+            }
+            out.flush();
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new GraalInternalError(e);
+        }
+    }
+
+    private void writeEdges(Node node, Edges edges) throws IOException {
+        int index = 0;
+        while (index < edges.getDirectCount()) {
+            writeNode(edges.getNode(node, index));
+            index++;
+        }
+        while (index < edges.getCount()) {
+            NodeList<Node> list = edges.getNodeList(node, index);
+            out.writeInt(list.size());
+            for (Node n : list) {
+                writeNode(n);
+            }
+            index++;
+        }
+    }
+
+    private void writeNode(Node node) throws IOException {
+        out.writeInt(node == null ? -1 : nodeIndexes.get(node));
+    }
+
+    private void collectReferencedClasses(Node node) throws UnsupportedValueException {
+        NodeClass nodeClass = node.getNodeClass();
+        if (!nodeLayouts.containsKey(nodeClass.getJavaClass().getName())) {
+            nodeLayouts.put(nodeClass.getJavaClass().getName(), layoutOf(nodeClass));
+            // the fields and behavior of a node are also defined by its superclasses
+            for (Class<?> c = nodeClass.getJavaClass(); c != Object.class; c = c.getSuperclass()) {
+                addReferencedClass(c);
+            }
+        }
+        Fields data = nodeClass.getData();
+        for (int i = 0; i < data.getCount(); i++) {
+            collectReferencedClasses(data.get(node, i));
+        }
+    }
+
+    private void collectReferencedClasses(Object value) throws UnsupportedValueException {
+        if (value instanceof ResolvedJavaType) {
+            addReferencedClass(resolveClass((ResolvedJavaType) value));
+        } else if (value instanceof ResolvedJavaMethod) {
+            addReferencedClass(resolveClass(((ResolvedJavaMethod) value).getDeclaringClass()));
+        } else if (value instanceof ResolvedJavaField) {
+            addReferencedClass(resolveClass(((ResolvedJavaField) value).getDeclaringClass()));
+        } else if (value instanceof ObjectStamp && ((ObjectStamp) value).type() != null) {
+            addReferencedClass(resolveClass(((ObjectStamp) value).type()));
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                collectReferencedClasses(element);
+            }
+        }
+    }
+
+    private void addReferencedClass(Class<?> c) {
+        Class<?> base = c;
+        while (base.isArray()) {
+            base = base.getComponentType();
+        }
+        if (!base.isPrimitive()) {
+            referencedClasses.add(base);
+        }
+    }
+
+    private static Class<?> resolveClass(ResolvedJavaType type) throws UnsupportedValueException {
+        if (type.isPrimitive()) {
+            return type.getKind().toJavaClass();
+        }
+        Class<?> c = ReplacementsImpl.resolveClass(type.toClassName(), true);
+        if (c == null) {
+            throw new UnsupportedValueException("cannot resolve " + type);
+        }
+        return c;
+    }
+
+    private void writeValue(Object value) throws IOException, UnsupportedValueException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TAG_CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeInt(Float.floatToRawIntBits((Float) value));
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF((String) value);
+        } else if (value instanceof Enum) {
+            out.writeByte(TAG_ENUM);
+            out.writeUTF(((Enum<?>) value).getDeclaringClass().getName());
+            out.writeUTF(((Enum<?>) value).name());
+        } else if (value instanceof Class) {
+            out.writeByte(TAG_CLASS);
+            writeClass((Class<?>) value);
+        } else if (value instanceof ResolvedJavaType) {
+            out.writeByte(TAG_TYPE);
+            writeType((ResolvedJavaType) value);
+        } else if (value instanceof ResolvedJavaMethod) {
+            ResolvedJavaMethod method = (ResolvedJavaMethod) value;
+            out.writeByte(TAG_METHOD);
+            writeType(method.getDeclaringClass());
+            out.writeUTF(method.getName());
+            out.writeUTF(method.getSignature().toMethodDescriptor());
+        } else if (value instanceof ResolvedJavaField) {
+            ResolvedJavaField field = (ResolvedJavaField) value;
+            out.writeByte(TAG_FIELD);
+            writeType(field.getDeclaringClass());
+            out.writeUTF(field.getName());
+        } else if (value instanceof Constant) {
+            writeConstant((Constant) value);
+        } else if (value instanceof Stamp) {
+            writeStamp((Stamp) value);
+        } else if (value.getClass().isArray()) {
+            writeArray(value);
+        } else {
+            writeStaticFieldValue(value);
+        }
+    }
+
+    private void writeClass(Class<?> c) throws IOException {
+        if (c.isPrimitive()) {
+            out.writeBoolean(true);
+            out.writeUTF(Kind.fromJavaClass(c).name());
+        } else {
+            out.writeBoolean(false);
+            out.writeUTF(c.getName());
+            addReferencedClass(c);
+        }
+    }
+
+    private void writeType(ResolvedJavaType type) throws IOException, UnsupportedValueException {
+        writeClass(resolveClass(type));
+    }
+
+    private void writeConstant(Constant constant) throws IOException, UnsupportedValueException {
+        Kind kind = constant.getKind();
+        if (constant.isNull()) {
+            out.writeByte(TAG_NULL_CONSTANT);
+        } else if (constant.getClass() == RawConstant.class) {
+            out.writeByte(TAG_RAW_CONSTANT);
+            out.writeLong(constant.asLong());
+        } else if (constant.getClass() == PrimitiveConstant.class) {
+            out.writeByte(TAG_PRIMITIVE_CONSTANT);
+            out.writeUTF(kind.name());
+            if (kind == Kind.Float) {
+                out.writeLong(Float.floatToRawIntBits(constant.asFloat()));
+            } else if (kind == Kind.Double) {
+                out.writeLong(Double.doubleToRawLongBits(constant.asDouble()));
+            } else if (kind == Kind.Boolean) {
+                out.writeLong(constant.asBoolean() ? 1 : 0);
+            } else if (kind == Kind.Illegal) {
+                out.writeLong(0);
+            } else {
+                out.writeLong(constant.asLong());
+            }
+        } else if (kind == Kind.Object) {
+            Object object = snippetReflection.asObject(constant);
+            if (object == null) {
+                throw new UnsupportedValueException("unsupported constant " + constant);
+            }
+            out.writeByte(TAG_OBJECT_CONSTANT);
+            if (object instanceof String && object == ((String) object).intern()) {
+                // the decoder interns the string again to get the identical object
+                out.writeByte(TAG_STRING);
+                out.writeUTF((String) object);
+            } else {
+                writeStaticFieldValue(object);
+            }
+        } else {
+            throw new UnsupportedValueException("unsupported constant " + constant);
+        }
+    }
+
+    private void writeStamp(Stamp stamp) throws IOException, UnsupportedValueException {
+        if (stamp.getClass() == IntegerStamp.class) {
+            IntegerStamp integerStamp = (IntegerStamp) stamp;
+            out.writeByte(TAG_INTEGER_STAMP);
+            out.writeInt(integerStamp.getBits());
+            out.writeLong(integerStamp.lowerBound());
+            out.writeLong(integerStamp.upperBound());
+            out.writeLong(integerStamp.downMask());
+            out.writeLong(integerStamp.upMask());
+        } else if (stamp.getClass() == FloatStamp.class) {
+            FloatStamp floatStamp = (FloatStamp) stamp;
+            out.writeByte(TAG_FLOAT_STAMP);
+            out.writeInt(floatStamp.getBits());
+            out.writeLong(Double.doubleToRawLongBits(floatStamp.lowerBound()));
+            out.writeLong(Double.doubleToRawLongBits(floatStamp.upperBound()));
+            out.writeBoolean(floatStamp.isNonNaN());
+        } else if (stamp.getClass() == ObjectStamp.class) {
+            ObjectStamp objectStamp = (ObjectStamp) stamp;
+            out.writeByte(TAG_OBJECT_STAMP);
+            writeValue(objectStamp.type());
+            out.writeBoolean(objectStamp.isExactType());
+            out.writeBoolean(objectStamp.nonNull());
+            out.writeBoolean(objectStamp.alwaysNull());
+        } else if (stamp == StampFactory.forVoid()) {
+            out.writeByte(TAG_VOID_STAMP);
+        } else if (stamp == StampFactory.illegal(Kind.Illegal)) {
+            out.writeByte(TAG_ILLEGAL_STAMP);
+        } else {
+            throw new UnsupportedValueException("unsupported stamp " + stamp);
+        }
+    }
+
+    private void writeArray(Object array) throws IOException, UnsupportedValueException {
+        Class<?> componentType = array.getClass().getComponentType();
+        if (!componentType.isPrimitive() && componentType != String.class && !Modifier.isFinal(componentType.getModifiers()) && !componentType.isInterface()) {
+            /*
+             * Only arrays whose elements can be decoded into an array of the same type are
+             * supported.
+             */
+            throw new UnsupportedValueException("unsupported array " + array.getClass());
+        }
+        out.writeByte(TAG_ARRAY);
+        writeClass(componentType);
+        int length = Array.getLength(array);
+        out.writeInt(length);
+        for (int i = 0; i < length; i++) {
+            writeValue(Array.get(array, i));
+        }
+    }
+
+    private void writeStaticFieldValue(Object value) throws IOException, UnsupportedValueException {
+        for (Kind kind : Kind.values()) {
+            if (NamedLocationIdentity.getArrayLocation(kind) == value) {
+                out.writeByte(TAG_ARRAY_LOCATION);
+                out.writeUTF(kind.name());
+                return;
+            }
+        }
+        Field field = findStaticField(value);
+        if (field == null) {
+            throw new UnsupportedValueException("unsupported value " + value + " of type " + value.getClass().getName());
+        }
+        out.writeByte(TAG_STATIC_FIELD_VALUE);
+        out.writeUTF(field.getDeclaringClass().getName());
+        out.writeUTF(field.getName());
+        addReferencedClass(field.getDeclaringClass());
+    }
+
+    private Field findStaticField(Object value) {
+        Field field = staticFieldValues.get(value);
+        if (field == null) {
+            List<Class<?>> candidates = new ArrayList<>(referencedClasses);
+            for (Class<?> c = value.getClass(); c != null; c = c.getSuperclass()) {
+                candidates.add(c);
+                candidates.addAll(Arrays.asList(c.getInterfaces()));
+            }
+            for (Class<?> c : candidates) {
+                for (Class<?> outer = c; outer != null; outer = outer.getEnclosingClass()) {
+                    scanStaticFields(outer);
+                }
+            }
+            field = staticFieldValues.get(value);
+        }
+        return field;
+    }
+
+    private void scanStaticFields(Class<?> c) {
+        if (!scannedClasses.add(c)) {
+            return;
+        }
+        for (Field field : c.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && !field.getType().isPrimitive()) {
+                try {
+                    field.setAccessible(true);
+                    Object fieldValue = field.get(null);
+                    if (fieldValue != null && !staticFieldValues.containsKey(fieldValue)) {
+                        staticFieldValues.put(fieldValue, field);
+                    }
+                } catch (Exception | LinkageError e) {
+                    // ignore fields that cannot be read
+                }
+            }
+        }
+    }
+}
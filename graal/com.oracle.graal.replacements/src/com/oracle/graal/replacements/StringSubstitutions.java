@@ -28,6 +28,7 @@ import java.lang.reflect.*;
 
 import com.oracle.graal.api.replacements.*;
 import com.oracle.graal.compiler.common.*;
+import com.oracle.graal.nodes.*;
 import com.oracle.graal.replacements.nodes.*;
 
 import edu.umd.cs.findbugs.annotations.*;
@@ -74,4 +75,77 @@ public class StringSubstitutions {
 
         return ArrayEqualsNode.equals(array1, array2, array1.length);
     }
+
+    @MethodSubstitution(isStatic = false)
+    public static int indexOf(final String thisString, int ch, int fromIndex) {
+        final char[] value = (char[]) unsafe.getObject(thisString, valueOffset);
+        final int max = value.length;
+        int from = fromIndex;
+        if (from < 0) {
+            from = 0;
+        } else if (from >= max) {
+            return -1;
+        }
+        if (ch < 0 || ch >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            // calls the original method
+            return indexOf(thisString, ch, from);
+        }
+        for (int i = CharArrayIndexOfNode.indexOf(value, from, max, (char) ch); i < max; i++) {
+            if (value[i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @MethodSubstitution
+    public static int indexOf(char[] source, int sourceOffset, int sourceCount, char[] target, int targetOffset, int targetCount, int fromIndex) {
+        int from = fromIndex;
+        if (from >= sourceCount) {
+            return (targetCount == 0 ? sourceCount : -1);
+        }
+        if (from < 0) {
+            from = 0;
+        }
+        if (targetCount == 0) {
+            return from;
+        }
+
+        final int max = sourceOffset + (sourceCount - targetCount);
+        int i = sourceOffset + from;
+        while (i <= max) {
+            i = CharArraySearchNode.search(source, i, max, target, targetOffset, targetCount);
+            if (i > max) {
+                break;
+            }
+            int j = 0;
+            while (j < targetCount && source[i + j] == target[targetOffset + j]) {
+                j++;
+            }
+            if (j == targetCount) {
+                return i - sourceOffset;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    @MethodSubstitution(isStatic = false)
+    public static int compareTo(final String thisString, String anotherString) {
+        final char[] array1 = (char[]) unsafe.getObject(thisString, valueOffset);
+        // the unsafe read is not null checked
+        final char[] array2 = (char[]) unsafe.getObject(GuardingPiNode.guardingNonNull(anotherString), valueOffset);
+        final int len1 = array1.length;
+        final int len2 = array2.length;
+        final int lim = Math.min(len1, len2);
+
+        for (int i = CharArrayCompareNode.equalPrefixLength(array1, array2, lim); i < lim; i++) {
+            char c1 = array1[i];
+            char c2 = array2[i];
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return len1 - len2;
+    }
 }
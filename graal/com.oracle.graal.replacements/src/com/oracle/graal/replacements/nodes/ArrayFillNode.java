@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Stores a value to a range of array elements. Float and double values are given as their raw int
+ * and long bits, boolean values as 0 or 1.
+ */
+@NodeInfo
+public class ArrayFillNode extends AbstractMemoryCheckpoint implements LIRLowerable, MemoryCheckpoint.Single {
+
+    /** {@link Kind} of the array elements. */
+    protected final Kind kind;
+
+    @Input ValueNode array;
+    @Input ValueNode fromIndex;
+    @Input ValueNode toIndex;
+    @Input ValueNode value;
+
+    public static ArrayFillNode create(ValueNode array, ValueNode fromIndex, ValueNode toIndex, ValueNode value) {
+        return new ArrayFillNode(array, fromIndex, toIndex, value);
+    }
+
+    protected ArrayFillNode(ValueNode array, ValueNode fromIndex, ValueNode toIndex, ValueNode value) {
+        super(StampFactory.forVoid());
+
+        ObjectStamp arrayStamp = (ObjectStamp) array.stamp();
+        this.kind = arrayStamp.type().getComponentType().getKind();
+
+        this.array = array;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.value = value;
+    }
+
+    @NodeIntrinsic
+    public static native void fill(boolean[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(byte[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(char[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(short[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(int[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(long[] array, int fromIndex, int toIndex, long value);
+
+    @NodeIntrinsic
+    public static native void fill(float[] array, int fromIndex, int toIndex, int value);
+
+    @NodeIntrinsic
+    public static native void fill(double[] array, int fromIndex, int toIndex, long value);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        gen.getLIRGeneratorTool().emitArrayFill(kind, gen.operand(array), gen.operand(fromIndex), gen.operand(toIndex), gen.operand(value));
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(kind);
+    }
+}
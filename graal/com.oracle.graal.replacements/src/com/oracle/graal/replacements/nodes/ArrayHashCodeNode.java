@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Computes the hash code of the first {@code length} elements of an array as defined by
+ * {@link java.util.Arrays#hashCode(int[])}.
+ */
+@NodeInfo
+public class ArrayHashCodeNode extends FixedWithNextNode implements LIRLowerable, MemoryAccess {
+
+    /** {@link Kind} of the array elements. */
+    protected final Kind kind;
+
+    @Input ValueNode array;
+    @Input ValueNode length;
+
+    public static ArrayHashCodeNode create(ValueNode array, ValueNode length) {
+        return new ArrayHashCodeNode(array, length);
+    }
+
+    protected ArrayHashCodeNode(ValueNode array, ValueNode length) {
+        super(StampFactory.forKind(Kind.Int));
+
+        ObjectStamp arrayStamp = (ObjectStamp) array.stamp();
+        this.kind = arrayStamp.type().getComponentType().getKind();
+
+        this.array = array;
+        this.length = length;
+    }
+
+    @NodeIntrinsic
+    public static native int hashCode(byte[] array, int length);
+
+    @NodeIntrinsic
+    public static native int hashCode(char[] array, int length);
+
+    @NodeIntrinsic
+    public static native int hashCode(short[] array, int length);
+
+    @NodeIntrinsic
+    public static native int hashCode(int[] array, int length);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        gen.setResult(this, gen.getLIRGeneratorTool().emitArrayHashCode(kind, gen.operand(array), gen.operand(length)));
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(kind);
+    }
+}
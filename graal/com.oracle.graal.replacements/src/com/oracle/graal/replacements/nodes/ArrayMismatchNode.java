@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.graph.*;
+import com.oracle.graal.graph.spi.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.nodes.util.*;
+
+/**
+ * Finds the index of the first element that differs between the first {@code length} elements of
+ * two arrays, or -1 if they are equal.
+ */
+@NodeInfo
+public class ArrayMismatchNode extends FixedWithNextNode implements LIRLowerable, Canonicalizable, MemoryAccess {
+
+    /** {@link Kind} of the arrays to compare. */
+    protected final Kind kind;
+
+    @Input ValueNode array1;
+    @Input ValueNode array2;
+    @Input ValueNode length;
+
+    public static ArrayMismatchNode create(ValueNode array1, ValueNode array2, ValueNode length) {
+        return new ArrayMismatchNode(array1, array2, length);
+    }
+
+    protected ArrayMismatchNode(ValueNode array1, ValueNode array2, ValueNode length) {
+        super(StampFactory.forInteger(32, -1, Integer.MAX_VALUE));
+
+        assert array1.stamp().equals(array2.stamp());
+        ObjectStamp array1Stamp = (ObjectStamp) array1.stamp();
+        this.kind = array1Stamp.type().getComponentType().getKind();
+
+        this.array1 = array1;
+        this.array2 = array2;
+        this.length = length;
+    }
+
+    @Override
+    public Node canonical(CanonicalizerTool tool) {
+        if (usages().isEmpty()) {
+            return null;
+        }
+        if (GraphUtil.unproxify(array1) == GraphUtil.unproxify(array2)) {
+            return ConstantNode.forInt(-1);
+        }
+        return this;
+    }
+
+    @NodeIntrinsic
+    public static native int mismatch(boolean[] array1, boolean[] array2, int length);
+
+    @NodeIntrinsic
+    public static native int mismatch(byte[] array1, byte[] array2, int length);
+
+    @NodeIntrinsic
+    public static native int mismatch(char[] array1, char[] array2, int length);
+
+    @NodeIntrinsic
+    public static native int mismatch(short[] array1, short[] array2, int length);
+
+    @NodeIntrinsic
+    public static native int mismatch(int[] array1, int[] array2, int length);
+
+    @NodeIntrinsic
+    public static native int mismatch(long[] array1, long[] array2, int length);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        Value result = gen.getLIRGeneratorTool().emitArrayMismatch(kind, gen.operand(array1), gen.operand(array2), gen.operand(length));
+        gen.setResult(this, result);
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(kind);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Compares the first {@code length} chars of two char arrays. The backend may compare only a
+ * prefix of the range; the value of this node is an index {@code i} such that the chars in
+ * {@code [0, i)} are equal, i.e., the index at which a scalar comparison has to continue.
+ *
+ * The length must not exceed the length of either array.
+ */
+@NodeInfo
+public class CharArrayCompareNode extends FixedWithNextNode implements LIRLowerable, MemoryAccess {
+
+    @Input ValueNode array1;
+    @Input ValueNode array2;
+    @Input ValueNode length;
+
+    public static CharArrayCompareNode create(ValueNode array1, ValueNode array2, ValueNode length) {
+        return new CharArrayCompareNode(array1, array2, length);
+    }
+
+    protected CharArrayCompareNode(ValueNode array1, ValueNode array2, ValueNode length) {
+        super(StampFactory.forInteger(32, 0, Integer.MAX_VALUE));
+        this.array1 = array1;
+        this.array2 = array2;
+        this.length = length;
+    }
+
+    @NodeIntrinsic
+    public static native int equalPrefixLength(char[] array1, char[] array2, int length);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        gen.setResult(this, gen.getLIRGeneratorTool().emitCharArrayCompare(gen.operand(array1), gen.operand(array2), gen.operand(length)));
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(Kind.Char);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Searches a range of a char array for a char. The backend may examine only a prefix of the range;
+ * the value of this node is an index {@code i} such that the char does not occur in
+ * {@code [fromIndex, i)}, i.e., the index at which a scalar search has to continue.
+ *
+ * The range must be within the bounds of the array.
+ */
+@NodeInfo
+public class CharArrayIndexOfNode extends FixedWithNextNode implements LIRLowerable, MemoryAccess {
+
+    @Input ValueNode array;
+    @Input ValueNode fromIndex;
+    @Input ValueNode toIndex;
+    @Input ValueNode value;
+
+    public static CharArrayIndexOfNode create(ValueNode array, ValueNode fromIndex, ValueNode toIndex, ValueNode value) {
+        return new CharArrayIndexOfNode(array, fromIndex, toIndex, value);
+    }
+
+    protected CharArrayIndexOfNode(ValueNode array, ValueNode fromIndex, ValueNode toIndex, ValueNode value) {
+        super(StampFactory.forInteger(32, 0, Integer.MAX_VALUE));
+        this.array = array;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.value = value;
+    }
+
+    @NodeIntrinsic
+    public static native int indexOf(char[] array, int fromIndex, int toIndex, char value);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        gen.setResult(this, gen.getLIRGeneratorTool().emitCharArrayIndexOf(gen.operand(array), gen.operand(fromIndex), gen.operand(toIndex), gen.operand(value)));
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(Kind.Char);
+    }
+}
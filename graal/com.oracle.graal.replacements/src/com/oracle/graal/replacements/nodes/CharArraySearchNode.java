@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Searches a char array for the possible starting points of a sequence of chars taken from another
+ * char array. The backend may examine only a prefix of the candidates and may compare only a part
+ * of the sequence; the value of this node is an index {@code i} such that the sequence does not
+ * start at any index in {@code [fromIndex, min(i, maxIndex + 1))}. Whether the sequence actually
+ * starts at {@code i} has to be checked by a scalar comparison.
+ *
+ * The sequence must not be empty, and {@code maxIndex + targetCount} must not exceed the length of
+ * {@code source}.
+ */
+@NodeInfo
+public class CharArraySearchNode extends FixedWithNextNode implements LIRLowerable, MemoryAccess {
+
+    @Input ValueNode source;
+    @Input ValueNode fromIndex;
+    @Input ValueNode maxIndex;
+    @Input ValueNode target;
+    @Input ValueNode targetOffset;
+    @Input ValueNode targetCount;
+
+    public static CharArraySearchNode create(ValueNode source, ValueNode fromIndex, ValueNode maxIndex, ValueNode target, ValueNode targetOffset, ValueNode targetCount) {
+        return new CharArraySearchNode(source, fromIndex, maxIndex, target, targetOffset, targetCount);
+    }
+
+    protected CharArraySearchNode(ValueNode source, ValueNode fromIndex, ValueNode maxIndex, ValueNode target, ValueNode targetOffset, ValueNode targetCount) {
+        super(StampFactory.forInteger(32, 0, Integer.MAX_VALUE));
+        this.source = source;
+        this.fromIndex = fromIndex;
+        this.maxIndex = maxIndex;
+        this.target = target;
+        this.targetOffset = targetOffset;
+        this.targetCount = targetCount;
+    }
+
+    @NodeIntrinsic
+    public static native int search(char[] source, int fromIndex, int maxIndex, char[] target, int targetOffset, int targetCount);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        Value result = gen.getLIRGeneratorTool().emitCharArraySearch(gen.operand(source), gen.operand(fromIndex), gen.operand(maxIndex), gen.operand(target), gen.operand(targetOffset),
+                        gen.operand(targetCount));
+        gen.setResult(this, result);
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(Kind.Char);
+    }
+}
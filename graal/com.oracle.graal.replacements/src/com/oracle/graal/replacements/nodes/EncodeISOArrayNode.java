@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.replacements.nodes;
+
+import com.oracle.graal.api.meta.*;
+import com.oracle.graal.compiler.common.type.*;
+import com.oracle.graal.nodeinfo.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.extended.*;
+import com.oracle.graal.nodes.spi.*;
+
+/**
+ * Converts chars to ISO-8859-1 bytes, stopping before the first char greater than {@code 0xFF}.
+ * The backend may convert only a prefix of the range; the value of this node is the number of
+ * converted chars, i.e., the offset at which a scalar conversion has to continue.
+ *
+ * Both ranges must be within the bounds of their arrays.
+ */
+@NodeInfo
+public class EncodeISOArrayNode extends AbstractMemoryCheckpoint implements LIRLowerable, MemoryCheckpoint.Single {
+
+    @Input ValueNode src;
+    @Input ValueNode srcOffset;
+    @Input ValueNode dst;
+    @Input ValueNode dstOffset;
+    @Input ValueNode length;
+
+    public static EncodeISOArrayNode create(ValueNode src, ValueNode srcOffset, ValueNode dst, ValueNode dstOffset, ValueNode length) {
+        return new EncodeISOArrayNode(src, srcOffset, dst, dstOffset, length);
+    }
+
+    protected EncodeISOArrayNode(ValueNode src, ValueNode srcOffset, ValueNode dst, ValueNode dstOffset, ValueNode length) {
+        super(StampFactory.forInteger(32, 0, Integer.MAX_VALUE));
+        this.src = src;
+        this.srcOffset = srcOffset;
+        this.dst = dst;
+        this.dstOffset = dstOffset;
+        this.length = length;
+    }
+
+    @NodeIntrinsic
+    public static native int encode(char[] src, int srcOffset, byte[] dst, int dstOffset, int length);
+
+    @Override
+    public void generate(NodeLIRBuilderTool gen) {
+        Value result = gen.getLIRGeneratorTool().emitEncodeISOArray(gen.operand(src), gen.operand(srcOffset), gen.operand(dst), gen.operand(dstOffset), gen.operand(length));
+        gen.setResult(this, result);
+    }
+
+    public LocationIdentity getLocationIdentity() {
+        return NamedLocationIdentity.getArrayLocation(Kind.Byte);
+    }
+}
@@ -24,7 +24,6 @@ package com.oracle.graal.truffle.hotspot;
 
 import static com.oracle.graal.api.code.CodeUtil.*;
 import static com.oracle.graal.compiler.GraalCompiler.*;
-import static com.oracle.graal.graph.util.CollectionsAccess.*;
 import static com.oracle.graal.hotspot.meta.HotSpotSuitesProvider.*;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
 
@@ -69,8 +68,7 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
 
     private TruffleCompilerImpl truffleCompiler;
     private Replacements truffleReplacements;
-    private Map<OptimizedCallTarget, Future<?>> compilations = newIdentityMap();
-    private final ThreadPoolExecutor compileQueue;
+    private final TruffleCompilationQueue compileQueue;
 
     private final Map<RootCallTarget, Void> callTargets = Collections.synchronizedMap(new WeakHashMap<RootCallTarget, Void>());
 
@@ -91,7 +89,8 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
                 }
             }
         });
-        compileQueue = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+        int compilerThreads = Math.max(1, TruffleCompilerThreads.getValue());
+        compileQueue = new TruffleCompilationQueue(compilerThreads, factory);
     }
 
     private static void installOptimizedCallTargetCallDirect() {
@@ -204,6 +203,10 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
         Runnable r = new Runnable() {
             @Override
             public void run() {
+                if (optimizedCallTarget.isValid()) {
+                    // The target was installed while this request was waiting in the queue.
+                    return;
+                }
                 try (Scope s = Debug.scope("Truffle", new TruffleDebugJavaMethod(optimizedCallTarget))) {
                     truffleCompiler.compileMethodImpl(optimizedCallTarget);
                     optimizedCallTarget.compilationFinished(null);
@@ -212,8 +215,7 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
                 }
             }
         };
-        Future<?> future = compileQueue.submit(r);
-        this.compilations.put(optimizedCallTarget, future);
+        Future<?> future = compileQueue.submit(optimizedCallTarget, r);
 
         if (!mayBeAsynchronous) {
             try {
@@ -232,18 +234,18 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
 
     @Override
     public boolean cancelInstalledTask(OptimizedCallTarget optimizedCallTarget) {
-        Future<?> codeTask = this.compilations.get(optimizedCallTarget);
-        if (codeTask != null && isCompiling(optimizedCallTarget)) {
-            this.compilations.remove(optimizedCallTarget);
-            return codeTask.cancel(true);
-        }
-        return false;
+        return compileQueue.cancel(optimizedCallTarget);
+    }
+
+    @Override
+    public void reprioritizeCompilation(OptimizedCallTarget optimizedCallTarget) {
+        compileQueue.reprioritize(optimizedCallTarget, TruffleCompilationReprioritizeFactor.getValue());
     }
 
     @Override
     public void waitForCompilation(OptimizedCallTarget optimizedCallTarget, long timeout) throws ExecutionException, TimeoutException {
-        Future<?> codeTask = this.compilations.get(optimizedCallTarget);
-        if (codeTask != null && isCompiling(optimizedCallTarget)) {
+        Future<?> codeTask = compileQueue.getCompilation(optimizedCallTarget);
+        if (codeTask != null) {
             try {
                 codeTask.get(timeout, TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
@@ -254,15 +256,7 @@ public final class HotSpotTruffleRuntime extends GraalTruffleRuntime {
 
     @Override
     public boolean isCompiling(OptimizedCallTarget optimizedCallTarget) {
-        Future<?> codeTask = this.compilations.get(optimizedCallTarget);
-        if (codeTask != null) {
-            if (codeTask.isCancelled() || codeTask.isDone()) {
-                this.compilations.remove(optimizedCallTarget);
-                return false;
-            }
-            return true;
-        }
-        return false;
+        return compileQueue.isCompiling(optimizedCallTarget);
     }
 
     @Override
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.hotspot;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.oracle.graal.truffle.*;
+
+/**
+ * The queue of pending Truffle compilations and the compiler threads that process it. The
+ * compilation with the highest {@linkplain TruffleCompilationTask priority} is started first, and
+ * there is at most one pending compilation per {@link OptimizedCallTarget}.
+ */
+public final class TruffleCompilationQueue {
+
+    private final Map<OptimizedCallTarget, TruffleCompilationTask> compilations = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    public TruffleCompilationQueue(int compilerThreads, ThreadFactory factory) {
+        executor = new ThreadPoolExecutor(compilerThreads, compilerThreads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(), factory);
+    }
+
+    /**
+     * Queues a compilation of {@code target} with the priority given by the current profile of
+     * {@code target}.
+     *
+     * @param compilation performs the compilation
+     * @return a future that is done when the compilation finished or was cancelled
+     */
+    public Future<?> submit(OptimizedCallTarget target, Runnable compilation) {
+        TruffleCompilationTask task = new TruffleCompilationTask(target, compilation);
+        compilations.put(target, task);
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Gets the pending or running compilation of {@code target}.
+     *
+     * @return the compilation or null if there is none
+     */
+    public Future<?> getCompilation(OptimizedCallTarget target) {
+        return isCompiling(target) ? compilations.get(target) : null;
+    }
+
+    /**
+     * Determines if there is a pending or running compilation of {@code target}.
+     */
+    public boolean isCompiling(OptimizedCallTarget target) {
+        TruffleCompilationTask task = compilations.get(target);
+        if (task != null) {
+            if (task.isCancelled() || task.isDone()) {
+                compilations.remove(target, task);
+                return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Cancels the pending or running compilation of {@code target}.
+     *
+     * @return true if there was a compilation and it was cancelled
+     */
+    public boolean cancel(OptimizedCallTarget target) {
+        TruffleCompilationTask task = compilations.get(target);
+        if (task != null && isCompiling(target)) {
+            compilations.remove(target, task);
+            // Drop the stale request from the queue instead of leaving it for a compiler thread.
+            executor.remove(task);
+            return task.cancel(true);
+        }
+        return false;
+    }
+
+    /**
+     * Requeues the pending compilation of {@code target} with an updated priority if the call and
+     * loop count of {@code target} grew by at least {@code factor} since it was queued.
+     *
+     * @return true if the compilation was requeued
+     */
+    public boolean reprioritize(OptimizedCallTarget target, int factor) {
+        TruffleCompilationTask task = compilations.get(target);
+        if (task != null && task.shouldReprioritize(factor)) {
+            // Only tasks that have not been picked up by a compiler thread can be requeued.
+            if (executor.remove(task)) {
+                task.updatePriority();
+                executor.execute(task);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancels all pending compilations and interrupts the compiler threads. No compilations can be
+     * queued afterwards.
+     */
+    public void shutdown() {
+        for (Runnable task : executor.shutdownNow()) {
+            ((TruffleCompilationTask) task).cancel(false);
+        }
+        compilations.clear();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.hotspot;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import com.oracle.graal.truffle.*;
+
+/**
+ * A pending compilation of an {@link OptimizedCallTarget} in the Truffle compilation queue. Tasks
+ * are ordered by the call and loop count of the target's {@link CompilationProfile} at the time
+ * the task was queued, so that the hottest targets are compiled first. Tasks with the same
+ * priority are compiled in the order they were queued.
+ */
+final class TruffleCompilationTask extends FutureTask<Void> implements Comparable<TruffleCompilationTask> {
+
+    private static final AtomicLong sequenceCounter = new AtomicLong();
+
+    private final OptimizedCallTarget target;
+    private final long sequence;
+    private int priority;
+
+    TruffleCompilationTask(OptimizedCallTarget target, Runnable compilation) {
+        super(compilation, null);
+        this.target = target;
+        this.priority = currentPriority(target);
+        this.sequence = sequenceCounter.getAndIncrement();
+    }
+
+    private static int currentPriority(OptimizedCallTarget target) {
+        return target.getCompilationProfile().getInterpreterCallAndLoopCount();
+    }
+
+    public OptimizedCallTarget getTarget() {
+        return target;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Recomputes the priority of this task from the current profile of its target. Must only be
+     * called while this task is not in the compilation queue.
+     */
+    void updatePriority() {
+        priority = currentPriority(target);
+    }
+
+    /**
+     * Determines if the call and loop count of the target grew by at least {@code factor} since
+     * this task was queued.
+     */
+    public boolean shouldReprioritize(int factor) {
+        long current = currentPriority(target);
+        return current >= Math.max(1L, (long) priority * factor);
+    }
+
+    @Override
+    public int compareTo(TruffleCompilationTask other) {
+        if (priority != other.priority) {
+            return priority > other.priority ? -1 : 1;
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "TruffleCompilationTask[" + target + ", priority=" + priority + "]";
+    }
+}
@@ -22,12 +22,25 @@
  */
 package com.oracle.graal.truffle.test;
 
+import static com.oracle.graal.compiler.common.GraalOptions.*;
+
 import org.junit.*;
 
+import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.runtime.*;
 import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.loop.phases.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
 import com.oracle.graal.nodes.spi.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.*;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.phases.common.inlining.*;
+import com.oracle.graal.phases.tiers.*;
 import com.oracle.graal.runtime.*;
+import com.oracle.graal.truffle.nodes.arithmetic.*;
 import com.oracle.graal.truffle.substitutions.*;
 import com.oracle.truffle.api.*;
 
@@ -43,6 +56,36 @@ public class ExactMathTest extends GraalCompilerTest {
         }
     }
 
+    /**
+     * Enables loop vectorization, which must leave loops of exact arithmetic alone.
+     */
+    @Override
+    protected Suites createSuites() {
+        try (OverrideScope s = OptionValue.override(VectorizeLoops, true)) {
+            return super.createSuites();
+        }
+    }
+
+    @Test
+    public void testAddLoop() {
+        StructuredGraph graph = parseEager("addLoop");
+        HighTierContext context = new HighTierContext(getProviders(), new Assumptions(false), null, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL);
+        new InliningPhase(new CanonicalizerPhase(true)).apply(graph, context);
+        Assert.assertEquals(1, graph.getNodes().filter(IntegerAddExactNode.class).count());
+        new LoopVectorizationPhase().apply(graph);
+        Assert.assertEquals(0, graph.getNodes().filter(VectorArrayOpNode.class).count());
+
+        int[] a = new int[37];
+        int[] b = new int[37];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i;
+            b[i] = i * 3;
+        }
+        test("addLoop", a, b);
+        b[30] = Integer.MAX_VALUE;
+        test("addLoop", a, b);
+    }
+
     @Test
     public void testAdd() {
         test("add", 1, 2);
@@ -120,6 +163,14 @@ public class ExactMathTest extends GraalCompilerTest {
         return ExactMath.addExact(a, b);
     }
 
+    public static int[] addLoop(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = ExactMath.addExact(a[i], b[i]);
+        }
+        return result;
+    }
+
     public static int mul(int a, int b) {
         return ExactMath.multiplyExact(a, b);
     }
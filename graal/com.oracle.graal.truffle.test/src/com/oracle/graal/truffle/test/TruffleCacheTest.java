@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.*;
+
+import org.junit.*;
+
+import com.oracle.graal.compiler.test.*;
+import com.oracle.graal.java.*;
+import com.oracle.graal.nodes.*;
+import com.oracle.graal.nodes.java.*;
+import com.oracle.graal.options.*;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.common.*;
+import com.oracle.graal.truffle.*;
+import com.oracle.truffle.api.*;
+
+/**
+ * Tests that {@link TruffleCacheImpl} evicts the least recently used graphs once it is full.
+ */
+public class TruffleCacheTest extends GraalCompilerTest {
+
+    public TruffleCacheTest() {
+        // Make sure Truffle runtime is initialized.
+        Assert.assertTrue(Truffle.getRuntime() != null);
+    }
+
+    public static int first(int x) {
+        return x + 1;
+    }
+
+    public static int second(int x) {
+        return x * 2;
+    }
+
+    public static int third(int x) {
+        return x - 3;
+    }
+
+    public static int callees(int x) {
+        return first(x) + second(x) + third(x);
+    }
+
+    private static StructuredGraph lookup(TruffleCacheImpl cache, StructuredGraph caller, String name, CanonicalizerPhase canonicalizer) {
+        for (MethodCallTargetNode callTarget : caller.getNodes(MethodCallTargetNode.class)) {
+            if (callTarget.targetMethod().getName().equals(name)) {
+                StructuredGraph graph = cache.lookup(callTarget.targetMethod(), callTarget.arguments(), canonicalizer);
+                Assert.assertNotNull(graph);
+                return graph;
+            }
+        }
+        throw new AssertionError("no call to " + name);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        StructuredGraph caller = parseEager("callees");
+        TruffleCacheImpl cache = new TruffleCacheImpl(getProviders(), GraphBuilderConfiguration.getEagerDefault(), GraphBuilderConfiguration.getDefault(), TruffleCompilerImpl.Optimizations);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+
+        try (OverrideScope s = OptionValue.override(TruffleMaxCompilationCacheSize, 2)) {
+            StructuredGraph first = lookup(cache, caller, "first", canonicalizer);
+            StructuredGraph second = lookup(cache, caller, "second", canonicalizer);
+
+            // touch first so that second becomes the least recently used entry
+            Assert.assertSame(first, lookup(cache, caller, "first", canonicalizer));
+            lookup(cache, caller, "third", canonicalizer);
+
+            Assert.assertSame(first, lookup(cache, caller, "first", canonicalizer));
+            Assert.assertNotSame(second, lookup(cache, caller, "second", canonicalizer));
+        }
+    }
+
+    @Test
+    public void testNodeCountEviction() {
+        StructuredGraph caller = parseEager("callees");
+        TruffleCacheImpl cache = new TruffleCacheImpl(getProviders(), GraphBuilderConfiguration.getEagerDefault(), GraphBuilderConfiguration.getDefault(), TruffleCompilerImpl.Optimizations);
+        CanonicalizerPhase canonicalizer = new CanonicalizerPhase(true);
+
+        try (OverrideScope s = OptionValue.override(TruffleMaxCompilationCacheNodeCount, 1)) {
+            StructuredGraph first = lookup(cache, caller, "first", canonicalizer);
+            // the most recently added graph is kept even if it exceeds the bound on its own
+            Assert.assertSame(first, lookup(cache, caller, "first", canonicalizer));
+            lookup(cache, caller, "second", canonicalizer);
+            Assert.assertNotSame(first, lookup(cache, caller, "first", canonicalizer));
+        }
+    }
+}
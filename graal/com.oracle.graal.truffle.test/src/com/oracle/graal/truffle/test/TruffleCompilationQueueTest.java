@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import com.oracle.graal.truffle.*;
+import com.oracle.graal.truffle.hotspot.*;
+import com.oracle.truffle.api.*;
+import com.oracle.truffle.api.frame.*;
+import com.oracle.truffle.api.nodes.*;
+
+/**
+ * Tests the order in which a {@link TruffleCompilationQueue} with a single compiler thread starts
+ * compilations, and cancelling and reprioritizing pending compilations.
+ */
+public class TruffleCompilationQueueTest {
+
+    private static final int REPRIORITIZE_FACTOR = 2;
+    private static final long TIMEOUT = 10;
+
+    private TruffleCompilationQueue queue;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<OptimizedCallTarget> compiled = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void createQueue() {
+        queue = new TruffleCompilationQueue(1, r -> {
+            Thread thread = new Thread(r, "TruffleCompilationQueueTest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @After
+    public void shutdownQueue() {
+        release.countDown();
+        queue.shutdown();
+    }
+
+    private static OptimizedCallTarget createTarget(int calls) {
+        OptimizedCallTarget target = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new RootNode() {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return null;
+            }
+        });
+        call(target, calls);
+        return target;
+    }
+
+    private static void call(OptimizedCallTarget target, int calls) {
+        for (int i = 0; i < calls; i++) {
+            target.getCompilationProfile().reportInterpreterCall();
+        }
+    }
+
+    private Future<?> submit(OptimizedCallTarget target) {
+        return queue.submit(target, () -> compiled.add(target));
+    }
+
+    /**
+     * Submits a compilation of {@code target} that occupies the compiler thread until
+     * {@link #release} is counted down.
+     */
+    private Future<?> block(OptimizedCallTarget target) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> future = queue.submit(target, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private void releaseAndWait(Future<?>... futures) throws Exception {
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        block(createTarget(0));
+        OptimizedCallTarget cold = createTarget(10);
+        OptimizedCallTarget hot = createTarget(30);
+        OptimizedCallTarget warm1 = createTarget(20);
+        OptimizedCallTarget warm2 = createTarget(20);
+        Future<?>[] futures = {submit(cold), submit(hot), submit(warm1), submit(warm2)};
+        releaseAndWait(futures);
+
+        // compilations with the same priority start in the order they were queued
+        assertEquals(Arrays.asList(hot, warm1, warm2, cold), compiled);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        block(createTarget(0));
+        OptimizedCallTarget cancelled = createTarget(20);
+        OptimizedCallTarget other = createTarget(10);
+        Future<?> cancelledFuture = submit(cancelled);
+        Future<?> otherFuture = submit(other);
+
+        assertTrue(queue.isCompiling(cancelled));
+        assertTrue(queue.cancel(cancelled));
+        assertTrue(cancelledFuture.isCancelled());
+        assertFalse(queue.isCompiling(cancelled));
+        assertFalse(queue.cancel(cancelled));
+
+        releaseAndWait(otherFuture);
+        assertEquals(Arrays.asList(other), compiled);
+        assertFalse(queue.isCompiling(other));
+        assertNull(queue.getCompilation(other));
+    }
+
+    @Test
+    public void testReprioritize() throws Exception {
+        block(createTarget(0));
+        OptimizedCallTarget target = createTarget(10);
+        OptimizedCallTarget other = createTarget(15);
+        Future<?>[] futures = {submit(target), submit(other)};
+
+        // the call count did not grow enough
+        call(target, 5);
+        assertFalse(queue.reprioritize(target, REPRIORITIZE_FACTOR));
+
+        call(target, 5);
+        assertTrue(queue.reprioritize(target, REPRIORITIZE_FACTOR));
+        assertFalse(queue.reprioritize(target, REPRIORITIZE_FACTOR));
+        assertFalse(queue.reprioritize(createTarget(100), REPRIORITIZE_FACTOR));
+
+        releaseAndWait(futures);
+        assertEquals(Arrays.asList(target, other), compiled);
+    }
+
+    @Test
+    public void testReprioritizeRunning() throws Exception {
+        OptimizedCallTarget target = createTarget(10);
+        Future<?> future = block(target);
+
+        // a compilation that was started cannot be requeued
+        call(target, 100);
+        assertFalse(queue.reprioritize(target, REPRIORITIZE_FACTOR));
+        assertTrue(queue.isCompiling(target));
+
+        releaseAndWait(future);
+        assertFalse(queue.isCompiling(target));
+    }
+}
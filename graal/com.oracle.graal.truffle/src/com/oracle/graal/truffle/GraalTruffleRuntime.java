@@ -197,6 +197,12 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
 
     public abstract boolean isCompiling(OptimizedCallTarget optimizedCallTarget);
 
+    /**
+     * Notifies the runtime that a call target with a pending compilation is still being called in
+     * the interpreter, giving the runtime a chance to move it ahead in the compilation queue.
+     */
+    public abstract void reprioritizeCompilation(OptimizedCallTarget optimizedCallTarget);
+
     public abstract void invalidateInstalledCode(OptimizedCallTarget optimizedCallTarget);
 
     public abstract void reinstallStubs();
@@ -323,6 +323,8 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         if (!runtime.isCompiling(this)) {
             logOptimizingQueued(this);
             runtime.compile(this, TruffleBackgroundCompilation.getValue() && !TruffleCompilationExceptionsAreThrown.getValue());
+        } else {
+            runtime.reprioritizeCompilation(this);
         }
     }
 
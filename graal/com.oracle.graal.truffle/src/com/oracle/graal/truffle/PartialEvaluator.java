@@ -67,7 +67,12 @@ public class PartialEvaluator {
 
     private final Providers providers;
     private final CanonicalizerPhase canonicalizer;
-    private Set<Constant> constantReceivers;
+    /**
+     * The constant receivers of the Truffle node methods expanded by the compilation running on the
+     * current thread. Only collected if they are traced. The partial evaluator is shared by all
+     * Truffle compiler threads.
+     */
+    private final ThreadLocal<Set<Constant>> constantReceivers = new ThreadLocal<>();
     private final TruffleCache truffleCache;
     private final SnippetReflectionProvider snippetReflection;
     private final ResolvedJavaMethod callDirectMethod;
@@ -84,10 +89,6 @@ public class PartialEvaluator {
     }
 
     public StructuredGraph createGraph(final OptimizedCallTarget callTarget, final Assumptions assumptions) {
-        if (TraceTruffleCompilationHistogram.getValue() || TraceTruffleCompilationDetails.getValue()) {
-            constantReceivers = new HashSet<>();
-        }
-
         try (Scope c = Debug.scope("TruffleTree")) {
             Debug.dump(callTarget, "truffle tree");
         } catch (Throwable e) {
@@ -96,6 +97,9 @@ public class PartialEvaluator {
         final StructuredGraph graph = truffleCache.createRootGraph(callTarget.toString());
         assert graph != null : "no graph for root method";
 
+        if (TraceTruffleCompilationHistogram.getValue() || TraceTruffleCompilationDetails.getValue()) {
+            constantReceivers.set(new HashSet<>());
+        }
         try (Scope s = Debug.scope("CreateGraph", graph); Indent indent = Debug.logAndIndent("createGraph %s", graph)) {
             // Canonicalize / constant propagate.
             PhaseContext baseContext = new PhaseContext(providers, assumptions);
@@ -127,8 +131,8 @@ public class PartialEvaluator {
 
             new VerifyFrameDoesNotEscapePhase().apply(graph, false);
 
-            if (TraceTruffleCompilationHistogram.getValue() && constantReceivers != null) {
-                createHistogram();
+            if (TraceTruffleCompilationHistogram.getValue() && constantReceivers.get() != null) {
+                createHistogram(constantReceivers.get());
             }
 
             canonicalizer.apply(graph, baseContext);
@@ -183,6 +187,8 @@ public class PartialEvaluator {
 
         } catch (Throwable e) {
             throw Debug.handle(e);
+        } finally {
+            constantReceivers.remove();
         }
 
         return graph;
@@ -203,9 +209,9 @@ public class PartialEvaluator {
         new IncrementalCanonicalizerPhase<>(canonicalizer, new ReplaceIntrinsicsPhase(providers.getReplacements())).apply(graph, baseContext);
     }
 
-    private void createHistogram() {
+    private void createHistogram(Set<Constant> receivers) {
         DebugHistogram histogram = Debug.createHistogram("Expanded Truffle Nodes");
-        for (Constant c : constantReceivers) {
+        for (Constant c : receivers) {
             String javaName = providers.getMetaAccess().lookupJavaType(c).toJavaName(false);
 
             // The DSL uses nested classes with redundant names - only show the inner class
@@ -230,8 +236,9 @@ public class PartialEvaluator {
                 InvokeKind kind = methodCallTargetNode.invokeKind();
                 try (Indent id1 = Debug.logAndIndent("try inlining %s, kind = %s", methodCallTargetNode.targetMethod(), kind)) {
                     if (kind == InvokeKind.Static || kind == InvokeKind.Special) {
-                        if ((TraceTruffleCompilationHistogram.getValue() || TraceTruffleCompilationDetails.getValue()) && kind == InvokeKind.Special && methodCallTargetNode.receiver().isConstant()) {
-                            constantReceivers.add(methodCallTargetNode.receiver().asConstant());
+                        Set<Constant> receivers = constantReceivers.get();
+                        if (receivers != null && kind == InvokeKind.Special && methodCallTargetNode.receiver().isConstant()) {
+                            receivers.add(methodCallTargetNode.receiver().asConstant());
                         }
 
                         Replacements replacements = providers.getReplacements();
@@ -341,6 +348,9 @@ public class PartialEvaluator {
         PhaseContext phaseContext = new PhaseContext(providers, assumptions);
 
         for (MethodCallTargetNode methodCallTargetNode : graph.getNodes(MethodCallTargetNode.class).snapshot()) {
+            if (CompilationBudget.stopInlining()) {
+                break;
+            }
             StructuredGraph inlineGraph = parseDirectCallGraph(phaseContext, assumptions, inlining, inliningCache, methodCallTargetNode);
 
             if (inlineGraph != null) {
@@ -491,6 +501,7 @@ public class PartialEvaluator {
             StructuredGraph inlineGraph = cache.get(cacheKey);
             if (inlineGraph == null) {
                 inlineGraph = createInlineGraph(phaseContext, assumptions, this, decision);
+                inlineGraph.clearLastSchedule();
                 cache.put(cacheKey, inlineGraph);
             }
             return inlineGraph;
@@ -23,7 +23,6 @@
 package com.oracle.graal.truffle;
 
 import java.util.*;
-import java.util.Map.Entry;
 
 import com.oracle.graal.api.code.*;
 import com.oracle.graal.api.meta.*;
@@ -51,16 +50,48 @@ import com.oracle.truffle.api.nodes.*;
 
 /**
  * Implementation of a cache for Truffle graphs for improving partial evaluation time.
+ *
+ * The cache is shared by all Truffle compiler threads. It is bounded both by the number of cached
+ * graphs ({@link TruffleCompilerOptions#TruffleMaxCompilationCacheSize}) and by the total number of
+ * nodes in the cached graphs ({@link TruffleCompilerOptions#TruffleMaxCompilationCacheNodeCount}).
+ * When either bound is exceeded, the least recently used graphs are evicted one at a time until
+ * the cache fits again. Graphs are built outside the cache lock, so a graph that is requested by
+ * two threads at the same time may be built twice.
  */
 public class TruffleCacheImpl implements TruffleCache {
 
+    private static final DebugMetric CacheHits = Debug.metric("TruffleCacheHits");
+    private static final DebugMetric CacheMisses = Debug.metric("TruffleCacheMisses");
+    private static final DebugMetric CacheEvictions = Debug.metric("TruffleCacheEvictions");
+    private static final DebugMetric CacheEvictedNodes = Debug.metric("TruffleCacheEvictedNodes");
+
     private final Providers providers;
     private final GraphBuilderConfiguration config;
     private final GraphBuilderConfiguration configForRoot;
     private final OptimisticOptimizations optimisticOptimizations;
 
-    private final HashMap<List<Object>, StructuredGraph> cache = new HashMap<>();
-    private final HashMap<List<Object>, Long> lastUsed = new HashMap<>();
+    /**
+     * Cached graphs in least recently used order. Guarded by {@code cache}.
+     */
+    private final LinkedHashMap<List<Object>, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Sum of the {@linkplain CacheEntry#weight weights} of all entries in {@link #cache}. Guarded
+     * by {@code cache}.
+     */
+    private long cachedNodeCount;
+
+    /**
+     * Keys of the graphs that are currently being built by the current thread. Used to detect
+     * recursive calls.
+     */
+    private final ThreadLocal<Set<List<Object>>> keysInProgress = new ThreadLocal<Set<List<Object>>>() {
+        @Override
+        protected Set<List<Object>> initialValue() {
+            return new HashSet<>();
+        }
+    };
+
     private final StructuredGraph markerGraph = new StructuredGraph();
 
     private final ResolvedJavaType stringBuilderClass;
@@ -71,7 +102,21 @@ public class TruffleCacheImpl implements TruffleCache {
     private final ResolvedJavaMethod callRootMethod;
     private final ResolvedJavaMethod callInlinedMethod;
 
-    private long counter;
+    private static final class CacheEntry {
+
+        final StructuredGraph graph;
+
+        /**
+         * The node count of {@link #graph} at the time it was added to the cache. The graph is not
+         * modified once it is in the cache.
+         */
+        final int weight;
+
+        CacheEntry(StructuredGraph graph) {
+            this.graph = graph;
+            this.weight = Math.max(1, graph.getNodeCount());
+        }
+    }
 
     public TruffleCacheImpl(Providers providers, GraphBuilderConfiguration config, GraphBuilderConfiguration configForRoot, OptimisticOptimizations optimisticOptimizations) {
         this.providers = providers;
@@ -117,7 +162,7 @@ public class TruffleCacheImpl implements TruffleCache {
 
     public StructuredGraph lookup(ResolvedJavaMethod method, NodeInputList<ValueNode> arguments, CanonicalizerPhase canonicalizer) {
         List<Object> key = computeCacheKey(method, arguments);
-        StructuredGraph resultGraph = cache.get(key);
+        StructuredGraph resultGraph = cacheGet(key);
         if (resultGraph == markerGraph) {
             // compilation failed previously, don't try again
             return null;
@@ -133,16 +178,18 @@ public class TruffleCacheImpl implements TruffleCache {
         }
 
         List<Object> key = computeCacheKey(method, arguments);
-        StructuredGraph resultGraph = cache.get(key);
+        StructuredGraph resultGraph = cacheGet(key);
         if (resultGraph != null) {
-            lastUsed.put(key, counter++);
+            CacheHits.increment();
             return resultGraph;
         }
-
-        if (lastUsed.values().size() >= TruffleCompilerOptions.TruffleMaxCompilationCacheSize.getValue()) {
-            lookupExceedsMaxSize();
+        Set<List<Object>> inProgress = keysInProgress.get();
+        if (inProgress.contains(key)) {
+            return markerGraph;
         }
+        CacheMisses.increment();
 
+        inProgress.add(key);
         try (Scope s = Debug.scope("TruffleCache", providers.getMetaAccess(), method)) {
 
             final PhaseContext phaseContext = new PhaseContext(providers, new Assumptions(false));
@@ -153,9 +200,6 @@ public class TruffleCacheImpl implements TruffleCache {
                 return null;
             }
 
-            lastUsed.put(key, counter++);
-            cache.put(key, markerGraph);
-
             for (ParameterNode param : graph.getNodes(ParameterNode.class)) {
                 if (param.getKind() == Kind.Object) {
                     ValueNode actualArgument = arguments.get(param.index());
@@ -213,34 +257,58 @@ public class TruffleCacheImpl implements TruffleCache {
                 }
             }
 
-            cache.put(key, graph);
+            cachePut(key, graph);
             if (TruffleCompilerOptions.TraceTruffleCacheDetails.getValue()) {
                 TTY.println(String.format("[truffle] added to graph cache method %s with %d nodes.", method, graph.getNodeCount()));
             }
             return graph;
         } catch (Throwable e) {
+            // compilation failed, don't try again
+            cachePut(key, markerGraph);
             throw Debug.handle(e);
+        } finally {
+            inProgress.remove(key);
         }
     }
 
-    private void lookupExceedsMaxSize() {
-        List<Long> lastUsedList = new ArrayList<>();
-        for (long l : lastUsed.values()) {
-            lastUsedList.add(l);
+    private StructuredGraph cacheGet(List<Object> key) {
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            return entry == null ? null : entry.graph;
         }
-        Collections.sort(lastUsedList);
-        long mid = lastUsedList.get(lastUsedList.size() / 2);
+    }
 
-        List<List<Object>> toRemoveList = new ArrayList<>();
-        for (Entry<List<Object>, Long> entry : lastUsed.entrySet()) {
-            if (entry.getValue() < mid) {
-                toRemoveList.add(entry.getKey());
+    private void cachePut(List<Object> key, StructuredGraph graph) {
+        graph.clearLastSchedule();
+        CacheEntry entry = new CacheEntry(graph);
+        synchronized (cache) {
+            CacheEntry previous = cache.put(key, entry);
+            if (previous != null) {
+                cachedNodeCount -= previous.weight;
             }
+            cachedNodeCount += entry.weight;
+            evictLeastRecentlyUsed();
         }
+    }
 
-        for (List<Object> entry : toRemoveList) {
-            cache.remove(entry);
-            lastUsed.remove(entry);
+    /**
+     * Evicts the least recently used entries until the cache is within its size bounds again. The
+     * most recently added entry is never evicted.
+     */
+    private void evictLeastRecentlyUsed() {
+        assert Thread.holdsLock(cache);
+        int maxEntries = TruffleCompilerOptions.TruffleMaxCompilationCacheSize.getValue();
+        long maxNodes = TruffleCompilerOptions.TruffleMaxCompilationCacheNodeCount.getValue();
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        while (cache.size() > 1 && (cache.size() > maxEntries || cachedNodeCount > maxNodes)) {
+            CacheEntry eldest = iterator.next();
+            iterator.remove();
+            cachedNodeCount -= eldest.weight;
+            CacheEvictions.increment();
+            CacheEvictedNodes.add(eldest.weight);
+            if (TruffleCompilerOptions.TraceTruffleCacheDetails.getValue() && eldest.graph != markerGraph) {
+                TTY.println(String.format("[truffle] evicted from graph cache method %s with %d nodes.", eldest.graph.method(), eldest.weight));
+            }
         }
     }
 
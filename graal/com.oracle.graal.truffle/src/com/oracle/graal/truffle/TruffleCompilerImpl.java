@@ -116,17 +116,22 @@ public class TruffleCompilerImpl {
         long timeCompilationStarted = System.nanoTime();
         Assumptions assumptions = new Assumptions(true);
 
-        try (TimerCloseable a = PartialEvaluationTime.start(); Closeable c = PartialEvaluationMemUse.start()) {
-            graph = partialEvaluator.createGraph(compilable, assumptions);
-        }
+        long timePartialEvaluationFinished;
+        int nodeCountPartialEval;
+        CompilationResult compilationResult;
+        try (CompilationBudget.Scope budget = CompilationBudget.open()) {
+            try (TimerCloseable a = PartialEvaluationTime.start(); Closeable c = PartialEvaluationMemUse.start()) {
+                graph = partialEvaluator.createGraph(compilable, assumptions);
+            }
 
-        if (Thread.currentThread().isInterrupted()) {
-            return;
-        }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
 
-        long timePartialEvaluationFinished = System.nanoTime();
-        int nodeCountPartialEval = graph.getNodeCount();
-        CompilationResult compilationResult = compileMethodHelper(graph, assumptions, compilable.toString(), compilable.getSpeculationLog(), compilable);
+            timePartialEvaluationFinished = System.nanoTime();
+            nodeCountPartialEval = graph.getNodeCount();
+            compilationResult = compileMethodHelper(graph, assumptions, compilable.toString(), compilable.getSpeculationLog(), compilable);
+        }
         long timeCompilationFinished = System.nanoTime();
         int nodeCountLowered = graph.getNodeCount();
 
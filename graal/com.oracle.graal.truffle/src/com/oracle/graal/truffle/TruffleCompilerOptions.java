@@ -82,8 +82,14 @@ public class TruffleCompilerOptions {
     public static final OptionValue<Integer> TruffleSplittingMaxCalleeSize = new OptionValue<>(100);
     @Option(help = "Number of most recently used methods in truffle cache")
     public static final OptionValue<Integer> TruffleMaxCompilationCacheSize = new OptionValue<>(512);
+    @Option(help = "Maximum total number of Graal IR nodes in the graphs of the truffle cache")
+    public static final OptionValue<Integer> TruffleMaxCompilationCacheNodeCount = new OptionValue<>(200000);
     @Option(help = "Enable asynchronous truffle compilation in background thread")
     public static final OptionValue<Boolean> TruffleBackgroundCompilation = new OptionValue<>(true);
+    @Option(help = "Number of threads used for asynchronous truffle compilation")
+    public static final OptionValue<Integer> TruffleCompilerThreads = new OptionValue<>(1);
+    @Option(help = "Requeue a pending compilation with higher priority once its call and loop count grew by this factor")
+    public static final OptionValue<Integer> TruffleCompilationReprioritizeFactor = new OptionValue<>(2);
     @Option(help = "")
     public static final OptionValue<Integer> TruffleCompilationDecisionTime = new OptionValue<>(100);
     @Option(help = "")
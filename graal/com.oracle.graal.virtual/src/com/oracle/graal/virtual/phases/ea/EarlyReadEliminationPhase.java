@@ -36,6 +36,11 @@ public class EarlyReadEliminationPhase extends EffectsPhase<PhaseContext> {
         super(1, canonicalizer, true);
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, PhaseContext context) {
         if (VirtualUtil.matches(graph, EscapeAnalyzeOnly.getValue())) {
@@ -23,6 +23,7 @@
 package com.oracle.graal.virtual.phases.ea;
 
 import static com.oracle.graal.graph.util.CollectionsAccess.*;
+import static com.oracle.graal.virtual.phases.ea.PartialEscapePhase.Options.*;
 
 import java.util.*;
 
@@ -47,6 +48,7 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
     public static final DebugMetric METRIC_MATERIALIZATIONS = Debug.metric("Materializations");
     public static final DebugMetric METRIC_MATERIALIZATIONS_PHI = Debug.metric("MaterializationsPhi");
     public static final DebugMetric METRIC_MATERIALIZATIONS_MERGE = Debug.metric("MaterializationsMerge");
+    public static final DebugMetric METRIC_MATERIALIZATIONS_MERGE_AVOIDED = Debug.metric("MaterializationsMergeAvoided");
     public static final DebugMetric METRIC_MATERIALIZATIONS_UNHANDLED = Debug.metric("MaterializationsUnhandled");
     public static final DebugMetric METRIC_MATERIALIZATIONS_LOOP_REITERATION = Debug.metric("MaterializationsLoopReiteration");
     public static final DebugMetric METRIC_MATERIALIZATIONS_LOOP_END = Debug.metric("MaterializationsLoopEnd");
@@ -275,6 +277,7 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
         private final HashMap<Object, ValuePhiNode> materializedPhis = new HashMap<>();
         private final Map<ValueNode, ValuePhiNode[]> valuePhis = newIdentityMap();
         private final Map<ValuePhiNode, VirtualObjectNode> valueObjectVirtuals = newNodeIdentityMap();
+        private BitSet reachableBlocks;
 
         public MergeProcessor(Block mergeBlock) {
             super(mergeBlock);
@@ -356,6 +359,10 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
                     } else {
                         if (uniqueMaterializedValue != null) {
                             newState.addObject(object, new ObjectState(object, uniqueMaterializedValue, EscapeState.Materialized, null));
+                        } else if (OptAllocationSinking.getValue() && !isObservedAfterMerge(object, states, null)) {
+                            // the object is dead after the merge: it only needs to be allocated in
+                            // the predecessors in which it escaped
+                            METRIC_MATERIALIZATIONS_MERGE_AVOIDED.increment();
                         } else {
                             PhiNode materializedValuePhi = getCachedPhi(object, StampFactory.forKind(Kind.Object));
                             mergeEffects.addFloatingNode(materializedValuePhi, "materializedPhi");
@@ -583,7 +590,8 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
                     for (int i = 0; i < objStates.length; i++) {
                         ObjectState obj = objStates[i];
                         hasIdentity |= obj.virtual.hasIdentity();
-                        boolean identitySurvives = obj.virtual.hasIdentity() && mergedVirtualObjects.contains(obj.virtual);
+                        boolean identitySurvives = obj.virtual.hasIdentity() && mergedVirtualObjects.contains(obj.virtual) &&
+                                        (!OptAllocationSinking.getValue() || isObservedAfterMerge(obj.virtual, states, phi));
                         if (identitySurvives || !firstObj.virtual.type().equals(obj.virtual.type()) || firstObj.virtual.entryCount() != obj.virtual.entryCount() || !firstObj.locksEqual(obj)) {
                             compatible = false;
                             break;
@@ -626,6 +634,76 @@ public abstract class PartialEscapeClosure<BlockT extends PartialEscapeBlockStat
             }
             return materialized;
         }
+
+        /**
+         * Determines if a virtual object can still be observed after the merge. This is the case if
+         * it is locked, if another virtual object in one of the predecessor states references it,
+         * or if a node that represents it has a usage that can execute after the merge. Usages that
+         * are neither fixed nodes nor frame states are conservatively treated as observations.
+         *
+         * @param virtual the virtual object in question
+         * @param states the predecessor block states of the merge
+         * @param ignoredUsage a usage that should not be considered, or null
+         * @return true if the identity or the contents of the object are needed after the merge
+         */
+        private boolean isObservedAfterMerge(VirtualObjectNode virtual, List<BlockT> states, Node ignoredUsage) {
+            for (BlockT state : states) {
+                for (ObjectState obj : state.getStates()) {
+                    if (obj.virtual == virtual) {
+                        if (obj.hasLocks()) {
+                            return true;
+                        }
+                    } else if (obj.isVirtual() && Arrays.asList(obj.getEntries()).contains(virtual)) {
+                        return true;
+                    }
+                }
+            }
+            for (Node node : merge.graph().getNodes()) {
+                if (isAlias(node, virtual)) {
+                    for (Node usage : node.usages()) {
+                        if (usage != ignoredUsage && !isAlias(usage, virtual) && isReachableFromMerge(usage)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean isAlias(Node node, VirtualObjectNode virtual) {
+            return node == virtual || (!aliases.isNew(node) && aliases.get(node) == virtual);
+        }
+
+        private boolean isReachableFromMerge(Node usage) {
+            if (usage instanceof VirtualState) {
+                for (Node stateUsage : usage.usages()) {
+                    if (isReachableFromMerge(stateUsage)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            Block block = usage instanceof FixedNode ? cfg.blockFor(usage) : null;
+            return block == null || getReachableBlocks().get(block.getId());
+        }
+
+        private BitSet getReachableBlocks() {
+            if (reachableBlocks == null) {
+                reachableBlocks = new BitSet(cfg.getBlocks().size());
+                ArrayDeque<Block> worklist = new ArrayDeque<>();
+                reachableBlocks.set(mergeBlock.getId());
+                worklist.add(mergeBlock);
+                while (!worklist.isEmpty()) {
+                    for (Block successor : worklist.removeFirst().getSuccessors()) {
+                        if (!reachableBlocks.get(successor.getId())) {
+                            reachableBlocks.set(successor.getId());
+                            worklist.add(successor);
+                        }
+                    }
+                }
+            }
+            return reachableBlocks;
+        }
     }
 
     public ObjectState getObjectState(PartialEscapeBlockState<?> state, ValueNode value) {
@@ -47,6 +47,8 @@ public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
         //@formatter:off
         @Option(help = "")
         public static final OptionValue<Boolean> OptEarlyReadElimination = new OptionValue<>(true);
+        @Option(help = "Do not materialize objects at merges and loop headers if they are not used afterwards")
+        public static final OptionValue<Boolean> OptAllocationSinking = new OptionValue<>(true);
         //@formatter:on
     }
 
@@ -75,6 +77,11 @@ public class PartialEscapePhase extends EffectsPhase<PhaseContext> {
         }
     }
 
+    @Override
+    public boolean isOptional() {
+        return true;
+    }
+
     @Override
     protected void run(StructuredGraph graph, PhaseContext context) {
         if (VirtualUtil.matches(graph, EscapeAnalyzeOnly.getValue())) {
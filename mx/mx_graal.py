@@ -2029,6 +2029,18 @@ def sl(args):
     vmArgs, slArgs = _extract_VM_args(args)
     vm(vmArgs + ['-cp', mx.classpath(["TRUFFLE", "com.oracle.truffle.sl"]), "com.oracle.truffle.sl.SLMain"] + slArgs)
 
+def microbench(args):
+    """run JMH microbenchmarks defined in Graal projects
+
+    The benchmarks are run in the VM selected by the --vm and --vmbuild
+    options. Arguments after -- are passed to JMH (e.g. a benchmark
+    filter or -f 1 -wi 5)."""
+    vmArgs, jmhArgs = _extract_VM_args(args, useDoubleDash=True)
+    jmhProjects = [p.name for p in mx.projects() if 'JMH_GENERATOR_ANNPROCESS' in p.annotation_processors()]
+    if '-XX:-UseGraalClassLoader' not in vmArgs:
+        vmArgs = ['-XX:-UseGraalClassLoader'] + vmArgs
+    vm(vmArgs + ['-cp', mx.classpath(jmhProjects), 'org.openjdk.jmh.Main'] + jmhArgs)
+
 def isGraalEnabled(vm):
     return vm != 'original' and not vm.endswith('nograal')
 
@@ -2261,6 +2273,7 @@ def mx_init(suite):
         'bench' : [bench, '[-resultfile file] [all(default)|dacapo|specjvm2008|bootstrap]'],
         'unittest' : [unittest, '[unittest options] [--] [VM options] [filters...]', _unittestHelpSuffix],
         'makejmhdeps' : [makejmhdeps, ''],
+        'microbench' : [microbench, '[VM options] [-- [JMH options]]'],
         'shortunittest' : [shortunittest, '[unittest options] [--] [VM options] [filters...]', _unittestHelpSuffix],
         'jacocoreport' : [jacocoreport, '[output directory]'],
         'site' : [site, '[-options]'],
@@ -169,6 +169,41 @@ suite = {
         "https://search.maven.org/remotecontent?filepath=java3d/vecmath/1.3.1/vecmath-1.3.1.jar",
       ],
       "sha1" : "a0ae4f51da409fa0c20fa0ca59e6bbc9413ae71d",
+    },
+
+    "JMH" : {
+      "path" : "lib/jmh-core-1.1.1.jar",
+      "urls" : [
+        "https://search.maven.org/remotecontent?filepath=org/openjdk/jmh/jmh-core/1.1.1/jmh-core-1.1.1.jar",
+      ],
+      "sha1" : "09de80f9d2f387b1a10e05e623cf7119549ec57a",
+      "dependencies" : ["JOPT_SIMPLE", "COMMONS_MATH3"],
+    },
+
+    "JMH_GENERATOR_ANNPROCESS" : {
+      "path" : "lib/jmh-generator-annprocess-1.1.1.jar",
+      "urls" : [
+        "https://search.maven.org/remotecontent?filepath=org/openjdk/jmh/jmh-generator-annprocess/1.1.1/jmh-generator-annprocess-1.1.1.jar",
+      ],
+      "sha1" : "3a9ace79232e9d037600776f9bfd9a4211d31508",
+      "dependencies" : ["JMH"],
+      "annotationProcessor" : "true",
+    },
+
+    "JOPT_SIMPLE" : {
+      "path" : "lib/jopt-simple-4.6.jar",
+      "urls" : [
+        "https://search.maven.org/remotecontent?filepath=net/sf/jopt-simple/jopt-simple/4.6/jopt-simple-4.6.jar",
+      ],
+      "sha1" : "306816fb57cf94f108a43c95731b08934dcae15c",
+    },
+
+    "COMMONS_MATH3" : {
+      "path" : "lib/commons-math3-3.2.jar",
+      "urls" : [
+        "https://search.maven.org/remotecontent?filepath=org/apache/commons/commons-math3/3.2/commons-math3-3.2.jar",
+      ],
+      "sha1" : "ec2544ab27e110d2d431bdad7d538ed509b21e62",
     }
   },
 
@@ -431,7 +466,7 @@ suite = {
       "sourceDirs" : ["src"],
       "dependencies" : [
         "com.oracle.graal.replacements.test",
-        "com.oracle.graal.hotspot",
+        "com.oracle.graal.hotspot.server",
       ],
       "checkstyle" : "com.oracle.graal.graph",
       "javaCompliance" : "1.8",
@@ -519,6 +554,19 @@ suite = {
       "workingSets" : "Graal,Graph,Test",
     },
 
+    "com.oracle.graal.microbenchmarks" : {
+      "subDir" : "graal",
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "JMH",
+        "com.oracle.graal.compiler.test",
+      ],
+      "checkstyle" : "com.oracle.graal.graph",
+      "javaCompliance" : "1.8",
+      "annotationProcessors" : ["JMH_GENERATOR_ANNPROCESS"],
+      "workingSets" : "Graal,Bench",
+    },
+
     "com.oracle.graal.debug" : {
       "subDir" : "graal",
       "sourceDirs" : ["src"],
@@ -1166,7 +1214,7 @@ suite = {
       "subDir" : "graal",
       "sourceDirs" : ["src"],
       "dependencies" : [
-        "com.oracle.graal.truffle",
+        "com.oracle.graal.truffle.hotspot",
         "com.oracle.graal.compiler.test",
         "com.oracle.truffle.sl.test",
       ],
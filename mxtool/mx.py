@@ -488,7 +488,12 @@ class Project(Dependency):
             if hasattr(self, '_declaredAnnotationProcessors'):
                 aps = set(self._declaredAnnotationProcessors)
                 for ap in aps:
-                    if project(ap).definedAnnotationProcessorsDist is None:
+                    apDep = dependency(ap)
+                    if apDep.isLibrary():
+                        if getattr(apDep, 'annotationProcessor', 'false').lower() != 'true':
+                            abort('Library ' + ap + ' declared in annotationProcessors property of ' + self.name + ' is not an annotation processor.\n' +
+                                  'Please add "annotationProcessor" : "true" to its definition')
+                    elif apDep.definedAnnotationProcessorsDist is None:
                         config = join(project(ap).source_dirs()[0], 'META-INF', 'services', 'javax.annotation.processing.Processor')
                         if not exists(config):
                             TimeStampFile(config).touch()
@@ -512,9 +517,16 @@ class Project(Dependency):
     annotation processors that will be applied when compiling this project.
     """
     def annotation_processors_path(self):
-        aps = [project(ap) for ap in self.annotation_processors()]
+        aps = [dependency(ap) for ap in self.annotation_processors()]
         if len(aps):
-            return os.pathsep.join([ap.definedAnnotationProcessorsDist.path for ap in aps if ap.definedAnnotationProcessorsDist])
+            entries = []
+            for ap in aps:
+                if ap.isLibrary():
+                    # a library annotation processor is run with the libraries it depends on
+                    entries += [lib.get_path(resolve=True) for lib in ap.all_deps([], includeLibs=True)]
+                elif ap.definedAnnotationProcessorsDist:
+                    entries.append(ap.definedAnnotationProcessorsDist.path)
+            return os.pathsep.join(entries)
         return None
 
     def update_current_annotation_processors_file(self):